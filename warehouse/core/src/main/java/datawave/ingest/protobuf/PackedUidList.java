@@ -0,0 +1,447 @@
+package datawave.ingest.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * A binary encoding of a {@link Uid.List} for the shard index. The uids in each list are sorted by their bytes and front coded, so each uid is stored as the
+ * length of the prefix it shares with the previous uid followed by the rest of its bytes. The lists can be read by streaming over the bytes without building
+ * Strings, and the ignore flag and count can be read without reading the lists at all.
+ * <p>
+ * The encoding begins with a zero byte, which is never the first byte of a serialized {@link Uid.List} (a protobuf field number cannot be zero), so values in
+ * either encoding can be told apart and read with {@link #parse(byte[])}. The layout is:
+ *
+ * <pre>
+ * 0x00
+ * flags (bit 0 is IGNORE, bits 1 to 3 mark which of the lists are present)
+ * zig-zag varint COUNT
+ * the UID, REMOVEDUID, and QUARANTINEUID lists that are not empty, each as:
+ *     varint number of uids, varint number of bytes, and then for each uid: varint shared prefix length, varint suffix length, suffix
+ * </pre>
+ */
+public class PackedUidList {
+    
+    public static final byte MAGIC = 0;
+    private static final int IGNORE_FLAG = 1;
+    private static final int LIST_FLAG = 2;
+    
+    private final byte[] value;
+    private final boolean ignore;
+    private final long count;
+    // the offsets of the UID, REMOVEDUID, and QUARANTINEUID lists, or -1 for an empty list
+    private final int[] offsets = new int[3];
+    
+    /**
+     * @param value
+     *            a value in the packed encoding
+     * @throws InvalidProtocolBufferException
+     *             if the value is not in the packed encoding or is truncated
+     */
+    public PackedUidList(byte[] value) throws InvalidProtocolBufferException {
+        if (!isPacked(value) || value.length < 3) {
+            throw new InvalidProtocolBufferException("Value is not a packed uid list");
+        }
+        this.value = value;
+        this.ignore = (value[1] & IGNORE_FLAG) != 0;
+        try {
+            int[] pos = {2};
+            long zigzag = readVarLong(value, pos);
+            this.count = (zigzag >>> 1) ^ -(zigzag & 1);
+            for (int i = 0; i < offsets.length; i++) {
+                if ((value[1] & (LIST_FLAG << i)) == 0) {
+                    offsets[i] = -1;
+                    continue;
+                }
+                offsets[i] = pos[0];
+                readVarLong(value, pos);
+                int length = (int) readVarLong(value, pos);
+                pos[0] += length;
+                if (pos[0] > value.length) {
+                    throw new InvalidProtocolBufferException("Truncated packed uid list");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+    }
+    
+    /**
+     * @param value
+     *            a value from the shard index
+     * @return true if the value is in the packed encoding rather than a serialized {@link Uid.List}
+     */
+    public static boolean isPacked(byte[] value) {
+        return value != null && value.length > 0 && value[0] == MAGIC;
+    }
+    
+    /**
+     * Read a value in either encoding
+     *
+     * @param value
+     *            a packed uid list or a serialized {@link Uid.List}
+     * @return the uid list
+     * @throws InvalidProtocolBufferException
+     *             if the value is in neither encoding
+     */
+    public static Uid.List parse(byte[] value) throws InvalidProtocolBufferException {
+        if (isPacked(value)) {
+            return new PackedUidList(value).toUidList();
+        }
+        return Uid.List.parseFrom(value);
+    }
+    
+    /**
+     * @param list
+     *            a uid list
+     * @return the uid list in the packed encoding
+     */
+    public static byte[] encode(Uid.List list) {
+        return encode(list.getIGNORE(), list.getCOUNT(), toByteSequences(list.getUIDCount(), list::getUIDBytes),
+                        toByteSequences(list.getREMOVEDUIDCount(), list::getREMOVEDUIDBytes),
+                        toByteSequences(list.getQUARANTINEUIDCount(), list::getQUARANTINEUIDBytes));
+    }
+    
+    private interface ByteStringGetter {
+        ByteString get(int index);
+    }
+    
+    private static List<ByteSequence> toByteSequences(int size, ByteStringGetter getter) {
+        List<ByteSequence> uids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            uids.add(new ArrayByteSequence(getter.get(i).toByteArray()));
+        }
+        return uids;
+    }
+    
+    /**
+     * Encode a uid list
+     *
+     * @param ignore
+     *            the ignore flag
+     * @param count
+     *            the count
+     * @param uids
+     *            the uids, in any order
+     * @param removedUids
+     *            the removed uids, in any order
+     * @param quarantinedUids
+     *            the quarantined uids, in any order
+     * @return the uid list in the packed encoding
+     */
+    public static byte[] encode(boolean ignore, long count, Collection<? extends ByteSequence> uids, Collection<? extends ByteSequence> removedUids,
+                    Collection<? extends ByteSequence> quarantinedUids) {
+        Buffer out = new Buffer(32 + 24 * (uids.size() + removedUids.size() + quarantinedUids.size()));
+        out.write(MAGIC);
+        int flags = ignore ? IGNORE_FLAG : 0;
+        flags |= uids.isEmpty() ? 0 : LIST_FLAG;
+        flags |= removedUids.isEmpty() ? 0 : LIST_FLAG << 1;
+        flags |= quarantinedUids.isEmpty() ? 0 : LIST_FLAG << 2;
+        out.write(flags);
+        out.writeVarLong((count << 1) ^ (count >> 63));
+        writeList(out, uids);
+        writeList(out, removedUids);
+        writeList(out, quarantinedUids);
+        return out.toByteArray();
+    }
+    
+    private static void writeList(Buffer out, Collection<? extends ByteSequence> uids) {
+        if (uids.isEmpty()) {
+            return;
+        }
+        ByteSequence[] sorted = uids.toArray(new ByteSequence[uids.size()]);
+        if (sorted.length > 1) {
+            Arrays.sort(sorted, PackedUidList::compare);
+        }
+        
+        // find the shared prefixes first so the size of the list can be written before it
+        int[] shared = new int[sorted.length];
+        int written = 0;
+        long size = 0;
+        ByteSequence previous = null;
+        for (int i = 0; i < sorted.length; i++) {
+            ByteSequence uid = sorted[i];
+            shared[i] = previous == null ? 0 : sharedPrefix(previous, uid);
+            // the lists are sets, so drop any duplicates
+            if (previous != null && shared[i] == uid.length() && shared[i] == previous.length()) {
+                shared[i] = -1;
+                continue;
+            }
+            int suffix = uid.length() - shared[i];
+            size += varLongSize(shared[i]) + varLongSize(suffix) + suffix;
+            previous = uid;
+            written++;
+        }
+        
+        out.writeVarLong(written);
+        out.writeVarLong(size);
+        for (int i = 0; i < sorted.length; i++) {
+            if (shared[i] < 0) {
+                continue;
+            }
+            ByteSequence uid = sorted[i];
+            int suffix = uid.length() - shared[i];
+            out.writeVarLong(shared[i]);
+            out.writeVarLong(suffix);
+            out.write(uid.getBackingArray(), uid.offset() + shared[i], suffix);
+        }
+    }
+    
+    private static int compare(ByteSequence a, ByteSequence b) {
+        byte[] aBytes = a.getBackingArray();
+        byte[] bBytes = b.getBackingArray();
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            int diff = (aBytes[a.offset() + i] & 0xff) - (bBytes[b.offset() + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length() - b.length();
+    }
+    
+    private static int sharedPrefix(ByteSequence a, ByteSequence b) {
+        byte[] aBytes = a.getBackingArray();
+        byte[] bBytes = b.getBackingArray();
+        int length = Math.min(a.length(), b.length());
+        int shared = 0;
+        while (shared < length && aBytes[a.offset() + shared] == bBytes[b.offset() + shared]) {
+            shared++;
+        }
+        return shared;
+    }
+    
+    public boolean isIgnore() {
+        return ignore;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public Cursor getUids() {
+        return new Cursor(value, offsets[0]);
+    }
+    
+    /**
+     * @param prefix
+     *            prepended to every uid, such as a datatype and separator
+     * @return the uids as Strings without surrounding whitespace, or an empty list if the ignore flag is set
+     */
+    public List<String> getUidStrings(String prefix) {
+        if (ignore) {
+            return Collections.emptyList();
+        }
+        Cursor cursor = getUids();
+        List<String> uids = new ArrayList<>(cursor.size());
+        while (cursor.next()) {
+            uids.add(prefix + cursor.toString().trim());
+        }
+        return uids;
+    }
+    
+    /**
+     * Read the uids of a serialized {@link Uid.List} directly, without converting it to the packed encoding
+     *
+     * @param list
+     *            a uid list
+     * @param prefix
+     *            prepended to every uid, such as a datatype and separator
+     * @return the uids as Strings without surrounding whitespace in the order of the list, or an empty list if the ignore flag is set
+     */
+    public static List<String> getUidStrings(Uid.List list, String prefix) {
+        if (list.getIGNORE()) {
+            return Collections.emptyList();
+        }
+        List<String> uids = new ArrayList<>(list.getUIDCount());
+        for (String uid : list.getUIDList()) {
+            uids.add(prefix + uid.trim());
+        }
+        return uids;
+    }
+    
+    public Cursor getRemovedUids() {
+        return new Cursor(value, offsets[1]);
+    }
+    
+    public Cursor getQuarantinedUids() {
+        return new Cursor(value, offsets[2]);
+    }
+    
+    /**
+     * @return the equivalent {@link Uid.List}
+     */
+    public Uid.List toUidList() {
+        Uid.List.Builder builder = Uid.List.newBuilder();
+        builder.setIGNORE(ignore);
+        builder.setCOUNT(count);
+        for (Cursor cursor = getUids(); cursor.next();) {
+            builder.addUIDBytes(cursor.toByteString());
+        }
+        for (Cursor cursor = getRemovedUids(); cursor.next();) {
+            builder.addREMOVEDUIDBytes(cursor.toByteString());
+        }
+        for (Cursor cursor = getQuarantinedUids(); cursor.next();) {
+            builder.addQUARANTINEUIDBytes(cursor.toByteString());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Streams over one of the front coded lists. The current uid is held in a buffer that is reused as the cursor advances.
+     */
+    public static class Cursor {
+        private final byte[] value;
+        private final int size;
+        private final int[] pos = new int[1];
+        private int remaining;
+        private byte[] buffer = new byte[64];
+        private int length = 0;
+        
+        private Cursor(byte[] value, int offset) {
+            this.value = value;
+            this.pos[0] = offset;
+            if (offset < 0) {
+                this.size = 0;
+            } else {
+                this.size = (int) readVarLong(value, pos);
+                // skip the byte length of the list
+                readVarLong(value, pos);
+            }
+            this.remaining = size;
+        }
+        
+        /**
+         * @return the number of uids in the list
+         */
+        public int size() {
+            return size;
+        }
+        
+        /**
+         * Advance to the next uid
+         *
+         * @return false if there are no more uids
+         */
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            int shared = (int) readVarLong(value, pos);
+            int suffix = (int) readVarLong(value, pos);
+            length = shared + suffix;
+            if (length > buffer.length) {
+                byte[] grown = new byte[Math.max(length, buffer.length * 2)];
+                System.arraycopy(buffer, 0, grown, 0, shared);
+                buffer = grown;
+            }
+            System.arraycopy(value, pos[0], buffer, shared, suffix);
+            pos[0] += suffix;
+            return true;
+        }
+        
+        /**
+         * @return the buffer holding the current uid, which is overwritten by {@link #next()}
+         */
+        public byte[] getBuffer() {
+            return buffer;
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        /**
+         * @return a copy of the current uid
+         */
+        public ByteSequence toByteSequence() {
+            byte[] copy = new byte[length];
+            System.arraycopy(buffer, 0, copy, 0, length);
+            return new ArrayByteSequence(copy);
+        }
+        
+        public ByteString toByteString() {
+            return ByteString.copyFrom(buffer, 0, length);
+        }
+        
+        @Override
+        public String toString() {
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+    
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (pos[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated varint in packed uid list");
+            }
+            b = bytes[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+    
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * A growable byte array, which unlike a ByteArrayOutputStream is not synchronized
+     */
+    private static class Buffer {
+        private byte[] bytes;
+        private int length = 0;
+        
+        private Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+        
+        private void write(int b) {
+            ensureCapacity(length + 1);
+            bytes[length++] = (byte) b;
+        }
+        
+        private void write(byte[] b, int offset, int len) {
+            ensureCapacity(length + len);
+            System.arraycopy(b, offset, bytes, length, len);
+            length += len;
+        }
+        
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+        
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
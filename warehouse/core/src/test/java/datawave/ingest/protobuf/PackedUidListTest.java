@@ -0,0 +1,106 @@
+package datawave.ingest.protobuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+public class PackedUidListTest {
+    
+    private static List<ByteSequence> uids(String... uids) {
+        List<ByteSequence> list = new ArrayList<>();
+        for (String uid : uids) {
+            list.add(new ArrayByteSequence(uid));
+        }
+        return list;
+    }
+    
+    private static List<String> toList(PackedUidList.Cursor cursor) {
+        List<String> list = new ArrayList<>();
+        while (cursor.next()) {
+            list.add(cursor.toString());
+        }
+        return list;
+    }
+    
+    @Test
+    public void testRoundTrip() throws InvalidProtocolBufferException {
+        byte[] value = PackedUidList.encode(false, 4, uids("a.b.c.2", "a.b.c", "a.b.c.10", "a.b.c"), uids("z.y"), Collections.emptyList());
+        Assert.assertTrue(PackedUidList.isPacked(value));
+        
+        PackedUidList packed = new PackedUidList(value);
+        Assert.assertFalse(packed.isIgnore());
+        Assert.assertEquals(4, packed.getCount());
+        
+        // sorted by bytes without duplicates
+        Assert.assertEquals(3, packed.getUids().size());
+        Assert.assertEquals(Arrays.asList("a.b.c", "a.b.c.10", "a.b.c.2"), toList(packed.getUids()));
+        Assert.assertEquals(Collections.singletonList("z.y"), toList(packed.getRemovedUids()));
+        Assert.assertTrue(toList(packed.getQuarantinedUids()).isEmpty());
+        
+        Uid.List list = PackedUidList.parse(value);
+        Assert.assertEquals(Arrays.asList("a.b.c", "a.b.c.10", "a.b.c.2"), list.getUIDList());
+        Assert.assertEquals(Collections.singletonList("z.y"), list.getREMOVEDUIDList());
+        Assert.assertEquals(4, list.getCOUNT());
+    }
+    
+    @Test
+    public void testNegativeCountAndIgnore() throws InvalidProtocolBufferException {
+        PackedUidList packed = new PackedUidList(PackedUidList.encode(true, -3, Collections.emptyList(), Collections.emptyList(), uids("q")));
+        Assert.assertTrue(packed.isIgnore());
+        Assert.assertEquals(-3, packed.getCount());
+        Assert.assertEquals(Collections.singletonList("q"), toList(packed.getQuarantinedUids()));
+    }
+    
+    @Test
+    public void testBothEncodings() throws InvalidProtocolBufferException {
+        Uid.List list = Uid.List.newBuilder().setIGNORE(false).setCOUNT(2).addUID("uid1").addUID("uid2").addQUARANTINEUID("uid3").build();
+        byte[] protobuf = list.toByteArray();
+        Assert.assertFalse(PackedUidList.isPacked(protobuf));
+        Assert.assertEquals(list, PackedUidList.parse(protobuf));
+        
+        byte[] packed = PackedUidList.encode(list);
+        Assert.assertTrue(PackedUidList.isPacked(packed));
+        Assert.assertEquals(list, PackedUidList.parse(packed));
+    }
+    
+    @Test
+    public void testUidStrings() throws InvalidProtocolBufferException {
+        Uid.List list = Uid.List.newBuilder().setIGNORE(false).setCOUNT(2).addUID("uid2 ").addUID("uid1").build();
+        // a serialized list is read in its own order, while the packed list is sorted
+        Assert.assertEquals(Arrays.asList("csv\u0000uid2", "csv\u0000uid1"), PackedUidList.getUidStrings(list, "csv\u0000"));
+        Assert.assertEquals(Arrays.asList("csv\u0000uid1", "csv\u0000uid2"), new PackedUidList(PackedUidList.encode(list)).getUidStrings("csv\u0000"));
+        
+        Uid.List ignored = Uid.List.newBuilder().setIGNORE(true).setCOUNT(50).addUID("uid1").build();
+        Assert.assertTrue(PackedUidList.getUidStrings(ignored, "csv\u0000").isEmpty());
+        PackedUidList packed = new PackedUidList(PackedUidList.encode(ignored));
+        Assert.assertTrue(packed.isIgnore());
+        Assert.assertEquals(50, packed.getCount());
+        Assert.assertTrue(packed.getUidStrings("csv\u0000").isEmpty());
+    }
+    
+    @Test
+    public void testLongUids() throws InvalidProtocolBufferException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("abcdef");
+        }
+        String prefix = builder.toString();
+        PackedUidList packed = new PackedUidList(PackedUidList.encode(false, 2, uids(prefix + "1", prefix + "22"), Collections.emptyList(),
+                        Collections.emptyList()));
+        Assert.assertEquals(Arrays.asList(prefix + "1", prefix + "22"), toList(packed.getUids()));
+    }
+    
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testTruncated() throws InvalidProtocolBufferException {
+        byte[] value = PackedUidList.encode(false, 1, uids("abc"), Collections.emptyList(), Collections.emptyList());
+        new PackedUidList(Arrays.copyOf(value, value.length - 2));
+    }
+}
@@ -42,6 +42,17 @@ class HyperLogFieldSummary implements FieldSummary {
         return new StatsCounters(this.count, this.logPlus.cardinality());
     }
     
+    /**
+     * Converts the contents to a {@link StatsHyperLogSummary} that can be merged with other summaries for the field name/datatype pair.
+     * 
+     * @return populated {@link StatsHyperLogSummary}
+     * @throws IOException
+     *             serialization error
+     */
+    StatsHyperLogSummary toStatsHyperLogSummary() throws IOException {
+        return new StatsHyperLogSummary(this.count, this.logPlus, 0);
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -0,0 +1,97 @@
+package datawave.mapreduce.shardStats;
+
+import datawave.iterators.IteratorSettingHelper;
+import datawave.query.Constants;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+
+/**
+ * Reads the stats written by the {@link StatsJob} in incremental mode. The summaries of every shard are merged on the tablet servers by the
+ * {@link StatsHyperLogMergingIterator}, so the counts reflect the latest summary of each shard without another full scan of the shard table.
+ */
+public class StatsHyperLogClient {
+    
+    private static final Logger log = Logger.getLogger(StatsHyperLogClient.class);
+    
+    private final Connector connector;
+    private final String table;
+    
+    public StatsHyperLogClient(Connector connector, String table) {
+        this.connector = connector;
+        this.table = table;
+    }
+    
+    /**
+     * Merges the summaries of each field for a range of days.
+     *
+     * @param fields
+     *            field names to read, or empty for all of them
+     * @param dataTypes
+     *            datatypes to merge, or empty for all of them
+     * @param begin
+     *            first day to merge, inclusive
+     * @param end
+     *            last day to merge, inclusive
+     * @return the merged counts of each field that has a summary in the range
+     * @throws IOException
+     *             if the stats table could not be read
+     */
+    public Map<String,StatsCounters> getStats(Collection<String> fields, Collection<String> dataTypes, Date begin, Date end) throws IOException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+        
+        final ScannerBase scanner;
+        try {
+            Authorizations auths = connector.securityOperations().getUserAuthorizations(connector.whoami());
+            if (fields.isEmpty()) {
+                scanner = connector.createScanner(table, auths);
+            } else {
+                BatchScanner bs = connector.createBatchScanner(table, auths, Math.min(fields.size(), 8));
+                TreeSet<Range> ranges = new TreeSet<>();
+                for (String field : fields) {
+                    ranges.add(new Range(field, field + Constants.NULL_BYTE_STRING));
+                }
+                bs.setRanges(ranges);
+                scanner = bs;
+            }
+        } catch (Exception e) {
+            throw new IOException("unable to scan stats table " + table, e);
+        }
+        
+        Map<String,StatsCounters> stats = new HashMap<>();
+        try {
+            scanner.addScanIterator(StatsHyperLogMergingIterator.setting(IteratorSettingHelper.BASE_ITERATOR_PRIORITY + 30, format.format(begin),
+                            format.format(end), dataTypes));
+            for (Entry<Key,Value> entry : scanner) {
+                StatsCounters counters = new StatsCounters();
+                counters.readFields(new DataInputStream(new ByteArrayInputStream(entry.getValue().get())));
+                stats.put(entry.getKey().getRow().toString(), counters);
+            }
+        } finally {
+            if (scanner instanceof BatchScanner) {
+                scanner.close();
+            }
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("merged stats of " + stats.size() + " fields from " + table);
+        }
+        return stats;
+    }
+}
@@ -30,6 +30,7 @@ import static datawave.mapreduce.shardStats.StatsJob.HYPERLOG_NORMAL_OPTION;
 import static datawave.mapreduce.shardStats.StatsJob.HYPERLOG_SPARSE_DEFAULT_VALUE;
 import static datawave.mapreduce.shardStats.StatsJob.HYPERLOG_SPARSE_OPTION;
 import static datawave.mapreduce.shardStats.StatsJob.OUTPUT_TABLE_NAME;
+import static datawave.mapreduce.shardStats.StatsJob.STATS_INCREMENTAL;
 
 class StatsHyperLogMapper extends Mapper<Key,Value,BulkIngestKey,Value> {
     private static final Logger log = Logger.getLogger(StatsHyperLogMapper.class);
@@ -56,6 +57,10 @@ class StatsHyperLogMapper extends Mapper<Key,Value,BulkIngestKey,Value> {
     private ColumnVisibility visibility;
     // maintains the current field name that is being processed
     private String currentFieldName;
+    // maintains the current shard that is being processed (incremental only)
+    private String currentShard;
+    // write a mergeable summary for each shard instead of each day
+    private boolean incremental;
     private boolean setPartitionerContext;
     
     // ===========================
@@ -100,6 +105,8 @@ class StatsHyperLogMapper extends Mapper<Key,Value,BulkIngestKey,Value> {
         log.info("input log interval(" + this.logInputInterval + ")");
         this.sumUniqueCounts = conf.getBoolean(STATS_MAPPER_UNIQUE_COUNT, false);
         log.info("unique counts(" + this.sumUniqueCounts + ")");
+        this.incremental = conf.getBoolean(STATS_INCREMENTAL, false);
+        log.info("incremental(" + this.incremental + ")");
         
         // hyperlog precision
         this.normalPrecision = conf.getInt(HYPERLOG_NORMAL_OPTION, HYPERLOG_NORMAL_DEFAULT_VALUE);
@@ -157,6 +164,14 @@ class StatsHyperLogMapper extends Mapper<Key,Value,BulkIngestKey,Value> {
                     this.currentFieldName = fieldName;
                 }
             }
+            if (this.incremental) {
+                // the summaries for each shard must not be mixed
+                String shard = key.getRow().toString();
+                if (null != this.currentShard && !this.currentShard.equals(shard)) {
+                    flushFieldValues(context);
+                }
+                this.currentShard = shard;
+            }
             
             // add value to proper data type
             String dataType = dwKey.getDataType();
@@ -201,7 +216,11 @@ class StatsHyperLogMapper extends Mapper<Key,Value,BulkIngestKey,Value> {
                 int idx = row.indexOf('_');
                 String date = row.substring(0, idx);
                 outFam.set(date);
-                outQual.set(entry.key.getDataType());
+                if (this.incremental) {
+                    outQual.set(entry.key.getDataType() + NULL_CHAR + row);
+                } else {
+                    outQual.set(entry.key.getDataType());
+                }
                 Key key = new Key(outRow, outFam, outQual, this.visibility, 0);
                 
                 BulkIngestKey bulkKey = new BulkIngestKey(this.outputTable, key);
@@ -0,0 +1,158 @@
+package datawave.mapreduce.shardStats;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the {@link StatsHyperLogSummary} entries written by the {@link StatsJob} in incremental mode into a single {@link StatsCounters} for each field name.
+ * The entries for each field name have a column family of the day and a column qualifier of the datatype and the shard, separated by a null. Options restrict
+ * the merge to a range of days and a set of datatypes. Entries written without a shard hold final counts rather than summaries and are skipped. The
+ * {@link StatsHyperLogClient} adds this iterator to its scans of the stats table.
+ */
+public class StatsHyperLogMergingIterator implements SortedKeyValueIterator<Key,Value> {
+    
+    // iterator options
+    static final String BEGIN_DAY_OPTION = "begin.day";
+    static final String END_DAY_OPTION = "end.day";
+    static final String DATATYPES_OPTION = "datatypes";
+    
+    private static final char NULL_CHAR = '\0';
+    
+    private SortedKeyValueIterator<Key,Value> src;
+    private String beginDay;
+    private String endDay;
+    private Set<String> dataTypes;
+    
+    private Key tk = null;
+    private Value tv = null;
+    
+    /**
+     * Creates the setting to merge the summaries for a range of days.
+     *
+     * @param priority
+     *            iterator priority
+     * @param beginDay
+     *            first day (yyyyMMdd) to merge, inclusive
+     * @param endDay
+     *            last day (yyyyMMdd) to merge, inclusive
+     * @param dataTypes
+     *            datatypes to merge, or empty for all of them
+     * @return iterator setting
+     */
+    public static IteratorSetting setting(int priority, String beginDay, String endDay, Collection<String> dataTypes) {
+        IteratorSetting cfg = new IteratorSetting(priority, StatsHyperLogMergingIterator.class);
+        cfg.addOption(BEGIN_DAY_OPTION, beginDay);
+        cfg.addOption(END_DAY_OPTION, endDay);
+        if (!dataTypes.isEmpty()) {
+            cfg.addOption(DATATYPES_OPTION, String.join(",", dataTypes));
+        }
+        return cfg;
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        this.src = source;
+        this.beginDay = options.get(BEGIN_DAY_OPTION);
+        this.endDay = options.get(END_DAY_OPTION);
+        String types = options.get(DATATYPES_OPTION);
+        if (null != types && !types.isEmpty()) {
+            this.dataTypes = new HashSet<>();
+            for (String type : types.split(",")) {
+                this.dataTypes.add(type.trim());
+            }
+        }
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return tk != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        tk = null;
+        tv = null;
+        while (null == tk && src.hasTop()) {
+            Text workingRow = src.getTopKey().getRow();
+            long count = 0;
+            HyperLogLogPlus merged = null;
+            
+            while (src.hasTop() && workingRow.equals(src.getTopKey().getRow())) {
+                Key key = src.getTopKey();
+                if (accept(key)) {
+                    StatsHyperLogSummary summary = new StatsHyperLogSummary(src.getTopValue());
+                    count += summary.getCount();
+                    HyperLogLogPlus logPlus = summary.getHyperLogPlus();
+                    if (null == merged) {
+                        merged = logPlus;
+                    } else {
+                        try {
+                            merged.addAll(logPlus);
+                        } catch (CardinalityMergeException e) {
+                            throw new IOException("unable to merge summary for " + key, e);
+                        }
+                    }
+                }
+                src.next();
+            }
+            
+            if (null != merged) {
+                tk = new Key(workingRow);
+                tv = new StatsCounters(count, merged.cardinality()).getValue();
+            }
+        }
+    }
+    
+    private boolean accept(Key key) {
+        String day = key.getColumnFamily().toString();
+        if ((null != this.beginDay && day.compareTo(this.beginDay) < 0) || (null != this.endDay && day.compareTo(this.endDay) > 0)) {
+            return false;
+        }
+        String colq = key.getColumnQualifier().toString();
+        int idx = colq.indexOf(NULL_CHAR);
+        if (idx < 0) {
+            return false;
+        }
+        return null == this.dataTypes || this.dataTypes.contains(colq.substring(0, idx));
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        src.seek(range, columnFamilies, inclusive);
+        next();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return tk;
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return tv;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        StatsHyperLogMergingIterator copy = new StatsHyperLogMergingIterator();
+        copy.src = src.deepCopy(env);
+        copy.beginDay = this.beginDay;
+        copy.endDay = this.endDay;
+        copy.dataTypes = this.dataTypes;
+        return copy;
+    }
+}
@@ -37,6 +37,8 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
     private int minCount;
     // produce counts only - do not write to table
     private boolean countsOnly;
+    // write the mergeable summary instead of the counts
+    private boolean incremental;
     
     // hyperlog properties
     private int normalPrecision;
@@ -63,6 +65,9 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
         this.countsOnly = conf.getBoolean(STATS_REDUCER_COUNTS, false);
         log.info("counts only(" + this.countsOnly + ")");
         
+        this.incremental = conf.getBoolean(StatsJob.STATS_INCREMENTAL, false);
+        log.info("incremental(" + this.incremental + ")");
+        
         // hyperlog precision
         this.normalPrecision = conf.getInt(StatsJob.HYPERLOG_NORMAL_OPTION, StatsJob.HYPERLOG_NORMAL_DEFAULT_VALUE);
         log.info("hyperlog normal precision(" + this.normalPrecision + ')');
@@ -99,7 +104,12 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
         }
         
         log.info("final stats data(" + stats.toString() + ")");
-        if (!this.countsOnly) {
+        if (!this.countsOnly && this.incremental) {
+            // the summary for a single shard is merged with the others when read, so the minimum count does not apply
+            Key k = key.getKey();
+            k.setTimestamp(this.timestamp);
+            writeBulkIngestKey(key, new Value(stats.toStatsHyperLogSummary().toByteArray()), context);
+        } else if (!this.countsOnly) {
             if (this.minCount <= stats.getCount()) {
                 // write to bulk output
                 StatsCounters counters = stats.toStatsCounters();
@@ -69,6 +69,14 @@ import java.util.Set;
  * best to choose values that are the same. All testing using the same sparse and normal precision resulted in consistent results that were within the expected
  * error margin.
  * </p>
+ * <p>
+ * Incremental Mode
+ * <p>
+ * By default the job writes the final counts for each field name/datatype pair for a day, and refreshing them means scanning every shard for the day again.
+ * When {@code shardStats.incremental} is set, the job writes the {@link StatsHyperLogSummary} for each field name/datatype pair of each shard instead, with
+ * the shard appended to the column qualifier. Only the shards that changed need to be processed, and a summary replaces the previous version for its shard.
+ * The summaries are merged when read through the {@link StatsHyperLogClient}, which scans them with the {@link StatsHyperLogMergingIterator}.
+ * </p>
  */
 public class StatsJob extends IngestJob {
     
@@ -86,6 +94,7 @@ public class StatsJob extends IngestJob {
     static final String INPUT_TABLE_NAME = "shardStats.input.table";
     static final String STATS_JOB_LOG_LEVEL = "stats.job.log.level";
     static final String STATS_VISIBILITY = "shardStats.visibility";
+    static final String STATS_INCREMENTAL = "shardStats.incremental";
     
     // instance members
     private String inputTableName;
@@ -241,6 +250,7 @@ public class StatsJob extends IngestJob {
         JOB_LOG_LEVEL(STATS_JOB_LOG_LEVEL, DEFAULT_LOG_LEVEL),
         HYPERLOG_NORMAL_PRECISION(HYPERLOG_NORMAL_OPTION, HYPERLOG_NORMAL_DEFAULT_VALUE),
         HYPERLOG_SPARSE_PRECISION(HYPERLOG_SPARSE_OPTION, HYPERLOG_SPARSE_DEFAULT_VALUE),
+        INCREMENTAL(STATS_INCREMENTAL, false),
         
         // mapper specific options
         MAPPER_INPUT_INTERVAL(StatsHyperLogMapper.STATS_MAPPER_INPUT_INTERVAL, StatsHyperLogMapper.DEFAULT_INPUT_INTERVAL),
@@ -0,0 +1,98 @@
+package datawave.mapreduce.shardStats;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+public class StatsHyperLogClientTest {
+    
+    private static final String TABLE = "shardStats";
+    
+    private static Connector connector;
+    
+    @BeforeClass
+    public static void setup() throws Exception {
+        connector = new InMemoryInstance(StatsHyperLogClientTest.class.getName()).getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        // values 0-99 are spread over two shards, with an overlap of 20
+        writer.addMutation(mutation("FOO", "20190101", "csv\u000020190101_0", 1L, summary(0, 60)));
+        writer.addMutation(mutation("FOO", "20190101", "csv\u000020190101_1", 1L, summary(40, 100)));
+        writer.addMutation(mutation("FOO", "20190102", "csv\u000020190102_0", 1L, summary(0, 10)));
+        // a later run replaces the summary of a shard that changed
+        writer.addMutation(mutation("FOO", "20190102", "csv\u000020190102_0", 2L, summary(0, 30)));
+        // final counts from a full run are not summaries
+        writer.addMutation(mutation("FOO", "20190102", "csv", 1L, new StatsCounters(5, 5).getValue()));
+        writer.addMutation(mutation("FOO", "20190102", "wiki\u000020190102_0", 1L, summary(1000, 1200)));
+        writer.addMutation(mutation("ZAP", "20190101", "csv\u000020190101_0", 1L, summary(0, 5)));
+        writer.close();
+    }
+    
+    @Test
+    public void testAllFields() throws IOException {
+        Map<String,StatsCounters> stats = new StatsHyperLogClient(connector, TABLE).getStats(Collections.emptyList(), Collections.emptyList(),
+                        day("20190101"), day("20190102"));
+        Assert.assertEquals(2, stats.size());
+        assertCounters(stats.get("FOO"), 120 + 30 + 200, 300);
+        assertCounters(stats.get("ZAP"), 5, 5);
+    }
+    
+    @Test
+    public void testFieldsDaysAndDataTypes() throws IOException {
+        StatsHyperLogClient client = new StatsHyperLogClient(connector, TABLE);
+        
+        Map<String,StatsCounters> stats = client.getStats(Collections.singleton("FOO"), Collections.singleton("csv"), day("20190102"), day("20190102"));
+        Assert.assertEquals(Collections.singleton("FOO"), stats.keySet());
+        assertCounters(stats.get("FOO"), 30, 30);
+        
+        stats = client.getStats(Arrays.asList("FOO", "ZAP"), Collections.emptyList(), day("20190101"), day("20190101"));
+        Assert.assertEquals(2, stats.size());
+        assertCounters(stats.get("FOO"), 120, 100);
+        
+        Assert.assertTrue(client.getStats(Collections.singleton("BAR"), Collections.emptyList(), day("20190101"), day("20190102")).isEmpty());
+    }
+    
+    private static void assertCounters(StatsCounters counters, long count, long unique) {
+        Assert.assertEquals(count, counters.getCount());
+        // the cardinality is an estimate
+        Assert.assertEquals(unique, counters.getUniqueCount(), unique * 0.02);
+    }
+    
+    private static Date day(String day) throws IOException {
+        try {
+            return new SimpleDateFormat("yyyyMMdd").parse(day);
+        } catch (java.text.ParseException e) {
+            throw new IOException(e);
+        }
+    }
+    
+    private static Mutation mutation(String field, String day, String colq, long timestamp, Value value) {
+        Mutation m = new Mutation(field);
+        m.put(day, colq, timestamp, value);
+        return m;
+    }
+    
+    private static Value summary(int begin, int end) throws IOException {
+        HyperLogLogPlus logPlus = new HyperLogLogPlus(StatsJob.HYPERLOG_NORMAL_DEFAULT_VALUE, StatsJob.HYPERLOG_SPARSE_DEFAULT_VALUE);
+        for (int n = begin; n < end; n++) {
+            logPlus.offer(Integer.toString(n));
+        }
+        return new Value(new StatsHyperLogSummary(end - begin, logPlus, 0).toByteArray());
+    }
+}
@@ -0,0 +1,79 @@
+package datawave.mapreduce.shardStats;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class StatsHyperLogMergingIteratorTest {
+    
+    @Test
+    public void testMerge() throws IOException {
+        TreeMap<Key,Value> data = new TreeMap<>();
+        // values 0-99 are spread over two shards, with an overlap of 20
+        data.put(new Key("FOO", "20190101", "csv\u000020190101_0"), summary(0, 60));
+        data.put(new Key("FOO", "20190101", "csv\u000020190101_1"), summary(40, 100));
+        data.put(new Key("FOO", "20190102", "csv\u000020190102_0"), summary(0, 10));
+        // final counts from a full run are not summaries
+        data.put(new Key("FOO", "20190102", "csv"), new StatsCounters(5, 5).getValue());
+        data.put(new Key("FOO", "20190102", "wiki\u000020190102_0"), summary(1000, 1200));
+        data.put(new Key("ZAP", "20190101", "csv\u000020190101_0"), summary(0, 5));
+        
+        // all days and datatypes
+        Map<String,StatsCounters> results = scan(data, StatsHyperLogMergingIterator.setting(50, "20190101", "20190102", Collections.emptyList())
+                        .getOptions());
+        Assert.assertEquals(2, results.size());
+        assertCounters(results.get("FOO"), 120 + 10 + 200, 300);
+        assertCounters(results.get("ZAP"), 5, 5);
+        
+        // a single day and datatype
+        results = scan(data, StatsHyperLogMergingIterator.setting(50, "20190101", "20190101", Collections.singleton("csv")).getOptions());
+        Assert.assertEquals(2, results.size());
+        assertCounters(results.get("FOO"), 120, 100);
+        
+        // no summaries within the range
+        results = scan(data, StatsHyperLogMergingIterator.setting(50, "20190102", "20190102", Arrays.asList("json", "xml")).getOptions());
+        Assert.assertTrue(results.isEmpty());
+    }
+    
+    private static void assertCounters(StatsCounters counters, long count, long unique) {
+        Assert.assertEquals(count, counters.getCount());
+        // the cardinality is an estimate
+        Assert.assertEquals(unique, counters.getUniqueCount(), unique * 0.02);
+    }
+    
+    private static Value summary(int begin, int end) throws IOException {
+        HyperLogLogPlus logPlus = new HyperLogLogPlus(StatsJob.HYPERLOG_NORMAL_DEFAULT_VALUE, StatsJob.HYPERLOG_SPARSE_DEFAULT_VALUE);
+        for (int n = begin; n < end; n++) {
+            logPlus.offer(Integer.toString(n));
+        }
+        return new Value(new StatsHyperLogSummary(end - begin, logPlus, 0).toByteArray());
+    }
+    
+    private static Map<String,StatsCounters> scan(TreeMap<Key,Value> data, Map<String,String> options) throws IOException {
+        StatsHyperLogMergingIterator itr = new StatsHyperLogMergingIterator();
+        itr.init(new SortedMapIterator(data), options, null);
+        itr.seek(new Range(), Collections.emptyList(), false);
+        
+        Map<String,StatsCounters> results = new HashMap<>();
+        while (itr.hasTop()) {
+            StatsCounters counters = new StatsCounters();
+            counters.readFields(new DataInputStream(new ByteArrayInputStream(itr.getTopValue().get())));
+            results.put(itr.getTopKey().getRow().toString(), counters);
+            itr.next();
+        }
+        return results;
+    }
+}
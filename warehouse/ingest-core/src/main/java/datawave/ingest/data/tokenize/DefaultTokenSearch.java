@@ -9,7 +9,6 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.CharArraySet;
 import org.slf4j.Logger;
@@ -34,8 +33,17 @@ public class DefaultTokenSearch implements TokenSearch {
     
     protected int maxUrlDecodes = 1;
     
-    private Pattern tokenWordPtrn = Pattern.compile("[\\p{Punct}\\p{Space}\\p{Cntrl}]+");
-    private Pattern dirtyTokensPtrn = Pattern.compile("[ &'\"@\\.]");
+    // The characters that separate token words, which are the ASCII characters matched by [\p{Punct}\p{Space}\p{Cntrl}]. Token words are found by scanning
+    // the characters of the input rather than with a regular expression, as every token of every tokenized field is split into words at least once.
+    private static final boolean[] WORD_DELIMITERS = new boolean[128];
+    static {
+        for (char c = 0; c < 128; c++) {
+            WORD_DELIMITERS[c] = c < 0x20 || c == 0x7F || c == ' ' || (c > ' ' && c < '0') || (c > '9' && c < 'A') || (c > 'Z' && c < 'a') || c > 'z';
+        }
+    }
+    
+    // The characters removed from dirty tokens
+    private static final String DIRTY_CHARS = " &'\"@.";
     
     public DefaultTokenSearch() throws IOException {
         this(getStopWords());
@@ -283,13 +291,50 @@ public class DefaultTokenSearch implements TokenSearch {
     @Override
     public void getTokenWords(String input, String zone, Collection<String> synonyms) {
         // Now treat it as a bucket of words so that double quotes phrases can work too
-        for (String word : getTokenWords(input)) {
-            if (!word.isEmpty() && !isStop(word) && !word.equals(input)) {
-                synonyms.add(word.toLowerCase() + zone);
+        final char[] chars = input.toCharArray();
+        final boolean asciiLowerCase = isAsciiLowerCase();
+        int start = 0;
+        for (int i = 0; i <= chars.length; i++) {
+            if (i == chars.length || isWordDelimiter(chars[i])) {
+                int length = i - start;
+                // skip empty words, stopwords, and the input itself
+                if (length > 0 && length < chars.length && !stopwords.contains(chars, start, length)) {
+                    synonyms.add(toLowerCase(chars, start, length, zone, asciiLowerCase));
+                }
+                start = i + 1;
             }
         }
     }
     
+    private static boolean isWordDelimiter(char c) {
+        return c < 128 && WORD_DELIMITERS[c];
+    }
+    
+    /**
+     * @return true if lower casing ASCII characters in the default locale is the same as the ASCII mapping
+     */
+    private static boolean isAsciiLowerCase() {
+        return "I".toLowerCase().equals("i");
+    }
+    
+    /*
+     * The same as new String(chars, start, length).toLowerCase() + zone without the intermediate strings for ASCII words
+     */
+    private static String toLowerCase(char[] chars, int start, int length, String zone, boolean asciiLowerCase) {
+        if (asciiLowerCase) {
+            StringBuilder word = new StringBuilder(length + zone.length());
+            for (int i = start; i < start + length; i++) {
+                char c = chars[i];
+                if (c >= 128) {
+                    return new String(chars, start, length).toLowerCase() + zone;
+                }
+                word.append((c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c);
+            }
+            return word.append(zone).toString();
+        }
+        return new String(chars, start, length).toLowerCase() + zone;
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -297,7 +342,29 @@ public class DefaultTokenSearch implements TokenSearch {
      */
     @Override
     public String[] getTokenWords(String input) {
-        return tokenWordPtrn.split(input, 0);
+        // the same results as splitting on [\p{Punct}\p{Space}\p{Cntrl}]+, including a leading empty word and excluding trailing empty words
+        List<String> words = new ArrayList<>();
+        int start = 0;
+        int end = 0;
+        for (int i = 0; i < input.length(); i++) {
+            if (isWordDelimiter(input.charAt(i))) {
+                if (i > start || (start == 0 && i == 0)) {
+                    words.add(input.substring(start, i));
+                    if (i > start) {
+                        end = words.size();
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        if (words.isEmpty()) {
+            return new String[] {input};
+        }
+        if (start < input.length()) {
+            words.add(input.substring(start));
+            end = words.size();
+        }
+        return words.subList(0, end).toArray(new String[end]);
     }
     
     /*
@@ -473,13 +540,13 @@ public class DefaultTokenSearch implements TokenSearch {
         if (zlc.indexOf("\\") > -1) {
             // emit path normalized, lc version.
             // yes, this regex really matches one or more '\' characters.
-            zlc = zlc.replaceAll("\\\\+", "/");
+            zlc = collapse(zlc, '\\', '/');
             synonyms.add(zlc + zone);
         }
         
         // Replace runs of consecutive slashes with a single slash.
         if (zlc.indexOf("//") > -1) {
-            zlc = zlc.replaceAll("/+", "/");
+            zlc = collapse(zlc, '/', '/');
         }
         
         // Remove trailing slashes.
@@ -662,7 +729,7 @@ public class DefaultTokenSearch implements TokenSearch {
         }
         
         // Include the synonyms of the 'original with dirtyTokens removed'.
-        synonyms.addAll(getTermSynonyms(dirtyTokensPtrn.matcher(zw[0]).replaceAll("") + zone, includeTerm));
+        synonyms.addAll(getTermSynonyms(removeDirtyChars(zw[0]) + zone, includeTerm));
         if (dirtyWordTokensEnabled) {
             getTokenWords(zw[0], zw[1], synonyms);
         }
@@ -680,6 +747,45 @@ public class DefaultTokenSearch implements TokenSearch {
         return new ArrayList<>(dirtyTokens(dezone(term), includeTerm));
     }
     
+    /*
+     * The same as input.replaceAll("[ &'\"@\\.]", "")
+     */
+    static String removeDirtyChars(String input) {
+        StringBuilder clean = null;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (DIRTY_CHARS.indexOf(c) > -1) {
+                if (clean == null) {
+                    clean = new StringBuilder(input.length()).append(input, 0, i);
+                }
+            } else if (clean != null) {
+                clean.append(c);
+            }
+        }
+        return clean == null ? input : clean.toString();
+    }
+    
+    /*
+     * Replace each run of the specified character with a single replacement character, the same as input.replaceAll(run + "+", replacement)
+     */
+    static String collapse(String input, char run, char replacement) {
+        StringBuilder collapsed = new StringBuilder(input.length());
+        boolean inRun = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == run) {
+                if (!inRun) {
+                    collapsed.append(replacement);
+                    inRun = true;
+                }
+            } else {
+                collapsed.append(c);
+                inRun = false;
+            }
+        }
+        return collapsed.toString();
+    }
+    
     private final String urlDecode(String input) throws UnsupportedEncodingException {
         // the url we receive may be truncated, so look back 2 characters for a
         // '%' and trim it if it exists.
@@ -821,7 +927,7 @@ public class DefaultTokenSearch implements TokenSearch {
             
             // collapse multiple slashes.
             if (url_path.indexOf("//") > -1) {
-                url_path = url_path.replaceAll("/+", "/");
+                url_path = collapse(url_path, '/', '/');
             }
             
             // trim trailing slash.
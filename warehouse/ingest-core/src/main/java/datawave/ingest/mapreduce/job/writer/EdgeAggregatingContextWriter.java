@@ -0,0 +1,219 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.ingest.mapreduce.handler.edge.ProtobufEdgeDataTypeHandler;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.iterators.EdgeCombiner;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * This is a caching context writer that pre-aggregates the entries for the edge table in the mapper. Popular edges produce the same edge key for many events,
+ * so the values for each edge key are merged with the {@link EdgeCombiner} as they are received (counts, hour bitmasks, histograms, and the HyperLogLog sketches
+ * of the stats link edges) and only one value per key is passed on to the chained context writer. Like the {@link TableCachingContextWriter}, the cache is
+ * held across calls to commit so that entries are aggregated across events.
+ * <p>
+ * The cache is bounded by a number of entries and an estimate of its size in bytes, and is also flushed when the free heap in the mapper runs low. Counters
+ * record the number of edge entries received and written, from which the collapse ratio is derived.
+ */
+public class EdgeAggregatingContextWriter extends AbstractContextWriter<BulkIngestKey,Value> implements ChainedContextWriter<BulkIngestKey,Value> {
+    
+    private static final Logger log = Logger.getLogger(EdgeAggregatingContextWriter.class);
+    
+    // The property used to configure the next writer in the chain
+    public static final String CONTEXT_WRITER_CLASS = "ingest.edge.aggregating.context.writer.class";
+    
+    // The property used to determine whether we are outputting mutations or keys such that a default chained context writer can be configured
+    public static final String MAPRED_OUTPUT_VALUE_CLASS = "mapreduce.job.output.value.class";
+    
+    // the maximum number of edge keys to cache
+    public static final String MAX_ENTRIES = "edge.aggregation.cache.max.entries";
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    
+    // the maximum estimated size of the cache in bytes
+    public static final String MAX_BYTES = "edge.aggregation.cache.max.bytes";
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    
+    // the cache is flushed when the free fraction of the maximum heap falls below this
+    public static final String MIN_FREE_MEMORY = "edge.aggregation.cache.min.free.memory";
+    public static final float DEFAULT_MIN_FREE_MEMORY = 0.1f;
+    
+    // the counters
+    public static final String COUNTER_GROUP = "EDGE_AGGREGATION";
+    public static final String EDGES_RECEIVED = "EDGES_RECEIVED";
+    public static final String EDGES_WRITTEN = "EDGES_WRITTEN";
+    public static final String FLUSHES = "FLUSHES";
+    public static final String MEMORY_FLUSHES = "MEMORY_FLUSHES";
+    
+    // an estimate of the per entry overhead of the cache, in bytes
+    private static final int ENTRY_OVERHEAD = 128;
+    
+    private Text edgeTableName;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private float minFreeMemory = DEFAULT_MIN_FREE_MEMORY;
+    
+    // This is the cache, in the order the edge keys were first seen
+    private final Map<BulkIngestKey,Value> aggregatedCache = new LinkedHashMap<>();
+    private long cacheBytes = 0;
+    
+    private long received = 0;
+    private long written = 0;
+    
+    private final EdgeCombiner combiner = new EdgeCombiner();
+    
+    // The chained context writer
+    private ContextWriter<BulkIngestKey,Value> contextWriter;
+    
+    @Override
+    public void configureChainedContextWriter(Configuration conf, Class<? extends ContextWriter<BulkIngestKey,Value>> contextWriterClass) {
+        conf.setClass(CONTEXT_WRITER_CLASS, contextWriterClass, ContextWriter.class);
+    }
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, false);
+        
+        String tableName = conf.get(ProtobufEdgeDataTypeHandler.EDGE_TABLE_NAME);
+        if (tableName == null) {
+            log.warn(ProtobufEdgeDataTypeHandler.EDGE_TABLE_NAME + " is not configured, edges will not be aggregated");
+        } else {
+            edgeTableName = new Text(tableName);
+        }
+        maxEntries = conf.getInt(MAX_ENTRIES, maxEntries);
+        maxBytes = conf.getLong(MAX_BYTES, maxBytes);
+        minFreeMemory = conf.getFloat(MIN_FREE_MEMORY, minFreeMemory);
+        
+        // create and setup the chained context writer
+        Class<ContextWriter<BulkIngestKey,Value>> contextWriterClass = null;
+        if (Mutation.class.equals(conf.getClass(MAPRED_OUTPUT_VALUE_CLASS, null))) {
+            contextWriterClass = (Class<ContextWriter<BulkIngestKey,Value>>) conf.getClass(CONTEXT_WRITER_CLASS, LiveContextWriter.class, ContextWriter.class);
+        } else {
+            contextWriterClass = (Class<ContextWriter<BulkIngestKey,Value>>) conf.getClass(CONTEXT_WRITER_CLASS, BulkContextWriter.class, ContextWriter.class);
+        }
+        try {
+            contextWriter = contextWriterClass.newInstance();
+            contextWriter.setup(conf, outputTableCounters);
+        } catch (Exception e) {
+            throw new IOException("Failed to initialized " + contextWriterClass + " from property " + CONTEXT_WRITER_CLASS, e);
+        }
+    }
+    
+    @Override
+    public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        super.commit(context);
+        
+        // the entries of the event have been merged into the cache, so flush it if it is full or the heap is running low
+        if (aggregatedCache.size() >= maxEntries || cacheBytes >= maxBytes) {
+            flushAll(context);
+        } else if (isLowOnMemory()) {
+            getCounter(context, COUNTER_GROUP, MEMORY_FLUSHES).increment(1);
+            flushAll(context);
+        }
+        contextWriter.commit(context);
+    }
+    
+    private boolean isLowOnMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return free < runtime.maxMemory() * minFreeMemory;
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                    InterruptedException {
+        Multimap<BulkIngestKey,Value> residual = ArrayListMultimap.create();
+        for (Map.Entry<BulkIngestKey,Collection<Value>> entry : entries.asMap().entrySet()) {
+            if (entry.getKey().getTableName().equals(edgeTableName)) {
+                cache(entry.getKey(), entry.getValue(), residual);
+            } else {
+                residual.putAll(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!residual.isEmpty()) {
+            contextWriter.write(residual, context);
+        }
+    }
+    
+    private void cache(BulkIngestKey key, Collection<Value> values, Multimap<BulkIngestKey,Value> residual) {
+        received += values.size();
+        
+        List<Value> valueList = new ArrayList<>(values.size() + 1);
+        Value cached = aggregatedCache.get(key);
+        if (cached != null) {
+            valueList.add(cached);
+        }
+        valueList.addAll(values);
+        
+        Value combined = valueList.size() > 1 ? combiner.reduce(key.getKey(), valueList.iterator()) : valueList.get(0);
+        if (combined == null) {
+            // not an edge format the combiner understands, so pass the values on as they are
+            residual.putAll(key, valueList);
+            written += valueList.size();
+            if (cached != null) {
+                aggregatedCache.remove(key);
+                cacheBytes -= estimateSize(key, cached);
+            }
+            return;
+        }
+        
+        aggregatedCache.put(key, combined);
+        if (cached != null) {
+            cacheBytes -= estimateSize(key, cached);
+        }
+        cacheBytes += estimateSize(key, combined);
+    }
+    
+    private static long estimateSize(BulkIngestKey key, Value value) {
+        return key.getKey().getSize() + value.getSize() + ENTRY_OVERHEAD;
+    }
+    
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        super.rollback();
+        contextWriter.rollback();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        super.cleanup(context);
+        flushAll(context);
+        getCounter(context, COUNTER_GROUP, EDGES_RECEIVED).increment(received);
+        getCounter(context, COUNTER_GROUP, EDGES_WRITTEN).increment(written);
+        if (log.isInfoEnabled() && written > 0) {
+            log.info(String.format("Aggregated %d edge entries into %d (collapse ratio %.2f)", received, written, (double) received / written));
+        }
+        received = 0;
+        written = 0;
+        contextWriter.cleanup(context);
+    }
+    
+    private void flushAll(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        if (aggregatedCache.isEmpty()) {
+            return;
+        }
+        getCounter(context, COUNTER_GROUP, FLUSHES).increment(1);
+        Multimap<BulkIngestKey,Value> entries = ArrayListMultimap.create();
+        for (Map.Entry<BulkIngestKey,Value> entry : aggregatedCache.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        aggregatedCache.clear();
+        written += entries.size();
+        cacheBytes = 0;
+        contextWriter.write(entries, context);
+    }
+}
@@ -1,32 +1,37 @@
 package datawave.ingest.table.aggregator;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 
 /**
  * Implementation of an Aggregator that aggregates objects of the type Uid.List. This is an optimization for the shardIndex and shardReverseIndex, where the
  * list of UIDs for events will be maintained in the global index for low cardinality terms.
- * 
- * 
- * 
+ * <p>
+ * Values are read in either the Uid.List encoding or the {@link PackedUidList} encoding, and the UIDs are collected as bytes without decoding them into
+ * Strings. This aggregator writes the Uid.List encoding, so it can be used while the readers of the index are being upgraded to read both encodings. The
+ * {@link PackedGlobalIndexUidAggregator} writes the packed encoding, and existing values are converted as they are compacted.
  */
 public class GlobalIndexUidAggregator extends PropogatingCombiner {
     private static final Logger log = Logger.getLogger(GlobalIndexUidAggregator.class);
-    private Uid.List.Builder builder = Uid.List.newBuilder();
-    
     /**
      * Using a set instead of a list so that duplicate UIDs are filtered out of the list. This might happen in the case of rows with masked fields that share a
      * UID.
      */
-    private HashSet<String> uids = new HashSet<>();
+    private HashSet<ByteSequence> uids = new HashSet<>();
     
     public GlobalIndexUidAggregator(int max) {
         this.maxUids = max;
@@ -39,17 +44,17 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> uidsToRemove = new HashSet<>();
+    private HashSet<ByteSequence> uidsToRemove = new HashSet<>();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> quarantinedIds = new HashSet<>();
+    private HashSet<ByteSequence> quarantinedIds = new HashSet<>();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> releasedUids = new HashSet<>();
+    private HashSet<ByteSequence> releasedUids = new HashSet<>();
     
     /**
      * flag for whether or not we have seen ignore
@@ -74,23 +79,18 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * temporary set for removals.
      */
-    protected HashSet<String> tempSet;
+    protected HashSet<ByteSequence> tempSet;
     
     public Value aggregate() {
         
         // as a backup, we remove the intersection of the UID sets
         
-        builder.setCOUNT(count);
-        
-        if (seenIgnore || count > maxUids) {
-            builder.setIGNORE(true);
-            builder.clearUID();
+        boolean ignore = seenIgnore || count > maxUids;
+        if (ignore) {
             // if we catch seenIgnore, then there is
             // no need to propogate removals.
             propogate = false;
         } else {
-            builder.setIGNORE(false);
-            
             uidsToRemove.removeAll(quarantinedIds);
             uidsToRemove.removeAll(releasedUids);
             quarantinedIds.removeAll(releasedUids);
@@ -103,27 +103,55 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                     log.debug("Adding released UIDS");
                 uids.addAll(releasedUids);
             }
-            
-            builder.addAllUID(uids);
         }
         
         if (log.isDebugEnabled())
             log.debug("Propogating: " + propogate);
         
-        // clear all removals
-        builder.clearREMOVEDUID();
-        
-        if (propogate) {
-            
-            builder.addAllREMOVEDUID(uidsToRemove);
-            builder.addAllQUARANTINEUID(quarantinedIds);
-        }
         if (log.isDebugEnabled())
-            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". builder size is " + builder.getUIDList().size());
-        return new Value(builder.build().toByteArray());
+            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size());
+        
+        // only propogate the removals if necessary
+        Collection<ByteSequence> none = Collections.emptySet();
+        return new Value(encode(ignore, count, ignore ? none : uids, propogate ? uidsToRemove : none, propogate ? quarantinedIds : none));
         
     }
     
+    /**
+     * Encode the aggregated value
+     *
+     * @param ignore
+     * @param count
+     * @param uids
+     * @param removedUids
+     * @param quarantinedUids
+     * @return the serialized Uid.List
+     */
+    protected byte[] encode(boolean ignore, long count, Collection<ByteSequence> uids, Collection<ByteSequence> removedUids,
+                    Collection<ByteSequence> quarantinedUids) {
+        Uid.List.Builder builder = Uid.List.newBuilder();
+        builder.setIGNORE(ignore);
+        builder.setCOUNT(count);
+        for (ByteSequence uid : uids) {
+            builder.addUIDBytes(toByteString(uid));
+        }
+        for (ByteSequence uid : removedUids) {
+            builder.addREMOVEDUIDBytes(toByteString(uid));
+        }
+        for (ByteSequence uid : quarantinedUids) {
+            builder.addQUARANTINEUIDBytes(toByteString(uid));
+        }
+        return builder.build().toByteArray();
+    }
+    
+    private static ByteString toByteString(ByteSequence uid) {
+        return ByteString.copyFrom(uid.getBackingArray(), uid.offset(), uid.length());
+    }
+    
+    private static ByteSequence toByteSequence(ByteString uid) {
+        return new ArrayByteSequence(uid.toByteArray());
+    }
+    
     /**
      * We should closely examine the possible use cases to ensure that we have covered all scenarios.
      * 
@@ -143,80 +171,13 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
             
             Value value = iter.next();
             
-            // Collect the values, which are serialized Uid.List objects
+            // Collect the values, which are serialized Uid.List objects or packed uid lists
             try {
-                Uid.List v = Uid.List.parseFrom(value.get());
-                
-                long delta = v.getCOUNT();
-                
-                count += delta;
-                /**
-                 * Fail fast approach.
-                 */
-                if (v.getIGNORE()) {
-                    seenIgnore = true;
-                    if (log.isDebugEnabled())
-                        log.debug("SeenIgnore is true. Skipping collections");
-                }
-                
-                // if delta > 0, we are collecting the uid list
-                // in the protobuf into our object's uid list.
-                if (delta > 0) {
-                    
-                    for (String uid : v.getQUARANTINEUIDList()) {
-                        
-                        quarantinedIds.remove(uid);
-                        releasedUids.add(uid);
-                    }
-                    
-                    for (String uid : v.getUIDList()) {
-                        
-                        // check that a removal has not occurred
-                        // if it has, we decrement the count, from above.
-                        if (!uidsToRemove.contains(uid) && !quarantinedIds.contains(uid)) {
-                            
-                            // add the UID iff we are under our MAX
-                            if (uids.size() < maxUids)
-                                uids.add(uid);
-                            
-                        }
-                        
-                    }
-                    
-                    if (log.isDebugEnabled())
-                        log.debug("Adding uids " + delta + " " + count);
-                    
-                    // if our delta is < 0, then we can remove, iff seenIgnore is false. If it is true, there is no need to proceed with removals
-                } else if (delta < 0 && !seenIgnore) {
-                    
-                    // so that we can perform the decrement
-                    for (String uid : v.getREMOVEDUIDList()) {
-                        
-                        uidsToRemove.add(uid);
-                        
-                        if (uids.contains(uid)) {
-                            
-                            uids.remove(uid);
-                        }
-                        
-                    }
-                    
-                    quarantinedIds.addAll(v.getQUARANTINEUIDList());
-                    
-                    /**
-                     * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the
-                     * case where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain
-                     * removals for deltas less than 0
-                     */
-                    for (String uid : v.getUIDList()) {
-                        // add to uidsToRemove, and decrement count if the uid is in UIDS
-                        uidsToRemove.add(uid);
-                        if (uids.contains(uid)) {
-                            uids.remove(uid);
-                        }
-                    }
+                if (PackedUidList.isPacked(value.get())) {
+                    collect(new PackedUidList(value.get()));
+                } else {
+                    collect(Uid.List.parseFrom(value.get()));
                 }
-                
             } catch (InvalidProtocolBufferException e) {
                 if (key.isDeleted()) {
                     log.warn("Value passed to aggregator for a delete key was not of type Uid.List");
@@ -228,12 +189,116 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         return aggregate();
     }
     
+    private void collect(PackedUidList v) {
+        long delta = v.getCount();
+        count += delta;
+        if (v.isIgnore()) {
+            seenIgnore = true;
+            if (log.isDebugEnabled())
+                log.debug("SeenIgnore is true. Skipping collections");
+        }
+        if (delta > 0) {
+            for (PackedUidList.Cursor cursor = v.getQuarantinedUids(); cursor.next();) {
+                release(cursor.toByteSequence());
+            }
+            for (PackedUidList.Cursor cursor = v.getUids(); cursor.next();) {
+                // only copy the uid out of the value if it could be kept
+                if (uids.size() < maxUids) {
+                    add(cursor.toByteSequence());
+                }
+            }
+        } else if (delta < 0 && !seenIgnore) {
+            for (PackedUidList.Cursor cursor = v.getRemovedUids(); cursor.next();) {
+                remove(cursor.toByteSequence());
+            }
+            for (PackedUidList.Cursor cursor = v.getQuarantinedUids(); cursor.next();) {
+                quarantinedIds.add(cursor.toByteSequence());
+            }
+            // a packed value may have been converted from an older Uid.List, whose uids are also removals when the count is negative
+            for (PackedUidList.Cursor cursor = v.getUids(); cursor.next();) {
+                remove(cursor.toByteSequence());
+            }
+        }
+    }
+    
+    private void release(ByteSequence uid) {
+        quarantinedIds.remove(uid);
+        releasedUids.add(uid);
+    }
+    
+    private void add(ByteSequence uid) {
+        // check that a removal has not occurred
+        // if it has, we decrement the count, from above.
+        if (!uidsToRemove.contains(uid) && !quarantinedIds.contains(uid)) {
+            
+            // add the UID iff we are under our MAX
+            if (uids.size() < maxUids)
+                uids.add(uid);
+        }
+    }
+    
+    private void remove(ByteSequence uid) {
+        // add to uidsToRemove, and decrement count if the uid is in UIDS
+        uidsToRemove.add(uid);
+        uids.remove(uid);
+    }
+    
+    private void collect(Uid.List v) {
+        long delta = v.getCOUNT();
+        
+        count += delta;
+        /**
+         * Fail fast approach.
+         */
+        if (v.getIGNORE()) {
+            seenIgnore = true;
+            if (log.isDebugEnabled())
+                log.debug("SeenIgnore is true. Skipping collections");
+        }
+        
+        // if delta > 0, we are collecting the uid list
+        // in the protobuf into our object's uid list.
+        if (delta > 0) {
+            
+            for (int i = 0; i < v.getQUARANTINEUIDCount(); i++) {
+                release(toByteSequence(v.getQUARANTINEUIDBytes(i)));
+            }
+            
+            for (int i = 0; i < v.getUIDCount() && uids.size() < maxUids; i++) {
+                add(toByteSequence(v.getUIDBytes(i)));
+            }
+            
+            if (log.isDebugEnabled())
+                log.debug("Adding uids " + delta + " " + count);
+            
+            // if our delta is < 0, then we can remove, iff seenIgnore is false. If it is true, there is no need to proceed with removals
+        } else if (delta < 0 && !seenIgnore) {
+            
+            // so that we can perform the decrement
+            for (int i = 0; i < v.getREMOVEDUIDCount(); i++) {
+                remove(toByteSequence(v.getREMOVEDUIDBytes(i)));
+            }
+            
+            for (int i = 0; i < v.getQUARANTINEUIDCount(); i++) {
+                quarantinedIds.add(toByteSequence(v.getQUARANTINEUIDBytes(i)));
+            }
+            
+            /**
+             * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the
+             * case where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain
+             * removals for deltas less than 0
+             */
+            for (int i = 0; i < v.getUIDCount(); i++) {
+                remove(toByteSequence(v.getUIDBytes(i)));
+            }
+        }
+    }
+    
     public void reset() {
         if (log.isDebugEnabled())
             log.debug("Resetting GlobalIndexUidAggregator");
         count = 0;
         seenIgnore = false;
-        builder = Uid.List.newBuilder();
         uids.clear();
         uidsToRemove.clear();
         releasedUids.clear();
@@ -254,7 +319,7 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         if ((seenIgnore && count > maxUids) || !quarantinedIds.isEmpty())
             return true;
         
-        HashSet<String> uidsCopy = new HashSet<>(uids);
+        HashSet<ByteSequence> uidsCopy = new HashSet<>(uids);
         uidsCopy.removeAll(uidsToRemove);
         
         if (log.isDebugEnabled()) {
@@ -0,0 +1,28 @@
+package datawave.ingest.table.aggregator;
+
+import java.util.Collection;
+
+import org.apache.accumulo.core.data.ByteSequence;
+
+import datawave.ingest.protobuf.PackedUidList;
+
+/**
+ * A {@link GlobalIndexUidAggregator} that writes the {@link PackedUidList} encoding. Values in the Uid.List encoding are still read, and are converted as they
+ * are compacted, so this should only be configured once every reader of the index can read both encodings.
+ */
+public class PackedGlobalIndexUidAggregator extends GlobalIndexUidAggregator {
+    
+    public PackedGlobalIndexUidAggregator(int max) {
+        super(max);
+    }
+    
+    public PackedGlobalIndexUidAggregator() {
+        super();
+    }
+    
+    @Override
+    protected byte[] encode(boolean ignore, long count, Collection<ByteSequence> uids, Collection<ByteSequence> removedUids,
+                    Collection<ByteSequence> quarantinedUids) {
+        return PackedUidList.encode(ignore, count, uids, removedUids, quarantinedUids);
+    }
+}
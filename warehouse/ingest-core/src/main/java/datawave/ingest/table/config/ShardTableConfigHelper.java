@@ -8,6 +8,8 @@ import java.util.Set;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
 import datawave.ingest.table.aggregator.CombinerConfiguration;
+import datawave.ingest.table.aggregator.GlobalIndexUidAggregator;
+import datawave.ingest.table.aggregator.PackedGlobalIndexUidAggregator;
 import datawave.ingest.table.balancer.ShardedTableTabletBalancer;
 import datawave.ingest.table.bloomfilter.ShardKeyFunctor;
 import datawave.ingest.table.bloomfilter.ShardIndexKeyFunctor;
@@ -41,6 +43,13 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
     public static final String MARKINGS_SETUP_ITERATOR_CONFIG = "markings.setup.iterator.config";
     private String markingsSetupIteratorConfig;
     
+    /**
+     * The aggregator for the uid lists in the global index and global reverse index. Set this to {@link PackedGlobalIndexUidAggregator} to write the packed
+     * encoding once every reader of the index can read it.
+     */
+    public static final String UID_AGGREGATOR_CLASS = "shard.index.uid.aggregator.class";
+    protected String uidAggregatorClass = GlobalIndexUidAggregator.class.getName();
+    
     public static final String LOCALITY_GROUPS = "shard.table.locality.groups";
     protected HashMap<String,Set<Text>> localityGroups = new HashMap<>();
     
@@ -86,6 +95,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
         }
         
         enableBloomFilters = conf.getBoolean(ENABLE_BLOOM_FILTERS, enableBloomFilters);
+        uidAggregatorClass = conf.get(UID_AGGREGATOR_CLASS, uidAggregatorClass);
         
         String localityGroupsConf = null;
         if (tableName.equals(shardTableName)) {
@@ -193,7 +203,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
             String stem = String.format("%s%s.%s", Property.TABLE_ITERATOR_PREFIX, scope.name(), "UIDAggregator");
             setPropertyIfNecessary(tableName, stem, "19,datawave.iterators.TotalAggregatingIterator", tops, log);
             stem += ".opt.";
-            setPropertyIfNecessary(tableName, stem + "*", "datawave.ingest.table.aggregator.GlobalIndexUidAggregator", tops, log);
+            setPropertyIfNecessary(tableName, stem + "*", uidAggregatorClass, tops, log);
             
             if (markingsSetupIteratorEnabled) {
                 // we want the markings setup iterator init method to be called up front
@@ -216,7 +226,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
             String stem = String.format("%s%s.%s", Property.TABLE_ITERATOR_PREFIX, scope.name(), "UIDAggregator");
             setPropertyIfNecessary(tableName, stem, "19,datawave.iterators.TotalAggregatingIterator", tops, log);
             stem += ".opt.";
-            setPropertyIfNecessary(tableName, stem + "*", "datawave.ingest.table.aggregator.GlobalIndexUidAggregator", tops, log);
+            setPropertyIfNecessary(tableName, stem + "*", uidAggregatorClass, tops, log);
             
             if (markingsSetupIteratorEnabled) {
                 // we want the markings setup iterator init method to be called up front
@@ -0,0 +1,152 @@
+package datawave.ingest.data.tokenize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.CharArraySet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultTokenSearchTest {
+    
+    private static final Logger log = Logger.getLogger(DefaultTokenSearchTest.class);
+    
+    private static final List<String> TERM_TYPES = Arrays.asList("<EMAIL>", "<HOST>", "<IP_ADDR>", "<URL>", "<FILE>", "<HTTP_REQUEST>", "<APOSTROPHE>",
+                    "<ACRONYM>", "<COMPANY>", "<TIMESTAMP>", "<ALPHANUM>", "<NUM>", "<UNDERSCORE>");
+    
+    private static final String[] FRAGMENTS = {"the", "The", "AND", "of", "Foo", "bar", "baz42", "Éclair", "naïve", "Straße", "ΣΟΦΟΣ", "İstanbul", "x",
+            "", "a_b", "@", ".", "..", "/", "//", "\\", "\\\\", ":", "://", "?", "&", "=", "#", "%", "%2F", "%41", "%4", " ", "\t", "'", "\"", "-", "+", "~",
+            "~2", ".exe", "http://", "https://", "@gmail.com", "GET ", " HTTP/1.1", "c:/", "C:\\", "program files", "20190102T120000Z", "\u0001", "\u007f",
+            "user.name+tag"};
+    
+    private CharArraySet stopwords;
+    
+    @Before
+    public void setup() {
+        stopwords = new CharArraySet(Arrays.asList("the", "and", "of", "a", "x"), true);
+    }
+    
+    @Test
+    public void testTokenWords() {
+        DefaultTokenSearch search = new DefaultTokenSearch(stopwords);
+        Set<String> synonyms = new LinkedHashSet<>();
+        search.getTokenWords("The Quick.brown_FOX and-Éclair", ":ZONE", synonyms);
+        Assert.assertEquals(Arrays.asList("quick:ZONE", "brown:ZONE", "fox:ZONE", "éclair:ZONE"), new ArrayList<>(synonyms));
+        
+        // the input itself is not a token word
+        synonyms.clear();
+        search.getTokenWords("single", "", synonyms);
+        Assert.assertTrue(synonyms.isEmpty());
+    }
+    
+    @Test
+    public void testRegressionCorpus() {
+        DefaultTokenSearch search = new DefaultTokenSearch(stopwords);
+        DefaultTokenSearch reference = new RegexTokenSearch(stopwords);
+        Pattern split = Pattern.compile("[\\p{Punct}\\p{Space}\\p{Cntrl}]+");
+        for (String token : corpus(2000, 0)) {
+            Assert.assertArrayEquals(token, split.split(token, 0), search.getTokenWords(token));
+            Assert.assertEquals(token, token.replaceAll("[ &'\"@\\.]", ""), DefaultTokenSearch.removeDirtyChars(token));
+            Assert.assertEquals(token, token.replaceAll("/+", "/"), DefaultTokenSearch.collapse(token, '/', '/'));
+            Assert.assertEquals(token, token.replaceAll("\\\\+", "/"), DefaultTokenSearch.collapse(token, '\\', '/'));
+            for (String termType : TERM_TYPES) {
+                for (boolean includeTerm : new boolean[] {true, false}) {
+                    Assert.assertEquals(termType + " " + token, new ArrayList<>(reference.getSynonyms(token + ":ZONE", termType, includeTerm)),
+                                    new ArrayList<>(search.getSynonyms(token + ":ZONE", termType, includeTerm)));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testBenchmark() {
+        List<String> corpus = corpus(1000, 1);
+        DefaultTokenSearch search = new DefaultTokenSearch(stopwords);
+        DefaultTokenSearch reference = new RegexTokenSearch(stopwords);
+        
+        // warm up both before timing them
+        benchmark(reference, corpus);
+        benchmark(search, corpus);
+        
+        long regexNanos = benchmark(reference, corpus);
+        long scanNanos = benchmark(search, corpus);
+        long tokens = (long) corpus.size() * TERM_TYPES.size();
+        log.info(String.format("token search: regex %.0f tokens/sec, scanner %.0f tokens/sec", tokens * 1e9 / regexNanos, tokens * 1e9 / scanNanos));
+    }
+    
+    private static long benchmark(DefaultTokenSearch search, List<String> corpus) {
+        long count = 0;
+        long start = System.nanoTime();
+        for (String token : corpus) {
+            for (String termType : TERM_TYPES) {
+                count += search.getSynonyms(token, termType, false).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Assert.assertTrue(count > 0);
+        return elapsed;
+    }
+    
+    private static List<String> corpus(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder token = new StringBuilder();
+            int fragments = 1 + random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                token.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            corpus.add(token.toString());
+        }
+        return corpus;
+    }
+    
+    /**
+     * The regular expression based word splitting that the character scanning of {@link DefaultTokenSearch} replaced
+     */
+    private static class RegexTokenSearch extends DefaultTokenSearch {
+        private final Pattern tokenWordPtrn = Pattern.compile("[\\p{Punct}\\p{Space}\\p{Cntrl}]+");
+        private final Pattern dirtyTokensPtrn = Pattern.compile("[ &'\"@\\.]");
+        
+        RegexTokenSearch(CharArraySet stopwords) {
+            super(stopwords);
+        }
+        
+        @Override
+        public void getTokenWords(String input, String zone, Collection<String> synonyms) {
+            for (String word : getTokenWords(input)) {
+                if (!word.isEmpty() && !isStop(word) && !word.equals(input)) {
+                    synonyms.add(word.toLowerCase() + zone);
+                }
+            }
+        }
+        
+        @Override
+        public String[] getTokenWords(String input) {
+            return tokenWordPtrn.split(input, 0);
+        }
+        
+        @Override
+        public Collection<String> dirtyTokens(String[] zw, boolean includeTerm) {
+            Set<String> synonyms = new LinkedHashSet<>();
+            String lc = zw[0].toLowerCase();
+            String zone = zw[1];
+            if ((!lc.equals(zw[0])) || includeTerm) {
+                synonyms.add(lc + zone);
+            }
+            synonyms.addAll(getTermSynonyms(dirtyTokensPtrn.matcher(zw[0]).replaceAll("") + zone, includeTerm));
+            if (dirtyWordTokensEnabled) {
+                getTokenWords(zw[0], zw[1], synonyms);
+            }
+            return synonyms;
+        }
+    }
+}
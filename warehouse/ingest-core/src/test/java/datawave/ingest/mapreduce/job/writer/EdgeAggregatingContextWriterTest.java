@@ -0,0 +1,141 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+
+import datawave.edge.util.EdgeKey;
+import datawave.edge.util.EdgeValue;
+import datawave.ingest.mapreduce.StandaloneStatusReporter;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.handler.edge.ProtobufEdgeDataTypeHandler;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+public class EdgeAggregatingContextWriterTest {
+    
+    private static final Text EDGE_TABLE = new Text("edge");
+    private static final Text SHARD_TABLE = new Text("shard");
+    
+    private Configuration conf;
+    private StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> context;
+    
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.set(ProtobufEdgeDataTypeHandler.EDGE_TABLE_NAME, EDGE_TABLE.toString());
+        conf.setClass(EdgeAggregatingContextWriter.CONTEXT_WRITER_CLASS, RecordingContextWriter.class, ContextWriter.class);
+        context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+        RecordingContextWriter.written.clear();
+    }
+    
+    private static BulkIngestKey edgeKey(String source, String sink) {
+        Key key = EdgeKey.newBuilder(EdgeKey.EDGE_FORMAT.STANDARD).setSourceData(source).setSinkData(sink).setType("TYPE")
+                        .setSourceRelationship("FROM").setSinkRelationship("TO").setSourceAttribute1("SRC").setSinkAttribute1("SNK").setYyyymmdd("20190101")
+                        .setColvis(new Text("A")).setTimestamp(1L).build().encode();
+        return new BulkIngestKey(EDGE_TABLE, key);
+    }
+    
+    private static Value edgeValue(int hour) {
+        EdgeValue.EdgeValueBuilder builder = EdgeValue.newBuilder();
+        builder.setCount(1L);
+        builder.setHour(hour);
+        return builder.build().encode();
+    }
+    
+    @Test
+    public void testAggregation() throws Exception {
+        EdgeAggregatingContextWriter writer = new EdgeAggregatingContextWriter();
+        writer.setup(conf, false);
+        
+        BulkIngestKey edge = edgeKey("a", "b");
+        BulkIngestKey shard = new BulkIngestKey(SHARD_TABLE, new Key("row", "cf", "cq"));
+        for (int hour = 0; hour < 3; hour++) {
+            writer.write(edge, edgeValue(hour), context);
+            writer.write(shard, new Value(new byte[0]), context);
+            writer.commit(context);
+        }
+        
+        // the other tables are passed through, and the edges are held
+        Assert.assertEquals(3, RecordingContextWriter.written.get(shard).size());
+        Assert.assertFalse(RecordingContextWriter.written.containsKey(edge));
+        
+        writer.cleanup(context);
+        Assert.assertEquals(1, RecordingContextWriter.written.get(edge).size());
+        EdgeValue value = EdgeValue.decode(RecordingContextWriter.written.get(edge).iterator().next());
+        Assert.assertEquals(3L, (long) value.getCount());
+        for (int hour = 0; hour < 3; hour++) {
+            Assert.assertTrue(value.isHourSet(hour));
+        }
+        Assert.assertEquals(3, context.getCounter(EdgeAggregatingContextWriter.COUNTER_GROUP, EdgeAggregatingContextWriter.EDGES_RECEIVED).getValue());
+        Assert.assertEquals(1, context.getCounter(EdgeAggregatingContextWriter.COUNTER_GROUP, EdgeAggregatingContextWriter.EDGES_WRITTEN).getValue());
+    }
+    
+    @Test
+    public void testFlushWhenFull() throws Exception {
+        conf.setInt(EdgeAggregatingContextWriter.MAX_ENTRIES, 2);
+        EdgeAggregatingContextWriter writer = new EdgeAggregatingContextWriter();
+        writer.setup(conf, false);
+        
+        writer.write(edgeKey("a", "b"), edgeValue(1), context);
+        writer.commit(context);
+        Assert.assertTrue(RecordingContextWriter.written.isEmpty());
+        
+        writer.write(edgeKey("a", "c"), edgeValue(1), context);
+        writer.commit(context);
+        Assert.assertEquals(2, RecordingContextWriter.written.size());
+        Assert.assertEquals(1, context.getCounter(EdgeAggregatingContextWriter.COUNTER_GROUP, EdgeAggregatingContextWriter.FLUSHES).getValue());
+    }
+    
+    @Test
+    public void testRollback() throws Exception {
+        EdgeAggregatingContextWriter writer = new EdgeAggregatingContextWriter();
+        writer.setup(conf, false);
+        
+        writer.write(edgeKey("a", "b"), edgeValue(1), context);
+        writer.commit(context);
+        writer.write(edgeKey("a", "b"), edgeValue(2), context);
+        writer.rollback();
+        writer.cleanup(context);
+        
+        EdgeValue value = EdgeValue.decode(RecordingContextWriter.written.get(edgeKey("a", "b")).iterator().next());
+        Assert.assertEquals(1L, (long) value.getCount());
+    }
+    
+    public static class RecordingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+        
+        private static final Multimap<BulkIngestKey,Value> written = ArrayListMultimap.create();
+        
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {}
+        
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+            written.put(key, value);
+        }
+        
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                        InterruptedException {
+            written.putAll(entries);
+        }
+        
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {}
+        
+        @Override
+        public void rollback() throws IOException, InterruptedException {}
+        
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {}
+    }
+}
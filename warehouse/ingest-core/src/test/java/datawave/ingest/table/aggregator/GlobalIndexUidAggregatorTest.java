@@ -1,14 +1,18 @@
 package datawave.ingest.table.aggregator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 import datawave.ingest.protobuf.Uid.List.Builder;
 
@@ -228,4 +232,118 @@ public class GlobalIndexUidAggregatorTest {
         assertEquals(1, resultList.getUIDCount());
         
     }
+    
+    @Test
+    public void testPackedLegacyRemoval() throws Exception {
+        Collection<Value> values = Lists.newArrayList();
+        values.add(new Value(PackedUidList.encode(createNewUidList().setIGNORE(false).setCOUNT(2).addUID("uid1").addUID("uid2").build())));
+        // a removal written before the removal list existed, with the removed uid in the uid list, converted to the packed encoding
+        values.add(new Value(PackedUidList.encode(createNewUidList().setIGNORE(false).setCOUNT(-1).addUID("uid2").build())));
+        
+        agg.reset();
+        Uid.List resultList = Uid.List.parseFrom(agg.reduce(new Key("key"), values.iterator()).get());
+        assertEquals(1, resultList.getCOUNT());
+        assertEquals(Lists.newArrayList("uid1"), resultList.getUIDList());
+        assertEquals(Lists.newArrayList("uid2"), resultList.getREMOVEDUIDList());
+    }
+    
+    @Test
+    public void testMixedEncodings() throws Exception {
+        PropogatingCombiner packedAgg = new PackedGlobalIndexUidAggregator();
+        packedAgg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(3);
+        b.addUID("uid1");
+        b.addUID("uid2");
+        b.addUID("uid3");
+        values.add(new Value(b.build().toByteArray()));
+        // a removal in the packed encoding
+        values.add(new Value(PackedUidList.encode(createNewUidList().setIGNORE(false).setCOUNT(-1).addREMOVEDUID("uid2").build())));
+        values.add(new Value(PackedUidList.encode(createNewUidList().setIGNORE(false).setCOUNT(1).addUID("uid0").build())));
+        
+        Value result = packedAgg.reduce(new Key("key"), values.iterator());
+        assertTrue(PackedUidList.isPacked(result.get()));
+        Uid.List resultList = PackedUidList.parse(result.get());
+        assertEquals(3, resultList.getCOUNT());
+        assertFalse(resultList.getIGNORE());
+        assertEquals(Lists.newArrayList("uid0", "uid1", "uid3"), resultList.getUIDList());
+        assertEquals(Lists.newArrayList("uid2"), resultList.getREMOVEDUIDList());
+        
+        // the default aggregator reads the packed encoding and writes the protobuf encoding
+        agg.reset();
+        result = agg.reduce(new Key("key"), Iterators.singletonIterator(result));
+        assertFalse(PackedUidList.isPacked(result.get()));
+        assertEquals(resultList.getUIDCount(), Uid.List.parseFrom(result.get()).getUIDCount());
+    }
+    
+    @Test
+    public void testCombineBenchmark() throws Exception {
+        Logger.getLogger(GlobalIndexUidAggregator.class).setLevel(Level.WARN);
+        Random random = new Random(7);
+        List<List<Uid.List>> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // several partial lists per key, as seen when compacting the files of a tablet
+            List<Uid.List> lists = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                Builder b = createNewUidList();
+                b.setIGNORE(false);
+                for (int k = 0; k < 4; k++) {
+                    b.addUID(Integer.toString(random.nextInt(), 36) + "." + Integer.toString(random.nextInt(), 36) + "." + random.nextInt(100));
+                }
+                b.setCOUNT(b.getUIDCount());
+                lists.add(b.build());
+            }
+            keys.add(lists);
+        }
+        
+        List<List<Value>> protobufValues = new ArrayList<>();
+        List<List<Value>> packedValues = new ArrayList<>();
+        long protobufBytes = 0;
+        long packedBytes = 0;
+        for (List<Uid.List> lists : keys) {
+            List<Value> protobuf = new ArrayList<>();
+            List<Value> packed = new ArrayList<>();
+            for (Uid.List list : lists) {
+                protobuf.add(new Value(list.toByteArray()));
+                packed.add(new Value(PackedUidList.encode(list)));
+                protobufBytes += protobuf.get(protobuf.size() - 1).getSize();
+                packedBytes += packed.get(packed.size() - 1).getSize();
+            }
+            protobufValues.add(protobuf);
+            packedValues.add(packed);
+        }
+        
+        GlobalIndexUidAggregator protobufAgg = new GlobalIndexUidAggregator();
+        GlobalIndexUidAggregator packedAgg = new PackedGlobalIndexUidAggregator();
+        // warm up both encodings before timing them, and check that they agree
+        for (int j = 0; j < keys.size(); j++) {
+            Uid.List expected = Uid.List.parseFrom(combine(protobufAgg, protobufValues.get(j)).get());
+            Uid.List actual = PackedUidList.parse(combine(packedAgg, packedValues.get(j)).get());
+            assertEquals(expected.getCOUNT(), actual.getCOUNT());
+            assertEquals(new HashSet<>(expected.getUIDList()), new HashSet<>(actual.getUIDList()));
+        }
+        
+        long start = System.nanoTime();
+        for (List<Value> values : protobufValues) {
+            combine(protobufAgg, values);
+        }
+        long protobufDuration = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (List<Value> values : packedValues) {
+            combine(packedAgg, values);
+        }
+        long packedDuration = System.nanoTime() - start;
+        
+        Logger.getLogger(GlobalIndexUidAggregatorTest.class).info(
+                        String.format("combined %d keys: protobuf %d ms (%d bytes), packed %d ms (%d bytes)", keys.size(), protobufDuration / 1000000,
+                                        protobufBytes, packedDuration / 1000000, packedBytes));
+    }
+    
+    private static Value combine(GlobalIndexUidAggregator agg, List<Value> values) {
+        agg.reset();
+        return agg.reduce(new Key("key"), values.iterator());
+    }
 }
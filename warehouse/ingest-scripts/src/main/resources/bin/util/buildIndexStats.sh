@@ -50,6 +50,10 @@
 # Optional Environmental Variables
 # _MapperMemoryMB => memory allocated in MB to each mapper JVM process
 # _ReducerMemoryMB => memory allocated in MB to each reducer JVM process
+# _Incremental => Writes a HyperLogLogPlus summary for each shard instead of the final
+#           counts for the day. Only the shards that changed need to be processed, and
+#           the summaries are merged when read. The stats table must keep a single
+#           version so that a new summary replaces the previous one for the shard.
 #
 # Optional Debug Environment Variables
 # There are several options that will allow for analysis of the debug data:
@@ -172,6 +176,11 @@ function setStatsParameters() {
 
     # runtime parameters are set in shard-stats-config.xml
 
+    # check for incremental summaries
+    test -n "${_Incremental}" && {
+        local -r _incrementalOpts="-shardStats.incremental=true"
+    }
+
     test -n "${_NumShards}" && {
         local -r _shardOpts="-num.shards=${_NumShards}"
     }
@@ -180,6 +189,7 @@ function setStatsParameters() {
     _StatsOpts="
 ${_StatsDebugOpts} \
 ${_shardOpts} \
+${_incrementalOpts} \
 "
 }
 
@@ -11,6 +11,7 @@ import datawave.query.composite.CompositeSeeker.FieldIndexCompositeSeeker;
 import datawave.query.iterator.CachingIterator;
 import datawave.query.exceptions.DatawaveIvaratorMaxResultsException;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirManager;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.iterator.profile.QuerySpanCollector;
 import datawave.query.iterator.profile.SourceTrackingIterator;
@@ -1207,8 +1208,13 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         }
         
         try {
+            IvaratorCacheDirManager manager = IvaratorCacheDirManager.getInstance(initEnv);
+            
             // for each of the ivarator cache dirs
             for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+                // keep the query dir from being evicted while we are using it
+                manager.touch(ivaratorCacheDir, queryLock);
+                
                 // get the row specific dir
                 Path rowDir = getRowDir(new Path(ivaratorCacheDir.getPathURI()), row);
                 
@@ -1236,7 +1242,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             this.setControl.takeOwnership(row, this);
             
             // if this set is not marked as complete (meaning completely filled AND persisted), then we cannot trust the contents and we need to recompute.
-            if (!this.setControl.isCompleteAndPersisted(row)) {
+            // the same is true if it was persisted to the memory tier, and the memory tier no longer has it (e.g. after a restart)
+            if (!this.setControl.isCompleteAndPersisted(row) || (this.setControl.isCompleteInMemory(row) && !this.set.hasMemoryTierData())) {
                 this.set.clear();
                 this.keys = null;
             } else {
@@ -1366,13 +1373,14 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         if (this.set != null && !this.set.isPersisted()) {
             this.set.persist();
             // declare the persisted set complete
-            this.setControl.setCompleteAndPersisted(this.currentRow);
+            this.setControl.setCompleteAndPersisted(this.currentRow, this.set.hasMemoryTierData());
         }
     }
     
     public class HdfsBackedControl {
         public static final String OWNERSHIP_FILE = "ownership";
         public static final String COMPLETE_FILE = "complete";
+        public static final String COMPLETE_IN_MEMORY = "complete:memory";
         
         // cancelled check interval is 1 minute
         public static final int CANCELLED_CHECK_INTERVAL = 1000 * 60;
@@ -1453,8 +1461,12 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         }
         
         public void setCompleteAndPersisted(String row) throws IOException {
+            setCompleteAndPersisted(row, false);
+        }
+        
+        public void setCompleteAndPersisted(String row, boolean inMemory) throws IOException {
             Path file = getCompleteFile(row);
-            writeFile(file, "complete".getBytes());
+            writeFile(file, (inMemory ? COMPLETE_IN_MEMORY : "complete").getBytes());
         }
         
         public boolean isCompleteAndPersisted(String row) throws IOException {
@@ -1462,6 +1474,15 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return controlFs.exists(file);
         }
         
+        /**
+         * @param row
+         * @return true if the set was complete when persisted, and some of it was persisted to the ivarator memory tier
+         */
+        public boolean isCompleteInMemory(String row) throws IOException {
+            Path file = getCompleteFile(row);
+            return controlFs.exists(file) && hasContents(file, COMPLETE_IN_MEMORY.getBytes());
+        }
+        
         private void writeFile(Path file, byte[] value) throws IOException {
             // if a cancelled query, then return immediately
             if (isCancelledQuery()) {
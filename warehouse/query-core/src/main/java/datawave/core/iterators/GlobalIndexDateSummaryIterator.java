@@ -9,6 +9,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 import datawave.ingest.protobuf.Uid.List.Builder;
 import datawave.marking.MarkingFunctions;
@@ -321,7 +322,7 @@ public class GlobalIndexDateSummaryIterator implements SortedKeyValueIterator<Ke
                 // Parse the UID.List object from the value
                 Uid.List uidList = null;
                 try {
-                    uidList = Uid.List.parseFrom(value.get());
+                    uidList = PackedUidList.parse(value.get());
                     if (null != uidList) {
                         count = uidList.getCOUNT();
                     }
@@ -0,0 +1,286 @@
+package datawave.core.iterators;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.edge.util.ExtendedHyperLogLogPlus;
+import datawave.marking.MarkingFunctions;
+import datawave.query.Constants;
+import datawave.query.DocumentSerialization;
+import datawave.query.DocumentSerialization.ReturnType;
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Document;
+import datawave.query.cardinality.CardinalitySketches;
+import datawave.query.function.deserializer.DocumentDeserializer;
+import datawave.query.iterator.profile.FinalDocumentTrackingIterator;
+import datawave.query.jexl.JexlASTHelper;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * <p>
+ * The distinct counting counterpart of {@link ResultCountingIterator}. Rather than counting the documents returned by the iterator beneath it on the stack, it
+ * offers the values of one field of each document into a HyperLogLog sketch per shard date.
+ * </p>
+ *
+ * <p>
+ * This iterator will only ever return one key/value pair.
+ * <ul>
+ * <li>The key is the last key returned by the source, which ensures that the key is not automatically filtered out due to falling outside the range.</li>
+ * <li>The value is a Kryo serialized {@link ResultSketchTuple} holding the sketches keyed by shard date and the rolled up visibility.</li>
+ * </ul>
+ *
+ * <p>
+ * As with the {@link ResultCountingIterator}, a BatchScanner returns one set of sketches per range and it is up to the client to merge them.
+ */
+public class ResultSketchingIterator extends WrappingIterator {
+    private static final Logger log = Logger.getLogger(ResultSketchingIterator.class);
+    
+    /**
+     * The field whose distinct values are counted
+     */
+    public static final String FIELD = "distinct.count.field";
+    
+    /**
+     * The precision of the sketches, {@link ExtendedHyperLogLogPlus#P} by default
+     */
+    public static final String PRECISION = "distinct.count.precision";
+    
+    private final Cache<Text,ColumnVisibility> CV_CACHE = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(100).build();
+    
+    private String field;
+    private int precision = ExtendedHyperLogLogPlus.P;
+    private ReturnType returnType = ReturnType.kryo;
+    private DocumentDeserializer deserializer;
+    
+    private Key currentTopKey = null;
+    private CardinalitySketches sketches = null;
+    private Kryo kryo = new Kryo();
+    
+    protected Set<ColumnVisibility> columnVisibilities = Sets.newHashSet();
+    private static MarkingFunctions markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
+    
+    public ResultSketchingIterator() {}
+    
+    public ResultSketchingIterator(ResultSketchingIterator other, IteratorEnvironment env) {
+        setSource(other.getSource().deepCopy(env));
+        this.field = other.field;
+        this.precision = other.precision;
+        this.returnType = other.returnType;
+        this.deserializer = DocumentSerialization.getDocumentDeserializer(this.returnType);
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        setSource(source.deepCopy(env));
+        this.field = options.get(FIELD);
+        if (this.field == null) {
+            throw new IllegalArgumentException(FIELD + " must be set");
+        }
+        this.field = JexlASTHelper.deconstructIdentifier(this.field);
+        if (options.containsKey(PRECISION)) {
+            this.precision = Integer.parseInt(options.get(PRECISION));
+        }
+        if (options.containsKey(Constants.RETURN_TYPE)) {
+            this.returnType = ReturnType.valueOf(options.get(Constants.RETURN_TYPE));
+        }
+        this.deserializer = DocumentSerialization.getDocumentDeserializer(this.returnType);
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return sketches != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        // the whole range was consumed by the seek
+        this.sketches = null;
+    }
+    
+    /**
+     * A <code>seek</code> will reset the sketches made by this iterator.
+     */
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        getSource().seek(range, columnFamilies, inclusive);
+        consume();
+    }
+    
+    public void consume() throws IOException {
+        CardinalitySketches consumed = new CardinalitySketches(precision);
+        columnVisibilities.clear();
+        long documents = 0;
+        
+        while (getSource().hasTop()) {
+            Key key = getSource().getTopKey();
+            if (!FinalDocumentTrackingIterator.isFinalDocumentKey(key)) {
+                final Text cvholder = new Text();
+                key.getColumnVisibility(cvholder);
+                
+                // Do not count the document if we can't parse its ColumnVisibility
+                try {
+                    ColumnVisibility cv = CV_CACHE.get(cvholder, () -> new ColumnVisibility(cvholder));
+                    
+                    Document document = deserializer.apply(Maps.immutableEntry(key, getSource().getTopValue())).getValue();
+                    String date = getShardDate(key);
+                    for (Map.Entry<String,Attribute<? extends Comparable<?>>> entry : document.entrySet()) {
+                        if (field.equals(JexlASTHelper.removeGroupingContext(entry.getKey()))) {
+                            offer(consumed, date, entry.getValue());
+                        }
+                    }
+                    columnVisibilities.add(cv);
+                    documents++;
+                } catch (Exception e) {
+                    log.error("Error sketching the document of key " + key, e);
+                }
+            }
+            this.currentTopKey = key;
+            getSource().next();
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Sketched " + documents + " documents into " + consumed);
+        }
+        this.sketches = documents > 0 ? consumed : null;
+    }
+    
+    private void offer(CardinalitySketches sketches, String date, Attribute<?> attr) {
+        if (attr instanceof Attributes) {
+            for (Attribute<?> child : ((Attributes) attr).getAttributes()) {
+                offer(sketches, date, child);
+            }
+        } else {
+            sketches.offer(date, String.valueOf(attr.getData()));
+        }
+    }
+    
+    /**
+     * @return the date portion of a shard row, yyyyMMdd_n
+     */
+    private static String getShardDate(Key key) {
+        String row = key.getRow().toString();
+        int index = row.indexOf('_');
+        return index < 0 ? row : row.substring(0, index);
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return currentTopKey; // This is the unchanged key that our source iterator returned.
+    }
+    
+    /**
+     * Kryo serialized object ResultSketchTuple which contains the sketches and the rolled up visibility
+     *
+     * @return serialized form of the sketches and rolled up visibility
+     */
+    @Override
+    public Value getTopValue() {
+        if (null == sketches) {
+            return null;
+        }
+        
+        ColumnVisibility cv = null;
+        
+        try {
+            cv = markingFunctions.combine(columnVisibilities);
+        } catch (Exception e) {
+            log.error("Could not create combined columnVisibility for the sketches", e);
+            return null;
+        }
+        
+        ResultSketchTuple result = new ResultSketchTuple(sketches, cv);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Output kryoOutput = new Output(baos);
+        kryo.writeObject(kryoOutput, result);
+        kryoOutput.close();
+        
+        return new Value(baos.toByteArray());
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        return new ResultSketchingIterator(this, env);
+    }
+    
+    /**
+     * Simple tuple class implementing Kryo Serialization. Will hold the sketches and rolled up column visibility.
+     *
+     * The serialized object will be of the form: int - length of visibility expression byte array byte[] - rolled up ColumnVisibility int - length of the
+     * sketches byte array byte[] - serialized {@link CardinalitySketches}
+     */
+    public static class ResultSketchTuple implements KryoSerializable {
+        CardinalitySketches sketches;
+        ColumnVisibility visibility;
+        
+        public ResultSketchTuple() {
+            // need default constructor for kryo
+        }
+        
+        public ResultSketchTuple(CardinalitySketches sketches, ColumnVisibility visibility) {
+            this.sketches = sketches;
+            this.visibility = visibility;
+        }
+        
+        public CardinalitySketches getSketches() {
+            return sketches;
+        }
+        
+        public ColumnVisibility getVisibility() {
+            return visibility;
+        }
+        
+        @Override
+        public void write(Kryo kryo, Output output) {
+            byte[] expression = visibility.getExpression();
+            output.writeInt(expression.length);
+            output.writeBytes(expression);
+            try {
+                byte[] bytes = sketches.toValue().get();
+                output.writeInt(bytes.length);
+                output.writeBytes(bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to serialize the sketches", e);
+            }
+        }
+        
+        @Override
+        public void read(Kryo kryo, Input input) {
+            int expressionLength = input.readInt();
+            this.visibility = new ColumnVisibility(input.readBytes(expressionLength));
+            int sketchesLength = input.readInt();
+            try {
+                this.sketches = CardinalitySketches.fromValue(new Value(input.readBytes(sketchesLength)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to deserialize the sketches", e);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "ResultSketchTuple{" + "sketches=" + sketches + ", visibility=" + visibility + '}';
+        }
+    }
+}
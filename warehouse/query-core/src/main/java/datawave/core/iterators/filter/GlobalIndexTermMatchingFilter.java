@@ -8,6 +8,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
@@ -76,7 +77,7 @@ public class GlobalIndexTermMatchingFilter extends Filter {
      */
     private boolean hasEvents(final Value v) {
         try {
-            Uid.List protobuf = Uid.List.parseFrom(v.get());
+            Uid.List protobuf = PackedUidList.parse(v.get());
             
             // the protobuf list should be aggregated already
             return protobuf.getIGNORE() || !protobuf.getUIDList().isEmpty();
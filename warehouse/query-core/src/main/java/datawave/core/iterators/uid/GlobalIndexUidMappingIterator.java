@@ -1,5 +1,6 @@
 package datawave.core.iterators.uid;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 
 import org.apache.accumulo.core.data.Key;
@@ -37,7 +38,7 @@ public class GlobalIndexUidMappingIterator extends UidMappingIterator {
     protected KeyValue mapUid(KeyValue keyValue, boolean startKey, boolean startKeyInclusive, boolean endKey, boolean endKeyInclusive) {
         if (keyValue != null && keyValue.getValue() != null && keyValue.getValue().getSize() > 0) {
             try {
-                Uid.List.Builder uidList = Uid.List.parseFrom(keyValue.getValue().get()).toBuilder();
+                Uid.List.Builder uidList = PackedUidList.parse(keyValue.getValue().get()).toBuilder();
                 boolean changed = false;
                 for (int i = 0; i < uidList.getUIDList().size(); i++) {
                     String uid = uidList.getUID(i);
@@ -57,7 +58,9 @@ public class GlobalIndexUidMappingIterator extends UidMappingIterator {
                     }
                 }
                 if (changed) {
-                    keyValue = new KeyValue(keyValue.getKey(), uidList.build().toByteArray());
+                    // keep the encoding of the original value
+                    byte[] value = PackedUidList.isPacked(keyValue.getValue().get()) ? PackedUidList.encode(uidList.build()) : uidList.build().toByteArray();
+                    keyValue = new KeyValue(keyValue.getKey(), value);
                 }
             } catch (InvalidProtocolBufferException e) {
                 // return the value as is
@@ -128,6 +128,11 @@ public class QueryParameters {
      */
     public static final String CONTENT_VIEW_ALL = "content.view.all";
     
+    /**
+     * Used by the content query table to return the documents in the order in which they appear in the query
+     */
+    public static final String CONTENT_REQUEST_ORDER = "content.request.order";
+    
     /**
      * Used to specify the class used to perform visibility interpretations into markings.
      */
@@ -157,4 +162,14 @@ public class QueryParameters {
     
     public static final String DATE_INDEX_TIME_TRAVEL = "date.index.time.travel";
     
+    /**
+     * Used by a counting query to estimate the number of distinct values of a field per day rather than count documents
+     */
+    public static final String DISTINCT_COUNT_FIELD = "distinct.count.field";
+    
+    /**
+     * The precision of the sketches used to estimate the distinct values, between 4 and 16. Each additional bit halves the variance of the estimates.
+     */
+    public static final String DISTINCT_COUNT_PRECISION = "distinct.count.precision";
+    
 }
@@ -0,0 +1,508 @@
+package datawave.query.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A local cache of the raw results of queries, keyed by a digest of the query, its date range, the effective authorizations and the query parameters. A cached
+ * result is a stream of serialized key/value pairs held in one of two tiers: a memory tier of direct (off heap) buffers for small results, and a disk tier of
+ * files for everything that fits in the disk budget. Both tiers evict their least recently used entries to stay in budget, and entries evicted from memory
+ * stay on disk.
+ * <p>
+ * Each entry records the day it was cached and the latest load date of the fields of its query at that time. An entry is invalidated as soon as any of the
+ * fields is loaded again, or when none of them have a load date, since the freshness of such results cannot be checked. Load dates are only kept at day
+ * granularity, so a load later on the day an entry was cached cannot be told apart from the loads before it. Entries whose fields were loaded on the day they
+ * were cached are therefore served until the end of that day only. The cache is shared by all of the queries that use the same directory and is thread safe.
+ */
+public class ResultCache {
+    
+    private static final Logger log = Logger.getLogger(ResultCache.class);
+    
+    private static final String SUFFIX = ".results";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private static final Map<String,ResultCache> instances = new HashMap<>();
+    
+    /**
+     * An iterator over results that holds a file or stream open until it is exhausted or closed
+     */
+    public interface ResultIterator extends Iterator<Entry<Key,Value>>, Closeable {}
+    
+    private final File directory;
+    private final long maxMemory;
+    private final long maxDisk;
+    
+    // least recently used first
+    private final LinkedHashMap<String,ByteBuffer> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String,File> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryUsed = 0;
+    private long diskUsed = 0;
+    
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+    
+    /**
+     * Get the cache for a directory, creating it the first time it is requested. The budgets of an existing cache are not changed.
+     *
+     * @param directory
+     *            the directory for the disk tier
+     * @param maxMemory
+     *            the max number of bytes held in the memory tier
+     * @param maxDisk
+     *            the max number of bytes held in the disk tier
+     * @return the cache
+     */
+    public static ResultCache getInstance(String directory, long maxMemory, long maxDisk) {
+        synchronized (instances) {
+            ResultCache cache = instances.get(directory);
+            if (cache == null) {
+                cache = new ResultCache(new File(directory), maxMemory, maxDisk);
+                instances.put(directory, cache);
+            }
+            return cache;
+        }
+    }
+    
+    public ResultCache(File directory, long maxMemory, long maxDisk) {
+        this.directory = directory;
+        this.maxMemory = maxMemory;
+        this.maxDisk = maxDisk;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the result cache directory " + directory);
+        }
+        
+        // pick up the results cached before a restart, oldest first, and drop any partial writes
+        File[] files = directory.listFiles();
+        if (files != null) {
+            SortedMap<Long,List<File>> byModified = new TreeMap<>();
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX)) {
+                    byModified.computeIfAbsent(file.lastModified(), k -> new ArrayList<>()).add(file);
+                } else if (file.getName().endsWith(TEMP_SUFFIX) && !file.delete()) {
+                    log.warn("Unable to delete partial cached results " + file);
+                }
+            }
+            for (List<File> modified : byModified.values()) {
+                for (File file : modified) {
+                    String name = file.getName();
+                    disk.put(name.substring(0, name.length() - SUFFIX.length()), file);
+                    diskUsed += file.length();
+                }
+            }
+            evictDisk();
+        }
+    }
+    
+    /**
+     * Create the cache key for a query
+     *
+     * @param logicName
+     *            the name of the query logic
+     * @param query
+     *            the query string, after any macros have been expanded and the syntax has been converted to JEXL
+     * @param beginDate
+     * @param endDate
+     * @param auths
+     *            the effective authorizations of the query
+     * @param parameters
+     *            the query parameters
+     * @return a digest identifying the query
+     */
+    public static String key(String logicName, String query, Date beginDate, Date endDate, Collection<Authorizations> auths, Map<String,String> parameters) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(String.valueOf(logicName), Charsets.UTF_8).putByte((byte) 0);
+        // collapse the whitespace so that reformatted queries share an entry
+        hasher.putString(query.trim().replaceAll("\\s+", " "), Charsets.UTF_8).putByte((byte) 0);
+        hasher.putLong(beginDate.getTime()).putLong(endDate.getTime());
+        
+        List<String> sortedAuths = new ArrayList<>();
+        for (Authorizations authorizations : auths) {
+            List<String> sorted = new ArrayList<>();
+            for (byte[] auth : authorizations.getAuthorizations()) {
+                sorted.add(new String(auth, Charsets.UTF_8));
+            }
+            sorted.sort(null);
+            sortedAuths.add(String.join(",", sorted));
+        }
+        sortedAuths.sort(null);
+        for (String authorizations : sortedAuths) {
+            hasher.putString(authorizations, Charsets.UTF_8).putByte((byte) 0);
+        }
+        
+        for (Entry<String,String> parameter : new TreeMap<>(parameters).entrySet()) {
+            hasher.putString(parameter.getKey(), Charsets.UTF_8).putByte((byte) 0);
+            hasher.putString(String.valueOf(parameter.getValue()), Charsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+    
+    /**
+     * Get the cached results of a query
+     *
+     * @param key
+     *            the cache key of the query
+     * @param latestLoadDate
+     *            the latest load date, as yyyyMMdd, of the fields in the query, or null if none of them were loaded
+     * @param today
+     *            the current day, as yyyyMMdd
+     * @return the cached results, or null if the query is not cached or its entry was invalidated
+     * @throws IOException
+     *             if the disk tier could not be read
+     */
+    public synchronized ResultIterator get(String key, String latestLoadDate, String today) throws IOException {
+        ByteBuffer buffer = memory.get(key);
+        File file = disk.get(key);
+        if (buffer == null && file == null) {
+            misses++;
+            logHitRate();
+            return null;
+        }
+        
+        InputStream in;
+        if (buffer != null) {
+            in = new ByteBufferInputStream(buffer.duplicate());
+        } else {
+            in = new BufferedInputStream(new FileInputStream(file));
+        }
+        DataInputStream data = new DataInputStream(in);
+        String cachedDate = data.readUTF();
+        String loadDate = data.readUTF();
+        // loads on the day the entry was cached may have come after it
+        boolean loadedSameDay = loadDate.compareTo(cachedDate) >= 0 && today.compareTo(cachedDate) > 0;
+        if (latestLoadDate == null || latestLoadDate.compareTo(loadDate) > 0 || loadedSameDay) {
+            data.close();
+            invalidate(key);
+            invalidations++;
+            misses++;
+            logHitRate();
+            return null;
+        }
+        
+        hits++;
+        logHitRate();
+        return new CachedResultIterator(data);
+    }
+    
+    /**
+     * Start recording the results of a query. The results are cached once all of them have been recorded.
+     *
+     * @param key
+     *            the cache key of the query
+     * @param cachedDate
+     *            the day, as yyyyMMdd, the results were read
+     * @param loadDate
+     *            the latest load date, as yyyyMMdd, of the fields in the query when the results were read
+     * @param results
+     *            the results of the query
+     * @return an iterator over the results that records them as they are returned
+     * @throws IOException
+     *             if the results could not be written to the disk tier
+     */
+    public ResultIterator record(String key, String cachedDate, String loadDate, Iterator<Entry<Key,Value>> results) throws IOException {
+        if (null == loadDate) {
+            throw new IllegalArgumentException("The results of a query without a load date cannot be cached");
+        }
+        return new RecordingIterator(key, cachedDate, loadDate, results);
+    }
+    
+    private void logHitRate() {
+        if (log.isDebugEnabled()) {
+            log.debug("Result cache " + directory + ": " + hits + " hits, " + misses + " misses (" + invalidations + " invalidated), hit rate "
+                            + getHitRate());
+        }
+    }
+    
+    /**
+     * Add a completely recorded result to the cache
+     */
+    private synchronized void put(String key, File temp) throws IOException {
+        long length = temp.length();
+        File file = new File(directory, key + SUFFIX);
+        invalidate(key);
+        if (length > maxDisk || !temp.renameTo(file)) {
+            if (!temp.delete()) {
+                log.warn("Unable to delete cached results " + temp);
+            }
+            return;
+        }
+        disk.put(key, file);
+        diskUsed += length;
+        
+        // small results are also held in memory
+        if (length <= Math.min(maxMemory / 4, Integer.MAX_VALUE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) > 0) {
+                    buffer.put(chunk, 0, read);
+                }
+            }
+            buffer.flip();
+            memory.put(key, buffer);
+            memoryUsed += length;
+            evictMemory();
+        }
+        evictDisk();
+    }
+    
+    private void invalidate(String key) {
+        ByteBuffer buffer = memory.remove(key);
+        if (buffer != null) {
+            memoryUsed -= buffer.capacity();
+        }
+        File file = disk.remove(key);
+        if (file != null) {
+            diskUsed -= file.length();
+            if (!file.delete()) {
+                log.warn("Unable to delete cached results " + file);
+            }
+        }
+    }
+    
+    private void evictMemory() {
+        Iterator<ByteBuffer> buffers = memory.values().iterator();
+        while (memoryUsed > maxMemory && buffers.hasNext()) {
+            memoryUsed -= buffers.next().capacity();
+            buffers.remove();
+        }
+    }
+    
+    private void evictDisk() {
+        Iterator<Entry<String,File>> files = disk.entrySet().iterator();
+        while (diskUsed > maxDisk && files.hasNext()) {
+            Entry<String,File> entry = files.next();
+            diskUsed -= entry.getValue().length();
+            if (!entry.getValue().delete()) {
+                log.warn("Unable to delete cached results " + entry.getValue());
+            }
+            files.remove();
+            
+            ByteBuffer buffer = memory.remove(entry.getKey());
+            if (buffer != null) {
+                memoryUsed -= buffer.capacity();
+            }
+        }
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+    
+    /**
+     * @return the fraction of lookups that were served from the cache
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+    
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+    
+    public synchronized long getDiskUsed() {
+        return diskUsed;
+    }
+    
+    /**
+     * Reads the key/value pairs of a cached result
+     */
+    private static class CachedResultIterator implements ResultIterator {
+        private final DataInputStream in;
+        private Entry<Key,Value> next;
+        
+        CachedResultIterator(DataInputStream in) throws IOException {
+            this.in = in;
+            this.next = read();
+        }
+        
+        private Entry<Key,Value> read() throws IOException {
+            if (!in.readBoolean()) {
+                in.close();
+                return null;
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(readKey(in), readValue(in));
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public Entry<Key,Value> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<Key,Value> current = next;
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read cached results", e);
+            }
+            return current;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            next = null;
+            in.close();
+        }
+    }
+    
+    private static Key readKey(DataInput in) throws IOException {
+        Key key = new Key();
+        key.readFields(in);
+        return key;
+    }
+    
+    private static Value readValue(DataInput in) throws IOException {
+        Value value = new Value();
+        value.readFields(in);
+        return value;
+    }
+    
+    /**
+     * Writes the results to a temporary file as they are returned, and caches the file once the results are exhausted. Nothing is cached if the results are
+     * abandoned before then, or if they outgrow the disk tier.
+     */
+    private class RecordingIterator implements ResultIterator {
+        private final String key;
+        private final Iterator<Entry<Key,Value>> delegate;
+        private final File temp;
+        private DataOutputStream out;
+        
+        RecordingIterator(String key, String cachedDate, String loadDate, Iterator<Entry<Key,Value>> delegate) throws IOException {
+            this.key = key;
+            this.delegate = delegate;
+            this.temp = File.createTempFile(key, TEMP_SUFFIX, directory);
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeUTF(cachedDate);
+            out.writeUTF(loadDate);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext && out != null) {
+                try {
+                    out.writeBoolean(false);
+                    out.close();
+                    out = null;
+                    put(key, temp);
+                } catch (IOException e) {
+                    log.warn("Failed to cache results " + key, e);
+                    abandon();
+                }
+            }
+            return hasNext;
+        }
+        
+        @Override
+        public Entry<Key,Value> next() {
+            Entry<Key,Value> next = delegate.next();
+            if (out != null && next != null) {
+                try {
+                    out.writeBoolean(true);
+                    next.getKey().write(out);
+                    next.getValue().write(out);
+                    if (out.size() > maxDisk) {
+                        abandon();
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to record results " + key, e);
+                    abandon();
+                }
+            }
+            return next;
+        }
+        
+        /**
+         * Abandon the recording if the results were not exhausted
+         */
+        @Override
+        public void close() {
+            abandon();
+        }
+        
+        private void abandon() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close recorded results " + temp, e);
+                }
+                out = null;
+            }
+            if (temp.exists() && !temp.delete()) {
+                log.warn("Unable to delete recorded results " + temp);
+            }
+        }
+    }
+    
+    /**
+     * An input stream over a buffer in the memory tier
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+    }
+}
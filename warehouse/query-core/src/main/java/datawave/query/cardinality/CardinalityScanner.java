@@ -13,10 +13,12 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import datawave.common.cl.OptionBuilder;
+import datawave.edge.util.ExtendedHyperLogLogPlus;
 import datawave.security.util.ScannerHelper;
 import datawave.util.cli.PasswordConverter;
 
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.ZooKeeperInstance;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
@@ -51,6 +53,7 @@ public class CardinalityScanner {
     private static final String AGGREGATE = "aggregate";
     private static final String DATATYPES = "datatypes";
     private static final String INTERSECT = "intersect";
+    private static final String PUSHDOWN = "pushdown";
     
     private static final String HELP_OPT = "help";
     
@@ -94,7 +97,11 @@ public class CardinalityScanner {
             
             Set<CardinalityIntersectionRecord> cardinalitySet = cardinalityScanner.scanCardinalities(config.getFields(), config.getDateAggregateMode(),
                             datatypeAggregation);
-            System.out.println("DATE" + "," + "DATATYPE" + "," + "PAIR" + "," + "CARDINALITY");
+            if (config.getPushdown() && !config.getIntersect()) {
+                System.out.println("DATE" + "," + "DATATYPE" + "," + "PAIR" + "," + "CARDINALITY" + "," + "ERROR");
+            } else {
+                System.out.println("DATE" + "," + "DATATYPE" + "," + "PAIR" + "," + "CARDINALITY");
+            }
             
             if (config.getIntersect()) {
                 if (config.getFields().size() == 2) {
@@ -154,6 +161,7 @@ public class CardinalityScanner {
         opt.addOption(builder.create(DATATYPES, null, "maintain datatypes when reading cardinalities"));
         opt.addOption(builder.create(INTERSECT, null, "intersect cardinalities"));
         opt.addOption(builder.create(SORTBYCARDINALITY, null, "sort by cardinality within pairs"));
+        opt.addOption(builder.create(PUSHDOWN, null, "merge cardinalities on the tablet servers and report the relative error of each"));
         
         return opt;
     }
@@ -175,6 +183,7 @@ public class CardinalityScanner {
         config.setMaintainDatatypes(cl.hasOption(DATATYPES));
         config.setIntersect(cl.hasOption(INTERSECT));
         config.setSortByCardinality(cl.hasOption(SORTBYCARDINALITY));
+        config.setPushdown(cl.hasOption(PUSHDOWN));
         
         String dateOpt = cl.getOptionValue(D_OPT);
         if (dateOpt != null) {
@@ -217,15 +226,31 @@ public class CardinalityScanner {
             Range r = new Range(config.getBeginDate(), config.getEndDate() + "\0");
             scanner.setRange(r);
             
-            Iterator<Map.Entry<Key,Value>> itr = scanner.iterator();
-            while (itr.hasNext()) {
-                Map.Entry<Key,Value> nextEntry = itr.next();
-                Key key = nextEntry.getKey();
-                String field = key.getColumnFamily().toString();
-                if (fields != null && !fields.isEmpty() && !fields.contains(field)) {
-                    continue;
-                } else {
-                    addEntry(cardinalityMap, nextEntry, dateAggregationType, datatypeAggregationType);
+            if (config.getPushdown()) {
+                // merge the sketches of each tablet on the tablet server and only merge the results of each tablet here
+                IteratorSetting setting = new IteratorSetting(50, "cardinality", CardinalitySketchIterator.class);
+                if (fields != null && !fields.isEmpty()) {
+                    setting.addOption(CardinalitySketchIterator.FIELDS, StringUtils.join(fields, ','));
+                }
+                setting.addOption(CardinalitySketchIterator.DATE_AGGREGATION, dateAggregationType.name());
+                setting.addOption(CardinalitySketchIterator.IGNORE_DATATYPES,
+                                Boolean.toString(datatypeAggregationType.equals(DatatypeAggregationType.IGNORE)));
+                scanner.addScanIterator(setting);
+                
+                for (Map.Entry<Key,Value> nextEntry : scanner) {
+                    addSketches(cardinalityMap, CardinalitySketches.fromValue(nextEntry.getValue()), dateAggregationType);
+                }
+            } else {
+                Iterator<Map.Entry<Key,Value>> itr = scanner.iterator();
+                while (itr.hasNext()) {
+                    Map.Entry<Key,Value> nextEntry = itr.next();
+                    Key key = nextEntry.getKey();
+                    String field = key.getColumnFamily().toString();
+                    if (fields != null && !fields.isEmpty() && !fields.contains(field)) {
+                        continue;
+                    } else {
+                        addEntry(cardinalityMap, nextEntry, dateAggregationType, datatypeAggregationType);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -259,18 +284,28 @@ public class CardinalityScanner {
             for (Map.Entry<Long,TreeSet<CardinalityIntersectionRecord>> entry : orderByCardinality.descendingMap().entrySet()) {
                 for (CardinalityIntersectionRecord cardinalityType : entry.getValue()) {
                     System.out.println(cardinalityType.getDate() + "," + cardinalityType.getDatatype() + "," + cardinalityType.getFieldName() + "/"
-                                    + cardinalityType.getFieldValue() + "," + entry.getKey());
+                                    + cardinalityType.getFieldValue() + "," + entry.getKey() + getErrorColumn());
                 }
             }
         } else {
             for (CardinalityIntersectionRecord cardinalityIntersectionRecord : cardinalitySet) {
                 System.out.println(cardinalityIntersectionRecord.getDate() + "," + cardinalityIntersectionRecord.getDatatype() + ","
                                 + cardinalityIntersectionRecord.getFieldName() + "/" + cardinalityIntersectionRecord.getFieldValue() + ","
-                                + cardinalityIntersectionRecord.getBaseHllp().cardinality());
+                                + cardinalityIntersectionRecord.getBaseHllp().cardinality() + getErrorColumn());
             }
         }
     }
     
+    /**
+     * @return the relative standard error of the cardinalities when they were merged on the tablet servers, empty otherwise
+     */
+    private String getErrorColumn() {
+        if (config.getPushdown()) {
+            return "," + String.format("%.4f", CardinalitySketches.relativeError(ExtendedHyperLogLogPlus.P));
+        }
+        return "";
+    }
+    
     private void printIntersectionRecords(Set<CardinalityIntersectionRecord> cardinalitySet) {
         
         for (CardinalityIntersectionRecord intersectionRecord : cardinalitySet) {
@@ -365,19 +400,7 @@ public class CardinalityScanner {
         Key key = entry.getKey();
         String colQual = key.getColumnQualifier().toString();
         
-        String date = key.getRow().toString();
-        switch (dateAggregationType) {
-            case ALL:
-                date = config.getBeginDate() + "-" + config.getEndDate();
-                break;
-            case MONTH:
-                // remove the day portion of the date
-                date = date.substring(0, 6);
-                break;
-            case DAY:
-            default:
-                // leave date as is
-        }
+        String date = getDate(key.getRow().toString(), dateAggregationType);
         
         String fieldName = key.getColumnFamily().toString();
         String dataType = colQual.split("\0")[0];
@@ -390,6 +413,39 @@ public class CardinalityScanner {
         
         // System.out.println(key.toString() + " -- " + hllpNew.cardinality());
         
+        addRecord(cardinalityMap, date, dataType, fieldName, fieldValue, hllpNew);
+    }
+    
+    /**
+     * Add the sketches merged by a {@link CardinalitySketchIterator}, which are already aggregated by date and datatype
+     */
+    protected void addSketches(Map<CardinalityIntersectionRecord,HyperLogLogPlus> cardinalityMap, CardinalitySketches sketches,
+                    DateAggregationType dateAggregationType) throws CardinalityMergeException {
+        
+        for (Map.Entry<String,HyperLogLogPlus> sketch : sketches.getSketches().entrySet()) {
+            // date\0datatype\0value\0field, the field may itself contain nulls
+            String[] label = sketch.getKey().split("\0", 4);
+            addRecord(cardinalityMap, getDate(label[0], dateAggregationType), label[1], label[3], label[2], sketch.getValue());
+        }
+    }
+    
+    private String getDate(String date, DateAggregationType dateAggregationType) {
+        switch (dateAggregationType) {
+            case ALL:
+                return config.getBeginDate() + "-" + config.getEndDate();
+            case MONTH:
+                // remove the day portion of the date
+                return date.substring(0, 6);
+            case DAY:
+            default:
+                // leave date as is
+                return date;
+        }
+    }
+    
+    private void addRecord(Map<CardinalityIntersectionRecord,HyperLogLogPlus> cardinalityMap, String date, String dataType, String fieldName,
+                    String fieldValue, HyperLogLogPlus hllpNew) throws CardinalityMergeException {
+        
         CardinalityIntersectionRecord card = new CardinalityIntersectionRecord(date, dataType, fieldName, fieldValue);
         
         HyperLogLogPlus hllpStored = cardinalityMap.get(card);
@@ -19,6 +19,7 @@ public class CardinalityScannerConfiguration {
     private boolean maintainDatatypes = true;
     private boolean intersect = false;
     private boolean sortByCardinality = false;
+    private boolean pushdown = false;
     
     public String getZookeepers() {
         return zookeepers;
@@ -123,4 +124,12 @@ public class CardinalityScannerConfiguration {
     public void setSortByCardinality(boolean sortByCardinality) {
         this.sortByCardinality = sortByCardinality;
     }
+    
+    public boolean getPushdown() {
+        return pushdown;
+    }
+    
+    public void setPushdown(boolean pushdown) {
+        this.pushdown = pushdown;
+    }
 }
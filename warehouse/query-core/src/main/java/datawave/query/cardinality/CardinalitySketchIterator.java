@@ -0,0 +1,219 @@
+package datawave.query.cardinality;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.edge.util.ExtendedHyperLogLogPlus;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>
+ * Merges the HyperLogLog sketches of the cardinality table on the tablet server, so that a scan returns one set of merged sketches per range instead of every
+ * sketch in it. The cardinality table is laid out as {@code row=date, cf=field, cq=datatype\0value, value=sketch}.
+ * </p>
+ *
+ * <p>
+ * This iterator returns one key/value pair per seek, unless the sketches of the range exceed the {@link #MAX_LABELS} or {@link #MAX_BYTES} limit. Then it
+ * returns a partial set of sketches each time a limit is reached, and the rest of the range on the following calls to <code>next</code>.
+ * <ul>
+ * <li>The key is the last key read from the source for the set, which ensures that it is not filtered out and that a re-seek after it continues with the
+ * sketches not returned yet.</li>
+ * <li>The value is a serialized {@link CardinalitySketches} keyed by {@code date\0datatype\0value\0field}. The date is truncated to the month or left empty
+ * depending on the date aggregation, and the datatype is {@code ALL} if datatypes are ignored.</li>
+ * </ul>
+ *
+ * <p>
+ * When using a BatchScanner, a range that spans tablets or a range whose sketches exceed a limit, this returns several sets of sketches per range, which
+ * may share labels. It is up to the client to merge them.
+ */
+public class CardinalitySketchIterator extends WrappingIterator implements OptionDescriber {
+    private static final Logger log = Logger.getLogger(CardinalitySketchIterator.class);
+    
+    public static final String FIELDS = "fields";
+    public static final String DATE_AGGREGATION = "date.aggregation";
+    public static final String IGNORE_DATATYPES = "ignore.datatypes";
+    public static final String MAX_LABELS = "max.labels";
+    public static final String MAX_BYTES = "max.bytes";
+    
+    public static final String ALL_DATATYPES = "ALL";
+    
+    public static final int DEFAULT_MAX_LABELS = 10000;
+    public static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+    
+    private Set<String> fields = new HashSet<>();
+    private CardinalityScanner.DateAggregationType dateAggregation = CardinalityScanner.DateAggregationType.DAY;
+    private boolean ignoreDatatypes = false;
+    private int maxLabels = DEFAULT_MAX_LABELS;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    
+    private Key topKey = null;
+    private Value topValue = null;
+    
+    public CardinalitySketchIterator() {}
+    
+    public CardinalitySketchIterator(CardinalitySketchIterator other, IteratorEnvironment env) {
+        setSource(other.getSource().deepCopy(env));
+        this.fields = other.fields;
+        this.dateAggregation = other.dateAggregation;
+        this.ignoreDatatypes = other.ignoreDatatypes;
+        this.maxLabels = other.maxLabels;
+        this.maxBytes = other.maxBytes;
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        if (!validateOptions(options)) {
+            throw new IllegalArgumentException("Invalid options for " + getClass().getSimpleName() + ": " + options);
+        }
+        super.init(source, options, env);
+        if (StringUtils.isNotBlank(options.get(FIELDS))) {
+            for (String field : StringUtils.split(options.get(FIELDS), ',')) {
+                fields.add(field.trim());
+            }
+        }
+        if (options.containsKey(DATE_AGGREGATION)) {
+            dateAggregation = CardinalityScanner.DateAggregationType.valueOf(options.get(DATE_AGGREGATION).toUpperCase());
+        }
+        ignoreDatatypes = Boolean.parseBoolean(options.get(IGNORE_DATATYPES));
+        if (options.containsKey(MAX_LABELS)) {
+            maxLabels = Integer.parseInt(options.get(MAX_LABELS));
+        }
+        if (options.containsKey(MAX_BYTES)) {
+            maxBytes = Integer.parseInt(options.get(MAX_BYTES));
+        }
+    }
+    
+    @Override
+    public IteratorOptions describeOptions() {
+        return new IteratorOptions(getClass().getSimpleName(), "Merges the cardinality sketches of a range into one value", ImmutableMap.of(FIELDS,
+                        "comma separated fields to merge, all fields if empty", DATE_AGGREGATION, "DAY, MONTH or ALL", IGNORE_DATATYPES,
+                        "merge the sketches of every datatype", MAX_LABELS, "the number of labels after which a partial set of sketches is returned", MAX_BYTES,
+                        "the approximate size in bytes after which a partial set of sketches is returned"), null);
+    }
+    
+    @Override
+    public boolean validateOptions(Map<String,String> options) {
+        if (options.containsKey(DATE_AGGREGATION)) {
+            try {
+                CardinalityScanner.DateAggregationType.valueOf(options.get(DATE_AGGREGATION).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        for (String limit : new String[] {MAX_LABELS, MAX_BYTES}) {
+            if (options.containsKey(limit)) {
+                try {
+                    if (Integer.parseInt(options.get(limit)) <= 0) {
+                        return false;
+                    }
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        // continue with the rest of the range, if a limit was reached
+        aggregate();
+    }
+    
+    /**
+     * A <code>seek</code> merges the sketches in the range, up to the first limit reached.
+     */
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        getSource().seek(range, columnFamilies, inclusive);
+        aggregate();
+        if (log.isDebugEnabled() && topKey != null) {
+            log.debug("Merged the cardinality sketches up to " + topKey + " for " + range);
+        }
+    }
+    
+    /**
+     * Merge the sketches from the current position of the source until the source is exhausted or a limit is reached
+     */
+    private void aggregate() throws IOException {
+        topKey = null;
+        topValue = null;
+        
+        CardinalitySketches sketches = new CardinalitySketches(ExtendedHyperLogLogPlus.P);
+        // the size of the sketches as they were read, merging them into a label's sketch does not grow it by much
+        long bytes = 0;
+        Key lastKey = null;
+        while (getSource().hasTop() && sketches.getSketches().size() < maxLabels && bytes < maxBytes) {
+            Key key = getSource().getTopKey();
+            String field = key.getColumnFamily().toString();
+            if (fields.isEmpty() || fields.contains(field)) {
+                String[] qualifier = key.getColumnQualifier().toString().split("\0");
+                if (qualifier.length < 2) {
+                    log.warn("Skipping malformed cardinality key " + key);
+                } else {
+                    String datatype = ignoreDatatypes ? ALL_DATATYPES : qualifier[0];
+                    String label = getDate(key.getRow().toString()) + '\0' + datatype + '\0' + qualifier[1] + '\0' + field;
+                    byte[] sketch = getSource().getTopValue().get();
+                    if (!sketches.getSketches().containsKey(label)) {
+                        bytes += label.length() + sketch.length;
+                    }
+                    sketches.merge(label, HyperLogLogPlus.Builder.build(sketch));
+                }
+            }
+            lastKey = key;
+            getSource().next();
+        }
+        
+        if (!sketches.isEmpty()) {
+            topKey = new Key(lastKey);
+            topValue = sketches.toValue();
+        }
+    }
+    
+    private String getDate(String row) {
+        switch (dateAggregation) {
+            case ALL:
+                return "";
+            case MONTH:
+                return row.length() > 6 ? row.substring(0, 6) : row;
+            case DAY:
+            default:
+                return row;
+        }
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        return new CardinalitySketchIterator(this, env);
+    }
+}
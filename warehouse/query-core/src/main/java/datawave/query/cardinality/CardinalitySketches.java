@@ -0,0 +1,168 @@
+package datawave.query.cardinality;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import datawave.edge.util.ExtendedHyperLogLogPlus;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Writable;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+
+/**
+ * A set of HyperLogLog sketches keyed by a label, such as a date or a date/datatype/field/value tuple. The sketches are built or merged on the tablet servers
+ * and shipped back as a single value per range, where the client merges the sketches of every range into the final estimates.
+ * <p>
+ * Sketches can only be merged with sketches of the same precision. The relative standard error of an estimate is {@code 1.04 / sqrt(2^precision)}.
+ */
+public class CardinalitySketches implements Writable {
+    
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    
+    private int precision;
+    private final Map<String,HyperLogLogPlus> sketches = new TreeMap<>();
+    
+    public CardinalitySketches() {
+        this(ExtendedHyperLogLogPlus.P);
+    }
+    
+    /**
+     * @param precision
+     *            the number of index bits of the sketches, between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+     */
+    public CardinalitySketches(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Sketch precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+    }
+    
+    /**
+     * Add a value to the sketch of a label
+     */
+    public void offer(String label, Object value) {
+        sketches.computeIfAbsent(label, l -> new HyperLogLogPlus(precision, Math.max(precision, ExtendedHyperLogLogPlus.SP))).offer(value);
+    }
+    
+    /**
+     * Merge a sketch into the sketch of a label
+     *
+     * @throws IOException
+     *             if the sketch has a different precision
+     */
+    public void merge(String label, HyperLogLogPlus sketch) throws IOException {
+        HyperLogLogPlus existing = sketches.get(label);
+        if (existing == null) {
+            sketches.put(label, sketch);
+        } else {
+            try {
+                existing.addAll(sketch);
+            } catch (CardinalityMergeException e) {
+                // addAll throws an out of scope exception
+                throw new IOException(e);
+            }
+        }
+    }
+    
+    /**
+     * Merge all of the sketches of another set into this one
+     *
+     * @throws IOException
+     *             if the other set has a different precision
+     */
+    public void merge(CardinalitySketches other) throws IOException {
+        if (other.precision != precision) {
+            throw new IOException("Cannot merge sketches of precision " + other.precision + " into sketches of precision " + precision);
+        }
+        for (Map.Entry<String,HyperLogLogPlus> sketch : other.sketches.entrySet()) {
+            merge(sketch.getKey(), sketch.getValue());
+        }
+    }
+    
+    public int getPrecision() {
+        return precision;
+    }
+    
+    public Map<String,HyperLogLogPlus> getSketches() {
+        return Collections.unmodifiableMap(sketches);
+    }
+    
+    public boolean isEmpty() {
+        return sketches.isEmpty();
+    }
+    
+    /**
+     * @return the estimated cardinality of a label, 0 if nothing has been added for it
+     */
+    public long cardinality(String label) {
+        HyperLogLogPlus sketch = sketches.get(label);
+        return sketch == null ? 0 : sketch.cardinality();
+    }
+    
+    public double getRelativeError() {
+        return relativeError(precision);
+    }
+    
+    /**
+     * @return the relative standard error of the estimates of sketches with the given precision
+     */
+    public static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+    
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(precision);
+        out.writeInt(sketches.size());
+        for (Map.Entry<String,HyperLogLogPlus> sketch : sketches.entrySet()) {
+            out.writeUTF(sketch.getKey());
+            byte[] bytes = sketch.getValue().getBytes();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        precision = in.readInt();
+        sketches.clear();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String label = in.readUTF();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            sketches.put(label, HyperLogLogPlus.Builder.build(bytes));
+        }
+    }
+    
+    public Value toValue() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out);
+        }
+        return new Value(bytes.toByteArray());
+    }
+    
+    public static CardinalitySketches fromValue(Value value) throws IOException {
+        CardinalitySketches sketches = new CardinalitySketches();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.get()))) {
+            sketches.readFields(in);
+        }
+        return sketches;
+    }
+    
+    @Override
+    public String toString() {
+        return "CardinalitySketches{precision=" + precision + ", labels=" + sketches.keySet() + '}';
+    }
+}
@@ -2,6 +2,9 @@ package datawave.query.config;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 
 import datawave.webservice.query.Query;
@@ -20,6 +23,8 @@ public class ContentQueryConfiguration extends GenericQueryConfiguration {
     
     private Query query;
     private final Collection<Range> ranges = new TreeSet<>();
+    private final List<Range> documentRanges = new ArrayList<>();
+    private boolean requestOrder = false;
     
     public ContentQueryConfiguration(BaseQueryLogic<?> configuredLogic, Query query) {
         super(configuredLogic);
@@ -29,7 +34,9 @@ public class ContentQueryConfiguration extends GenericQueryConfiguration {
     public void addRange(final Range range) {
         if (null != range) {
             synchronized (this.ranges) {
-                this.ranges.add(range);
+                if (this.ranges.add(range)) {
+                    this.documentRanges.add(range);
+                }
             }
         }
     }
@@ -46,17 +53,60 @@ public class ContentQueryConfiguration extends GenericQueryConfiguration {
         return orderedCopy;
     }
     
+    /**
+     * Get the range of each requested document, in the order in which the documents were requested
+     * 
+     * @return the document ranges in request order
+     */
+    public List<Range> getDocumentRanges() {
+        synchronized (this.ranges) {
+            return new ArrayList<>(this.documentRanges);
+        }
+    }
+    
+    /**
+     * Get the number of distinct shards spanned by the ranges
+     * 
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        final Set<String> shards = new HashSet<>();
+        synchronized (this.ranges) {
+            for (final Range range : this.ranges) {
+                shards.add(range.getStartKey().getRow().toString());
+            }
+        }
+        return shards.size();
+    }
+    
+    public boolean isRequestOrder() {
+        return requestOrder;
+    }
+    
+    public void setRequestOrder(boolean requestOrder) {
+        this.requestOrder = requestOrder;
+    }
+    
     public void setQuery(Query query) {
         this.query = query;
     }
     
+    /**
+     * Set the ranges to scan, one for each requested document. The order of the specified ranges is kept as the request order, and the ranges themselves are
+     * ordered for scanning.
+     * 
+     * @param ranges
+     *            the document ranges in request order
+     */
     public void setRanges(final Collection<Range> ranges) {
         // As a single atomic operation, clear the range and add all of the
         // specified ranges
         synchronized (this.ranges) {
             this.ranges.clear();
+            this.documentRanges.clear();
             if (null != ranges) {
                 this.ranges.addAll(ranges);
+                this.documentRanges.addAll(ranges);
             }
         }
     }
@@ -9,6 +9,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.data.type.DiscreteIndexType;
+import datawave.edge.util.ExtendedHyperLogLogPlus;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.query.Constants;
@@ -121,7 +122,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      */
     private long rangeBufferTimeoutMillis = 0;
     /**
-     * Used to determine the poll interval when buffering ranges in ThreadedRangeBundler
+     * No longer used, the ThreadedRangeBundler is signalled as soon as ranges arrive instead of polling. Retained so existing configurations still load.
      */
     private long rangeBufferPollMillis = 100;
     /**
@@ -308,6 +309,99 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * should the sizes of documents be tracked for this query
      */
     private boolean trackSizes = true;
+    /**
+     * should the query be compiled into a tree of evaluation nodes rather than interpreted per document
+     */
+    private boolean compiledEvaluation = false;
+    /**
+     * The number of unique signatures held in memory before they are spilled to disk on the web server, or reset on the tablet server
+     */
+    private int uniqueCacheBufferSize = 100000;
+    /**
+     * Whether the tserver merges the children of AND and OR nodes with a tournament tree instead of a sorted multimap
+     */
+    private boolean tournamentMerge = false;
+    /**
+     * The max number of bytes used to dedupe the results when the UIDs are not sorted
+     */
+    private long dedupeMemoryBudget = 32L * 1024 * 1024;
+    /**
+     * Whether to dedupe the results with a set that spills to disk instead of a bloom filter when the UIDs are not sorted
+     */
+    private boolean exactDedupe = false;
+    /**
+     * Whether to cache the results of the query in the local result cache, and to serve them from the cache when an identical query was cached
+     */
+    private boolean cacheResults = false;
+    /**
+     * The local directory for the disk tier of the result cache
+     */
+    private String resultCacheDir = System.getProperty("java.io.tmpdir") + "/datawave-result-cache";
+    /**
+     * The max number of bytes held in the memory tier of the result cache
+     */
+    private long resultCacheMaxMemory = 256L * 1024 * 1024;
+    /**
+     * The max number of bytes held in the disk tier of the result cache
+     */
+    private long resultCacheMaxDisk = 10L * 1024 * 1024 * 1024;
+    /**
+     * The table holding the load dates of the fields, used to invalidate the result cache
+     */
+    private String loadDatesTableName = TableName.LOAD_DATES;
+    /**
+     * Plan the query from the term cardinality estimates of the cost model: order AND operands by estimate, delay terms far less selective than their
+     * siblings, and pick the ivarator path for fielded lists that match most of their field
+     */
+    private boolean costBasedPlanning = false;
+    /**
+     * With cost based planning, delay an indexed term of an AND when its estimate is over this many times the estimate of the cheapest operand. A value of 0
+     * disables the pushdown.
+     */
+    private double costBasedPushdownRatio = 1000.0;
+    /**
+     * With cost based planning, scan the field index with an ivarator instead of the global index when the estimates of the values OR'd against a field add
+     * up to this fraction of the estimate for the whole field. A value of 0 disables the choice.
+     */
+    private double costBasedIvaratorRatio = 0.5;
+    /**
+     * The fields whose OR'd values the cost based planning chose to scan with an ivarator
+     */
+    private Set<String> costBasedIvaratorFields = Collections.emptySet();
+    /**
+     * The estimated number of global index entries matched by the planned query, or -1 if the query was not cost based planned
+     */
+    private long estimatedCardinality = -1;
+    /**
+     * The estimates and decisions of the cost based planning
+     */
+    private String planCostEstimates = null;
+    /**
+     * Whether to reuse the query model application of queries with the same shape, see {@link datawave.query.planner.QueryPlanCache}
+     */
+    private boolean cacheQueryPlans = false;
+    /**
+     * The maximum number of query plans held by the query plan cache
+     */
+    private int queryPlanCacheSize = 1000;
+    /**
+     * How long in milliseconds a query plan is cached for, one day. This should not exceed the expiration of the metadata helper cache that the query model and
+     * fields are read through
+     */
+    private long queryPlanCacheTTL = 86400000L;
+    /**
+     * The planning time in milliseconds saved by reusing cached query plans, net of the time spent building the cache keys. It is negative if the cache cost
+     * more time than it saved
+     */
+    private long planCacheTimeSaved = 0;
+    /**
+     * The field whose distinct values are estimated by a counting query, or null to count documents
+     */
+    private String distinctCountField = null;
+    /**
+     * The precision of the sketches used to estimate the distinct values of the distinctCountField
+     */
+    private int distinctCountPrecision = ExtendedHyperLogLogPlus.P;
     
     private List<String> contentFieldNames = Collections.emptyList();
     
@@ -477,6 +571,28 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setUniqueFields(null == other.getUniqueFields() ? null : Sets.newHashSet(other.getUniqueFields()));
         this.setCacheModel(other.getCacheModel());
         this.setTrackSizes(other.isTrackSizes());
+        this.setCompiledEvaluation(other.isCompiledEvaluation());
+        this.setUniqueCacheBufferSize(other.getUniqueCacheBufferSize());
+        this.setTournamentMerge(other.isTournamentMerge());
+        this.setDedupeMemoryBudget(other.getDedupeMemoryBudget());
+        this.setExactDedupe(other.isExactDedupe());
+        this.setCacheResults(other.isCacheResults());
+        this.setResultCacheDir(other.getResultCacheDir());
+        this.setResultCacheMaxMemory(other.getResultCacheMaxMemory());
+        this.setResultCacheMaxDisk(other.getResultCacheMaxDisk());
+        this.setLoadDatesTableName(other.getLoadDatesTableName());
+        this.setCostBasedPlanning(other.isCostBasedPlanning());
+        this.setCostBasedPushdownRatio(other.getCostBasedPushdownRatio());
+        this.setCostBasedIvaratorRatio(other.getCostBasedIvaratorRatio());
+        this.setCostBasedIvaratorFields(null == other.getCostBasedIvaratorFields() ? null : Sets.newHashSet(other.getCostBasedIvaratorFields()));
+        this.setEstimatedCardinality(other.getEstimatedCardinality());
+        this.setPlanCostEstimates(other.getPlanCostEstimates());
+        this.setCacheQueryPlans(other.isCacheQueryPlans());
+        this.setPlanCacheTimeSaved(other.getPlanCacheTimeSaved());
+        this.setDistinctCountField(other.getDistinctCountField());
+        this.setDistinctCountPrecision(other.getDistinctCountPrecision());
+        this.setQueryPlanCacheSize(other.getQueryPlanCacheSize());
+        this.setQueryPlanCacheTTL(other.getQueryPlanCacheTTL());
         this.setContentFieldNames(null == other.getContentFieldNames() ? null : Lists.newArrayList(other.getContentFieldNames()));
     }
     
@@ -1979,6 +2095,182 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.trackSizes = trackSizes;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
+    public int getUniqueCacheBufferSize() {
+        return uniqueCacheBufferSize;
+    }
+    
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        this.uniqueCacheBufferSize = uniqueCacheBufferSize;
+    }
+    
+    public boolean isTournamentMerge() {
+        return tournamentMerge;
+    }
+    
+    public void setTournamentMerge(boolean tournamentMerge) {
+        this.tournamentMerge = tournamentMerge;
+    }
+    
+    public long getDedupeMemoryBudget() {
+        return dedupeMemoryBudget;
+    }
+    
+    public void setDedupeMemoryBudget(long dedupeMemoryBudget) {
+        this.dedupeMemoryBudget = dedupeMemoryBudget;
+    }
+    
+    public boolean isExactDedupe() {
+        return exactDedupe;
+    }
+    
+    public void setExactDedupe(boolean exactDedupe) {
+        this.exactDedupe = exactDedupe;
+    }
+    
+    public boolean isCacheResults() {
+        return cacheResults;
+    }
+    
+    public void setCacheResults(boolean cacheResults) {
+        this.cacheResults = cacheResults;
+    }
+    
+    public String getResultCacheDir() {
+        return resultCacheDir;
+    }
+    
+    public void setResultCacheDir(String resultCacheDir) {
+        this.resultCacheDir = resultCacheDir;
+    }
+    
+    public long getResultCacheMaxMemory() {
+        return resultCacheMaxMemory;
+    }
+    
+    public void setResultCacheMaxMemory(long resultCacheMaxMemory) {
+        this.resultCacheMaxMemory = resultCacheMaxMemory;
+    }
+    
+    public long getResultCacheMaxDisk() {
+        return resultCacheMaxDisk;
+    }
+    
+    public void setResultCacheMaxDisk(long resultCacheMaxDisk) {
+        this.resultCacheMaxDisk = resultCacheMaxDisk;
+    }
+    
+    public String getLoadDatesTableName() {
+        return loadDatesTableName;
+    }
+    
+    public void setLoadDatesTableName(String loadDatesTableName) {
+        this.loadDatesTableName = loadDatesTableName;
+    }
+    
+    public boolean isCostBasedPlanning() {
+        return costBasedPlanning;
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        this.costBasedPlanning = costBasedPlanning;
+    }
+    
+    public double getCostBasedPushdownRatio() {
+        return costBasedPushdownRatio;
+    }
+    
+    public void setCostBasedPushdownRatio(double costBasedPushdownRatio) {
+        this.costBasedPushdownRatio = costBasedPushdownRatio;
+    }
+    
+    public double getCostBasedIvaratorRatio() {
+        return costBasedIvaratorRatio;
+    }
+    
+    public void setCostBasedIvaratorRatio(double costBasedIvaratorRatio) {
+        this.costBasedIvaratorRatio = costBasedIvaratorRatio;
+    }
+    
+    public Set<String> getCostBasedIvaratorFields() {
+        return costBasedIvaratorFields;
+    }
+    
+    public void setCostBasedIvaratorFields(Set<String> costBasedIvaratorFields) {
+        this.costBasedIvaratorFields = costBasedIvaratorFields;
+    }
+    
+    public long getEstimatedCardinality() {
+        return estimatedCardinality;
+    }
+    
+    public void setEstimatedCardinality(long estimatedCardinality) {
+        this.estimatedCardinality = estimatedCardinality;
+    }
+    
+    public String getPlanCostEstimates() {
+        return planCostEstimates;
+    }
+    
+    public void setPlanCostEstimates(String planCostEstimates) {
+        this.planCostEstimates = planCostEstimates;
+    }
+    
+    public boolean isCacheQueryPlans() {
+        return cacheQueryPlans;
+    }
+    
+    public void setCacheQueryPlans(boolean cacheQueryPlans) {
+        this.cacheQueryPlans = cacheQueryPlans;
+    }
+    
+    public int getQueryPlanCacheSize() {
+        return queryPlanCacheSize;
+    }
+    
+    public void setQueryPlanCacheSize(int queryPlanCacheSize) {
+        this.queryPlanCacheSize = queryPlanCacheSize;
+    }
+    
+    public long getQueryPlanCacheTTL() {
+        return queryPlanCacheTTL;
+    }
+    
+    public void setQueryPlanCacheTTL(long queryPlanCacheTTL) {
+        this.queryPlanCacheTTL = queryPlanCacheTTL;
+    }
+    
+    public long getPlanCacheTimeSaved() {
+        return planCacheTimeSaved;
+    }
+    
+    public void setPlanCacheTimeSaved(long planCacheTimeSaved) {
+        this.planCacheTimeSaved = planCacheTimeSaved;
+    }
+    
+    public String getDistinctCountField() {
+        return distinctCountField;
+    }
+    
+    public void setDistinctCountField(String distinctCountField) {
+        this.distinctCountField = distinctCountField;
+    }
+    
+    public int getDistinctCountPrecision() {
+        return distinctCountPrecision;
+    }
+    
+    public void setDistinctCountPrecision(int distinctCountPrecision) {
+        this.distinctCountPrecision = distinctCountPrecision;
+    }
+    
     public List<String> getContentFieldNames() {
         return contentFieldNames;
     }
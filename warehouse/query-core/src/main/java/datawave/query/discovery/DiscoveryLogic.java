@@ -4,6 +4,7 @@ import static com.google.common.collect.Iterators.concat;
 import static com.google.common.collect.Iterators.transform;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -16,6 +17,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import datawave.data.type.Type;
@@ -36,6 +39,8 @@ import datawave.query.tables.ScannerFactory;
 import datawave.query.util.MetadataHelper;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.exception.BadRequestQueryException;
+import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 
 import org.apache.accumulo.core.client.BatchScanner;
@@ -65,7 +70,10 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class DiscoveryLogic extends ShardIndexQueryTable {
     
@@ -74,17 +82,44 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
     public static final String SEPARATE_COUNTS_BY_COLVIS = "separate.counts.by.colvis";
     public static final String SHOW_REFERENCE_COUNT = "show.reference.count";
     public static final String REVERSE_INDEX = "reverse.index";
+    public static final String TOP_TERMS = "top.terms";
+    
+    public static final int DEFAULT_SCAN_POOL_SIZE = 32;
+    
+    // The executor shared by the concurrent scans of all discovery queries
+    private static final ThreadPoolExecutor scanExecutor = new ThreadPoolExecutor(DEFAULT_SCAN_POOL_SIZE, DEFAULT_SCAN_POOL_SIZE, 1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("DiscoveryScan-%d").build());
+    static {
+        scanExecutor.allowCoreThreadTimeOut(true);
+    }
     
     private Boolean separateCountsByColVis = false;
     private Boolean showReferenceCount = false;
     private MetadataHelper metadataHelper;
     
+    private boolean concurrentScans = false;
+    private int maxConcurrentScans = 8;
+    private int scanQueueCapacity = 1000;
+    private int topTerms = 0;
+    private int maxRankedThings = 100000;
+    private long maxScanWaitMillis = 10 * 60 * 1000L;
+    private DiscoveryScanPipeline pipeline = null;
+    
     public DiscoveryLogic() {
         super();
     }
     
     public DiscoveryLogic(ShardIndexQueryTable other) {
         super(other);
+        if (other instanceof DiscoveryLogic) {
+            DiscoveryLogic logic = (DiscoveryLogic) other;
+            this.concurrentScans = logic.isConcurrentScans();
+            this.maxConcurrentScans = logic.getMaxConcurrentScans();
+            this.scanQueueCapacity = logic.getScanQueueCapacity();
+            this.topTerms = logic.getTopTerms();
+            this.maxRankedThings = logic.getMaxRankedThings();
+            this.maxScanWaitMillis = logic.getMaxScanWaitMillis();
+        }
     }
     
     @Override
@@ -126,6 +161,15 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
             config.setShowReferenceCount(showReferenceCount);
         }
         
+        // Check if user would like only the terms with the highest counts
+        config.setTopTerms(topTerms);
+        if (null != settings.findParameter(TOP_TERMS) && !settings.findParameter(TOP_TERMS).getParameterValue().trim().isEmpty()) {
+            config.setTopTerms(parseTopTerms(settings.findParameter(TOP_TERMS).getParameterValue().trim()));
+        }
+        if (config.getTopTerms() > 0 && !concurrentScans) {
+            log.warn("Ignoring " + TOP_TERMS + " because concurrent scans are disabled");
+        }
+        
         this.queryModel = metadataHelper.getQueryModel(modelTableName, modelName, null);
         
         // get the data type filter set if any
@@ -207,12 +251,49 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
         return config;
     }
     
+    /**
+     * @param value
+     *            the value of the top.terms parameter
+     * @return the number of terms with the highest counts to return
+     * @throws BadRequestQueryException
+     *             if the value is not a non-negative integer
+     */
+    static int parseTopTerms(String value) throws BadRequestQueryException {
+        int topTerms;
+        try {
+            topTerms = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, e, MessageFormat.format("{0}: {1}", TOP_TERMS, value));
+        }
+        if (topTerms < 0) {
+            throw new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("{0} must not be negative: {1}", TOP_TERMS, value));
+        }
+        return topTerms;
+    }
+    
     @Override
     public void setupQuery(GenericQueryConfiguration genericConfig) throws QueryException, TableNotFoundException, IOException, ExecutionException {
         DiscoveryQueryConfiguration config = (DiscoveryQueryConfiguration) genericConfig;
         List<Iterator<DiscoveredThing>> iterators = Lists.newArrayList();
         Set<Text> familiesToSeek = Sets.newHashSet();
         Pair<Set<Range>,Set<Range>> seekRanges = makeRanges(config, familiesToSeek, metadataHelper);
+        
+        config.setSeparateCountsByColVis(separateCountsByColVis);
+        config.setShowReferenceCount(showReferenceCount);
+        
+        if (concurrentScans) {
+            List<BucketScan> scans = Lists.newArrayList();
+            addBucketScans(scans, config, config.getIndexTableName(), seekRanges.getValue0(), familiesToSeek, false);
+            addBucketScans(scans, config, config.getReverseIndexTableName(), seekRanges.getValue1(), familiesToSeek, true);
+            if (log.isDebugEnabled()) {
+                log.debug("Running " + scans.size() + " discovery scans, " + maxConcurrentScans + " at a time");
+            }
+            this.pipeline = new DiscoveryScanPipeline(scans, scanExecutor, maxConcurrentScans, scanQueueCapacity, config.getTopTerms(), maxRankedThings,
+                            maxScanWaitMillis);
+            this.iterator = pipeline;
+            return;
+        }
+        
         Collection<Range> forward = seekRanges.getValue0();
         if (!forward.isEmpty()) {
             BatchScanner bs = configureBatchScannerForDiscovery(config, scannerFactory, config.getIndexTableName(), forward, familiesToSeek,
@@ -226,12 +307,67 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
             iterators.add(transformScanner(bs));
         }
         
-        config.setSeparateCountsByColVis(separateCountsByColVis);
-        config.setShowReferenceCount(showReferenceCount);
-        
         this.iterator = concat(iterators.iterator());
     }
     
+    /**
+     * Splits the ranges into buckets by the first character of their start row, so that the terms sharing a prefix are scanned together and the buckets are
+     * scanned concurrently
+     */
+    private void addBucketScans(List<BucketScan> scans, DiscoveryQueryConfiguration config, String tableName, Collection<Range> ranges,
+                    Set<Text> familiesToSeek, boolean reverseIndex) {
+        Multimap<String,Range> buckets = TreeMultimap.create(Ordering.natural(), Ordering.natural());
+        for (Range range : ranges) {
+            String row = range.getStartKey() == null ? "" : range.getStartKey().getRow().toString();
+            buckets.put(row.isEmpty() ? "" : row.substring(0, row.offsetByCodePoints(0, 1)), range);
+        }
+        for (Collection<Range> bucket : buckets.asMap().values()) {
+            scans.add(new BucketScan(config, tableName, bucket, familiesToSeek, reverseIndex));
+        }
+    }
+    
+    /**
+     * A scan of one bucket of ranges, run on a {@link DiscoveryScanPipeline} thread
+     */
+    private class BucketScan implements DiscoveryScanPipeline.Scan {
+        private final DiscoveryQueryConfiguration config;
+        private final String tableName;
+        private final Collection<Range> ranges;
+        private final Set<Text> familiesToSeek;
+        private final boolean reverseIndex;
+        private BatchScanner bs = null;
+        
+        private BucketScan(DiscoveryQueryConfiguration config, String tableName, Collection<Range> ranges, Set<Text> familiesToSeek, boolean reverseIndex) {
+            this.config = config;
+            this.tableName = tableName;
+            this.ranges = ranges;
+            this.familiesToSeek = familiesToSeek;
+            this.reverseIndex = reverseIndex;
+        }
+        
+        @Override
+        public Iterator<DiscoveredThing> start() throws TableNotFoundException {
+            bs = configureBatchScannerForDiscovery(config, scannerFactory, tableName, ranges, familiesToSeek, config.getLiterals(), config.getPatterns(),
+                            config.getRanges(), reverseIndex);
+            return transformScanner(bs);
+        }
+        
+        @Override
+        public void close() {
+            if (bs != null) {
+                scannerFactory.close(bs);
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        super.close();
+    }
+    
     public static BatchScanner configureBatchScannerForDiscovery(DiscoveryQueryConfiguration config, ScannerFactory scannerFactory, String tableName,
                     Collection<Range> seekRanges, Set<Text> columnFamilies, Multimap<String,String> literals, Multimap<String,String> patterns,
                     Multimap<String,LiteralRange<String>> ranges, boolean reverseIndex) throws TableNotFoundException {
@@ -497,6 +633,7 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
     public Set<String> getOptionalQueryParameters() {
         Set<String> params = super.getOptionalQueryParameters();
         params.add(SEPARATE_COUNTS_BY_COLVIS);
+        params.add(TOP_TERMS);
         return params;
     }
     
@@ -516,4 +653,104 @@ public class DiscoveryLogic extends ShardIndexQueryTable {
         this.showReferenceCount = showReferenceCount;
     }
     
+    public boolean isConcurrentScans() {
+        return concurrentScans;
+    }
+    
+    /**
+     * @param concurrentScans
+     *            whether to scan the forward and reverse index concurrently, in buckets of ranges sharing a prefix
+     */
+    public void setConcurrentScans(boolean concurrentScans) {
+        this.concurrentScans = concurrentScans;
+    }
+    
+    public int getMaxConcurrentScans() {
+        return maxConcurrentScans;
+    }
+    
+    public void setMaxConcurrentScans(int maxConcurrentScans) {
+        this.maxConcurrentScans = maxConcurrentScans;
+    }
+    
+    public int getScanQueueCapacity() {
+        return scanQueueCapacity;
+    }
+    
+    /**
+     * @param scanQueueCapacity
+     *            the number of discovered things the concurrent scans may find ahead of the client
+     */
+    public void setScanQueueCapacity(int scanQueueCapacity) {
+        this.scanQueueCapacity = scanQueueCapacity;
+    }
+    
+    public int getTopTerms() {
+        return topTerms;
+    }
+    
+    /**
+     * @param topTerms
+     *            the default number of terms with the highest counts to return with concurrent scans, or 0 to return every term as it is found
+     */
+    public void setTopTerms(int topTerms) {
+        this.topTerms = topTerms;
+    }
+    
+    public int getMaxRankedThings() {
+        return maxRankedThings;
+    }
+    
+    /**
+     * @param maxRankedThings
+     *            the number of distinct things a query selecting the top terms may hold before it fails
+     */
+    public void setMaxRankedThings(int maxRankedThings) {
+        this.maxRankedThings = maxRankedThings;
+    }
+    
+    public long getMaxScanWaitMillis() {
+        return maxScanWaitMillis;
+    }
+    
+    /**
+     * @param maxScanWaitMillis
+     *            how long a query with concurrent scans waits for the scans to find the next thing before it fails
+     */
+    public void setMaxScanWaitMillis(long maxScanWaitMillis) {
+        this.maxScanWaitMillis = maxScanWaitMillis;
+    }
+    
+    /**
+     * Set the number of threads of the executor shared by the concurrent scans of all discovery queries. Query logics are cloned for every query, so this is
+     * a global setting, and the last size set applies to every discovery query in the JVM. The maxConcurrentScans of a logic still limits the scans of each
+     * query.
+     *
+     * @param scanPoolSize
+     *            the number of threads
+     * @throws IllegalArgumentException
+     *             if the size is not positive
+     */
+    public static void setScanPoolSize(int scanPoolSize) {
+        if (scanPoolSize <= 0) {
+            throw new IllegalArgumentException("The scan pool size must be positive: " + scanPoolSize);
+        }
+        synchronized (scanExecutor) {
+            if (scanPoolSize > scanExecutor.getMaximumPoolSize()) {
+                scanExecutor.setMaximumPoolSize(scanPoolSize);
+                scanExecutor.setCorePoolSize(scanPoolSize);
+            } else {
+                scanExecutor.setCorePoolSize(scanPoolSize);
+                scanExecutor.setMaximumPoolSize(scanPoolSize);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of threads of the executor shared by the concurrent scans of all discovery queries
+     */
+    public static int getScanPoolSize() {
+        return scanExecutor.getMaximumPoolSize();
+    }
+    
 }
@@ -15,6 +15,7 @@ public class DiscoveryQueryConfiguration extends ShardIndexQueryConfiguration {
     private Multimap<String,LiteralRange<String>> ranges;
     private Boolean separateCountsByColVis = false;
     private Boolean showReferenceCount = false;
+    private int topTerms = 0;
     
     public DiscoveryQueryConfiguration(ShardIndexQueryTable logic, Query query) {
         super(logic, query);
@@ -60,4 +61,15 @@ public class DiscoveryQueryConfiguration extends ShardIndexQueryConfiguration {
         this.showReferenceCount = showReferenceCount;
         
     }
+    
+    /**
+     * @return the number of terms with the highest counts to return, or 0 to return every term
+     */
+    public int getTopTerms() {
+        return topTerms;
+    }
+    
+    public void setTopTerms(int topTerms) {
+        this.topTerms = topTerms;
+    }
 }
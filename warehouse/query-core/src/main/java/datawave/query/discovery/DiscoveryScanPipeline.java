@@ -0,0 +1,406 @@
+package datawave.query.discovery;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.VLongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the scans of a discovery query concurrently and streams the {@link DiscoveredThing}s they find back through a bounded queue, so that a fast scan is
+ * never blocked behind a slow one and no scan runs further ahead of the client than the queue.
+ * <p>
+ * Without a limit on the number of terms, things are returned as soon as any scan finds them. With a limit, the partial counts that different scans find for
+ * the same thing are merged, and only the things of the terms with the highest total counts are returned, highest first. A term's rank is not known until every
+ * scan has completed, so those things are selected through a heap bounded by the limit once the last scan completes. The things held until then are bounded
+ * too, a query that finds more of them fails rather than exhausting the memory of the server.
+ * <p>
+ * The scans run on an executor shared with other queries, no more than the given number of them at once for this pipeline. A scan never blocks a thread of
+ * the executor on a full queue: it gives the thread back and is resubmitted once the client has taken a thing. A scan is also resubmitted after each queue's
+ * worth of things so that a busy scan cannot hold a thread of the executor indefinitely. The client waits for the scans no longer than the given time.
+ */
+public class DiscoveryScanPipeline implements Iterator<DiscoveredThing>, Closeable {
+    
+    private static final Logger log = Logger.getLogger(DiscoveryScanPipeline.class);
+    
+    /**
+     * Put on the queue by each scan when it completes
+     */
+    private static final DiscoveredThing END = new DiscoveredThing();
+    
+    /**
+     * How often the client checks for a failure to schedule a scan while it waits on the queue
+     */
+    private static final long POLL_MILLIS = 100;
+    
+    /**
+     * A scan of one bucket of ranges
+     */
+    public interface Scan {
+        
+        /**
+         * Start the scan. Called on a pipeline thread.
+         *
+         * @return the things found by the scan
+         * @throws Exception
+         *             if the scan could not be started
+         */
+        Iterator<DiscoveredThing> start() throws Exception;
+        
+        /**
+         * Release the resources of the scan once it has been drained or the pipeline has been closed
+         */
+        void close();
+    }
+    
+    private final BlockingQueue<DiscoveredThing> queue;
+    private final int queueCapacity;
+    private final ExecutorService executor;
+    private final int topTerms;
+    private final int maxRankedThings;
+    private final long maxWaitMillis;
+    
+    // the scans waiting for one of the running scans to complete, the started scans, and the started scans waiting for room in the queue
+    private final Deque<Scan> pending;
+    private final List<ScanTask> started = new ArrayList<>();
+    private final List<ScanTask> parked = new ArrayList<>();
+    
+    private int remaining;
+    private volatile Throwable failure = null;
+    private volatile boolean closed = false;
+    private DiscoveredThing next = null;
+    private Iterator<DiscoveredThing> ranked = null;
+    
+    /**
+     * @param scans
+     *            the scans to run
+     * @param executor
+     *            the executor to run the scans on, which is not shut down by the pipeline
+     * @param maxConcurrentScans
+     *            the number of scans to run at once
+     * @param queueCapacity
+     *            the number of things the scans may find ahead of the client
+     * @param topTerms
+     *            the number of terms with the highest counts to return, or 0 to return everything as it is found
+     * @param maxRankedThings
+     *            the number of distinct things that may be held to select the top terms
+     * @param maxWaitMillis
+     *            how long the client waits for the scans to find the next thing before the query fails
+     */
+    public DiscoveryScanPipeline(List<? extends Scan> scans, ExecutorService executor, int maxConcurrentScans, int queueCapacity, int topTerms,
+                    int maxRankedThings, long maxWaitMillis) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.executor = executor;
+        this.topTerms = topTerms;
+        this.maxRankedThings = maxRankedThings;
+        this.maxWaitMillis = maxWaitMillis;
+        this.remaining = scans.size();
+        this.pending = new ArrayDeque<>(scans);
+        for (int i = Math.max(1, maxConcurrentScans); i > 0; i--) {
+            startNext();
+        }
+    }
+    
+    /**
+     * Start the next pending scan, unless the pipeline has been closed
+     */
+    private synchronized void startNext() {
+        Scan scan = pending.poll();
+        if (scan != null) {
+            ScanTask task = new ScanTask(scan);
+            started.add(task);
+            schedule(task);
+        }
+    }
+    
+    /**
+     * Submit a scan task to the executor. Must be called while holding the lock of the pipeline.
+     */
+    private void schedule(ScanTask task) {
+        if (closed) {
+            task.closeScan();
+            return;
+        }
+        try {
+            task.future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.error("Unable to schedule discovery scan", e);
+            failure = e;
+            task.closeScan();
+        }
+    }
+    
+    /**
+     * Resubmit the scans that gave up their threads on a full queue, now that the client has taken a thing
+     */
+    private synchronized void resumeParked() {
+        if (!parked.isEmpty()) {
+            List<ScanTask> resumed = new ArrayList<>(parked);
+            parked.clear();
+            for (ScanTask task : resumed) {
+                schedule(task);
+            }
+        }
+    }
+    
+    /**
+     * Runs one scan until the queue is full, it has offered a queue's worth of things, or it completes
+     */
+    private class ScanTask implements Runnable {
+        private final Scan scan;
+        private Iterator<DiscoveredThing> things = null;
+        // the next thing to put on the queue, END once the scan has completed
+        private DiscoveredThing thing = null;
+        private boolean scanClosed = false;
+        // whether a thread is running the scan, guarded by the lock of the pipeline
+        private boolean running = false;
+        private Future<?> future = null;
+        
+        private ScanTask(Scan scan) {
+            this.scan = scan;
+        }
+        
+        @Override
+        public void run() {
+            synchronized (DiscoveryScanPipeline.this) {
+                if (closed) {
+                    // closed by the pipeline
+                    return;
+                }
+                running = true;
+            }
+            int offered = 0;
+            while (!closed) {
+                if (thing == null) {
+                    thing = pull();
+                    continue;
+                }
+                synchronized (DiscoveryScanPipeline.this) {
+                    if (closed) {
+                        break;
+                    }
+                    if (offered >= queueCapacity) {
+                        // go to the back of the executor queue so that the scans of other queries get a turn
+                        running = false;
+                        schedule(this);
+                        return;
+                    }
+                    if (!queue.offer(thing)) {
+                        // give the thread back until the client has taken a thing
+                        running = false;
+                        parked.add(this);
+                        return;
+                    }
+                    if (thing == END) {
+                        running = false;
+                        return;
+                    }
+                }
+                offered++;
+                thing = null;
+            }
+            closeScan();
+        }
+        
+        /**
+         * @return the next thing found by the scan, END once it has completed or failed, or null to skip a missing thing
+         */
+        private DiscoveredThing pull() {
+            try {
+                if (things == null) {
+                    things = scan.start();
+                }
+                if (things.hasNext()) {
+                    return things.next();
+                }
+            } catch (Throwable e) {
+                if (closed) {
+                    return null;
+                }
+                log.error("Discovery scan failed", e);
+                failure = e;
+            }
+            closeScan();
+            startNext();
+            return END;
+        }
+        
+        private synchronized void closeScan() {
+            if (!scanClosed) {
+                scanClosed = true;
+                scan.close();
+            }
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            next = topTerms > 0 ? nextRanked() : take();
+        }
+        return next != null;
+    }
+    
+    @Override
+    public DiscoveredThing next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DiscoveredThing thing = next;
+        next = null;
+        return thing;
+    }
+    
+    /**
+     * @return the next thing found by any scan, or null once every scan has completed
+     */
+    private DiscoveredThing take() {
+        while (remaining > 0) {
+            DiscoveredThing thing = null;
+            long deadline = System.currentTimeMillis() + maxWaitMillis;
+            try {
+                while (thing == null && failure == null) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        close();
+                        throw new DatawaveFatalQueryException("The discovery scans found nothing in " + maxWaitMillis + "ms");
+                    }
+                    thing = queue.poll(Math.min(wait, POLL_MILLIS), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new DatawaveFatalQueryException("Interrupted waiting for discovery scans", e);
+            }
+            if (thing != null) {
+                resumeParked();
+                if (thing != END) {
+                    return thing;
+                }
+                remaining--;
+            }
+            if (failure != null) {
+                close();
+                throw new DatawaveFatalQueryException("Discovery scan failed", failure);
+            }
+        }
+        return null;
+    }
+    
+    private DiscoveredThing nextRanked() {
+        if (ranked == null) {
+            ranked = rank();
+        }
+        return ranked.hasNext() ? ranked.next() : null;
+    }
+    
+    /**
+     * Merge everything the scans find and select the things of the terms with the highest total counts
+     */
+    private Iterator<DiscoveredThing> rank() {
+        Map<String,DiscoveredThing> merged = new LinkedHashMap<>();
+        Map<String,Long> totals = new HashMap<>();
+        for (DiscoveredThing thing = take(); thing != null; thing = take()) {
+            merged.merge(thing.getTerm() + '\0' + thing.getField() + '\0' + thing.getType() + '\0' + thing.getDate() + '\0' + thing.getColumnVisibility(),
+                            thing, DiscoveryScanPipeline::merge);
+            totals.merge(termKey(thing), thing.getCount(), Long::sum);
+            // every term has at least one thing, so this bounds the totals as well
+            if (merged.size() > maxRankedThings) {
+                close();
+                throw new DatawaveFatalQueryException("Discovered more than " + maxRankedThings + " things to select the top " + topTerms
+                                + " terms from, the query must be narrowed");
+            }
+        }
+        
+        // a min heap of the terms with the highest totals, evicting the lowest
+        Comparator<Map.Entry<String,Long>> byTotal = Map.Entry.<String,Long> comparingByValue().thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<String,Long>> heap = new PriorityQueue<>(topTerms + 1, byTotal);
+        for (Map.Entry<String,Long> total : totals.entrySet()) {
+            heap.add(total);
+            if (heap.size() > topTerms) {
+                heap.poll();
+            }
+        }
+        Map<String,Long> top = new HashMap<>();
+        for (Map.Entry<String,Long> total : heap) {
+            top.put(total.getKey(), total.getValue());
+        }
+        
+        List<DiscoveredThing> things = new ArrayList<>();
+        for (DiscoveredThing thing : merged.values()) {
+            if (top.containsKey(termKey(thing))) {
+                things.add(thing);
+            }
+        }
+        things.sort(Comparator.<DiscoveredThing,Long> comparing(thing -> top.get(termKey(thing))).reversed().thenComparing(Comparator.naturalOrder()));
+        if (log.isDebugEnabled()) {
+            log.debug("Selected " + top.size() + " of " + totals.size() + " discovered terms");
+        }
+        return things.iterator();
+    }
+    
+    private static String termKey(DiscoveredThing thing) {
+        return thing.getTerm() + '\0' + thing.getField();
+    }
+    
+    /**
+     * @return a thing with the counts of both things
+     */
+    static DiscoveredThing merge(DiscoveredThing a, DiscoveredThing b) {
+        MapWritable counts = new MapWritable();
+        counts.putAll(a.getCountsByColumnVisibility());
+        for (Map.Entry<Writable,Writable> count : b.getCountsByColumnVisibility().entrySet()) {
+            Writable existing = counts.get(count.getKey());
+            if (existing instanceof VLongWritable && count.getValue() instanceof VLongWritable) {
+                counts.put(count.getKey(), new VLongWritable(((VLongWritable) existing).get() + ((VLongWritable) count.getValue()).get()));
+            } else {
+                counts.put(count.getKey(), count.getValue());
+            }
+        }
+        return new DiscoveredThing(a.getTerm(), a.getField(), a.getType(), a.getDate(), a.getColumnVisibility(), a.getCount() + b.getCount(), counts);
+    }
+    
+    /**
+     * Stop the scans. Things already found are discarded.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            synchronized (this) {
+                // the pending scans were never started, and the running scans are interrupted and close themselves rather than shutting down the shared
+                // executor
+                pending.clear();
+                parked.clear();
+                for (ScanTask task : started) {
+                    if (task.running) {
+                        task.future.cancel(true);
+                    } else {
+                        task.closeScan();
+                    }
+                }
+            }
+            queue.clear();
+        }
+    }
+}
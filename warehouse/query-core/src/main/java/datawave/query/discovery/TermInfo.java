@@ -1,5 +1,6 @@
 package datawave.query.discovery;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 
 import datawave.query.Constants;
@@ -51,7 +52,7 @@ public class TermInfo {
             // Parse the UID.List object from the value
             Uid.List uidList = null;
             try {
-                uidList = Uid.List.parseFrom(value.get());
+                uidList = PackedUidList.parse(value.get());
                 if (null != uidList) {
                     count = uidList.getCOUNT();
                     setListSize(uidList.getUIDList().size());
@@ -3,6 +3,7 @@ package datawave.query.function;
 import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
 import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.compiled.CompiledJexlScript;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.jexl2.JexlArithmetic;
@@ -31,11 +32,20 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected Script script;
     
+    /**
+     * The script compiled into evaluation nodes, null when the script is interpreted
+     */
+    protected CompiledJexlScript compiledScript;
+    
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
     
     public JexlEvaluation(String query, JexlArithmetic arithmetic) {
+        this(query, arithmetic, false);
+    }
+    
+    public JexlEvaluation(String query, JexlArithmetic arithmetic, boolean compiled) {
         this.query = query;
         this.arithmetic = arithmetic;
         
@@ -44,6 +54,13 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
         // Evaluate the JexlContext against the Script
         this.script = this.engine.createScript(query);
+        
+        if (compiled) {
+            this.compiledScript = CompiledJexlScript.compile(this.engine, this.engine.parse(query));
+            if (log.isDebugEnabled()) {
+                log.debug("Compiled " + query + " with " + compiledScript.getNumInterpreted() + " interpreted subtrees");
+            }
+        }
     }
     
     public JexlArithmetic getArithmetic() {
@@ -58,6 +75,10 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         return engine.parse(expression);
     }
     
+    public boolean isCompiled() {
+        return compiledScript != null;
+    }
+    
     public boolean isMatched(Object o) {
         return ArithmeticJexlEngines.isMatched(o);
     }
@@ -65,7 +86,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = (compiledScript != null) ? compiledScript.execute(input.third()) : script.execute(input.third());
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
@@ -9,6 +9,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+import datawave.ingest.protobuf.PackedUidList;
 import datawave.ingest.protobuf.Uid;
 import datawave.query.tld.TLD;
 import datawave.query.util.Tuple3;
@@ -204,12 +205,14 @@ public class CreateUidsIterator implements SortedKeyValueIterator<Key,Value>, Op
     }
     
     public static Tuple3<Long,Boolean,List<String>> parseUids(Key k, Value v) throws IOException {
-        final String dataType = parseDataType(k);
-        Uid.List docIds = Uid.List.parseFrom(v.get());
-        final boolean ignore = docIds.getIGNORE();
-        List<String> uids = ignore || docIds.getUIDList() == null ? Collections.emptyList() : Lists.transform(docIds.getUIDList(),
-                        s -> dataType + "\u0000" + s.trim());
-        return Tuples.tuple(docIds.getCOUNT(), ignore, uids);
+        final String prefix = parseDataType(k) + "\u0000";
+        byte[] bytes = v.get();
+        if (PackedUidList.isPacked(bytes)) {
+            PackedUidList docIds = new PackedUidList(bytes);
+            return Tuples.tuple(docIds.getCount(), docIds.isIgnore(), docIds.getUidStrings(prefix));
+        }
+        Uid.List docIds = Uid.List.parseFrom(bytes);
+        return Tuples.tuple(docIds.getCOUNT(), docIds.getIGNORE(), PackedUidList.getUidStrings(docIds, prefix));
     }
     
     public static String parseDataType(Key k) {
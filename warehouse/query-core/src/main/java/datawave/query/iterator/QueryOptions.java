@@ -150,6 +150,9 @@ public class QueryOptions implements OptionDescriber {
     public static final String STATSD_MAX_QUEUE_SIZE = "statsd.max.queue.size";
     public static final String DATATYPE_FIELDNAME = "include.datatype.fieldname";
     public static final String TRACK_SIZES = "track.sizes";
+    public static final String COMPILED_EVALUATION = "evaluation.compiled";
+    public static final String UNIQUE_CACHE_BUFFER_SIZE = "unique.cache.buffer.size";
+    public static final String TOURNAMENT_MERGE = "tournament.merge";
     
     // pass through to Evaluating iterator to ensure consistency between query
     // logics
@@ -372,6 +375,21 @@ public class QueryOptions implements OptionDescriber {
      */
     protected boolean trackSizes = true;
     
+    /**
+     * should the query be compiled into a tree of evaluation nodes rather than interpreted per document
+     */
+    protected boolean compiledEvaluation = false;
+    
+    /**
+     * The number of unique signatures held in memory before they are spilled to disk on the web server, or reset on the tablet server
+     */
+    protected int uniqueCacheBufferSize = 100000;
+    
+    /**
+     * Whether the tserver merges the children of AND and OR nodes with a tournament tree instead of a sorted multimap
+     */
+    protected boolean tournamentMerge = false;
+    
     public void deepCopy(QueryOptions other) {
         this.options = other.options;
         this.query = other.query;
@@ -485,6 +503,9 @@ public class QueryOptions implements OptionDescriber {
         this.debugMultithreadedSources = other.debugMultithreadedSources;
         
         this.trackSizes = other.trackSizes;
+        this.compiledEvaluation = other.compiledEvaluation;
+        this.uniqueCacheBufferSize = other.uniqueCacheBufferSize;
+        this.tournamentMerge = other.tournamentMerge;
     }
     
     public String getQuery() {
@@ -575,6 +596,30 @@ public class QueryOptions implements OptionDescriber {
         this.trackSizes = trackSizes;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
+    public int getUniqueCacheBufferSize() {
+        return uniqueCacheBufferSize;
+    }
+    
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        this.uniqueCacheBufferSize = uniqueCacheBufferSize;
+    }
+    
+    public boolean isTournamentMerge() {
+        return tournamentMerge;
+    }
+    
+    public void setTournamentMerge(boolean tournamentMerge) {
+        this.tournamentMerge = tournamentMerge;
+    }
+    
     public void setTypeMetadata(TypeMetadata typeMetadata) {
         this.typeMetadata = typeMetadata;
     }
@@ -1069,6 +1114,9 @@ public class QueryOptions implements OptionDescriber {
         options.put(LIMIT_FIELDS_PRE_QUERY_EVALUATION, "If true, non-query fields limits will be applied immediately off the iterator");
         options.put(LIMIT_FIELDS_FIELD, "When " + LIMIT_FIELDS_PRE_QUERY_EVALUATION
                         + " is set to true this field will contain all fields that were limited immediately");
+        options.put(COMPILED_EVALUATION, "If true, the query is compiled once into evaluation nodes instead of being interpreted for every document");
+        options.put(UNIQUE_CACHE_BUFFER_SIZE, "The number of unique signatures held in memory before spilling or resetting");
+        options.put(TOURNAMENT_MERGE, "Merge the children of AND and OR nodes with a tournament tree");
         
         return new IteratorOptions(getClass().getSimpleName(), "Runs a query against the DATAWAVE tables", options, null);
     }
@@ -1166,6 +1214,18 @@ public class QueryOptions implements OptionDescriber {
             setTrackSizes(Boolean.parseBoolean(options.get(TRACK_SIZES)));
         }
         
+        if (options.containsKey(COMPILED_EVALUATION) && options.get(COMPILED_EVALUATION) != null) {
+            setCompiledEvaluation(Boolean.parseBoolean(options.get(COMPILED_EVALUATION)));
+        }
+        
+        if (options.containsKey(UNIQUE_CACHE_BUFFER_SIZE) && options.get(UNIQUE_CACHE_BUFFER_SIZE) != null) {
+            setUniqueCacheBufferSize(Integer.parseInt(options.get(UNIQUE_CACHE_BUFFER_SIZE)));
+        }
+        
+        if (options.containsKey(TOURNAMENT_MERGE) && options.get(TOURNAMENT_MERGE) != null) {
+            setTournamentMerge(Boolean.parseBoolean(options.get(TOURNAMENT_MERGE)));
+        }
+        
         if (options.containsKey(PROJECTION_FIELDS)) {
             this.projectResults = true;
             this.useWhiteListedFields = true;
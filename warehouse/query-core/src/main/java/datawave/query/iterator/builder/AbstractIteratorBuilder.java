@@ -25,6 +25,8 @@ public abstract class AbstractIteratorBuilder implements IteratorBuilder {
     
     protected boolean sortedUIDs;
     
+    protected boolean tournamentMerge;
+    
     public boolean isSortedUIDs() {
         return sortedUIDs;
     }
@@ -33,6 +35,14 @@ public abstract class AbstractIteratorBuilder implements IteratorBuilder {
         this.sortedUIDs = sortedUIDs;
     }
     
+    public boolean isTournamentMerge() {
+        return tournamentMerge;
+    }
+    
+    public void setTournamentMerge(boolean tournamentMerge) {
+        this.tournamentMerge = tournamentMerge;
+    }
+    
     public boolean isInANot() {
         return inANot;
     }
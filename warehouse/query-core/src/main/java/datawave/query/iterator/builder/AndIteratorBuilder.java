@@ -2,6 +2,7 @@ package datawave.query.iterator.builder;
 
 import datawave.query.iterator.NestedIterator;
 import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.TournamentAndIterator;
 import org.apache.commons.jexl2.parser.JexlNode;
 
 import java.util.HashSet;
@@ -28,6 +29,9 @@ public class AndIteratorBuilder extends AbstractIteratorBuilder {
         if (includes.isEmpty()) {
             throw new IllegalStateException("AndIterator has no inclusive sources!");
         }
+        if (tournamentMerge) {
+            return new TournamentAndIterator(includes, excludes);
+        }
         return new AndIterator(includes, excludes);
     }
 }
@@ -2,12 +2,16 @@ package datawave.query.iterator.builder;
 
 import datawave.query.iterator.NestedIterator;
 import datawave.query.iterator.logic.OrIterator;
+import datawave.query.iterator.logic.TournamentOrIterator;
 
 public class OrIteratorBuilder extends AbstractIteratorBuilder {
     
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Override
     public <T> NestedIterator<T> build() {
+        if (tournamentMerge) {
+            return new TournamentOrIterator(includes, excludes, sortedUIDs);
+        }
         return new OrIterator(includes, excludes, sortedUIDs);
     }
     
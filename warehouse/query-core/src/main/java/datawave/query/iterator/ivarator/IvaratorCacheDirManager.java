@@ -0,0 +1,452 @@
+package datawave.query.iterator.ivarator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import datawave.core.iterators.querylock.QueryLock;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.apache.hadoop.fs.FsStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Tracks the ivarator cache dirs used by this tserver. The used and free storage of each cache dir is cached and adjusted by the bytes written since it was last
+ * read, and the write latency of each cache dir is measured. New sorted set files are placed by priority, then remaining quota, then latency. Small sorted sets
+ * may be kept in a bounded memory tier instead of a filesystem, and the directories of queries that are no longer running according to their {@link QueryLock}
+ * are evicted in the background.
+ */
+public class IvaratorCacheDirManager {
+    private static final Logger log = Logger.getLogger(IvaratorCacheDirManager.class);
+    
+    private static final String MEMORY_TIER_MAX_BYTES_PROP = "tserver.datawave.ivarator.memory.tier.max.bytes";
+    private static final String MEMORY_TIER_MAX_SET_SIZE_PROP = "tserver.datawave.ivarator.memory.tier.max.set.size";
+    private static final String STATUS_REFRESH_PROP = "tserver.datawave.ivarator.status.refresh.ms";
+    private static final String EVICTION_INTERVAL_PROP = "tserver.datawave.ivarator.eviction.interval.ms";
+    private static final String ABANDONED_AGE_PROP = "tserver.datawave.ivarator.abandoned.age.ms";
+    private static final String EVICTION_THREAD_NAME = "DATAWAVE Ivarator Eviction";
+    
+    public static final long DEFAULT_MEMORY_TIER_MAX_BYTES = 64L * 0x100000L;
+    // sets are only kept in memory when a max set size is configured
+    public static final int DEFAULT_MEMORY_TIER_MAX_SET_SIZE = 0;
+    public static final long DEFAULT_STATUS_REFRESH_MS = 10 * 1000L;
+    public static final long DEFAULT_EVICTION_INTERVAL_MS = 5 * 60 * 1000L;
+    public static final long DEFAULT_ABANDONED_AGE_MS = 30 * 60 * 1000L;
+    
+    // the number of writes to a cache dir before its latency is used for placement
+    static final int MIN_LATENCY_SAMPLES = 8;
+    // a cache dir is passed over when its latency is this many times that of the fastest cache dir with the same priority
+    static final double LATENCY_PENALTY_FACTOR = 2.0;
+    // the weight given to the latest write when averaging the latency
+    private static final double LATENCY_WEIGHT = 0.2;
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile IvaratorCacheDirManager instance;
+    
+    private final long memoryTierMaxBytes;
+    private final int memoryTierMaxSetSize;
+    private final long statusRefreshMs;
+    private final long abandonedAgeMs;
+    
+    // the status of each cache dir by base path
+    private final Map<String,CacheDirStats> cacheDirStats = new ConcurrentHashMap<>();
+    
+    // the sorted set files kept in memory by path
+    private final ConcurrentNavigableMap<String,byte[]> memoryFiles = new ConcurrentSkipListMap<>();
+    private final AtomicLong memoryBytes = new AtomicLong();
+    
+    // the query directories that may be evicted by path
+    private final Map<String,QueryDir> queryDirs = new ConcurrentHashMap<>();
+    
+    private final ScheduledExecutorService evictor;
+    
+    IvaratorCacheDirManager(long memoryTierMaxBytes, int memoryTierMaxSetSize, long statusRefreshMs, long evictionIntervalMs, long abandonedAgeMs) {
+        this.memoryTierMaxBytes = memoryTierMaxBytes;
+        this.memoryTierMaxSetSize = memoryTierMaxSetSize;
+        this.statusRefreshMs = statusRefreshMs;
+        this.abandonedAgeMs = abandonedAgeMs;
+        
+        if (evictionIntervalMs > 0) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory(EVICTION_THREAD_NAME));
+            executor.scheduleWithFixedDelay(() -> {
+                try {
+                    evictAbandoned();
+                } catch (Throwable t) {
+                    log.error("Failed to evict abandoned ivarator directories", t);
+                }
+            }, evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+            this.evictor = executor;
+        } else {
+            this.evictor = null;
+        }
+    }
+    
+    private IvaratorCacheDirManager(AccumuloConfiguration conf) {
+        this(getLong(conf, MEMORY_TIER_MAX_BYTES_PROP, DEFAULT_MEMORY_TIER_MAX_BYTES), (int) getLong(conf, MEMORY_TIER_MAX_SET_SIZE_PROP,
+                        DEFAULT_MEMORY_TIER_MAX_SET_SIZE), getLong(conf, STATUS_REFRESH_PROP, DEFAULT_STATUS_REFRESH_MS), getLong(conf,
+                        EVICTION_INTERVAL_PROP, DEFAULT_EVICTION_INTERVAL_MS), getLong(conf, ABANDONED_AGE_PROP, DEFAULT_ABANDONED_AGE_MS));
+    }
+    
+    private static long getLong(AccumuloConfiguration conf, String prop, long defaultValue) {
+        if (conf != null) {
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, k -> Objects.equals(k, prop));
+            if (properties.containsKey(prop)) {
+                return Long.parseLong(properties.get(prop));
+            }
+        }
+        return defaultValue;
+    }
+    
+    public static IvaratorCacheDirManager getInstance() {
+        return getInstance(null);
+    }
+    
+    public static IvaratorCacheDirManager getInstance(IteratorEnvironment env) {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    instance = new IvaratorCacheDirManager(env != null ? env.getConfig() : DefaultConfiguration.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private CacheDirStats getStats(IvaratorCacheDir cacheDir) {
+        return cacheDirStats.computeIfAbsent(cacheDir.getConfig().getBasePathURI(), k -> new CacheDirStats());
+    }
+    
+    /**
+     * Determine whether a cache dir has more available storage than its configured minimum. The filesystem status is cached, and the bytes written since it
+     * was read are counted against the available storage.
+     *
+     * @param cacheDir
+     *            the cache dir
+     * @return true if the cache dir may be written to
+     */
+    public boolean hasAvailableStorage(IvaratorCacheDir cacheDir) {
+        CacheDirStats stats = getStats(cacheDir);
+        if (!stats.refresh(cacheDir, statusRefreshMs) || stats.capacity <= 0) {
+            return false;
+        }
+        long remaining = getRemainingBytes(cacheDir);
+        long availableStorageMiB = remaining / 0x100000L;
+        double availableStoragePercent = (double) remaining / stats.capacity;
+        return availableStorageMiB >= cacheDir.getConfig().getMinAvailableStorageMiB()
+                        && availableStoragePercent >= cacheDir.getConfig().getMinAvailableStoragePercent();
+    }
+    
+    /**
+     * @param cacheDir
+     *            the cache dir
+     * @return the bytes used on the filesystem of the cache dir as of the last status, plus the bytes written since
+     */
+    public long getUsedBytes(IvaratorCacheDir cacheDir) {
+        CacheDirStats stats = getStats(cacheDir);
+        stats.refresh(cacheDir, statusRefreshMs);
+        return stats.used + stats.bytesSinceRefresh.get();
+    }
+    
+    /**
+     * @param cacheDir
+     *            the cache dir
+     * @return the bytes remaining on the filesystem of the cache dir as of the last status, less the bytes written since
+     */
+    public long getRemainingBytes(IvaratorCacheDir cacheDir) {
+        CacheDirStats stats = getStats(cacheDir);
+        stats.refresh(cacheDir, statusRefreshMs);
+        return Math.max(0L, stats.remaining - stats.bytesSinceRefresh.get());
+    }
+    
+    /**
+     * Record a write to a cache dir
+     *
+     * @param cacheDir
+     *            the cache dir
+     * @param bytes
+     *            the number of bytes written
+     * @param nanos
+     *            the time spent writing to the filesystem
+     */
+    public void recordWrite(IvaratorCacheDir cacheDir, long bytes, long nanos) {
+        CacheDirStats stats = getStats(cacheDir);
+        stats.bytesSinceRefresh.addAndGet(bytes);
+        if (bytes > 0) {
+            stats.recordLatency((double) nanos / bytes);
+        }
+    }
+    
+    /**
+     * @param cacheDir
+     *            the cache dir
+     * @return the average nanoseconds per byte written to the cache dir, or -1 if not enough writes have been measured
+     */
+    public double getLatency(IvaratorCacheDir cacheDir) {
+        CacheDirStats stats = getStats(cacheDir);
+        synchronized (stats) {
+            return stats.samples >= MIN_LATENCY_SAMPLES ? stats.nanosPerByte : -1;
+        }
+    }
+    
+    /**
+     * Order items for placing a new file. Items are ordered by the priority of their cache dir, then those with available storage before those without, then
+     * those whose latency is not far worse than the fastest cache dir with the same priority. Items are otherwise left in their original order, and items
+     * without a cache dir are placed last.
+     *
+     * @param items
+     *            the items to order
+     * @param toCacheDir
+     *            gets the cache dir of an item, or null if it has none
+     * @param <T>
+     *            the item type
+     * @return the ordered items
+     */
+    public <T> List<T> order(List<T> items, Function<T,IvaratorCacheDir> toCacheDir) {
+        Map<Integer,Double> fastest = new HashMap<>();
+        Map<T,Integer> ranks = new HashMap<>();
+        Map<T,Double> latencies = new HashMap<>();
+        for (T item : items) {
+            IvaratorCacheDir cacheDir = toCacheDir.apply(item);
+            if (cacheDir != null) {
+                double latency = getLatency(cacheDir);
+                latencies.put(item, latency);
+                if (latency >= 0) {
+                    fastest.merge(cacheDir.getConfig().getPriority(), latency, Math::min);
+                }
+            }
+        }
+        for (T item : items) {
+            IvaratorCacheDir cacheDir = toCacheDir.apply(item);
+            if (cacheDir == null) {
+                ranks.put(item, 3);
+            } else if (!hasAvailableStorage(cacheDir)) {
+                ranks.put(item, 2);
+            } else {
+                Double best = fastest.get(cacheDir.getConfig().getPriority());
+                double latency = latencies.get(item);
+                ranks.put(item, (best != null && latency > best * LATENCY_PENALTY_FACTOR) ? 1 : 0);
+            }
+        }
+        
+        List<T> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.<T> comparingInt(item -> {
+            IvaratorCacheDir cacheDir = toCacheDir.apply(item);
+            return cacheDir == null ? Integer.MAX_VALUE : cacheDir.getConfig().getPriority();
+        }).thenComparingInt(ranks::get));
+        return ordered;
+    }
+    
+    public int getMemoryTierMaxSetSize() {
+        return memoryTierMaxSetSize;
+    }
+    
+    public long getMemoryTierBytes() {
+        return memoryBytes.get();
+    }
+    
+    /**
+     * @return true if the memory tier is enabled and is not full
+     */
+    public boolean hasMemoryAvailable() {
+        return memoryTierMaxSetSize > 0 && memoryBytes.get() < memoryTierMaxBytes;
+    }
+    
+    /**
+     * Store a sorted set file in memory
+     *
+     * @param file
+     *            the path of the file
+     * @param contents
+     *            the file contents
+     * @return false if the memory tier does not have room for the file
+     */
+    public boolean putMemoryFile(String file, byte[] contents) {
+        if (memoryBytes.addAndGet(contents.length) > memoryTierMaxBytes) {
+            memoryBytes.addAndGet(-contents.length);
+            return false;
+        }
+        byte[] previous = memoryFiles.put(file, contents);
+        if (previous != null) {
+            memoryBytes.addAndGet(-previous.length);
+        }
+        return true;
+    }
+    
+    public byte[] getMemoryFile(String file) {
+        return memoryFiles.get(file);
+    }
+    
+    public void deleteMemoryFile(String file) {
+        byte[] previous = memoryFiles.remove(file);
+        if (previous != null) {
+            memoryBytes.addAndGet(-previous.length);
+        }
+    }
+    
+    /**
+     * @param dir
+     *            a directory path
+     * @return the memory files directly under the directory
+     */
+    public List<String> getMemoryFiles(String dir) {
+        List<String> files = new ArrayList<>();
+        for (String file : getMemoryFilesUnder(dir)) {
+            if (file.indexOf(Path.SEPARATOR_CHAR, dir.length() + 1) < 0) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+    
+    private List<String> getMemoryFilesUnder(String dir) {
+        // '0' sorts immediately after the separator
+        return new ArrayList<>(memoryFiles.subMap(dir + Path.SEPARATOR_CHAR, dir + '0').keySet());
+    }
+    
+    /**
+     * Note that a query is using a cache dir. Once the query has not used the cache dir for the abandoned age and the query lock shows that the query is no
+     * longer running, the query's directory under the cache dir is evicted. Cache dirs of queries without a query lock are never evicted.
+     *
+     * @param cacheDir
+     *            the cache dir
+     * @param queryLock
+     *            the query lock, may be null
+     */
+    public void touch(IvaratorCacheDir cacheDir, QueryLock queryLock) {
+        if (queryLock == null) {
+            return;
+        }
+        Path queryDir = getQueryDir(cacheDir);
+        if (queryDir != null) {
+            QueryDir dir = queryDirs.computeIfAbsent(queryDir.toString(), k -> new QueryDir(cacheDir, queryDir, queryLock));
+            dir.lastAccess = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * @param cacheDir
+     *            the cache dir
+     * @return the query directory, which is the first directory under the base path, or null if the cache dir is not under its base path
+     */
+    static Path getQueryDir(IvaratorCacheDir cacheDir) {
+        Path base = new Path(cacheDir.getConfig().getBasePathURI());
+        Path path = new Path(cacheDir.getPathURI());
+        while (path != null && path.getParent() != null) {
+            if (path.getParent().equals(base)) {
+                return path;
+            }
+            path = path.getParent();
+        }
+        return null;
+    }
+    
+    /**
+     * Evict the query directories that have not been used for the abandoned age and whose queries are no longer running. Cache dirs with a lower priority
+     * number are cleaned up first, as they are generally the scarcer storage.
+     */
+    void evictAbandoned() {
+        long now = System.currentTimeMillis();
+        List<QueryDir> candidates = new ArrayList<>();
+        for (QueryDir dir : queryDirs.values()) {
+            if (now - dir.lastAccess > abandonedAgeMs) {
+                candidates.add(dir);
+            }
+        }
+        candidates.sort(Comparator.<QueryDir> comparingInt(dir -> dir.cacheDir.getConfig().getPriority()).thenComparingLong(dir -> dir.lastAccess));
+        
+        for (QueryDir dir : candidates) {
+            if (dir.queryLock.isQueryRunning()) {
+                continue;
+            }
+            if (!queryDirs.remove(dir.path.toString(), dir)) {
+                continue;
+            }
+            for (String file : getMemoryFilesUnder(dir.path.toString())) {
+                deleteMemoryFile(file);
+            }
+            try {
+                if (dir.cacheDir.getFs().exists(dir.path)) {
+                    log.info("Evicting abandoned ivarator directory " + dir.path);
+                    dir.cacheDir.getFs().delete(dir.path, true);
+                }
+            } catch (IOException e) {
+                log.warn("Unable to evict abandoned ivarator directory " + dir.path, e);
+            }
+        }
+    }
+    
+    void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+    
+    private static class CacheDirStats {
+        private volatile long lastRefresh = 0;
+        private volatile boolean valid = false;
+        private volatile long capacity = 0;
+        private volatile long used = 0;
+        private volatile long remaining = 0;
+        private final AtomicLong bytesSinceRefresh = new AtomicLong();
+        private double nanosPerByte = 0;
+        private int samples = 0;
+        
+        private boolean refresh(IvaratorCacheDir cacheDir, long refreshMs) {
+            long now = System.currentTimeMillis();
+            if (now - lastRefresh >= refreshMs) {
+                synchronized (this) {
+                    if (now - lastRefresh >= refreshMs) {
+                        try {
+                            FsStatus status = cacheDir.getFs().getStatus();
+                            capacity = status.getCapacity();
+                            used = status.getUsed();
+                            remaining = status.getRemaining();
+                            bytesSinceRefresh.set(0);
+                            valid = true;
+                        } catch (IOException e) {
+                            log.warn("Unable to determine status of the filesystem: " + cacheDir.getFs());
+                            valid = false;
+                        }
+                        lastRefresh = now;
+                    }
+                }
+            }
+            return valid;
+        }
+        
+        private synchronized void recordLatency(double latency) {
+            nanosPerByte = (samples == 0 ? latency : (LATENCY_WEIGHT * latency) + ((1 - LATENCY_WEIGHT) * nanosPerByte));
+            samples++;
+        }
+    }
+    
+    private static class QueryDir {
+        private final IvaratorCacheDir cacheDir;
+        private final Path path;
+        private final QueryLock queryLock;
+        private volatile long lastAccess;
+        
+        private QueryDir(IvaratorCacheDir cacheDir, Path path, QueryLock queryLock) {
+            this.cacheDir = cacheDir;
+            this.path = path;
+            this.queryLock = queryLock;
+        }
+    }
+}
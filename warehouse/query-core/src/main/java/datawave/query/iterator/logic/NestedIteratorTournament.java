@@ -0,0 +1,150 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.Util;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An array backed tournament tree over the heads of a fixed set of nested iterators. The tree keeps the index of the iterator with the lowest head at the root,
+ * so the lowest head is found in constant time and replacing a head replays only the matches on the path from that iterator to the root. Heads are updated in
+ * place and nothing is allocated once the tree is built.
+ * <p>
+ * Heads are compared with {@link Util#keyComparator()}, so keys that share a row and column family are equal. A null head marks an iterator that is exhausted
+ * or has been dropped and sorts after every other head. Ties go to the iterator with the lower index, which keeps the ordering deterministic.
+ *
+ * @param <T>
+ */
+class NestedIteratorTournament<T extends Comparable<T>> {
+    
+    private final Comparator<T> comparator = Util.keyComparator();
+    
+    private final NestedIterator<T>[] iterators;
+    private final int count;
+    private final Object[] heads;
+    
+    // tree[1] is the root, tree[capacity + i] is the leaf for iterator i, and every other node holds the index of the winner of its two children
+    private final int[] tree;
+    private final int capacity;
+    
+    @SuppressWarnings("unchecked")
+    NestedIteratorTournament(List<NestedIterator<T>> iterators) {
+        this.count = iterators.size();
+        int size = Math.max(1, count);
+        this.capacity = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        this.iterators = iterators.toArray(new NestedIterator[count]);
+        this.heads = new Object[capacity];
+        this.tree = new int[capacity * 2];
+        for (int i = 0; i < capacity; i++) {
+            tree[capacity + i] = i;
+        }
+        rebuild();
+    }
+    
+    /**
+     * @return the number of iterators in the tournament, including those that are exhausted
+     */
+    int size() {
+        return count;
+    }
+    
+    NestedIterator<T> iterator(int index) {
+        return iterators[index];
+    }
+    
+    @SuppressWarnings("unchecked")
+    T head(int index) {
+        return (T) heads[index];
+    }
+    
+    /**
+     * @return the index of the iterator with the lowest head, or -1 if every iterator is exhausted
+     */
+    int top() {
+        int index = tree[1];
+        return heads[index] == null ? -1 : index;
+    }
+    
+    /**
+     * @return the lowest head, or null if every iterator is exhausted
+     */
+    T topHead() {
+        return head(tree[1]);
+    }
+    
+    boolean isEmpty() {
+        return heads[tree[1]] == null;
+    }
+    
+    /**
+     * Replace the head of an iterator and replay its path to the root.
+     *
+     * @param index
+     *            the iterator index
+     * @param head
+     *            the new head, or null if the iterator is exhausted
+     */
+    void set(int index, T head) {
+        heads[index] = head;
+        for (int node = (capacity + index) >>> 1; node > 0; node >>>= 1) {
+            tree[node] = winner(tree[node << 1], tree[(node << 1) + 1]);
+        }
+    }
+    
+    /**
+     * Set the initial head of an iterator without replaying the tree. {@link #rebuild()} must be called once all of the heads are set.
+     */
+    void init(int index, T head) {
+        heads[index] = head;
+    }
+    
+    void rebuild() {
+        for (int node = capacity - 1; node > 0; node--) {
+            tree[node] = winner(tree[node << 1], tree[(node << 1) + 1]);
+        }
+    }
+    
+    /**
+     * Mark every iterator as exhausted
+     */
+    void clear() {
+        for (int i = 0; i < capacity; i++) {
+            heads[i] = null;
+        }
+        rebuild();
+    }
+    
+    /**
+     * @return the highest head, or null if every iterator is exhausted
+     */
+    T highest() {
+        T highest = null;
+        for (int i = 0; i < count; i++) {
+            T head = head(i);
+            if (head != null && (highest == null || comparator.compare(head, highest) > 0)) {
+                highest = head;
+            }
+        }
+        return highest;
+    }
+    
+    int compare(T a, T b) {
+        return comparator.compare(a, b);
+    }
+    
+    private int winner(int a, int b) {
+        T headA = head(a);
+        T headB = head(b);
+        if (headA == null) {
+            return headB == null ? Math.min(a, b) : b;
+        } else if (headB == null) {
+            return a;
+        }
+        int comparison = comparator.compare(headA, headB);
+        if (comparison == 0) {
+            return Math.min(a, b);
+        }
+        return comparison < 0 ? a : b;
+    }
+}
@@ -0,0 +1,341 @@
+package datawave.query.iterator.logic;
+
+import com.google.common.collect.TreeMultimap;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.SeekableIterator;
+import datawave.query.iterator.Util;
+import datawave.query.iterator.Util.Transformer;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Performs a merge join of the child iterators, like the {@link AndIterator}, but tracks the heads of the included iterators in a
+ * {@link NestedIteratorTournament} instead of a sorted multimap. The lowest head is repeatedly moved up to the highest head until every head matches, updating
+ * the tournament in place. It is expected that all child iterators return values in sorted order.
+ */
+public class TournamentAndIterator<T extends Comparable<T>> implements NestedIterator<T>, SeekableIterator {
+    // temporary stores of uninitialized streams of iterators
+    private List<NestedIterator<T>> includes, excludes;
+    
+    private Transformer<T> transformer;
+    
+    private NestedIteratorTournament<T> includeHeads;
+    private TreeMultimap<T,NestedIterator<T>> excludeHeads;
+    
+    // the highest head of the included iterators, reduced to the row and column family for keys
+    private T highest;
+    
+    private T prev;
+    private T next;
+    
+    private Document prevDocument, document;
+    
+    private static final Logger log = Logger.getLogger(TournamentAndIterator.class);
+    
+    public TournamentAndIterator(Iterable<NestedIterator<T>> sources) {
+        this(sources, null);
+    }
+    
+    public TournamentAndIterator(Iterable<NestedIterator<T>> sources, Iterable<NestedIterator<T>> filters) {
+        includes = new LinkedList<>();
+        for (NestedIterator<T> src : sources) {
+            includes.add(src);
+        }
+        
+        if (filters == null) {
+            excludes = Collections.emptyList();
+        } else {
+            excludes = new LinkedList<>();
+            for (NestedIterator<T> filter : filters) {
+                excludes.add(filter);
+            }
+        }
+    }
+    
+    public void initialize() {
+        transformer = Util.keyTransformer();
+        
+        includeHeads = new NestedIteratorTournament<>(includes);
+        boolean exhausted = false;
+        for (int i = 0; i < includeHeads.size() && !exhausted; i++) {
+            NestedIterator<T> src = includeHeads.iterator(i);
+            src.initialize();
+            if (src.hasNext()) {
+                includeHeads.init(i, src.next());
+            } else {
+                // If a source has no valid records, it shouldn't throw an exception. It should just return no results.
+                // For an And, once one source is exhausted, the entire tree is exhausted
+                exhausted = true;
+            }
+        }
+        if (exhausted) {
+            includeHeads.clear();
+        } else {
+            includeHeads.rebuild();
+            updateHighest();
+        }
+        
+        if (excludes.isEmpty()) {
+            excludeHeads = Util.getEmpty();
+        } else {
+            Comparator<T> keyComp = Util.keyComparator();
+            Comparator<NestedIterator<T>> itrComp = Util.nestedIteratorComparator();
+            excludeHeads = TreeMultimap.create(keyComp, itrComp);
+            for (NestedIterator<T> src : excludes) {
+                src.initialize();
+                if (src.hasNext()) {
+                    excludeHeads.put(transformer.transform(src.next()), src);
+                }
+            }
+        }
+        
+        next();
+    }
+    
+    public boolean isInitialized() {
+        return includeHeads != null;
+    }
+    
+    /**
+     * return the previously found next and set its document. If there are more heads, move the lowest up to the highest until they match a value that is not
+     * filtered, advancing all iterators and set next/document for the next call
+     *
+     * @return the previously found next
+     */
+    public T next() {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        prev = next;
+        prevDocument = document;
+        
+        while (!includeHeads.isEmpty()) {
+            int index = includeHeads.top();
+            T lowest = includeHeads.head(index);
+            
+            if (includeHeads.compare(lowest, highest) == 0) {
+                if (excludes.isEmpty() || !NegationFilter.isFiltered(transformer.transform(lowest), excludeHeads, transformer)) {
+                    next = lowest;
+                    document = advanceIterators(true);
+                    break;
+                } else {
+                    advanceIterators(false);
+                }
+            } else {
+                // jump the lowest to the highest
+                T moved = includeHeads.iterator(index).move(highest);
+                if (moved == null) {
+                    includeHeads.clear();
+                } else {
+                    includeHeads.set(index, moved);
+                    if (includeHeads.compare(moved, highest) > 0) {
+                        highest = transformer.transform(moved);
+                    }
+                }
+            }
+        }
+        
+        // if we didn't move after the loop, then we don't have a next after this
+        if (prev == next) {
+            next = null;
+        }
+        
+        return prev;
+    }
+    
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    public boolean hasNext() {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        return next != null;
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        // seek all of the iterators. Drop those that fail, as long as we have at least one include left
+        Iterator<NestedIterator<T>> include = includes.iterator();
+        while (include.hasNext()) {
+            NestedIterator<T> child = include.next();
+            try {
+                for (NestedIterator<T> itr : child.leaves()) {
+                    if (itr instanceof SeekableIterator) {
+                        ((SeekableIterator) itr).seek(range, columnFamilies, inclusive);
+                    }
+                }
+            } catch (Exception e) {
+                include.remove();
+                if (includes.isEmpty()) {
+                    throw e;
+                } else {
+                    log.warn("Failed include lookup, but dropping in lieu of other terms", e);
+                }
+                
+            }
+        }
+        Iterator<NestedIterator<T>> exclude = excludes.iterator();
+        while (exclude.hasNext()) {
+            NestedIterator<T> child = exclude.next();
+            for (NestedIterator<T> itr : child.leaves()) {
+                if (itr instanceof SeekableIterator) {
+                    ((SeekableIterator) itr).seek(range, columnFamilies, inclusive);
+                }
+            }
+        }
+        
+        if (isInitialized()) {
+            // advance throwing next away and re-populating next with what should be
+            next();
+        }
+    }
+    
+    /**
+     * Test all layers of cache for the minimum, then if necessary advance heads
+     *
+     * @param minimum
+     *            the minimum to return
+     * @return the first greater than or equal to minimum or null if none exists
+     * @throws IllegalStateException
+     *             if prev is greater than or equal to minimum
+     */
+    public T move(T minimum) {
+        if (!isInitialized()) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        if (prev != null && prev.compareTo(minimum) >= 0) {
+            throw new IllegalStateException("Tried to call move when already at or beyond move point: topkey=" + prev + ", movekey=" + minimum);
+        }
+        
+        // test if the cached next is already beyond the minimum
+        if (next != null && next.compareTo(minimum) >= 0) {
+            // simply advance to next
+            return next();
+        }
+        
+        // move each iterator that is under the threshold into the target range before recalculating the next
+        int index;
+        while ((index = includeHeads.top()) >= 0 && includeHeads.compare(includeHeads.head(index), minimum) < 0) {
+            T moved = includeHeads.iterator(index).move(minimum);
+            if (moved == null) {
+                includeHeads.clear();
+            } else {
+                includeHeads.set(index, moved);
+                if (includeHeads.compare(moved, highest) > 0) {
+                    highest = transformer.transform(moved);
+                }
+            }
+        }
+        
+        // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
+        next();
+        
+        // now as long as the newly computed next exists return it and advance
+        if (hasNext()) {
+            return next();
+        } else {
+            includeHeads.clear();
+            return null;
+        }
+    }
+    
+    public Collection<NestedIterator<T>> leaves() {
+        LinkedList<NestedIterator<T>> leaves = new LinkedList<>();
+        // treat this node as a leaf to allow us to pass through the seek method and appropriately drop branches if possible.
+        leaves.add(this);
+        return leaves;
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> children() {
+        ArrayList<NestedIterator<T>> children = new ArrayList<>(includes.size() + excludes.size());
+        
+        children.addAll(includes);
+        children.addAll(excludes);
+        
+        return children;
+    }
+    
+    /**
+     * Advances all of the included iterators, which are all positioned on the same value, optionally merging their documents first. If any of them is
+     * exhausted then the whole tree is exhausted. An iterator that fails is dropped as long as others remain.
+     *
+     * @param buildDocument
+     * @return the merged document of the included iterators, or null if not building a document
+     */
+    private Document advanceIterators(boolean buildDocument) {
+        Document d = buildDocument ? new Document() : null;
+        int remaining = 0;
+        for (int i = 0; i < includeHeads.size(); i++) {
+            if (includeHeads.head(i) != null) {
+                remaining++;
+            }
+        }
+        for (int i = 0; i < includeHeads.size(); i++) {
+            if (includeHeads.head(i) == null) {
+                continue;
+            }
+            NestedIterator<T> itr = includeHeads.iterator(i);
+            if (d != null) {
+                d.putAll(itr.document().getDictionary().entrySet().iterator(), false);
+            }
+            try {
+                if (itr.hasNext()) {
+                    includeHeads.init(i, itr.next());
+                } else {
+                    includeHeads.clear();
+                    return d;
+                }
+            } catch (Exception e) {
+                // only need to actually fail if we have nothing left in the AND clause
+                if (--remaining == 0) {
+                    throw e;
+                } else {
+                    log.warn("Failed include lookup, but dropping in lieu of other terms", e);
+                    includeHeads.init(i, null);
+                }
+            }
+        }
+        includeHeads.rebuild();
+        updateHighest();
+        return d;
+    }
+    
+    private void updateHighest() {
+        T head = includeHeads.highest();
+        highest = head == null ? null : transformer.transform(head);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("AndIterator: ");
+        
+        sb.append("Includes: ");
+        sb.append(includes);
+        sb.append(", Excludes: ");
+        sb.append(excludes);
+        
+        return sb.toString();
+    }
+    
+    public Document document() {
+        return prevDocument;
+    }
+    
+}
@@ -0,0 +1,228 @@
+package datawave.query.iterator.logic;
+
+import com.google.common.collect.TreeMultimap;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.Util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Performs a deduping merge of iterators, like the {@link OrIterator}, but tracks the heads of the included iterators in a {@link NestedIteratorTournament}
+ * instead of a sorted multimap. Finding the lowest head is constant time and advancing an iterator replays a single path of the tree, without allocating map
+ * entries or transformed keys, which pays off for the wide unions created by regex and range expansions. Excluded iterators are still handled by the
+ * {@link NegationFilter}.
+ *
+ * @param <T>
+ */
+public class TournamentOrIterator<T extends Comparable<T>> implements NestedIterator<T> {
+    // temporary stores of uninitialized streams of iterators
+    private List<NestedIterator<T>> includes, excludes;
+    
+    private Util.Transformer<T> transformer;
+    
+    private NestedIteratorTournament<T> includeHeads;
+    private TreeMultimap<T,NestedIterator<T>> excludeHeads;
+    
+    private T prev;
+    private T next;
+    
+    private Document prevDocument, document;
+    
+    public TournamentOrIterator(Iterable<NestedIterator<T>> sources, boolean sortedUIDs) {
+        this(sources, null, sortedUIDs);
+    }
+    
+    public TournamentOrIterator(Iterable<NestedIterator<T>> sources, Iterable<NestedIterator<T>> filters, boolean sortedUIDs) {
+        includes = new ArrayList<>();
+        for (NestedIterator<T> src : sources) {
+            includes.add(src);
+        }
+        
+        if (filters == null) {
+            excludes = Collections.emptyList();
+        } else {
+            excludes = new LinkedList<>();
+            for (NestedIterator<T> filter : filters) {
+                excludes.add(filter);
+            }
+        }
+        if (!excludes.isEmpty() && !sortedUIDs) {
+            throw new UnsupportedOperationException("Cannot apply filters if sortedUIDs is false");
+        }
+    }
+    
+    public void initialize() {
+        transformer = Util.keyTransformer();
+        
+        includeHeads = new NestedIteratorTournament<>(includes);
+        for (int i = 0; i < includeHeads.size(); i++) {
+            NestedIterator<T> src = includeHeads.iterator(i);
+            src.initialize();
+            includeHeads.init(i, src.hasNext() ? src.next() : null);
+        }
+        includeHeads.rebuild();
+        
+        if (excludes.isEmpty()) {
+            excludeHeads = Util.getEmpty();
+        } else {
+            Comparator<T> keyComp = Util.keyComparator();
+            Comparator<NestedIterator<T>> itrComp = Util.nestedIteratorComparator();
+            excludeHeads = TreeMultimap.create(keyComp, itrComp);
+            for (NestedIterator<T> src : excludes) {
+                src.initialize();
+                if (src.hasNext()) {
+                    excludeHeads.put(transformer.transform(src.next()), src);
+                }
+            }
+        }
+        
+        next();
+    }
+    
+    public boolean hasNext() {
+        if (null == includeHeads) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        return next != null;
+    }
+    
+    /**
+     * return the previously found next and set its document. If there are more heads, get the lowest that is not filtered, advancing all iterators tied to
+     * lowest and set next/document for the next call
+     *
+     * @return the previously found next
+     */
+    public T next() {
+        prev = next;
+        prevDocument = document;
+        
+        while (!includeHeads.isEmpty()) {
+            T lowest = includeHeads.topHead();
+            if (excludes.isEmpty() || !NegationFilter.isFiltered(transformer.transform(lowest), excludeHeads, transformer)) {
+                next = lowest;
+                document = advanceIterators(lowest, true);
+                break;
+            } else {
+                advanceIterators(lowest, false);
+            }
+        }
+        
+        // the loop couldn't find a new next, so set next to null because we're done after this
+        if (prev == next) {
+            next = null;
+        }
+        
+        return prev;
+    }
+    
+    /**
+     * Test all layers of cache for the minimum, then if necessary advance heads
+     *
+     * @param minimum
+     *            the minimum to return
+     * @return the first greater than or equal to minimum or null if none exists
+     * @throws IllegalStateException
+     *             if prev is greater than or equal to minimum
+     */
+    public T move(T minimum) {
+        if (null == includeHeads) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        
+        // test preconditions
+        if (prev != null && prev.compareTo(minimum) >= 0) {
+            throw new IllegalStateException("Tried to call move when already at or beyond move point: topkey=" + prev + ", movekey=" + minimum);
+        }
+        
+        // test if the cached next is already beyond the minimum
+        if (next != null && next.compareTo(minimum) >= 0) {
+            // simply advance to next
+            return next();
+        }
+        
+        // move each iterator that is under the threshold into the target range before recalculating the next
+        int index;
+        while ((index = includeHeads.top()) >= 0 && includeHeads.compare(includeHeads.head(index), minimum) < 0) {
+            includeHeads.set(index, includeHeads.iterator(index).move(minimum));
+        }
+        
+        // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
+        next();
+        
+        // now as long as the newly computed next exists return it and advance
+        if (hasNext()) {
+            return next();
+        } else {
+            includeHeads.clear();
+            return null;
+        }
+    }
+    
+    /**
+     * Advances all iterators whose head matches the supplied key, optionally merging their documents first. Exhausted iterators drop out of the tournament.
+     *
+     * @param key
+     * @param buildDocument
+     * @return the merged document of the advanced iterators, or null if not building a document
+     */
+    private Document advanceIterators(T key, boolean buildDocument) {
+        Document d = buildDocument ? new Document() : null;
+        int index;
+        while ((index = includeHeads.top()) >= 0 && includeHeads.compare(includeHeads.head(index), key) == 0) {
+            NestedIterator<T> itr = includeHeads.iterator(index);
+            if (d != null) {
+                d.putAll(itr.document().getDictionary().entrySet().iterator(), false);
+            }
+            includeHeads.set(index, itr.hasNext() ? itr.next() : null);
+        }
+        return d;
+    }
+    
+    public Collection<NestedIterator<T>> leaves() {
+        LinkedList<NestedIterator<T>> leaves = new LinkedList<>();
+        for (NestedIterator<T> itr : includes) {
+            leaves.addAll(itr.leaves());
+        }
+        for (NestedIterator<T> itr : excludes) {
+            leaves.addAll(itr.leaves());
+        }
+        return leaves;
+    }
+    
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    public Document document() {
+        return prevDocument;
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> children() {
+        ArrayList<NestedIterator<T>> children = new ArrayList<>(includes.size() + excludes.size());
+        
+        children.addAll(includes);
+        children.addAll(excludes);
+        
+        return children;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("OrIterator: ");
+        
+        sb.append("Includes: ");
+        sb.append(includes);
+        sb.append(", Excludes: ");
+        sb.append(excludes);
+        
+        return sb.toString();
+    }
+}
@@ -16,15 +16,29 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public abstract class DatawaveArithmetic extends JexlArithmetic {
     private static final String LESS_THAN = "<", GREATER_THAN = ">", LESS_THAN_OR_EQUAL = "<=", GREATER_THAN_OR_EQUAL = ">=";
     
     private static final Logger log = Logger.getLogger(DatawaveArithmetic.class);
     
+    /**
+     * The maximum number of regex matchers retained by a single arithmetic
+     */
+    private static final int MAX_QUERY_MATCHERS = 256;
+    
+    /**
+     * Matchers for the regexes evaluated by this arithmetic, which is scoped to a query, consulted before the shared {@link JexlPatternCache}
+     */
+    private final Map<String,JexlRegexMatcher> regexMatchers = new ConcurrentHashMap<>();
+    
     /**
      * Default to being lenient so we don't have to add "null" for every field in the query that doesn't exist in the document
      */
@@ -236,6 +250,50 @@ public abstract class DatawaveArithmetic extends JexlArithmetic {
         return null;
     }
     
+    /**
+     * Get the matchers for the right hand side of a regex operator
+     * 
+     * @param right
+     *            a regex, {@link Pattern}, {@link JexlRegexMatcher} or a set of them
+     * @return the matchers
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<JexlRegexMatcher> getRegexMatchers(Object right) {
+        if (right instanceof Set) {
+            Set<JexlRegexMatcher> matchers = new HashSet<>();
+            for (Object r : (Set<Object>) right) {
+                matchers.add(getRegexMatcher(r));
+            }
+            return matchers;
+        }
+        return Collections.singleton(getRegexMatcher(right));
+    }
+    
+    /**
+     * Get the matcher for a regex, {@link Pattern} or {@link JexlRegexMatcher}
+     * 
+     * @param regex
+     *            the regex
+     * @return the matcher
+     */
+    protected JexlRegexMatcher getRegexMatcher(Object regex) {
+        if (regex instanceof JexlRegexMatcher) {
+            return (JexlRegexMatcher) regex;
+        } else if (regex instanceof Pattern) {
+            return JexlPatternCache.getMatcher((Pattern) regex);
+        }
+        
+        String value = regex.toString();
+        JexlRegexMatcher matcher = regexMatchers.get(value);
+        if (matcher == null) {
+            matcher = JexlPatternCache.getMatcher(value);
+            if (regexMatchers.size() < MAX_QUERY_MATCHERS) {
+                regexMatchers.put(value, matcher);
+            }
+        }
+        return matcher;
+    }
+    
     protected void addAll(Collection<Object> set, Object o) {
         if (o instanceof Collection) {
             set.addAll((Collection<?>) o);
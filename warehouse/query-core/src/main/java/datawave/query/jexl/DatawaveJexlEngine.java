@@ -37,4 +37,16 @@ public class DatawaveJexlEngine extends JexlEngine {
     public ASTJexlScript parse(CharSequence expression) {
         return super.parse(expression, null, null);
     }
+    
+    /**
+     * Creates an interpreter with this engine's strict and silent settings. This allows portions of a parsed script to be evaluated directly against a
+     * context, which is required by the compiled evaluation when it falls back to interpretation.
+     * 
+     * @param context
+     *            the context to evaluate against
+     * @return a new interpreter
+     */
+    public DatawaveInterpreter createDatawaveInterpreter(JexlContext context) {
+        return (DatawaveInterpreter) createInterpreter(context, isStrict(), isSilent());
+    }
 }
@@ -13,7 +13,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 public class DefaultArithmetic extends DatawaveArithmetic {
     
@@ -61,25 +60,11 @@ public class DefaultArithmetic extends DatawaveArithmetic {
             elements = Collections.singleton(left);
         }
         
-        Set<Pattern> patterns;
-        if (right instanceof Pattern) {
-            patterns = Collections.singleton((Pattern) right);
-        } else if (right instanceof Set) {
-            patterns = new HashSet<>();
-            for (Object r : (Set<Object>) right) {
-                if (r instanceof Pattern) {
-                    patterns.add((Pattern) r);
-                } else {
-                    patterns.add(JexlPatternCache.getPattern(r.toString()));
-                }
-            }
-        } else {
-            patterns = Collections.singleton(JexlPatternCache.getPattern(right.toString()));
-        }
+        Set<JexlRegexMatcher> matchers = getRegexMatchers(right);
         
         for (Object o : elements) {
-            for (Pattern p : patterns) {
-                if (p.matcher(o.toString()).matches()) {
+            for (JexlRegexMatcher m : matchers) {
+                if (m.matches(o.toString())) {
                     return true;
                 }
             }
@@ -4,7 +4,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Attributes;
@@ -91,29 +90,15 @@ public class HitListArithmetic extends DatawaveArithmetic implements StatefulAri
             elements = Collections.singleton(left);
         }
         
-        Set<Pattern> patterns;
-        if (right instanceof Pattern) {
-            patterns = Collections.singleton((Pattern) right);
-        } else if (right instanceof Set) {
-            patterns = new HashSet<>();
-            for (Object r : (Set<Object>) right) {
-                if (r instanceof Pattern) {
-                    patterns.add((Pattern) r);
-                } else {
-                    patterns.add(JexlPatternCache.getPattern(r.toString()));
-                }
-            }
-        } else {
-            patterns = Collections.singleton(JexlPatternCache.getPattern(right.toString()));
-        }
+        Set<JexlRegexMatcher> matchers = getRegexMatchers(right);
         
         boolean matches = false;
         for (final Object o : elements) {
             // normalize the element
             Object normalizedO = ValueTuple.getNormalizedValue(o);
             
-            for (Pattern p : patterns) {
-                if (p.matcher(normalizedO.toString()).matches()) {
+            for (JexlRegexMatcher m : matchers) {
+                if (m.matches(normalizedO.toString())) {
                     this.hitSet.add(ValueTuple.toValueTuple(o));
                     if (!exhaustiveHits) {
                         return true;
@@ -6,27 +6,60 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
 /**
- * 
+ * Shares compiled regexes between the queries running in a tablet server. Each entry holds the {@link Pattern} along with a {@link JexlRegexMatcher}, which
+ * evaluates the regex with an automaton when possible.
+ * <p>
+ * The cache is bounded and split into segments so that concurrent evaluation threads do not contend on a single lock.
  */
 public class JexlPatternCache {
     
-    private static Cache<String,Pattern> PATTERN_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100).concurrencyLevel(10).build();
+    private static final int CONCURRENCY_LEVEL = Math.max(10, Runtime.getRuntime().availableProcessors());
+    
+    private static Cache<String,JexlRegexMatcher> MATCHER_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100)
+                    .concurrencyLevel(CONCURRENCY_LEVEL).build();
     
     /**
      * Returns a cached Pattern
-     * 
+     *
      * @param regex
      * @return
      */
     public static Pattern getPattern(String regex) {
-        Pattern pattern = PATTERN_CACHE.getIfPresent(regex);
-        if (null != pattern) {
-            return pattern;
+        return getMatcher(regex).getPattern();
+    }
+    
+    /**
+     * Returns a cached matcher for a regex
+     *
+     * @param regex
+     *            the regex
+     * @return the matcher
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the regex is invalid
+     */
+    public static JexlRegexMatcher getMatcher(String regex) {
+        JexlRegexMatcher matcher = MATCHER_CACHE.getIfPresent(regex);
+        if (null != matcher) {
+            return matcher;
         }
         
-        pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-        PATTERN_CACHE.put(regex, pattern);
+        matcher = JexlRegexMatcher.compile(regex);
+        MATCHER_CACHE.put(regex, matcher);
         
-        return pattern;
+        return matcher;
+    }
+    
+    /**
+     * Returns a matcher for a compiled pattern. Patterns compiled with the flags used by this cache share the cached matcher.
+     *
+     * @param pattern
+     *            the pattern
+     * @return the matcher
+     */
+    public static JexlRegexMatcher getMatcher(Pattern pattern) {
+        if (pattern.flags() == JexlRegexMatcher.DEFAULT_FLAGS) {
+            return getMatcher(pattern.pattern());
+        }
+        return JexlRegexMatcher.create(pattern);
     }
 }
@@ -0,0 +1,259 @@
+package datawave.query.jexl;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.TooComplexToDeterminizeException;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a regex against attribute values with the semantics of {@link Pattern#matcher(CharSequence)} and {@link java.util.regex.Matcher#matches()}.
+ * <p>
+ * Regexes which only use constructs that do not require backtracking are compiled into a deterministic automaton, and regexes without any operators are
+ * compared directly. Any literal prefix or suffix of the regex is checked before the full match so that most non matching values are rejected without
+ * scanning the value. Everything else is evaluated with the {@link Pattern}.
+ */
+public abstract class JexlRegexMatcher {
+    
+    private static final Logger log = Logger.getLogger(JexlRegexMatcher.class);
+    
+    /**
+     * The flags used for every pattern compiled by the {@link JexlPatternCache}
+     */
+    public static final int DEFAULT_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+    
+    /**
+     * The maximum number of automaton states for a regex before falling back to the pattern
+     */
+    public static final int MAX_DETERMINIZED_STATES = 2000;
+    
+    protected final Pattern pattern;
+    private final String prefix;
+    private final String suffix;
+    
+    protected JexlRegexMatcher(Pattern pattern, String prefix, String suffix) {
+        this.pattern = pattern;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+    
+    /**
+     * Create a matcher for a regex, compiling it with the {@link #DEFAULT_FLAGS}
+     *
+     * @param regex
+     *            the regex
+     * @return the matcher
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the regex is invalid
+     */
+    public static JexlRegexMatcher compile(String regex) {
+        return create(Pattern.compile(regex, DEFAULT_FLAGS));
+    }
+    
+    /**
+     * Create a matcher for a compiled pattern. Only patterns compiled with the {@link #DEFAULT_FLAGS} are considered for automaton evaluation.
+     *
+     * @param pattern
+     *            the pattern
+     * @return the matcher
+     */
+    public static JexlRegexMatcher create(Pattern pattern) {
+        if (pattern.flags() != DEFAULT_FLAGS) {
+            return new PatternMatcher(pattern, null, null);
+        }
+        
+        JexlRegexParser.Node node;
+        try {
+            node = JexlRegexParser.parse(pattern.pattern());
+        } catch (JexlRegexParser.UnsupportedRegexException e) {
+            if (log.isTraceEnabled()) {
+                log.trace("Evaluating " + pattern.pattern() + " with a pattern: " + e.getMessage());
+            }
+            return new PatternMatcher(pattern, null, null);
+        }
+        
+        String literal = getLiteral(node);
+        if (literal != null) {
+            return new LiteralMatcher(pattern, literal);
+        }
+        
+        String prefix = getPrefix(node);
+        String suffix = getSuffix(node);
+        try {
+            Automaton automaton = Operations.determinize(node.toAutomaton(), MAX_DETERMINIZED_STATES);
+            return new AutomatonMatcher(pattern, prefix, suffix, new CharacterRunAutomaton(automaton, MAX_DETERMINIZED_STATES));
+        } catch (TooComplexToDeterminizeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Evaluating " + pattern.pattern() + " with a pattern, the automaton is too complex");
+            }
+            return new PatternMatcher(pattern, prefix, suffix);
+        }
+    }
+    
+    /**
+     * @return the literal matched by the node if it contains no operators, otherwise null
+     */
+    private static String getLiteral(JexlRegexParser.Node node) {
+        if (node instanceof JexlRegexParser.Literal) {
+            return new String(Character.toChars(((JexlRegexParser.Literal) node).codePoint));
+        } else if (node instanceof JexlRegexParser.Concatenation) {
+            StringBuilder builder = new StringBuilder();
+            for (JexlRegexParser.Node child : ((JexlRegexParser.Concatenation) node).nodes) {
+                if (!(child instanceof JexlRegexParser.Literal)) {
+                    return null;
+                }
+                builder.appendCodePoint(((JexlRegexParser.Literal) child).codePoint);
+            }
+            return builder.toString();
+        }
+        return null;
+    }
+    
+    private static String getPrefix(JexlRegexParser.Node node) {
+        if (!(node instanceof JexlRegexParser.Concatenation)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (JexlRegexParser.Node child : ((JexlRegexParser.Concatenation) node).nodes) {
+            if (!(child instanceof JexlRegexParser.Literal)) {
+                break;
+            }
+            builder.appendCodePoint(((JexlRegexParser.Literal) child).codePoint);
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+    
+    private static String getSuffix(JexlRegexParser.Node node) {
+        if (!(node instanceof JexlRegexParser.Concatenation)) {
+            return null;
+        }
+        List<JexlRegexParser.Node> nodes = ((JexlRegexParser.Concatenation) node).nodes;
+        int start = nodes.size();
+        while (start > 0 && nodes.get(start - 1) instanceof JexlRegexParser.Literal) {
+            start--;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = start; i < nodes.size(); i++) {
+            builder.appendCodePoint(((JexlRegexParser.Literal) nodes.get(i)).codePoint);
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+    
+    /**
+     * Determine whether the entire value matches the regex
+     *
+     * @param value
+     *            the value
+     * @return true if the value matches
+     */
+    public boolean matches(CharSequence value) {
+        if (prefix != null && !regionMatches(value, 0, prefix)) {
+            return false;
+        }
+        if (suffix != null && !regionMatches(value, value.length() - suffix.length(), suffix)) {
+            return false;
+        }
+        return matchesValue(value);
+    }
+    
+    protected abstract boolean matchesValue(CharSequence value);
+    
+    /**
+     * Compare a region of the value to a literal using the case insensitive matching of a pattern without {@link Pattern#UNICODE_CASE}, which only folds ascii
+     * letters
+     */
+    static boolean regionMatches(CharSequence value, int offset, String literal) {
+        if (offset < 0 || offset + literal.length() > value.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            char expected = literal.charAt(i);
+            char actual = value.charAt(offset + i);
+            if (expected != actual && (expected > 127 || JexlRegexParser.Literal.fold(expected) != actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return the compiled pattern for the regex
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+    
+    /**
+     * @return the regex
+     */
+    public String getRegex() {
+        return pattern.pattern();
+    }
+    
+    /**
+     * @return true if this regex is evaluated without the pattern
+     */
+    public abstract boolean isCompiled();
+    
+    @Override
+    public String toString() {
+        return pattern.pattern();
+    }
+    
+    private static class LiteralMatcher extends JexlRegexMatcher {
+        private final String literal;
+        
+        LiteralMatcher(Pattern pattern, String literal) {
+            super(pattern, null, null);
+            this.literal = literal;
+        }
+        
+        @Override
+        protected boolean matchesValue(CharSequence value) {
+            return value.length() == literal.length() && regionMatches(value, 0, literal);
+        }
+        
+        @Override
+        public boolean isCompiled() {
+            return true;
+        }
+    }
+    
+    private static class AutomatonMatcher extends JexlRegexMatcher {
+        private final CharacterRunAutomaton automaton;
+        
+        AutomatonMatcher(Pattern pattern, String prefix, String suffix, CharacterRunAutomaton automaton) {
+            super(pattern, prefix, suffix);
+            this.automaton = automaton;
+        }
+        
+        @Override
+        protected boolean matchesValue(CharSequence value) {
+            return automaton.run(value.toString());
+        }
+        
+        @Override
+        public boolean isCompiled() {
+            return true;
+        }
+    }
+    
+    private static class PatternMatcher extends JexlRegexMatcher {
+        PatternMatcher(Pattern pattern, String prefix, String suffix) {
+            super(pattern, prefix, suffix);
+        }
+        
+        @Override
+        protected boolean matchesValue(CharSequence value) {
+            return pattern.matcher(value).matches();
+        }
+        
+        @Override
+        public boolean isCompiled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package datawave.query.jexl;
+
+import org.apache.lucene.util.automaton.Automata;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.Operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses the subset of {@link java.util.regex.Pattern} syntax that can be evaluated without backtracking: literals, character classes, the predefined
+ * {@code \d \w \s} classes, {@code .}, groups, alternation and greedy or reluctant quantifiers. The parsed expression can be converted into an {@link Automaton}
+ * and exposes any literal prefix and suffix that every match must have.
+ * <p>
+ * The semantics are those of a pattern compiled with {@link java.util.regex.Pattern#CASE_INSENSITIVE} and {@link java.util.regex.Pattern#MULTILINE} and
+ * evaluated with {@link java.util.regex.Matcher#matches()}, which is how the {@link JexlPatternCache} compiles patterns. Anything else, such as inline flags,
+ * back references, look arounds, boundaries and unicode properties, is reported as unsupported so that the caller can fall back to the pattern.
+ */
+class JexlRegexParser {
+    
+    /**
+     * Thrown when a regex uses a construct that is not supported by this parser
+     */
+    static class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        UnsupportedRegexException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * Quantifier bounds beyond this are not expanded into an automaton
+     */
+    static final int MAX_REPEAT = 100;
+    
+    // the characters not matched by '.' when DOTALL and UNIX_LINES are not set
+    private static final int[][] DOT_EXCLUSIONS = { {'\n', '\n'}, {'\r', '\r'}, {'\u0085', '\u0085'}, {'\u2028', '\u2029'}};
+    private static final int[][] DIGIT = { {'0', '9'}};
+    private static final int[][] WORD = { {'0', '9'}, {'A', 'Z'}, {'_', '_'}, {'a', 'z'}};
+    private static final int[][] SPACE = { {'\t', '\r'}, {' ', ' '}};
+    
+    private final String regex;
+    private int pos;
+    
+    private JexlRegexParser(String regex) {
+        this.regex = regex;
+    }
+    
+    /**
+     * Parse a regex which has already been validated by compiling it into a {@link java.util.regex.Pattern}
+     *
+     * @param regex
+     *            the regex
+     * @return the parsed expression
+     * @throws UnsupportedRegexException
+     *             if the regex uses a construct which is not supported
+     */
+    static Node parse(String regex) throws UnsupportedRegexException {
+        JexlRegexParser parser = new JexlRegexParser(regex);
+        if (parser.peek('^')) {
+            // a leading anchor always matches at the start of a full match
+            parser.pos++;
+        }
+        Node node = parser.parseAlternation();
+        if (parser.pos < regex.length()) {
+            if (parser.peek('$') && parser.pos == regex.length() - 1) {
+                // a trailing anchor always matches at the end of a full match
+                parser.pos++;
+            } else {
+                throw new UnsupportedRegexException("Unexpected character at " + parser.pos);
+            }
+        }
+        return node;
+    }
+    
+    private boolean peek(char c) {
+        return pos < regex.length() && regex.charAt(pos) == c;
+    }
+    
+    private boolean atEnd() {
+        return pos >= regex.length();
+    }
+    
+    private int next() throws UnsupportedRegexException {
+        if (atEnd()) {
+            throw new UnsupportedRegexException("Unexpected end of regex");
+        }
+        int c = regex.codePointAt(pos);
+        pos += Character.charCount(c);
+        return c;
+    }
+    
+    private Node parseAlternation() throws UnsupportedRegexException {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcatenation());
+        while (peek('|')) {
+            pos++;
+            alternatives.add(parseConcatenation());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+    
+    private Node parseConcatenation() throws UnsupportedRegexException {
+        List<Node> nodes = new ArrayList<>();
+        while (!atEnd() && !peek('|') && !peek(')')) {
+            if (peek('$') && pos == regex.length() - 1) {
+                break;
+            }
+            nodes.add(parseRepetition());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Concatenation(nodes);
+    }
+    
+    private Node parseRepetition() throws UnsupportedRegexException {
+        Node node = parseAtom();
+        if (atEnd()) {
+            return node;
+        }
+        
+        int min;
+        int max;
+        char c = regex.charAt(pos);
+        if (c == '*') {
+            pos++;
+            min = 0;
+            max = -1;
+        } else if (c == '+') {
+            pos++;
+            min = 1;
+            max = -1;
+        } else if (c == '?') {
+            pos++;
+            min = 0;
+            max = 1;
+        } else if (c == '{') {
+            pos++;
+            min = parseNumber();
+            max = min;
+            if (peek(',')) {
+                pos++;
+                max = peek('}') ? -1 : parseNumber();
+            }
+            if (!peek('}')) {
+                throw new UnsupportedRegexException("Invalid repetition at " + pos);
+            }
+            pos++;
+            if (min > MAX_REPEAT || max > MAX_REPEAT) {
+                throw new UnsupportedRegexException("Repetition is too large");
+            }
+        } else {
+            return node;
+        }
+        
+        if (peek('?')) {
+            // reluctant quantifiers accept the same strings when the entire value has to match
+            pos++;
+        } else if (peek('+')) {
+            throw new UnsupportedRegexException("Possessive quantifiers are not supported");
+        }
+        if (!atEnd() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+            throw new UnsupportedRegexException("Nested quantifiers are not supported");
+        }
+        return new Repetition(node, min, max);
+    }
+    
+    private int parseNumber() throws UnsupportedRegexException {
+        int start = pos;
+        while (!atEnd() && Character.isDigit(regex.charAt(pos)) && pos - start < 9) {
+            pos++;
+        }
+        if (start == pos) {
+            throw new UnsupportedRegexException("Expected a number at " + pos);
+        }
+        return Integer.parseInt(regex.substring(start, pos));
+    }
+    
+    private Node parseAtom() throws UnsupportedRegexException {
+        int c = next();
+        switch (c) {
+            case '(':
+                if (peek('?')) {
+                    pos++;
+                    if (!peek(':')) {
+                        throw new UnsupportedRegexException("Only non capturing groups are supported");
+                    }
+                    pos++;
+                }
+                Node group = parseAlternation();
+                if (!peek(')')) {
+                    throw new UnsupportedRegexException("Unclosed group");
+                }
+                pos++;
+                return group;
+            case '[':
+                return parseCharacterClass();
+            case '.':
+                return new CharacterClass(DOT_EXCLUSIONS, true);
+            case '\\':
+                return parseEscape(false);
+            case '^':
+            case '$':
+                throw new UnsupportedRegexException("Anchors are only supported at the start or end of the regex");
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new UnsupportedRegexException("Dangling quantifier at " + pos);
+            default:
+                return new Literal(c);
+        }
+    }
+    
+    /**
+     * Parse the escape following a backslash
+     */
+    private Node parseEscape(boolean inClass) throws UnsupportedRegexException {
+        int c = next();
+        switch (c) {
+            case 'd':
+                return new CharacterClass(DIGIT, false);
+            case 'D':
+                return negatedEscape(DIGIT, inClass);
+            case 'w':
+                return new CharacterClass(WORD, false);
+            case 'W':
+                return negatedEscape(WORD, inClass);
+            case 's':
+                return new CharacterClass(SPACE, false);
+            case 'S':
+                return negatedEscape(SPACE, inClass);
+            case 't':
+                return new Literal('\t');
+            case 'n':
+                return new Literal('\n');
+            case 'r':
+                return new Literal('\r');
+            case 'f':
+                return new Literal('\f');
+            default:
+                if (c < 128 && !Character.isLetterOrDigit(c)) {
+                    return new Literal(c);
+                }
+                throw new UnsupportedRegexException("Unsupported escape \\" + new String(Character.toChars(c)));
+        }
+    }
+    
+    private Node negatedEscape(int[][] ranges, boolean inClass) throws UnsupportedRegexException {
+        if (inClass) {
+            throw new UnsupportedRegexException("Negated predefined classes are not supported within a character class");
+        }
+        return new CharacterClass(ranges, true);
+    }
+    
+    private Node parseCharacterClass() throws UnsupportedRegexException {
+        boolean negated = false;
+        if (peek('^')) {
+            pos++;
+            negated = true;
+        }
+        if (peek(']')) {
+            throw new UnsupportedRegexException("Empty character classes are not supported");
+        }
+        
+        List<int[]> ranges = new ArrayList<>();
+        while (!peek(']')) {
+            if (peek('[') || regex.startsWith("&&", pos)) {
+                throw new UnsupportedRegexException("Nested character classes are not supported");
+            }
+            int start = pos;
+            int lower = parseClassCharacter(ranges);
+            if (lower < 0) {
+                continue;
+            }
+            if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                if (peek('[')) {
+                    throw new UnsupportedRegexException("Nested character classes are not supported");
+                }
+                int upper = parseClassCharacter(null);
+                if (upper < lower) {
+                    throw new UnsupportedRegexException("Invalid range at " + start);
+                }
+                ranges.add(new int[] {lower, upper});
+            } else {
+                ranges.add(new int[] {lower, lower});
+            }
+        }
+        pos++;
+        
+        // only ascii letters are case folded when UNICODE_CASE is not set
+        List<int[]> folded = new ArrayList<>(ranges);
+        for (int[] range : ranges) {
+            addFolded(folded, range, 'a', 'z', 'A' - 'a');
+            addFolded(folded, range, 'A', 'Z', 'a' - 'A');
+        }
+        return new CharacterClass(folded.toArray(new int[folded.size()][]), negated);
+    }
+    
+    private static void addFolded(List<int[]> ranges, int[] range, int lower, int upper, int offset) {
+        int start = Math.max(range[0], lower);
+        int end = Math.min(range[1], upper);
+        if (start <= end) {
+            ranges.add(new int[] {start + offset, end + offset});
+        }
+    }
+    
+    /**
+     * Parse a single character within a character class
+     *
+     * @param ranges
+     *            where a predefined class is added, or null if a predefined class is not allowed at this position
+     * @return the character, or -1 if a predefined class was added to the ranges
+     */
+    private int parseClassCharacter(List<int[]> ranges) throws UnsupportedRegexException {
+        int c = next();
+        if (c != '\\') {
+            return c;
+        }
+        Node escape = parseEscape(true);
+        if (escape instanceof Literal) {
+            return ((Literal) escape).codePoint;
+        }
+        if (ranges == null) {
+            throw new UnsupportedRegexException("Invalid range at " + pos);
+        }
+        Collections.addAll(ranges, ((CharacterClass) escape).ranges);
+        return -1;
+    }
+    
+    /**
+     * A node of a parsed regex
+     */
+    abstract static class Node {
+        /**
+         * @return a nondeterministic automaton accepting the strings matched by this node
+         */
+        abstract Automaton toAutomaton();
+    }
+    
+    static class Literal extends Node {
+        final int codePoint;
+        
+        Literal(int codePoint) {
+            this.codePoint = codePoint;
+        }
+        
+        @Override
+        Automaton toAutomaton() {
+            int folded = fold(codePoint);
+            if (folded == codePoint) {
+                return Automata.makeChar(codePoint);
+            }
+            return Operations.union(Automata.makeChar(codePoint), Automata.makeChar(folded));
+        }
+        
+        /**
+         * @return the other case of an ascii letter, otherwise the code point itself
+         */
+        static int fold(int c) {
+            if (c >= 'a' && c <= 'z') {
+                return c - ('a' - 'A');
+            } else if (c >= 'A' && c <= 'Z') {
+                return c + ('a' - 'A');
+            }
+            return c;
+        }
+    }
+    
+    static class CharacterClass extends Node {
+        final int[][] ranges;
+        final boolean negated;
+        
+        CharacterClass(int[][] ranges, boolean negated) {
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+        
+        @Override
+        Automaton toAutomaton() {
+            int[][] sorted = ranges.clone();
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a[0], b[0]));
+            
+            // merge overlapping ranges
+            List<int[]> merged = new ArrayList<>();
+            for (int[] range : sorted) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(new int[] {range[0], range[1]});
+                }
+            }
+            
+            if (negated) {
+                List<int[]> complement = new ArrayList<>();
+                int next = 0;
+                for (int[] range : merged) {
+                    if (range[0] > next) {
+                        complement.add(new int[] {next, range[0] - 1});
+                    }
+                    next = range[1] + 1;
+                }
+                if (next <= Character.MAX_CODE_POINT) {
+                    complement.add(new int[] {next, Character.MAX_CODE_POINT});
+                }
+                merged = complement;
+            }
+            
+            if (merged.isEmpty()) {
+                return Automata.makeEmpty();
+            }
+            List<Automaton> automata = new ArrayList<>(merged.size());
+            for (int[] range : merged) {
+                automata.add(Automata.makeCharRange(range[0], range[1]));
+            }
+            return automata.size() == 1 ? automata.get(0) : Operations.union(automata);
+        }
+    }
+    
+    static class Concatenation extends Node {
+        final List<Node> nodes;
+        
+        Concatenation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+        
+        @Override
+        Automaton toAutomaton() {
+            if (nodes.isEmpty()) {
+                return Automata.makeEmptyString();
+            }
+            List<Automaton> automata = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                automata.add(node.toAutomaton());
+            }
+            return Operations.concatenate(automata);
+        }
+    }
+    
+    static class Alternation extends Node {
+        final List<Node> alternatives;
+        
+        Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+        
+        @Override
+        Automaton toAutomaton() {
+            List<Automaton> automata = new ArrayList<>(alternatives.size());
+            for (Node node : alternatives) {
+                automata.add(node.toAutomaton());
+            }
+            return Operations.union(automata);
+        }
+    }
+    
+    static class Repetition extends Node {
+        final Node node;
+        final int min;
+        final int max;
+        
+        /**
+         * @param max
+         *            the maximum number of repetitions, or -1 if unbounded
+         */
+        Repetition(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+        
+        @Override
+        Automaton toAutomaton() {
+            Automaton automaton = node.toAutomaton();
+            if (max < 0) {
+                return Operations.repeat(automaton, min);
+            } else if (min == 0 && max == 1) {
+                return Operations.optional(automaton);
+            }
+            return Operations.repeat(automaton, min, max);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.collections.FunctionalSet;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import java.util.Collection;
+
+/**
+ * A conjunction. Collections of hits from both sides are merged when both sides matched, the same as in {@link datawave.query.jexl.DatawaveInterpreter}.
+ */
+class AndNode extends CompiledNode {
+    
+    private final CompiledNode left;
+    private final CompiledNode right;
+    
+    AndNode(JexlNode node, CompiledNode left, CompiledNode right) {
+        super(node);
+        this.left = left;
+        this.right = right;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        JexlArithmetic arithmetic = frame.getArithmetic();
+        
+        FunctionalSet leftFunctionalSet = null;
+        FunctionalSet rightFunctionalSet = null;
+        Object leftValue = left.evaluate(frame);
+        if (leftValue == null)
+            leftValue = FunctionalSet.empty();
+        if (!(leftValue instanceof Collection)) {
+            try {
+                if (!arithmetic.toBoolean(leftValue)) {
+                    return Boolean.FALSE;
+                }
+            } catch (RuntimeException xrt) {
+                throw new JexlException(left.getNode(), "boolean coercion error", xrt);
+            }
+        } else {
+            leftFunctionalSet = new FunctionalSet();
+            leftFunctionalSet.addAll((Collection) leftValue);
+        }
+        
+        Object rightValue = right.evaluate(frame);
+        if (rightValue == null)
+            rightValue = FunctionalSet.empty();
+        if (!(rightValue instanceof Collection)) {
+            try {
+                if (!arithmetic.toBoolean(rightValue)) {
+                    return Boolean.FALSE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(right.getNode(), "boolean coercion error", xrt);
+            }
+        } else {
+            rightFunctionalSet = new FunctionalSet();
+            rightFunctionalSet.addAll((Collection) rightValue);
+        }
+        
+        // return union of left and right iff they are both non-empty
+        if (leftFunctionalSet != null && rightFunctionalSet != null) {
+            if (!leftFunctionalSet.isEmpty() && !rightFunctionalSet.isEmpty()) {
+                FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+                functionalSet.addAll(rightFunctionalSet);
+                return functionalSet;
+            } else {
+                return Boolean.FALSE;
+            }
+        } else {
+            return toBoolean(arithmetic, leftValue) && toBoolean(arithmetic, rightValue);
+        }
+    }
+    
+    static boolean toBoolean(JexlArithmetic arithmetic, Object value) {
+        if (value instanceof Collection) {
+            return !((Collection) value).isEmpty();
+        }
+        return arithmetic.toBoolean(value);
+    }
+}
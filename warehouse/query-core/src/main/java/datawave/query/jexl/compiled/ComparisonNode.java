@@ -0,0 +1,59 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * An ordering comparison ({@code <, <=, >, >=})
+ */
+class ComparisonNode extends CompiledNode {
+    
+    enum Operator {
+        LT("<"), LE("<="), GT(">"), GE(">=");
+        
+        private final String symbol;
+        
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+    
+    private final CompiledNode left;
+    private final CompiledNode right;
+    private final Operator operator;
+    
+    ComparisonNode(JexlNode node, CompiledNode left, CompiledNode right, Operator operator) {
+        super(node);
+        this.left = left;
+        this.right = right;
+        this.operator = operator;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object leftValue = left.evaluate(frame);
+        Object rightValue = right.evaluate(frame);
+        JexlArithmetic arithmetic = frame.getArithmetic();
+        try {
+            boolean result;
+            switch (operator) {
+                case LT:
+                    result = arithmetic.lessThan(leftValue, rightValue);
+                    break;
+                case LE:
+                    result = arithmetic.lessThanOrEqual(leftValue, rightValue);
+                    break;
+                case GT:
+                    result = arithmetic.greaterThan(leftValue, rightValue);
+                    break;
+                default:
+                    result = arithmetic.greaterThanOrEqual(leftValue, rightValue);
+                    break;
+            }
+            return result ? Boolean.TRUE : Boolean.FALSE;
+        } catch (ArithmeticException xrt) {
+            throw new JexlException(node, operator.symbol + " error", xrt);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.jexl.DatawaveJexlEngine;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.log4j.Logger;
+
+/**
+ * A query that has been compiled once into a tree of specialized predicates, as an alternative to walking the AST with the
+ * {@link datawave.query.jexl.DatawaveInterpreter} for every document. Field lookups are resolved to slots, literals are converted ahead of time, regex
+ * patterns are compiled once and bounded ranges are bound to their numeric or string comparison.
+ * <p>
+ * Anything that is not compiled is evaluated by the interpreter, so the result of {@link #execute(JexlContext)} is the same as the result of executing the
+ * script through the engine.
+ */
+public class CompiledJexlScript {
+    
+    private static final Logger log = Logger.getLogger(CompiledJexlScript.class);
+    
+    private final DatawaveJexlEngine engine;
+    private final CompiledNode[] statements;
+    private final int numSlots;
+    private final int numCompiled;
+    private final int numInterpreted;
+    
+    private CompiledJexlScript(DatawaveJexlEngine engine, CompiledNode[] statements, int numSlots, int numCompiled, int numInterpreted) {
+        this.engine = engine;
+        this.statements = statements;
+        this.numSlots = numSlots;
+        this.numCompiled = numCompiled;
+        this.numInterpreted = numInterpreted;
+    }
+    
+    /**
+     * Compile a parsed script
+     * 
+     * @param engine
+     *            the engine whose arithmetic and settings are used for evaluation
+     * @param script
+     *            the parsed script
+     * @return the compiled script
+     */
+    public static CompiledJexlScript compile(DatawaveJexlEngine engine, ASTJexlScript script) {
+        JexlNodeCompiler compiler = new JexlNodeCompiler(engine.getArithmetic());
+        CompiledNode[] statements = new CompiledNode[script.jjtGetNumChildren()];
+        for (int i = 0; i < statements.length; i++) {
+            statements[i] = compiler.compile(script.jjtGetChild(i));
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled query with " + compiler.getNumCompiled() + " compiled nodes, " + compiler.getNumInterpreted() + " interpreted nodes and "
+                            + compiler.getNumSlots() + " fields");
+        }
+        return new CompiledJexlScript(engine, statements, compiler.getNumSlots(), compiler.getNumCompiled(), compiler.getNumInterpreted());
+    }
+    
+    /**
+     * Evaluate the compiled script
+     * 
+     * @param context
+     *            the context to evaluate against
+     * @return the result, which can be interpreted using {@link datawave.query.jexl.DatawaveInterpreter#isMatched(Object)}
+     */
+    public Object execute(JexlContext context) {
+        EvaluationFrame frame = new EvaluationFrame(engine, context, numSlots);
+        try {
+            Object result = null;
+            for (CompiledNode statement : statements) {
+                result = statement.evaluate(frame);
+            }
+            return result;
+        } catch (JexlException xjexl) {
+            if (engine.isSilent()) {
+                log.warn(xjexl.getMessage(), xjexl.getCause());
+                return null;
+            }
+            throw xjexl;
+        }
+    }
+    
+    /**
+     * @return the number of nodes which were compiled
+     */
+    public int getNumCompiled() {
+        return numCompiled;
+    }
+    
+    /**
+     * @return the number of subtrees which are evaluated by the interpreter
+     */
+    public int getNumInterpreted() {
+        return numInterpreted;
+    }
+    
+    /**
+     * @return true if no part of the script needs the interpreter
+     */
+    public boolean isFullyCompiled() {
+        return numInterpreted == 0;
+    }
+}
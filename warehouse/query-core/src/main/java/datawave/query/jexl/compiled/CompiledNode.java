@@ -0,0 +1,29 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A node of a compiled query. Each implementation mirrors the result the {@link datawave.query.jexl.DatawaveInterpreter} would produce when visiting the
+ * same portion of the query, including the collections of hits returned by ranges, disjunctions and conjunctions.
+ */
+abstract class CompiledNode {
+    
+    protected final JexlNode node;
+    
+    CompiledNode(JexlNode node) {
+        this.node = node;
+    }
+    
+    abstract Object evaluate(EvaluationFrame frame);
+    
+    /**
+     * @return true if this node delegates to the interpreter
+     */
+    boolean isInterpreted() {
+        return false;
+    }
+    
+    JexlNode getNode() {
+        return node;
+    }
+}
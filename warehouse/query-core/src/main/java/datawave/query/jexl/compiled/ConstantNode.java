@@ -0,0 +1,25 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A literal value, resolved once when the query is compiled
+ */
+class ConstantNode extends CompiledNode {
+    
+    private final Object value;
+    
+    ConstantNode(JexlNode node, Object value) {
+        super(node);
+        this.value = value;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        return value;
+    }
+    
+    Object getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,32 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * An equality ({@code ==}) or inequality ({@code !=}) comparison
+ */
+class EqualityNode extends CompiledNode {
+    
+    private final CompiledNode left;
+    private final CompiledNode right;
+    private final boolean negated;
+    
+    EqualityNode(JexlNode node, CompiledNode left, CompiledNode right, boolean negated) {
+        super(node);
+        this.left = left;
+        this.right = right;
+        this.negated = negated;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object leftValue = left.evaluate(frame);
+        Object rightValue = right.evaluate(frame);
+        try {
+            return (frame.getArithmetic().equals(leftValue, rightValue) != negated) ? Boolean.TRUE : Boolean.FALSE;
+        } catch (ArithmeticException xrt) {
+            throw new JexlException(node, negated ? "!= error" : "== error", xrt);
+        }
+    }
+}
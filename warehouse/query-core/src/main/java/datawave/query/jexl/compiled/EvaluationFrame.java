@@ -0,0 +1,58 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.jexl.DatawaveInterpreter;
+import datawave.query.jexl.DatawaveJexlEngine;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+
+import java.util.Arrays;
+
+/**
+ * The state for a single evaluation of a {@link CompiledJexlScript}. Field values are looked up in the context at most once per evaluation and held in the
+ * slot that was assigned to the field when the script was compiled. An interpreter is only created if the evaluation reaches a portion of the script which
+ * could not be compiled.
+ */
+class EvaluationFrame {
+    
+    private static final Object UNRESOLVED = new Object();
+    
+    private final DatawaveJexlEngine engine;
+    private final JexlContext context;
+    private final Object[] slots;
+    private DatawaveInterpreter interpreter = null;
+    
+    EvaluationFrame(DatawaveJexlEngine engine, JexlContext context, int numSlots) {
+        this.engine = engine;
+        this.context = context;
+        this.slots = new Object[numSlots];
+        Arrays.fill(this.slots, UNRESOLVED);
+    }
+    
+    Object getField(int slot, String name) {
+        Object value = slots[slot];
+        if (value == UNRESOLVED) {
+            value = context.get(name);
+            slots[slot] = value;
+        }
+        return value;
+    }
+    
+    boolean has(String name) {
+        return context.has(name);
+    }
+    
+    boolean isStrict() {
+        return engine.isStrict();
+    }
+    
+    JexlArithmetic getArithmetic() {
+        return engine.getArithmetic();
+    }
+    
+    DatawaveInterpreter getInterpreter() {
+        if (interpreter == null) {
+            interpreter = engine.createDatawaveInterpreter(context);
+        }
+        return interpreter;
+    }
+}
@@ -0,0 +1,44 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A field reference, resolved through the slot assigned to the field name when the query was compiled
+ */
+class FieldNode extends CompiledNode {
+    
+    private final String name;
+    private final int slot;
+    private final boolean checkUnknown;
+    
+    /**
+     * @param node
+     *            the identifier or reference node
+     * @param name
+     *            the field name
+     * @param slot
+     *            the slot for this field within the evaluation frame
+     * @param checkUnknown
+     *            true if a field missing from the context is an error when the engine is strict, as it is for the interpreter when visiting a reference
+     */
+    FieldNode(JexlNode node, String name, int slot, boolean checkUnknown) {
+        super(node);
+        this.name = name;
+        this.slot = slot;
+        this.checkUnknown = checkUnknown;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object value = frame.getField(slot, name);
+        if (value == null && checkUnknown && frame.isStrict() && !frame.has(name)) {
+            throw new JexlException.Variable(node, name);
+        }
+        return value;
+    }
+    
+    String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,24 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A portion of the query which could not be compiled, for example a function or a method call. It is evaluated by the {@link
+ * datawave.query.jexl.DatawaveInterpreter} exactly as it would be if the query was not compiled.
+ */
+class InterpretedNode extends CompiledNode {
+    
+    InterpretedNode(JexlNode node) {
+        super(node);
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        return node.jjtAccept(frame.getInterpreter(), null);
+    }
+    
+    @Override
+    boolean isInterpreted() {
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.HitListArithmetic;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNullLiteral;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Translates a parsed query into a tree of {@link CompiledNode}s. Only the node types that are common in event evaluation are compiled (boolean logic,
+ * comparisons against literals, regexes and bounded ranges). Everything else, notably functions and methods, is left to the interpreter. Node types are
+ * matched exactly so that subclasses with special meaning are always interpreted.
+ */
+class JexlNodeCompiler {
+    
+    private final JexlArithmetic arithmetic;
+    private final Map<String,Integer> slots = new HashMap<>();
+    private int numCompiled = 0;
+    private int numInterpreted = 0;
+    
+    JexlNodeCompiler(JexlArithmetic arithmetic) {
+        this.arithmetic = arithmetic;
+    }
+    
+    CompiledNode compile(JexlNode node) {
+        CompiledNode compiled = compileNode(node);
+        if (compiled.isInterpreted()) {
+            numInterpreted++;
+        } else {
+            numCompiled++;
+        }
+        return compiled;
+    }
+    
+    private CompiledNode compileNode(JexlNode node) {
+        Class<?> clazz = node.getClass();
+        int numChildren = node.jjtGetNumChildren();
+        
+        if (clazz == ASTReference.class) {
+            if (numChildren == 1 && !ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+                JexlNode child = node.jjtGetChild(0);
+                if (child.getClass() == ASTIdentifier.class) {
+                    return field(node, child.image, true);
+                } else if (child.getClass() == ASTReferenceExpression.class || child.getClass() == ASTStringLiteral.class) {
+                    return compile(child);
+                }
+            }
+        } else if (clazz == ASTReferenceExpression.class) {
+            if (numChildren == 1) {
+                return compile(node.jjtGetChild(0));
+            }
+        } else if (clazz == ASTIdentifier.class) {
+            return field(node, node.image, !(node.jjtGetParent() instanceof ASTReference));
+        } else if (clazz == ASTStringLiteral.class) {
+            return new ConstantNode(node, node.image);
+        } else if (clazz == ASTNumberLiteral.class) {
+            return new ConstantNode(node, ((ASTNumberLiteral) node).getLiteral());
+        } else if (clazz == ASTTrueNode.class) {
+            return new ConstantNode(node, Boolean.TRUE);
+        } else if (clazz == ASTFalseNode.class) {
+            return new ConstantNode(node, Boolean.FALSE);
+        } else if (clazz == ASTNullLiteral.class) {
+            return new ConstantNode(node, null);
+        } else if (numChildren == 2 && (clazz == ASTEQNode.class || clazz == ASTNENode.class)) {
+            return new EqualityNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)), clazz == ASTNENode.class);
+        } else if (numChildren == 2 && clazz == ASTLTNode.class) {
+            return new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)), ComparisonNode.Operator.LT);
+        } else if (numChildren == 2 && clazz == ASTLENode.class) {
+            return new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)), ComparisonNode.Operator.LE);
+        } else if (numChildren == 2 && clazz == ASTGTNode.class) {
+            return new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)), ComparisonNode.Operator.GT);
+        } else if (numChildren == 2 && clazz == ASTGENode.class) {
+            return new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)), ComparisonNode.Operator.GE);
+        } else if (numChildren == 2 && (clazz == ASTERNode.class || clazz == ASTNRNode.class)) {
+            CompiledNode regex = compileRegex(node, clazz == ASTNRNode.class);
+            if (regex != null) {
+                return regex;
+            }
+        } else if (numChildren == 1 && clazz == ASTNotNode.class) {
+            return new NotNode(node, compile(node.jjtGetChild(0)));
+        } else if (numChildren == 2 && clazz == ASTAndNode.class) {
+            return compileAnd(node);
+        } else if (clazz == ASTOrNode.class) {
+            return compileOr(node);
+        }
+        
+        return new InterpretedNode(node);
+    }
+    
+    private FieldNode field(JexlNode node, String name, boolean checkUnknown) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(name, slot);
+        }
+        return new FieldNode(node, name, slot, checkUnknown);
+    }
+    
+    /**
+     * Only regexes against a literal are compiled, any other right hand side has container semantics in the interpreter
+     */
+    private CompiledNode compileRegex(JexlNode node, boolean negated) {
+        CompiledNode right = compileNode(node.jjtGetChild(1));
+        if (right instanceof ConstantNode && ((ConstantNode) right).getValue() instanceof String) {
+            String regex = (String) ((ConstantNode) right).getValue();
+            Object pattern = regex;
+            if (arithmetic instanceof DefaultArithmetic || arithmetic instanceof HitListArithmetic) {
+                // these arithmetics accept a precompiled matcher in place of the regex string
+                try {
+                    pattern = JexlPatternCache.getMatcher(regex);
+                } catch (PatternSyntaxException e) {
+                    // leave the error to be reported when the regex is evaluated
+                }
+            }
+            return new RegexNode(node, compile(node.jjtGetChild(0)), pattern, negated);
+        }
+        return null;
+    }
+    
+    /**
+     * Mirrors the interpreter's treatment of a conjunction of a lower and upper bound on the same field as a single range
+     */
+    private CompiledNode compileAnd(JexlNode node) {
+        JexlNode left = node.jjtGetChild(0);
+        JexlNode right = node.jjtGetChild(1);
+        if (left instanceof ASTLENode || left instanceof ASTLTNode) {
+            JexlNode temp = left;
+            left = right;
+            right = temp;
+        }
+        if ((left instanceof ASTGENode || left instanceof ASTGTNode) && (right instanceof ASTLENode || right instanceof ASTLTNode)) {
+            JexlNode leftIdentifier = JexlASTHelper.dereference(left.jjtGetChild(0));
+            JexlNode rightIdentifier = JexlASTHelper.dereference(right.jjtGetChild(0));
+            if (leftIdentifier instanceof ASTIdentifier && rightIdentifier instanceof ASTIdentifier && leftIdentifier.image.equals(rightIdentifier.image)) {
+                CompiledNode lower = compileNode(left.jjtGetChild(1));
+                CompiledNode upper = compileNode(right.jjtGetChild(1));
+                if (lower instanceof ConstantNode && upper instanceof ConstantNode) {
+                    numCompiled += 2;
+                    return new RangeNode(node, field(leftIdentifier, leftIdentifier.image, false), ((ConstantNode) lower).getValue(),
+                                    left instanceof ASTGENode, ((ConstantNode) upper).getValue(), right instanceof ASTLENode);
+                }
+                // the bounds are not literals, let the interpreter handle the range
+                return new InterpretedNode(node);
+            }
+        }
+        return new AndNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+    }
+    
+    /**
+     * Nested disjunctions are flattened exactly as the interpreter does, which also determines the order in which the children are evaluated
+     */
+    private CompiledNode compileOr(JexlNode node) {
+        Deque<JexlNode> children = new ArrayDeque<>();
+        Deque<JexlNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            JexlNode currNode = stack.pop();
+            if (currNode instanceof ASTOrNode) {
+                for (int i = currNode.jjtGetNumChildren() - 1; i >= 0; i--) {
+                    stack.push(JexlASTHelper.dereference(currNode.jjtGetChild(i)));
+                }
+            } else {
+                children.push(currNode);
+            }
+        }
+        
+        CompiledNode[] compiled = new CompiledNode[children.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(children.pop());
+        }
+        return new OrNode(node, compiled);
+    }
+    
+    int getNumSlots() {
+        return slots.size();
+    }
+    
+    int getNumCompiled() {
+        return numCompiled;
+    }
+    
+    int getNumInterpreted() {
+        return numInterpreted;
+    }
+}
@@ -0,0 +1,22 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A negation
+ */
+class NotNode extends CompiledNode {
+    
+    private final CompiledNode child;
+    
+    NotNode(JexlNode node, CompiledNode child) {
+        super(node);
+        this.child = child;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object value = child.evaluate(frame);
+        return frame.getArithmetic().toBoolean(value) ? Boolean.FALSE : Boolean.TRUE;
+    }
+}
@@ -0,0 +1,80 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.collections.FunctionalSet;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import java.util.Collection;
+
+/**
+ * A flattened disjunction. Nested disjunctions are collapsed when the query is compiled, and the children are evaluated in the same order as in
+ * {@link datawave.query.jexl.DatawaveInterpreter}, stopping at the first child that evaluates to true.
+ */
+class OrNode extends CompiledNode {
+    
+    private final CompiledNode[] children;
+    
+    OrNode(JexlNode node, CompiledNode[] children) {
+        super(node);
+        this.children = children;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        JexlArithmetic arithmetic = frame.getArithmetic();
+        Object result = null;
+        for (int i = 0; i < children.length && !arithmetic.toBoolean(result); i++) {
+            result = interpretOr(arithmetic, children[i].evaluate(frame), result);
+        }
+        return result;
+    }
+    
+    private static Object interpretOr(JexlArithmetic arithmetic, Object left, Object right) {
+        FunctionalSet leftFunctionalSet = null;
+        FunctionalSet rightFunctionalSet = null;
+        if (left == null)
+            left = FunctionalSet.empty();
+        if (!(left instanceof Collection)) {
+            try {
+                if (arithmetic.toBoolean(left)) {
+                    return Boolean.TRUE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new RuntimeException(left.toString() + " boolean coercion error", xrt);
+            }
+        } else {
+            leftFunctionalSet = new FunctionalSet();
+            leftFunctionalSet.addAll((Collection) left);
+        }
+        if (right == null)
+            right = FunctionalSet.empty();
+        if (!(right instanceof Collection)) {
+            try {
+                if (arithmetic.toBoolean(right)) {
+                    return Boolean.TRUE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new RuntimeException(right.toString() + " boolean coercion error", xrt);
+            }
+        } else {
+            rightFunctionalSet = new FunctionalSet();
+            rightFunctionalSet.addAll((Collection) right);
+        }
+        // gather the matches from both sides into a single collection
+        if (leftFunctionalSet != null && rightFunctionalSet != null) {
+            FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+            functionalSet.addAll(rightFunctionalSet);
+            return functionalSet;
+        } else if (leftFunctionalSet != null) {
+            return leftFunctionalSet;
+        } else if (rightFunctionalSet != null) {
+            return rightFunctionalSet;
+        } else {
+            return AndNode.toBoolean(arithmetic, left) || AndNode.toBoolean(arithmetic, right);
+        }
+    }
+    
+    int getNumChildren() {
+        return children.length;
+    }
+}
@@ -0,0 +1,53 @@
+package datawave.query.jexl.compiled;
+
+import datawave.query.jexl.functions.QueryFunctions;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import java.util.Collection;
+
+/**
+ * A bounded range over a single field, i.e. a conjunction of a lower and upper bound. As in {@link datawave.query.jexl.DatawaveInterpreter} the range is
+ * evaluated as a single between function, however the bounds are converted to their numeric or string form once when the query is compiled.
+ */
+class RangeNode extends CompiledNode {
+    
+    private final FieldNode field;
+    private final boolean numeric;
+    private final float lowerNumber;
+    private final float upperNumber;
+    private final String lowerString;
+    private final String upperString;
+    private final boolean lowerInclusive;
+    private final boolean upperInclusive;
+    
+    RangeNode(JexlNode node, FieldNode field, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        super(node);
+        this.field = field;
+        this.numeric = lower instanceof Number && upper instanceof Number;
+        this.lowerNumber = numeric ? ((Number) lower).floatValue() : 0f;
+        this.upperNumber = numeric ? ((Number) upper).floatValue() : 0f;
+        this.lowerString = String.valueOf(lower);
+        this.upperString = String.valueOf(upper);
+        this.lowerInclusive = lowerInclusive;
+        this.upperInclusive = upperInclusive;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object fieldValue = field.evaluate(frame);
+        // note that the interpreter also adds these hits to HitListArithmetic.getHitSet(), however that method returns a copy so the hits are not retained
+        if (numeric) {
+            if (fieldValue instanceof Collection) {
+                return QueryFunctions.between((Collection) fieldValue, lowerNumber, lowerInclusive, upperNumber, upperInclusive);
+            } else {
+                return QueryFunctions.between(fieldValue, lowerNumber, lowerInclusive, upperNumber, upperInclusive);
+            }
+        } else {
+            if (fieldValue instanceof Collection) {
+                return QueryFunctions.between((Collection) fieldValue, lowerString, lowerInclusive, upperString, upperInclusive);
+            } else {
+                return QueryFunctions.between(fieldValue, lowerString, lowerInclusive, upperString, upperInclusive);
+            }
+        }
+    }
+}
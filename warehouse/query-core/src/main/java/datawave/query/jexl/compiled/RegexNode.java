@@ -0,0 +1,42 @@
+package datawave.query.jexl.compiled;
+
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A regex match ({@code =~}) or negated regex match ({@code !~}) against a literal pattern. The pattern is resolved once when the query is compiled rather
+ * than being looked up in the pattern cache for every document.
+ */
+class RegexNode extends CompiledNode {
+    
+    private final CompiledNode left;
+    private final Object pattern;
+    private final boolean negated;
+    
+    /**
+     * @param node
+     *            the regex node
+     * @param left
+     *            the value being matched
+     * @param pattern
+     *            either the regex string or a precompiled {@link datawave.query.jexl.JexlRegexMatcher} when the arithmetic is known to accept one
+     * @param negated
+     *            true for {@code !~}
+     */
+    RegexNode(JexlNode node, CompiledNode left, Object pattern, boolean negated) {
+        super(node);
+        this.left = left;
+        this.pattern = pattern;
+        this.negated = negated;
+    }
+    
+    @Override
+    Object evaluate(EvaluationFrame frame) {
+        Object leftValue = left.evaluate(frame);
+        try {
+            return (frame.getArithmetic().matches(leftValue, pattern) != negated) ? Boolean.TRUE : Boolean.FALSE;
+        } catch (ArithmeticException xrt) {
+            throw new JexlException(node, negated ? "!~ error" : "=~ error", xrt);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package datawave.query.jexl.functions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -12,7 +12,6 @@ import org.apache.log4j.Logger;
 
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
 
 /**
  * An abstract class to for the ordered and unordered content evaluators.
@@ -71,6 +70,21 @@ public abstract class ContentFunctionEvaluator {
      */
     protected abstract boolean evaluate(List<List<TermWeightPosition>> offsets);
     
+    /**
+     * Evaluate the function based on the positions of the terms in a zone, one {@link TermPositions} per term. By default the positions are converted to
+     * offset lists for {@link #evaluate(List)}, evaluators that can walk the positions directly should override this.
+     * 
+     * @param positions
+     * @return true if the positions satisfy the function
+     */
+    protected boolean evaluatePositions(List<TermPositions> positions) {
+        List<List<TermWeightPosition>> offsets = new ArrayList<>(positions.size());
+        for (TermPositions termPositions : positions) {
+            offsets.add(termPositions.toTermWeightPositions());
+        }
+        return evaluate(offsets);
+    }
+    
     /**
      * Validate and initialize this class. This will validate the arguments and setup other members.
      * 
@@ -116,7 +130,7 @@ public abstract class ContentFunctionEvaluator {
                 
                 return false;
             }
-            if (tfList.fetchOffsets().isEmpty()) {
+            if (tfList.isEmpty()) {
                 if (log.isTraceEnabled()) {
                     log.trace("Failing process() because of an empty offset list for " + term);
                 }
@@ -151,7 +165,7 @@ public abstract class ContentFunctionEvaluator {
         if (computable()) {
             // now for each event, lets process the terms
             for (String eventId : eventIds) {
-                ListMultimap<String,List<TermWeightPosition>> offsetsByField = LinkedListMultimap.create();
+                ListMultimap<String,TermPositions> offsetsByField = LinkedListMultimap.create();
                 for (String term : terms) {
                     TermFrequencyList tfList = termOffsetMap.get(term);
                     
@@ -159,15 +173,15 @@ public abstract class ContentFunctionEvaluator {
                     // and group the lists together
                     for (String field : tfList.fields()) {
                         TermFrequencyList.Zone zone = new TermFrequencyList.Zone(field, true, eventId);
-                        Collection<TermWeightPosition> offsets = tfList.fetchOffsets().get(zone);
+                        TermPositions offsets = tfList.fetchPositions(zone);
                         // if no offsets, but we are explicitly looking for this field (i.e. not unfielded), then check for a non-content expansion zone
-                        if (offsets.isEmpty() && (fields != null && fields.contains(field))) {
+                        if (offsets == null && (fields != null && fields.contains(field))) {
                             zone = new TermFrequencyList.Zone(field, false, eventId);
-                            offsets = tfList.fetchOffsets().get(zone);
+                            offsets = tfList.fetchPositions(zone);
                         }
                         // not all field/event pairs will have offsets
                         if (offsets != null && !offsets.isEmpty()) {
-                            offsetsByField.put(field, Lists.newArrayList(offsets));
+                            offsetsByField.put(field, offsets);
                         }
                     }
                 }
@@ -180,7 +194,7 @@ public abstract class ContentFunctionEvaluator {
                 
                 // Iterate over each collection of offsets (grouped by field) and try to find one that satisfies the phrase/adjacency
                 for (String field : offsetsByField.keySet()) {
-                    List<List<TermWeightPosition>> offsets = offsetsByField.get(field);
+                    List<TermPositions> offsets = offsetsByField.get(field);
                     if (offsets == null || offsets.isEmpty()) {
                         continue;
                     }
@@ -210,7 +224,7 @@ public abstract class ContentFunctionEvaluator {
                     }
                     
                     // evaluate the offsets
-                    if (evaluate(offsets)) {
+                    if (evaluatePositions(offsets)) {
                         if (log.isTraceEnabled()) {
                             log.trace(logPrefix + " satisfied the content function");
                         }
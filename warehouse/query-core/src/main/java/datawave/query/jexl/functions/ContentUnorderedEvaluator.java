@@ -1,13 +1,10 @@
 package datawave.query.jexl.functions;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Set;
 
@@ -55,81 +52,131 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
      */
     @Override
     public boolean evaluate(List<List<TermWeightPosition>> offsets) {
-        filterOffsets(offsets);
-        MultiOffsetMatcher mlIter = new MultiOffsetMatcher(distance, terms, offsets);
+        List<TermPositions> positions = new ArrayList<>(offsets.size());
+        for (List<TermWeightPosition> offset : offsets) {
+            TermPositions.Builder builder = new TermPositions.Builder(offset.size());
+            for (TermWeightPosition position : offset) {
+                builder.add(position);
+            }
+            positions.add(builder.build());
+        }
+        return evaluatePositions(positions);
+    }
+    
+    /**
+     * Evaluate the positions of the terms in an unordered kind of way, walking the positions directly.
+     * 
+     * @param positions
+     * @return true if we found an unordered list within the specified distance for the specified set of positions.
+     */
+    @Override
+    protected boolean evaluatePositions(List<TermPositions> positions) {
+        MultiOffsetMatcher mlIter = new MultiOffsetMatcher(distance, terms, positions, maxScore == DEFAULT_MAX_SCORE ? Integer.MAX_VALUE : maxScore);
         return mlIter.findMatch();
     }
     
-    private void filterOffsets(List<List<TermWeightPosition>> offsets) {
-        // if max score is maximum possible value short circuit
-        if (maxScore == DEFAULT_MAX_SCORE) {
-            return;
+    /**
+     * The remaining positions of a term, skipping any position above the max score. All of the offset lists of a term share the same cursor.
+     */
+    private static class PositionCursor {
+        private final TermPositions positions;
+        private final int maxScore;
+        private int next = 0;
+        
+        public PositionCursor(TermPositions positions, int maxScore) {
+            this.positions = positions;
+            this.maxScore = maxScore;
+            skipFiltered();
         }
         
-        for (List<TermWeightPosition> offset : offsets) {
-            Iterator<TermWeightPosition> twpIter = offset.iterator();
-            while (twpIter.hasNext()) {
-                Integer score = twpIter.next().getScore();
-                if (null == score || score > maxScore) {
-                    twpIter.remove();
+        private void skipFiltered() {
+            while (next < positions.size() && positions.getScore(next) > maxScore) {
+                next++;
+            }
+        }
+        
+        public boolean isEmpty() {
+            return next >= positions.size();
+        }
+        
+        /**
+         * @return the highest offset of the remaining positions
+         */
+        public int getMaxOffset() {
+            // offsets with skip words will sort based on min so for max we need to loop over all offsets
+            int max = Integer.MIN_VALUE;
+            for (int i = next; i < positions.size(); i++) {
+                if (positions.getScore(i) <= maxScore) {
+                    max = Math.max(max, positions.getOffset(i));
                 }
             }
+            return max;
+        }
+        
+        /**
+         * @return the index of the next position, or -1 if there are none left
+         */
+        public int nextIndex() {
+            if (isEmpty()) {
+                return -1;
+            }
+            int index = next++;
+            skipFiltered();
+            return index;
         }
     }
     
     private static class OffsetList implements Comparable<OffsetList> {
         private final String term;
-        private final List<TermWeightPosition> offsets;
-        private TermWeightPosition minOffset;
-        private TermWeightPosition maxOffset = null;
+        private final PositionCursor cursor;
+        private int minIndex = -1;
+        private final int maxOffset;
         
-        public OffsetList(String term, List<TermWeightPosition> o) {
+        public OffsetList(String term, PositionCursor cursor) {
             this.term = term;
-            this.offsets = o;
-            
-            // as long as there is at least one term, grab the last item for a max
-            if (!o.isEmpty()) {
-                // offsets with skip words will sort based on min so for max we need to loop over all offsets
-                maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
-            }
+            this.cursor = cursor;
+            this.maxOffset = cursor.getMaxOffset();
             
             nextOffset();
         }
         
-        public TermWeightPosition getMinOffset() {
-            return minOffset;
+        public int getMinOffset() {
+            return cursor.positions.getOffset(minIndex);
+        }
+        
+        public int getMinLowOffset() {
+            return cursor.positions.getLowOffset(minIndex);
         }
         
         /**
          * 
-         * @return the highest value in this list
+         * @return the highest offset in this list
          */
-        public TermWeightPosition getMaxOffset() {
+        public int getMaxOffset() {
             return maxOffset;
         }
         
-        public Optional<TermWeightPosition> nextOffset() {
-            if (offsets.isEmpty()) {
-                return Optional.empty();
-            } else {
-                minOffset = offsets.remove(0);
-                return Optional.of(minOffset);
+        public boolean nextOffset() {
+            int index = cursor.nextIndex();
+            if (index < 0) {
+                return false;
             }
+            minIndex = index;
+            return true;
         }
         
         @Override
         public int compareTo(OffsetList o) {
-            return this.getMinOffset().compareTo(o.getMinOffset());
-        }
-        
-        @Override
-        public boolean equals(Object o) {
-            return minOffset == ((OffsetList) o).minOffset;
+            int result = Integer.compare(getMinLowOffset(), o.getMinLowOffset());
+            if (result != 0) {
+                return result;
+            }
+            return Integer.compare(getMinOffset(), o.getMinOffset());
         }
         
         @Override
         public String toString() {
-            return term + ";" + minOffset + ":" + maxOffset;
+            return term + ";" + cursor.positions.getTermWeightPosition(minIndex) + ":" + maxOffset;
         }
     }
     
@@ -139,98 +186,104 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
         final String[] terms;
         
         final PriorityQueue<OffsetList> offsetQueue = new PriorityQueue<>();
-        Optional<TermWeightPosition> maxOffset = Optional.empty();
+        
+        // the largest of the current offsets, -1 if none
+        boolean hasMax = false;
+        int maxLowOffset = -1;
+        int maxOffset = -1;
         
         /**
-         * At the end of this method, terms will contain the query terms. currentOffsets will contain the minimum offset for each term and offsetLists will
-         * contain the remaining offsets for each term.
-         * 
-         * The indexes of terms, offsetLists and currentOffsets are parallel in that the i'th item in currentOffsets corresponds to the i'th item in offsetLists
-         * and term[i].
+         * At the end of this method, terms will contain the query terms and the offset queue will contain an offset list per term positioned at the minimum
+         * offset for the term.
          *
          * @param distance
          *            the maximum acceptable distance between terms.
          * @param terms
          *            the query terms.
-         * @param termOffsets
-         *            the offsets for the specified terms, these lists will not be modified in any way.
+         * @param termPositions
+         *            the positions for the specified terms, these will not be modified in any way.
+         * @param maxScore
+         *            positions with a score above this are ignored
          * @throws IllegalArgumentException
          *             if the number of terms does not match the number of offset lists.
          */
-        public MultiOffsetMatcher(int distance, String[] terms, Collection<List<TermWeightPosition>> termOffsets) {
+        public MultiOffsetMatcher(int distance, String[] terms, Collection<TermPositions> termPositions, int maxScore) {
             this.distance = distance;
             this.terms = terms;
             
-            if (terms.length > termOffsets.size()) {
+            if (terms.length > termPositions.size()) {
                 // more terms than offsets, no match, falls through to quick short-circuit in findMatch.
                 return;
-            } else if (terms.length < termOffsets.size()) {
+            } else if (terms.length < termPositions.size()) {
                 throw new IllegalArgumentException("Less terms than the number of offset lists received");
             }
             
             int termPos = 0;
             
-            // holds the (canonical) offset list for of each term
-            final Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
+            // holds the (canonical) cursor for of each term
+            final Map<String,PositionCursor> termsSeen = new HashMap<>();
             
-            for (List<TermWeightPosition> offsetList : termOffsets) {
+            for (TermPositions positions : termPositions) {
                 String term = terms[termPos++];
                 
-                if (offsetList != null) {
-                    if (!termsSeen.containsKey(term)) {
-                        // new term, create a defensive copy that's safe to modify.
-                        offsetList = new LinkedList<>(offsetList);
-                        termsSeen.put(term, offsetList);
-                    } else {
-                        // already seen term, all matching terms should reference the same list.
-                        offsetList = termsSeen.get(term);
+                PositionCursor cursor = null;
+                if (positions != null) {
+                    cursor = termsSeen.get(term);
+                    if (cursor == null) {
+                        // new term
+                        cursor = new PositionCursor(positions, maxScore);
+                        termsSeen.put(term, cursor);
                     }
+                    // already seen term, all matching terms should reference the same cursor.
                 }
                 
-                if (offsetList == null || offsetList.isEmpty()) {
+                if (cursor == null || cursor.isEmpty()) {
                     if (log.isTraceEnabled()) {
-                        log.trace("The offset list for " + term + " is null or has no elements: " + offsetList + ". Exiting");
+                        log.trace("The offset list for " + term + " is null or has no elements: " + positions + ". Exiting");
                     }
                     
                     offsetQueue.clear();
                     return;
                 }
                 
-                OffsetList entry = new OffsetList(term, offsetList);
-                if ((!maxOffset.isPresent()) || (entry.getMinOffset().compareTo(maxOffset.get()) > 0)) {
-                    maxOffset = Optional.of(entry.getMinOffset());
-                }
+                OffsetList entry = new OffsetList(term, cursor);
+                updateMax(entry);
                 offsetQueue.add(entry);
             }
         }
         
+        private void updateMax(OffsetList entry) {
+            if (!hasMax || entry.getMinLowOffset() > maxLowOffset || (entry.getMinLowOffset() == maxLowOffset && entry.getMinOffset() > maxOffset)) {
+                hasMax = true;
+                maxLowOffset = entry.getMinLowOffset();
+                maxOffset = entry.getMinOffset();
+            }
+        }
+        
         public boolean findMatch() {
             // Quick short-circuit -- if we have fewer offsets than terms in the phrase/adjacency/within
             // we're evaluating, we know there are no results
-            if (terms.length > offsetQueue.size() || (!maxOffset.isPresent())) {
+            if (terms.length > offsetQueue.size() || !hasMax) {
                 return false;
             }
             
             while (true) {
                 OffsetList o = offsetQueue.remove();
                 
-                if (maxOffset.get().getLowOffset() - o.getMinOffset().getOffset() <= distance) {
+                if ((long) maxLowOffset - o.getMinOffset() <= distance) {
                     return true;
                 }
                 
                 // if the maxOffset is more than distance from the largest value in this list, there is no way to satisfy
-                if (maxOffset.get().getLowOffset() - o.getMaxOffset().getOffset() > distance) {
+                if ((long) maxLowOffset - o.getMaxOffset() > distance) {
                     return false;
                 }
                 
-                Optional<TermWeightPosition> nextOffset = o.nextOffset();
-                if (!nextOffset.isPresent()) { // no more offsets from this list
+                if (!o.nextOffset()) { // no more offsets from this list
                     return false;
                 }
                 
-                if (nextOffset.get().compareTo(maxOffset.get()) > 0) {
-                    maxOffset = nextOffset;
-                }
+                updateMax(o);
                 
                 offsetQueue.add(o);
             }
@@ -238,7 +291,7 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
         
         @Override
         public String toString() {
-            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxOffset + " queue: " + offsetQueue;
+            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxLowOffset + "/" + maxOffset + " queue: " + offsetQueue;
         }
     }
 }
@@ -6,6 +6,7 @@ import com.google.common.collect.Sets;
 import datawave.data.type.Type;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.JexlRegexMatcher;
 import datawave.query.collections.FunctionalSet;
 import org.apache.log4j.Logger;
 
@@ -19,8 +20,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * NOTE: The JexlFunctionArgumentDescriptorFactory is implemented by EvaluationPhaseFilterFunctionsDescriptor. This is kept as a separate class to reduce
@@ -221,8 +220,8 @@ public class EvaluationPhaseFilterFunctions {
     public static FunctionalSet<ValueTuple> includeRegex(Object fieldValue, String regex) {
         FunctionalSet<ValueTuple> matches = FunctionalSet.emptySet();
         if (fieldValue != null
-                        && (JexlPatternCache.getPattern(regex).matcher(ValueTuple.getStringValue(fieldValue)).matches() || (JexlPatternCache.getPattern(regex)
-                                        .matcher(ValueTuple.getNormalizedStringValue(fieldValue)).matches() && !regex.matches(CASE_SENSITIVE_EXPRESSION)))) {
+                        && (JexlPatternCache.getMatcher(regex).matches(ValueTuple.getStringValue(fieldValue)) || (JexlPatternCache.getMatcher(regex).matches(
+                                        ValueTuple.getNormalizedStringValue(fieldValue)) && !regex.matches(CASE_SENSITIVE_EXPRESSION)))) {
             matches = FunctionalSet.singleton(getHitTerm(fieldValue));
         }
         return matches;
@@ -238,29 +237,20 @@ public class EvaluationPhaseFilterFunctions {
             return matches;
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
+        final JexlRegexMatcher matcher = JexlPatternCache.getMatcher(regex);
         final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
+            if (matcher.matches(ValueTuple.getStringValue(value))) {
                 matches = FunctionalSet.singleton(getHitTerm(value));
                 return matches;
             }
             
             if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
+                if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                     matches = FunctionalSet.singleton(getHitTerm(value));
                     return matches;
                 }
@@ -281,30 +271,21 @@ public class EvaluationPhaseFilterFunctions {
             return FunctionalSet.unmodifiableSet(matches);
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
+        final JexlRegexMatcher matcher = JexlPatternCache.getMatcher(regex);
         final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
+            if (matcher.matches(ValueTuple.getStringValue(value))) {
                 matches.add(getHitTerm(value));
-            } else if (pattern.matcher(ValueTuple.getNormalizedStringValue(value)).matches()) {
+            } else if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                 matches.add(getHitTerm(value));
             }
             
             if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
+                if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                     matches.add(getHitTerm(value));
                 }
             }
@@ -2,7 +2,6 @@ package datawave.query.jexl.functions;
 
 import java.io.IOException;
 import java.util.AbstractMap;
-import java.util.ArrayList;
 import java.util.Set;
 
 import com.google.common.collect.Maps;
@@ -144,11 +143,10 @@ public class IdentityAggregator extends SeekingAggregator implements FieldIndexA
     private static final ArrayByteSequence EMPTY_BYTES = new ArrayByteSequence(new byte[0]);
     
     protected ByteSequence parsePointer(ByteSequence qualifier) {
-        ArrayList<Integer> deezNulls = TLD.lastInstancesOf(0, qualifier, 2);
         // we want the last two tokens for the datatype and uid
-        if (deezNulls.size() == 2) {
-            final int start = deezNulls.get(1) + 1, stop = qualifier.length();
-            return qualifier.subSequence(start, stop);
+        final int start = TLD.nthLastIndexOf(0, qualifier, 2);
+        if (start >= 0) {
+            return qualifier.subSequence(start + 1, qualifier.length());
         }
         return EMPTY_BYTES;
     }
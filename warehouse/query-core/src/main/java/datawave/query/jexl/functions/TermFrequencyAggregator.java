@@ -1,7 +1,6 @@
 package datawave.query.jexl.functions;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Set;
 
 import datawave.query.attributes.AttributeFactory;
@@ -45,9 +44,7 @@ public class TermFrequencyAggregator extends IdentityAggregator {
     
     @Override
     protected ByteSequence parsePointer(ByteSequence qualifier) {
-        ArrayList<Integer> deezNulls = TLD.instancesOf(0, qualifier, -1);
-        final int stop = deezNulls.get(1);
-        return qualifier.subSequence(0, stop);
+        return qualifier.subSequence(0, TLD.nthIndexOf(0, qualifier, 0, 2));
     }
     
     @Override
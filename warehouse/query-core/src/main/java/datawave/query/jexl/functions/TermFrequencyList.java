@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import datawave.ingest.protobuf.TermWeightPosition;
 import org.apache.accumulo.core.data.Key;
@@ -17,7 +18,7 @@ import com.google.common.collect.TreeMultimap;
 
 /**
  * Represents a List of offsets represented as TermWeightPositions, corresponding to word positions, in a given field, for a term. This is intended to be used
- * in the scope of a Map from term to {@link TermFrequencyList}
+ * in the scope of a Map from term to {@link TermFrequencyList}. The offsets are held per zone as {@link TermPositions}.
  */
 public class TermFrequencyList {
     
@@ -95,12 +96,21 @@ public class TermFrequencyList {
         return eventId.toString();
     }
     
-    protected final TreeMultimap<Zone,TermWeightPosition> offsetsPerField;
+    protected final TreeMap<Zone,TermPositions> positionsPerZone = new TreeMap<>();
+    
+    // the positions as TermWeightPositions, only built if a client asks for them
+    private TreeMultimap<Zone,TermWeightPosition> offsetsPerField = null;
+    
+    public TermFrequencyList() {}
+    
+    public TermFrequencyList(Zone zone, TermPositions positions) {
+        addPositions(zone, positions);
+    }
     
     public TermFrequencyList(TreeMultimap<Zone,TermWeightPosition> offsetsByField) {
         checkNotNull(offsetsByField);
         
-        this.offsetsPerField = offsetsByField;
+        addOffsets(offsetsByField);
     }
     
     public TermFrequencyList(Entry<Zone,Iterable<TermWeightPosition>> offsetsPerField) {
@@ -114,23 +124,44 @@ public class TermFrequencyList {
     public TermFrequencyList(Iterable<Entry<Zone,Iterable<TermWeightPosition>>> offsetsPerField) {
         checkNotNull(offsetsPerField);
         
-        this.offsetsPerField = TreeMultimap.create();
-        
         addOffsets(offsetsPerField);
     }
     
     public static TermFrequencyList merge(TermFrequencyList list1, TermFrequencyList list2) {
-        TreeMultimap<Zone,TermWeightPosition> offsetsPerField = TreeMultimap.create();
-        offsetsPerField.putAll(list1.offsetsPerField);
-        offsetsPerField.putAll(list2.offsetsPerField);
-        return new TermFrequencyList(offsetsPerField);
+        TermFrequencyList merged = new TermFrequencyList();
+        merged.positionsPerZone.putAll(list1.positionsPerZone);
+        for (Entry<Zone,TermPositions> entry : list2.positionsPerZone.entrySet()) {
+            merged.addPositions(entry.getKey(), entry.getValue());
+        }
+        return merged;
+    }
+    
+    /**
+     * Add the positions of the term in a zone, merging them with any positions already in the zone
+     * 
+     * @param zone
+     * @param positions
+     */
+    public void addPositions(Zone zone, TermPositions positions) {
+        checkNotNull(zone);
+        checkNotNull(positions);
+        
+        if (positions.isEmpty()) {
+            return;
+        }
+        this.positionsPerZone.merge(zone, positions, TermPositions::merge);
+        this.offsetsPerField = null;
     }
     
     public void addOffsets(Zone field, Iterable<TermWeightPosition> offsets) {
         checkNotNull(field);
         checkNotNull(offsets);
         
-        this.offsetsPerField.putAll(field, offsets);
+        TermPositions.Builder builder = new TermPositions.Builder();
+        for (TermWeightPosition offset : offsets) {
+            builder.add(offset);
+        }
+        addPositions(field, builder.build());
     }
     
     public void addOffsets(Entry<Zone,Iterable<TermWeightPosition>> offsetForField) {
@@ -156,11 +187,36 @@ public class TermFrequencyList {
     }
     
     /**
-     * Return an <code>Immutable</code> copy of the entire mapping
+     * Return the positions for a zone
+     * 
+     * @param zone
+     * @return the positions, or null if the term does not occur in the zone
+     */
+    public TermPositions fetchPositions(Zone zone) {
+        return this.positionsPerZone.get(zone);
+    }
+    
+    /**
+     * @return true if there are no positions in any zone
+     */
+    public boolean isEmpty() {
+        return this.positionsPerZone.isEmpty();
+    }
+    
+    /**
+     * Return the entire mapping as {@link TermWeightPosition}s. The evaluators walk the positions through {@link #fetchPositions(Zone)} instead, as this
+     * creates an object per offset.
      * 
      * @return
      */
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets() {
+        if (this.offsetsPerField == null) {
+            TreeMultimap<Zone,TermWeightPosition> offsets = TreeMultimap.create();
+            for (Entry<Zone,TermPositions> entry : this.positionsPerZone.entrySet()) {
+                offsets.putAll(entry.getKey(), entry.getValue().toTermWeightPositions());
+            }
+            this.offsetsPerField = offsets;
+        }
         return this.offsetsPerField;
     }
     
@@ -173,18 +229,18 @@ public class TermFrequencyList {
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets(Set<Zone> fields) {
         checkNotNull(fields);
         
-        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(this.offsetsPerField, new FieldFilterPredicate(fields));
+        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(fetchOffsets(), new FieldFilterPredicate(fields));
     }
     
     /**
      * Let clients ask what fields we are currently tracking.
      */
     public Set<String> fields() {
-        if (this.offsetsPerField.isEmpty()) {
+        if (this.positionsPerZone.isEmpty()) {
             return Collections.emptySet();
         } else {
             Set<String> fields = new HashSet<>();
-            for (Zone zone : this.offsetsPerField.keySet()) {
+            for (Zone zone : this.positionsPerZone.keySet()) {
                 fields.add(zone.getZone());
             }
             return fields;
@@ -195,11 +251,11 @@ public class TermFrequencyList {
      * Let clients ask what event ids we are currently tracking.
      */
     public Set<String> eventIds() {
-        if (this.offsetsPerField.isEmpty()) {
+        if (this.positionsPerZone.isEmpty()) {
             return Collections.emptySet();
         } else {
             Set<String> eventIds = new HashSet<>();
-            for (Zone zone : this.offsetsPerField.keySet()) {
+            for (Zone zone : this.positionsPerZone.keySet()) {
                 eventIds.add(zone.getEventId());
             }
             return eventIds;
@@ -210,17 +266,17 @@ public class TermFrequencyList {
      * Let clients ask what zones we are currently tracking.
      */
     public Set<Zone> zones() {
-        return this.offsetsPerField.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(this.offsetsPerField.keySet());
+        return this.positionsPerZone.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(this.positionsPerZone.keySet());
     }
     
     @Override
     public String toString() {
-        return this.offsetsPerField.toString();
+        return fetchOffsets().toString();
     }
     
     @Override
     public int hashCode() {
-        return this.offsetsPerField.hashCode();
+        return this.positionsPerZone.hashCode();
     }
     
     @Override
@@ -228,7 +284,7 @@ public class TermFrequencyList {
         if (o instanceof TermFrequencyList) {
             TermFrequencyList other = (TermFrequencyList) o;
             
-            return this.offsetsPerField.equals(other.offsetsPerField);
+            return this.positionsPerZone.equals(other.positionsPerZone);
         }
         
         return false;
@@ -0,0 +1,320 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+
+/**
+ * The positions of a term within a single {@link TermFrequencyList.Zone}, held as parallel primitive arrays rather than as one {@link TermWeightPosition} per
+ * offset. The positions are decoded straight from the {@link TermWeight.Info} of the term frequency key, and are kept sorted and unique in
+ * {@link TermWeightPosition} order (low offset, then offset) so that the content function evaluators can walk them directly.
+ * <p>
+ * The previous skips, scores and zero offset match flags are only stored when they are present, so a plain list of offsets costs a single int per position.
+ */
+public class TermPositions {
+    
+    public static final TermPositions EMPTY = new TermPositions(new int[0], null, null, TermWeightPosition.DEFAULT_ZERO_OFFSET_MATCH, null, 0);
+    
+    private final int[] offsets;
+    // null when no position has skips, in which case the low offset is the offset
+    private final int[] prevSkips;
+    // null when no position has a score
+    private final int[] scores;
+    // the zero offset match flag of every position, unless the flags are mixed
+    private final boolean zeroOffsetMatch;
+    private final boolean[] zeroOffsetMatches;
+    private final int maxSkips;
+    
+    private TermPositions(int[] offsets, int[] prevSkips, int[] scores, boolean zeroOffsetMatch, boolean[] zeroOffsetMatches, int maxSkips) {
+        this.offsets = offsets;
+        this.prevSkips = prevSkips;
+        this.scores = scores;
+        this.zeroOffsetMatch = zeroOffsetMatch;
+        this.zeroOffsetMatches = zeroOffsetMatches;
+        this.maxSkips = maxSkips;
+    }
+    
+    /**
+     * Create the positions of a term frequency key
+     *
+     * @param info
+     *            the term weight info of the key
+     * @return the positions
+     */
+    public static TermPositions create(TermWeight.Info info) {
+        return new Builder().add(info).build();
+    }
+    
+    /**
+     * Merge two sets of positions, keeping the first of any equal positions as a {@link java.util.TreeSet} of {@link TermWeightPosition} would
+     *
+     * @param positions1
+     *            the first positions
+     * @param positions2
+     *            the second positions
+     * @return the merged positions
+     */
+    public static TermPositions merge(TermPositions positions1, TermPositions positions2) {
+        if (positions2.isEmpty()) {
+            return positions1;
+        } else if (positions1.isEmpty()) {
+            return positions2;
+        }
+        return new Builder(positions1.size() + positions2.size()).add(positions1).add(positions2).build();
+    }
+    
+    public int size() {
+        return offsets.length;
+    }
+    
+    public boolean isEmpty() {
+        return offsets.length == 0;
+    }
+    
+    /**
+     * @return Maximum possible offset of the position, skips can not increase the value
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+    
+    /**
+     * @return Lowest possible offset of the position with respect to skips
+     */
+    public int getLowOffset(int index) {
+        if (prevSkips != null && prevSkips[index] >= 0) {
+            return offsets[index] - prevSkips[index];
+        }
+        return offsets[index];
+    }
+    
+    public int getPrevSkips(int index) {
+        return prevSkips == null ? TermWeightPosition.DEFAULT_PREV_SKIPS : prevSkips[index];
+    }
+    
+    public int getScore(int index) {
+        return scores == null ? TermWeightPosition.DEFAULT_SCORE : scores[index];
+    }
+    
+    public boolean getZeroOffsetMatch(int index) {
+        return zeroOffsetMatches == null ? zeroOffsetMatch : zeroOffsetMatches[index];
+    }
+    
+    /**
+     * @return the largest number of previous skips of any position, used to bound the offsets a low offset can reach
+     */
+    public int getMaxSkips() {
+        return maxSkips;
+    }
+    
+    /**
+     * @return the position as a {@link TermWeightPosition}
+     */
+    public TermWeightPosition getTermWeightPosition(int index) {
+        return new TermWeightPosition.Builder().setOffset(offsets[index]).setPrevSkips(getPrevSkips(index)).setScore(getScore(index))
+                        .setZeroOffsetMatch(getZeroOffsetMatch(index)).build();
+    }
+    
+    /**
+     * @return a new modifiable list of the positions as {@link TermWeightPosition}s, in order
+     */
+    public List<TermWeightPosition> toTermWeightPositions() {
+        List<TermWeightPosition> positions = new ArrayList<>(offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            positions.add(getTermWeightPosition(i));
+        }
+        return positions;
+    }
+    
+    private int compare(int index, TermPositions other, int otherIndex) {
+        int result = Integer.compare(getLowOffset(index), other.getLowOffset(otherIndex));
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(offsets[index], other.offsets[otherIndex]);
+    }
+    
+    /**
+     * Equality is consistent with {@link TermWeightPosition#equals(TermWeightPosition)}, which only considers the offsets and the skips
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof TermPositions) {
+            TermPositions other = (TermPositions) o;
+            if (other.size() != size()) {
+                return false;
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                if (compare(i, other, i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < offsets.length; i++) {
+            hash = 31 * hash + offsets[i];
+            hash = 31 * hash + getLowOffset(i);
+        }
+        return hash;
+    }
+    
+    @Override
+    public String toString() {
+        return toTermWeightPositions().toString();
+    }
+    
+    /**
+     * Collects positions in any order and builds the sorted, unique {@link TermPositions}
+     */
+    public static class Builder {
+        private int size = 0;
+        private int[] offsets;
+        private int[] prevSkips = null;
+        private int[] scores = null;
+        private boolean[] zeroOffsetMatches;
+        
+        public Builder() {
+            this(16);
+        }
+        
+        public Builder(int capacity) {
+            offsets = new int[Math.max(1, capacity)];
+            zeroOffsetMatches = new boolean[offsets.length];
+        }
+        
+        /**
+         * Add the positions of a term frequency key, following the same rules as {@link TermWeightPosition.Builder#setTermWeightOffsetInfo}
+         */
+        public Builder add(TermWeight.Info info) {
+            int count = info.getTermOffsetCount();
+            // offsets, skips, and scores are linked by index so array lengths must match
+            boolean hasSkips = count == info.getPrevSkipsCount();
+            boolean hasScores = count == info.getScoreCount();
+            boolean zeroOffsetMatch = info.getZeroOffsetMatch();
+            for (int i = 0; i < count; i++) {
+                add(info.getTermOffset(i), hasSkips ? info.getPrevSkips(i) : TermWeightPosition.DEFAULT_PREV_SKIPS,
+                                hasScores ? info.getScore(i) : TermWeightPosition.DEFAULT_SCORE, zeroOffsetMatch);
+            }
+            return this;
+        }
+        
+        public Builder add(TermWeightPosition position) {
+            return add(position.getOffset(), position.getPrevSkips(), position.getScore(), position.getZeroOffsetMatch());
+        }
+        
+        public Builder add(TermPositions positions) {
+            for (int i = 0; i < positions.size(); i++) {
+                add(positions.offsets[i], positions.getPrevSkips(i), positions.getScore(i), positions.getZeroOffsetMatch(i));
+            }
+            return this;
+        }
+        
+        public Builder add(int offset, int prevSkips, int score, boolean zeroOffsetMatch) {
+            if (size == offsets.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                zeroOffsetMatches = Arrays.copyOf(zeroOffsetMatches, capacity);
+                if (this.prevSkips != null) {
+                    this.prevSkips = Arrays.copyOf(this.prevSkips, capacity);
+                }
+                if (scores != null) {
+                    scores = Arrays.copyOf(scores, capacity);
+                }
+            }
+            if (prevSkips != TermWeightPosition.DEFAULT_PREV_SKIPS && this.prevSkips == null) {
+                this.prevSkips = filled(offsets.length, TermWeightPosition.DEFAULT_PREV_SKIPS);
+            }
+            if (score != TermWeightPosition.DEFAULT_SCORE && scores == null) {
+                scores = filled(offsets.length, TermWeightPosition.DEFAULT_SCORE);
+            }
+            offsets[size] = offset;
+            zeroOffsetMatches[size] = zeroOffsetMatch;
+            if (this.prevSkips != null) {
+                this.prevSkips[size] = prevSkips;
+            }
+            if (scores != null) {
+                scores[size] = score;
+            }
+            size++;
+            return this;
+        }
+        
+        private static int[] filled(int length, int value) {
+            int[] array = new int[length];
+            Arrays.fill(array, value);
+            return array;
+        }
+        
+        private int lowOffset(int index) {
+            return (prevSkips != null && prevSkips[index] >= 0) ? offsets[index] - prevSkips[index] : offsets[index];
+        }
+        
+        private int compare(int index1, int index2) {
+            int result = Integer.compare(lowOffset(index1), lowOffset(index2));
+            if (result != 0) {
+                return result;
+            }
+            return Integer.compare(offsets[index1], offsets[index2]);
+        }
+        
+        public TermPositions build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            
+            // positions are normally added in order, so only sort when we have to
+            boolean ordered = true;
+            for (int i = 1; i < size && ordered; i++) {
+                ordered = compare(i - 1, i) < 0;
+            }
+            
+            int[] order = null;
+            int count = size;
+            if (!ordered) {
+                // a stable sort so that the first of any equal positions is kept
+                Integer[] sorted = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = i;
+                }
+                Arrays.sort(sorted, this::compare);
+                order = new int[size];
+                count = 0;
+                for (int i = 0; i < size; i++) {
+                    if (count == 0 || compare(order[count - 1], sorted[i]) != 0) {
+                        order[count++] = sorted[i];
+                    }
+                }
+            }
+            
+            int[] newOffsets = new int[count];
+            int[] newPrevSkips = prevSkips == null ? null : new int[count];
+            int[] newScores = scores == null ? null : new int[count];
+            boolean[] newZeroOffsetMatches = new boolean[count];
+            boolean mixed = false;
+            int maxSkips = 0;
+            for (int i = 0; i < count; i++) {
+                int index = order == null ? i : order[i];
+                newOffsets[i] = offsets[index];
+                newZeroOffsetMatches[i] = zeroOffsetMatches[index];
+                mixed |= newZeroOffsetMatches[i] != newZeroOffsetMatches[0];
+                if (newPrevSkips != null) {
+                    newPrevSkips[i] = prevSkips[index];
+                    maxSkips = Math.max(maxSkips, newPrevSkips[i]);
+                }
+                if (newScores != null) {
+                    newScores[i] = scores[index];
+                }
+            }
+            return new TermPositions(newOffsets, newPrevSkips, newScores, newZeroOffsetMatches[0], mixed ? newZeroOffsetMatches : null, maxSkips);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package datawave.query.jexl.visitors;
+
+import static org.apache.commons.jexl2.parser.JexlNodes.children;
+import static org.apache.commons.jexl2.parser.JexlNodes.id;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import datawave.query.Constants;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.planner.QueryCostModel;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
+import org.apache.log4j.Logger;
+
+/**
+ * Plans the query from the cardinality estimates of a {@link QueryCostModel} instead of static thresholds. An equality node is estimated by the model, an AND
+ * by its cheapest operand and an OR by the sum of its operands. Then:
+ * <ul>
+ * <li>the operands of an AND are ordered by increasing estimate, so that the most selective terms are intersected and evaluated first</li>
+ * <li>an indexed term of an AND that is estimated at more than {@link ShardQueryConfiguration#getCostBasedPushdownRatio()} times the cheapest operand is
+ * delayed, so it is evaluated against the documents found by its siblings instead of being looked up in the global index</li>
+ * <li>a field whose values OR'd together are estimated at {@link ShardQueryConfiguration#getCostBasedIvaratorRatio()} of the entries for the whole field is
+ * added to {@link ShardQueryConfiguration#getCostBasedIvaratorFields()}, so that {@link PushdownLargeFieldedListsVisitor} scans its field index with an
+ * ivarator instead of looking up each value</li>
+ * </ul>
+ * The estimate of the whole query and a summary of the estimates and decisions are set on the configuration so that they can be logged in the query metrics.
+ */
+public class CostBasedPlanningVisitor extends BaseVisitor {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(CostBasedPlanningVisitor.class);
+    
+    protected final ShardQueryConfiguration config;
+    protected final QueryCostModel model;
+    protected final Set<String> indexedFields;
+    protected final Set<String> indexOnlyFields;
+    
+    private final Map<JexlNode,Long> estimates = new IdentityHashMap<>();
+    private final Set<String> ivaratorFields = new TreeSet<>();
+    private final List<String> decisions = new ArrayList<>();
+    
+    public CostBasedPlanningVisitor(ShardQueryConfiguration config, QueryCostModel model, Set<String> indexedFields, Set<String> indexOnlyFields) {
+        this.config = config;
+        this.model = model;
+        this.indexedFields = indexedFields == null ? Collections.emptySet() : indexedFields;
+        this.indexOnlyFields = indexOnlyFields == null ? Collections.emptySet() : indexOnlyFields;
+    }
+    
+    /**
+     * Plan the query tree in place from the estimates of the cost model
+     *
+     * @param queryTree
+     *            the query tree
+     * @param config
+     *            the configuration, which receives the ivarator fields, the estimated cardinality and the estimates of the plan
+     * @param model
+     *            the cost model
+     * @param indexedFields
+     *            the indexed fields
+     * @param indexOnlyFields
+     *            the index only fields, which are never delayed
+     * @return the query tree
+     */
+    public static <T extends JexlNode> T plan(T queryTree, ShardQueryConfiguration config, QueryCostModel model, Set<String> indexedFields,
+                    Set<String> indexOnlyFields) {
+        CostBasedPlanningVisitor visitor = new CostBasedPlanningVisitor(config, model, indexedFields, indexOnlyFields);
+        queryTree.jjtAccept(visitor, null);
+        
+        long estimate = visitor.estimate(queryTree);
+        config.setCostBasedIvaratorFields(visitor.ivaratorFields);
+        config.setEstimatedCardinality(estimate);
+        config.setPlanCostEstimates("estimate: " + estimate + (visitor.decisions.isEmpty() ? "" : "; " + String.join(", ", visitor.decisions)));
+        if (log.isDebugEnabled()) {
+            log.debug("Cost based plan " + config.getPlanCostEstimates());
+        }
+        return queryTree;
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        // if not already delayed somehow
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        // if not already delayed somehow
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        if (QueryPropertyMarker.instanceOf(node, null)) {
+            return data;
+        }
+        super.visit(node, data);
+        
+        JexlNode[] children = children(node);
+        JexlNode cheapest = null;
+        boolean ranges = false;
+        for (JexlNode child : children) {
+            long estimate = estimate(child);
+            if (estimate != QueryCostModel.UNKNOWN && (cheapest == null || estimate < estimate(cheapest))) {
+                cheapest = child;
+            }
+            ranges |= isRange(child);
+        }
+        if (cheapest == null) {
+            return data;
+        }
+        
+        // order the operands with known estimates first, leaving the bounds of a range where they are
+        if (!ranges) {
+            List<JexlNode> ordered = new ArrayList<>(children.length);
+            Collections.addAll(ordered, children);
+            ordered.sort(Comparator.comparingLong(child -> {
+                long estimate = estimate(child);
+                return estimate == QueryCostModel.UNKNOWN ? Long.MAX_VALUE : estimate;
+            }));
+            children(node, ordered.toArray(new JexlNode[ordered.size()]));
+        }
+        
+        // delay the terms that would return far more index entries than the cheapest operand
+        double ratio = config.getCostBasedPushdownRatio();
+        if (ratio > 0) {
+            double limit = Math.max(1, estimate(cheapest)) * ratio;
+            for (JexlNode child : children(node)) {
+                long estimate = estimate(child);
+                if (child != cheapest && id(child) == ParserTreeConstants.JJTEQNODE && estimate != QueryCostModel.UNKNOWN && estimate > limit
+                                && !indexOnlyFields.contains(JexlASTHelper.getIdentifier(child))) {
+                    decisions.add(JexlStringBuildingVisitor.buildQuery(child) + " delayed");
+                    ASTDelayedPredicate.create(child);
+                }
+            }
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTOrNode node, Object data) {
+        if (QueryPropertyMarker.instanceOf(node, null)) {
+            return data;
+        }
+        super.visit(node, data);
+        
+        double ratio = config.getCostBasedIvaratorRatio();
+        if (ratio <= 0) {
+            return data;
+        }
+        
+        // add up the estimates of the values of each field
+        Map<String,long[]> valuesByField = new LinkedHashMap<>();
+        for (JexlNode child : children(node)) {
+            long estimate = estimate(child);
+            if (id(child) == ParserTreeConstants.JJTEQNODE && estimate != QueryCostModel.UNKNOWN) {
+                long[] values = valuesByField.computeIfAbsent(JexlASTHelper.getIdentifier(child), field -> new long[2]);
+                values[0]++;
+                values[1] = add(values[1], estimate);
+            }
+        }
+        
+        for (Map.Entry<String,long[]> entry : valuesByField.entrySet()) {
+            long[] values = entry.getValue();
+            if (values[0] > 1) {
+                long fieldEstimate = model.estimateField(entry.getKey());
+                if (fieldEstimate > 0 && values[1] >= fieldEstimate * ratio) {
+                    decisions.add(entry.getKey() + " (" + values[0] + " values): " + values[1] + " of " + fieldEstimate + " ivarator");
+                    ivaratorFields.add(entry.getKey());
+                }
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * @return the estimated number of index entries for the subtree, or {@link QueryCostModel#UNKNOWN}
+     */
+    protected long estimate(JexlNode node) {
+        Long estimate = estimates.get(node);
+        if (estimate == null) {
+            estimate = computeEstimate(node);
+            estimates.put(node, estimate);
+        }
+        return estimate;
+    }
+    
+    private long computeEstimate(JexlNode node) {
+        if (QueryPropertyMarker.instanceOf(node, null)) {
+            return QueryCostModel.UNKNOWN;
+        }
+        switch (id(node)) {
+            case ParserTreeConstants.JJTEQNODE:
+                return estimateTerm(node);
+            case ParserTreeConstants.JJTANDNODE: {
+                long min = QueryCostModel.UNKNOWN;
+                for (JexlNode child : children(node)) {
+                    long estimate = estimate(child);
+                    if (estimate != QueryCostModel.UNKNOWN && (min == QueryCostModel.UNKNOWN || estimate < min)) {
+                        min = estimate;
+                    }
+                }
+                return min;
+            }
+            case ParserTreeConstants.JJTORNODE: {
+                long sum = 0;
+                for (JexlNode child : children(node)) {
+                    long estimate = estimate(child);
+                    if (estimate == QueryCostModel.UNKNOWN) {
+                        return QueryCostModel.UNKNOWN;
+                    }
+                    sum = add(sum, estimate);
+                }
+                return sum;
+            }
+            case ParserTreeConstants.JJTJEXLSCRIPT:
+            case ParserTreeConstants.JJTREFERENCE:
+            case ParserTreeConstants.JJTREFERENCEEXPRESSION:
+                return node.jjtGetNumChildren() == 1 ? estimate(node.jjtGetChild(0)) : QueryCostModel.UNKNOWN;
+            default:
+                return QueryCostModel.UNKNOWN;
+        }
+    }
+    
+    private long estimateTerm(JexlNode node) {
+        try {
+            String field = JexlASTHelper.getIdentifier(node);
+            if (Constants.ANY_FIELD.equals(field) || Constants.NO_FIELD.equals(field) || !indexedFields.contains(field)) {
+                return QueryCostModel.UNKNOWN;
+            }
+            long estimate = model.estimateTerm(field, String.valueOf(JexlASTHelper.getLiteralValue(node)));
+            if (estimate != QueryCostModel.UNKNOWN) {
+                decisions.add(JexlStringBuildingVisitor.buildQuery(node) + ": " + estimate);
+            }
+            return estimate;
+        } catch (NoSuchElementException e) {
+            log.trace("Could not find field name or value for EQ node, ignoring for cost");
+            return QueryCostModel.UNKNOWN;
+        }
+    }
+    
+    private static boolean isRange(JexlNode node) {
+        switch (id(node)) {
+            case ParserTreeConstants.JJTLTNODE:
+            case ParserTreeConstants.JJTGTNODE:
+            case ParserTreeConstants.JJTLENODE:
+            case ParserTreeConstants.JJTGENODE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -168,6 +168,8 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     // case the keys will be modified to include enough context to restart at the correct place.
     protected boolean sortedUIDs = true;
     
+    protected boolean tournamentMerge = false;
+    
     protected boolean limitLookup;
     
     protected Class<? extends IteratorBuilder> iteratorBuilderClass = IndexIteratorBuilder.class;
@@ -350,6 +352,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         } else {
             // Create an AndIterator and recursively add the children
             AbstractIteratorBuilder andItr = new AndIteratorBuilder();
+            andItr.setTournamentMerge(tournamentMerge);
             andItr.negateAsNeeded(data);
             and.childrenAccept(this, andItr);
             
@@ -496,6 +499,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
             // Create an OrIterator and recursively add the children
             AbstractIteratorBuilder orItr = new OrIteratorBuilder();
             orItr.setSortedUIDs(sortedUIDs);
+            orItr.setTournamentMerge(tournamentMerge);
             orItr.negateAsNeeded(data);
             or.childrenAccept(this, orItr);
             
@@ -1628,6 +1632,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setTournamentMerge(boolean tournamentMerge) {
+        this.tournamentMerge = tournamentMerge;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setExceededOrEvaluationCache(Map<String,Object> exceededOrEvaluationCache) {
         this.exceededOrEvaluationCache = exceededOrEvaluationCache;
         return this;
@@ -110,12 +110,15 @@ public class PushdownLargeFieldedListsVisitor extends RebuildingVisitor {
             Collection<JexlNode> eqNodes = eqNodesByField.get(field);
             Collection<JexlNode> rangeNodes = rangeNodesByField.get(field);
             
+            // the cost based planning may have estimated that scanning the field index is cheaper than looking up each value
+            boolean costBased = eqNodes.size() > 1 && config.getCostBasedIvaratorFields() != null && config.getCostBasedIvaratorFields().contains(field);
+            
             // if "_ANYFIELD_" or "_NOFIELD_", then simply add the subset back into the children list
             // if past our threshold, then add a ExceededValueThresholdMarker with an OR of this subset to the children list
             if (!Constants.ANY_FIELD.equals(field)
                             && !Constants.NO_FIELD.equals(field)
                             && (eqNodes.size() >= config.getMaxOrExpansionFstThreshold() || eqNodes.size() >= config.getMaxOrExpansionThreshold() || rangeNodes
-                                            .size() >= config.getMaxOrRangeThreshold()) && isIndexed(field)) {
+                                            .size() >= config.getMaxOrRangeThreshold() || costBased) && isIndexed(field)) {
                 log.info("Pushing down large (" + eqNodes.size() + ") fielded list for " + field);
                 
                 // turn the subset of children into a list of values
@@ -132,7 +135,7 @@ public class PushdownLargeFieldedListsVisitor extends RebuildingVisitor {
                         URI fstPath = createFst(values);
                         markers.add(ExceededOrThresholdMarkerJexlNode.createFromFstURI(field, fstPath));
                         eqNodes = null;
-                    } else if (eqNodes.size() >= config.getMaxOrExpansionThreshold()) {
+                    } else if (eqNodes.size() >= config.getMaxOrExpansionThreshold() || costBased) {
                         markers.add(ExceededOrThresholdMarkerJexlNode.createFromValues(field, values));
                         eqNodes = null;
                     }
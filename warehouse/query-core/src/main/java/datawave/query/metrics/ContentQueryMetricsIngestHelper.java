@@ -176,6 +176,9 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getPlan() != null) {
                 fields.put("PLAN", updatedQueryMetric.getPlan());
             }
+            if (updatedQueryMetric.getPlanCostEstimates() != null) {
+                fields.put("PLAN_COST_ESTIMATES", updatedQueryMetric.getPlanCostEstimates());
+            }
             if (updatedQueryMetric.getQueryId() != null) {
                 fields.put("QUERY_ID", updatedQueryMetric.getQueryId());
             }
@@ -232,6 +235,18 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             fields.put("YIELD_COUNT", Long.toString(updatedQueryMetric.getYieldCount()));
             fields.put("DOC_RANGES", Long.toString(updatedQueryMetric.getDocRanges()));
             fields.put("FI_RANGES", Long.toString(updatedQueryMetric.getFiRanges()));
+            fields.put("PREFETCH_BUFFER_OCCUPANCY", Long.toString(updatedQueryMetric.getPrefetchBufferOccupancy()));
+            fields.put("PREFETCH_BUFFER_MAX_OCCUPANCY", Long.toString(updatedQueryMetric.getPrefetchBufferMaxOccupancy()));
+            fields.put("UNIQUE_SEEN_COUNT", Long.toString(updatedQueryMetric.getUniqueSeenCount()));
+            fields.put("UNIQUE_DROPPED_COUNT", Long.toString(updatedQueryMetric.getUniqueDroppedCount()));
+            fields.put("TIME_TO_FIRST_RANGE", Long.toString(updatedQueryMetric.getTimeToFirstRange()));
+            fields.put("TIME_TO_FIRST_RESULT", Long.toString(updatedQueryMetric.getTimeToFirstResult()));
+            fields.put("DEDUPE_CAPACITY", Long.toString(updatedQueryMetric.getDedupeCapacity()));
+            fields.put("DEDUPE_FILL_RATIO", Double.toString(updatedQueryMetric.getDedupeFillRatio()));
+            fields.put("DEDUPE_BYTES_USED", Long.toString(updatedQueryMetric.getDedupeBytesUsed()));
+            fields.put("RESULT_CACHE_HITS", Long.toString(updatedQueryMetric.getResultCacheHits()));
+            fields.put("ESTIMATED_CARDINALITY", Long.toString(updatedQueryMetric.getEstimatedCardinality()));
+            fields.put("PLAN_CACHE_TIME_SAVED", Long.toString(updatedQueryMetric.getPlanCacheTimeSaved()));
             Set<Prediction> predictions = updatedQueryMetric.getPredictions();
             if (predictions != null && !predictions.isEmpty()) {
                 for (Prediction prediction : predictions) {
@@ -335,6 +350,42 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getFiRanges() != storedQueryMetric.getFiRanges()) {
                 fields.put("FI_RANGES", Long.toString(storedQueryMetric.getFiRanges()));
             }
+            if (updatedQueryMetric.getPrefetchBufferOccupancy() != storedQueryMetric.getPrefetchBufferOccupancy()) {
+                fields.put("PREFETCH_BUFFER_OCCUPANCY", Long.toString(storedQueryMetric.getPrefetchBufferOccupancy()));
+            }
+            if (updatedQueryMetric.getPrefetchBufferMaxOccupancy() != storedQueryMetric.getPrefetchBufferMaxOccupancy()) {
+                fields.put("PREFETCH_BUFFER_MAX_OCCUPANCY", Long.toString(storedQueryMetric.getPrefetchBufferMaxOccupancy()));
+            }
+            if (updatedQueryMetric.getUniqueSeenCount() != storedQueryMetric.getUniqueSeenCount()) {
+                fields.put("UNIQUE_SEEN_COUNT", Long.toString(storedQueryMetric.getUniqueSeenCount()));
+            }
+            if (updatedQueryMetric.getUniqueDroppedCount() != storedQueryMetric.getUniqueDroppedCount()) {
+                fields.put("UNIQUE_DROPPED_COUNT", Long.toString(storedQueryMetric.getUniqueDroppedCount()));
+            }
+            if (updatedQueryMetric.getTimeToFirstRange() != storedQueryMetric.getTimeToFirstRange()) {
+                fields.put("TIME_TO_FIRST_RANGE", Long.toString(storedQueryMetric.getTimeToFirstRange()));
+            }
+            if (updatedQueryMetric.getTimeToFirstResult() != storedQueryMetric.getTimeToFirstResult()) {
+                fields.put("TIME_TO_FIRST_RESULT", Long.toString(storedQueryMetric.getTimeToFirstResult()));
+            }
+            if (updatedQueryMetric.getDedupeCapacity() != storedQueryMetric.getDedupeCapacity()) {
+                fields.put("DEDUPE_CAPACITY", Long.toString(storedQueryMetric.getDedupeCapacity()));
+            }
+            if (updatedQueryMetric.getDedupeFillRatio() != storedQueryMetric.getDedupeFillRatio()) {
+                fields.put("DEDUPE_FILL_RATIO", Double.toString(storedQueryMetric.getDedupeFillRatio()));
+            }
+            if (updatedQueryMetric.getDedupeBytesUsed() != storedQueryMetric.getDedupeBytesUsed()) {
+                fields.put("DEDUPE_BYTES_USED", Long.toString(storedQueryMetric.getDedupeBytesUsed()));
+            }
+            if (updatedQueryMetric.getResultCacheHits() != storedQueryMetric.getResultCacheHits()) {
+                fields.put("RESULT_CACHE_HITS", Long.toString(storedQueryMetric.getResultCacheHits()));
+            }
+            if (updatedQueryMetric.getEstimatedCardinality() != storedQueryMetric.getEstimatedCardinality()) {
+                fields.put("ESTIMATED_CARDINALITY", Long.toString(storedQueryMetric.getEstimatedCardinality()));
+            }
+            if (updatedQueryMetric.getPlanCacheTimeSaved() != storedQueryMetric.getPlanCacheTimeSaved()) {
+                fields.put("PLAN_CACHE_TIME_SAVED", Long.toString(storedQueryMetric.getPlanCacheTimeSaved()));
+            }
             
             putExtendedFieldsToDelete(updatedQueryMetric, fields);
             
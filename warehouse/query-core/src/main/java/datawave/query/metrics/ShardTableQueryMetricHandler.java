@@ -664,6 +664,8 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                     m.setQuery(fieldValue);
                 } else if (fieldName.equals("PLAN")) {
                     m.setPlan(fieldValue);
+                } else if (fieldName.equals("PLAN_COST_ESTIMATES")) {
+                    m.setPlanCostEstimates(fieldValue);
                 } else if (fieldName.equals("QUERY_LOGIC")) {
                     m.setQueryLogic(fieldValue);
                 } else if (fieldName.equals("QUERY_ID")) {
@@ -789,6 +791,54 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 
                 else if (fieldName.equals("FI_RANGES")) {
                     m.setFiRanges(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("PREFETCH_BUFFER_OCCUPANCY")) {
+                    m.setPrefetchBufferOccupancy(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("PREFETCH_BUFFER_MAX_OCCUPANCY")) {
+                    m.setPrefetchBufferMaxOccupancy(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("UNIQUE_SEEN_COUNT")) {
+                    m.setUniqueSeenCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("UNIQUE_DROPPED_COUNT")) {
+                    m.setUniqueDroppedCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TIME_TO_FIRST_RANGE")) {
+                    m.setTimeToFirstRange(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TIME_TO_FIRST_RESULT")) {
+                    m.setTimeToFirstResult(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("DEDUPE_CAPACITY")) {
+                    m.setDedupeCapacity(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("DEDUPE_FILL_RATIO")) {
+                    m.setDedupeFillRatio(Double.parseDouble(fieldValue));
+                }
+                
+                else if (fieldName.equals("DEDUPE_BYTES_USED")) {
+                    m.setDedupeBytesUsed(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("RESULT_CACHE_HITS")) {
+                    m.setResultCacheHits(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("ESTIMATED_CARDINALITY")) {
+                    m.setEstimatedCardinality(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("PLAN_CACHE_TIME_SAVED")) {
+                    m.setPlanCacheTimeSaved(Long.parseLong(fieldValue));
                 } else {
                     log.error("encountered unanticipated field name: " + fieldName);
                 }
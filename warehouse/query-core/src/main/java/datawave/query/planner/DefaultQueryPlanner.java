@@ -9,6 +9,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.AbstractGeometryType;
@@ -40,6 +43,7 @@ import datawave.query.jexl.functions.EvaluationPhaseFilterFunctions;
 import datawave.query.jexl.functions.QueryFunctions;
 import datawave.query.jexl.visitors.BoundedRangeDetectionVisitor;
 import datawave.query.jexl.visitors.CaseSensitivityVisitor;
+import datawave.query.jexl.visitors.CostBasedPlanningVisitor;
 import datawave.query.jexl.visitors.DepthVisitor;
 import datawave.query.jexl.visitors.ExecutableDeterminationVisitor;
 import datawave.query.jexl.visitors.ExecutableDeterminationVisitor.STATE;
@@ -108,6 +112,7 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.jexl2.parser.ParseException;
@@ -117,6 +122,7 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -134,6 +140,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -224,6 +231,18 @@ public class DefaultQueryPlanner extends QueryPlanner {
     private static Cache<String,Multimap<String,Type<?>>> dataTypeMap = CacheBuilder.newBuilder().maximumSize(100).concurrencyLevel(100)
                     .expireAfterAccess(24, TimeUnit.HOURS).build();
     
+    /**
+     * Query trees with the query model applied, keyed by the shape of the query. There is one cache for each size and expiration that queries are configured
+     * with, each shared by every planner.
+     */
+    private static final Map<String,QueryPlanCache> queryPlanCaches = new ConcurrentHashMap<>();
+    
+    /**
+     * Fingerprints of the query model and fields, memoized per model and fields instance. The metadata helper returns the same instances until its cache
+     * expires, so each is fingerprinted once rather than for every query.
+     */
+    private static final Cache<QueryModel,Cache<Set<String>,QueryModelFingerprint>> queryModelFingerprints = CacheBuilder.newBuilder().weakKeys().build();
+    
     private static Multimap<String,Type<?>> queryFieldsAsDataTypeMap;
     
     private static Multimap<String,Type<?>> normalizedFieldAsDataTypeMap;
@@ -273,6 +292,11 @@ public class DefaultQueryPlanner extends QueryPlanner {
     
     protected QueryModelProvider.Factory queryModelProviderFactory = new MetadataHelperQueryModelProvider.Factory();
     
+    /**
+     * Creates the cost model used by the cost based planning of each query
+     */
+    protected QueryCostModel.Factory costModelFactory = new MetadataQueryCostModel.Factory();
+    
     /**
      * Should the ExecutableExpansionVisitor be run
      */
@@ -324,6 +348,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         setDocsToCombineForEvaluation(other.getDocsToCombineForEvaluation());
         setCondenseUidsInRangeStream(other.getCondenseUidsInRangeStream());
         setPushdownThreshold(other.getPushdownThreshold());
+        setCostModelFactory(other.getCostModelFactory());
     }
     
     public void setMetadataHelper(final MetadataHelper metadataHelper) {
@@ -518,6 +543,9 @@ public class DefaultQueryPlanner extends QueryPlanner {
         addOption(cfg, QueryOptions.QUERY_ID, config.getQuery().getId().toString(), false);
         addOption(cfg, QueryOptions.FULL_TABLE_SCAN_ONLY, Boolean.toString(isFullTable), false);
         addOption(cfg, QueryOptions.TRACK_SIZES, Boolean.toString(config.isTrackSizes()), true);
+        addOption(cfg, QueryOptions.COMPILED_EVALUATION, Boolean.toString(config.isCompiledEvaluation()), false);
+        addOption(cfg, QueryOptions.UNIQUE_CACHE_BUFFER_SIZE, Integer.toString(config.getUniqueCacheBufferSize()), false);
+        addOption(cfg, QueryOptions.TOURNAMENT_MERGE, Boolean.toString(config.isTournamentMerge()), false);
         // Set the start and end dates
         configureTypeMappings(config, cfg, metadataHelper, compressMappings);
     }
@@ -1097,7 +1125,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         Set<String> indexedFields = null;
         Set<String> indexOnlyFields = null;
         Set<String> nonEventFields = null;
-        if (config.getMinSelectivity() > 0 || !disableBoundedLookup) {
+        if (config.getMinSelectivity() > 0 || config.isCostBasedPlanning() || !disableBoundedLookup) {
             try {
                 indexedFields = metadataHelper.getIndexedFields(config.getDatatypeFilter());
                 indexOnlyFields = metadataHelper.getIndexOnlyFields(config.getDatatypeFilter());
@@ -1111,6 +1139,32 @@ public class DefaultQueryPlanner extends QueryPlanner {
         // apply the node transform rules
         queryTree = applyNodeTransformRules(queryTree, getTransformRules(), config, metadataHelper, "Pre pushdown-pullup");
         
+        // order and push down terms by their estimated cardinality
+        if (config.isCostBasedPlanning()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Cost based planning");
+            
+            QueryCostModel costModel = costModelFactory.createQueryCostModel(config, metadataHelper);
+            queryTree = CostBasedPlanningVisitor.plan(queryTree, config, costModel, indexedFields, indexOnlyFields);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after cost based planning:");
+            }
+            
+            List<String> debugOutput = null;
+            if (log.isDebugEnabled()) {
+                debugOutput = new ArrayList<>(32);
+            }
+            if (!ExecutableDeterminationVisitor.isExecutable(queryTree, config, indexedFields, indexOnlyFields, nonEventFields, debugOutput, metadataHelper)) {
+                queryTree = (ASTJexlScript) PushdownUnexecutableNodesVisitor.pushdownPredicates(queryTree, config, indexedFields, indexOnlyFields,
+                                nonEventFields, metadataHelper);
+                if (log.isDebugEnabled()) {
+                    logDebug(debugOutput, "Executable state after cost based planning:");
+                    logQuery(queryTree, "Query after partially executable pushdown :");
+                }
+            }
+            
+            stopwatch.stop();
+        }
+        
         // push down terms that are over the min selectivity
         if (config.getMinSelectivity() > 0) {
             stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Pushdown Low-Selective Terms");
@@ -1388,12 +1442,93 @@ public class DefaultQueryPlanner extends QueryPlanner {
             log.error(qe);
             throw new DatawaveFatalQueryException(qe);
         }
-        queryTree = QueryModelVisitor.applyModel(queryTree, queryModel, allFields);
+        if (config.isCacheQueryPlans()) {
+            final Set<String> fields = allFields;
+            long start = System.nanoTime();
+            String context = getQueryPlanCacheContext(config, queryModel, allFields);
+            long contextNanos = System.nanoTime() - start;
+            QueryPlanCache.Plan plan = getQueryPlanCache(config).apply(queryTree, context, tree -> QueryModelVisitor.applyModel(tree, queryModel, fields));
+            // the context is built for every query, hit or miss, so its cost is charged against the time saved
+            config.setPlanCacheTimeSaved(config.getPlanCacheTimeSaved() + TimeUnit.NANOSECONDS.toMillis(plan.getTimeSaved() - contextNanos));
+            queryTree = plan.getQueryTree();
+        } else {
+            queryTree = QueryModelVisitor.applyModel(queryTree, queryModel, allFields);
+        }
         if (log.isTraceEnabled())
             log.trace("queryTree:" + PrintingVisitor.formattedQueryString(queryTree));
         return queryTree;
     }
     
+    /**
+     * @param config
+     * @return the query plan cache with the size and expiration of the configuration
+     */
+    protected static QueryPlanCache getQueryPlanCache(ShardQueryConfiguration config) {
+        return queryPlanCaches.computeIfAbsent(config.getQueryPlanCacheSize() + ":" + config.getQueryPlanCacheTTL(),
+                        k -> new QueryPlanCache(config.getQueryPlanCacheSize(), config.getQueryPlanCacheTTL(), TimeUnit.MILLISECONDS));
+    }
+    
+    /**
+     * Everything besides the shape of the query that the application of the query model depends upon: the model, the datatypes, the auths and a fingerprint
+     * of the forward mappings of the model and of all of the fields. The fingerprint changes the key as soon as the model or fields read through the metadata
+     * helper change, rather than when the cached plan expires.
+     *
+     * @param config
+     * @param queryModel
+     * @param allFields
+     * @return the context of the query plan cache key
+     */
+    protected String getQueryPlanCacheContext(ShardQueryConfiguration config, QueryModel queryModel, Set<String> allFields) {
+        Set<String> auths = new TreeSet<>();
+        if (config.getAuthorizations() != null) {
+            for (Authorizations authorizations : config.getAuthorizations()) {
+                auths.add(new TreeSet<>(Lists.transform(authorizations.getAuthorizations(), auth -> new String(auth, StandardCharsets.UTF_8))).toString());
+            }
+        }
+        Set<String> dataTypes = config.getDatatypeFilter() == null ? Collections.emptySet() : new TreeSet<>(config.getDatatypeFilter());
+        return queryModelProviderFactory.getClass().getName() + ':' + config.getModelTableName() + ':' + config.getModelName() + ':' + dataTypes + ':'
+                        + auths + ':' + getQueryModelFingerprint(queryModel, allFields);
+    }
+    
+    private static String getQueryModelFingerprint(QueryModel queryModel, Set<String> allFields) {
+        Cache<Set<String>,QueryModelFingerprint> fingerprints = queryModelFingerprints.asMap().computeIfAbsent(queryModel,
+                        model -> CacheBuilder.newBuilder().weakKeys().<Set<String>,QueryModelFingerprint> build());
+        // an instance modified since it was fingerprinted is fingerprinted again
+        int mappings = queryModel.getForwardQueryMapping().size();
+        QueryModelFingerprint fingerprint = fingerprints.getIfPresent(allFields);
+        if (fingerprint == null || fingerprint.mappings != mappings || fingerprint.fields != allFields.size()) {
+            fingerprint = new QueryModelFingerprint(mappings, allFields.size(), hashQueryModel(queryModel, allFields));
+            fingerprints.put(allFields, fingerprint);
+        }
+        return fingerprint.hash;
+    }
+    
+    private static String hashQueryModel(QueryModel queryModel, Set<String> allFields) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (Entry<String,String> mapping : TreeMultimap.create(queryModel.getForwardQueryMapping()).entries()) {
+            hasher.putString(mapping.getKey(), StandardCharsets.UTF_8).putByte((byte) 0);
+            hasher.putString(mapping.getValue(), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        // separate the mappings from the fields
+        hasher.putByte((byte) 1);
+        for (String field : new TreeSet<>(allFields)) {
+            hasher.putString(field, StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+    
+    private static class QueryModelFingerprint {
+        private final int mappings;
+        private final int fields;
+        private final String hash;
+        
+        private QueryModelFingerprint(int mappings, int fields, String hash) {
+            this.mappings = mappings;
+            this.fields = fields;
+            this.hash = hash;
+        }
+    }
+    
     /**
      * this is method-injected in QueryLogicFactory.xml to provide a new prototype bean This method's implementation should never be called in production
      *
@@ -1407,6 +1542,14 @@ public class DefaultQueryPlanner extends QueryPlanner {
         this.queryModelProviderFactory = queryModelProviderFactory;
     }
     
+    public QueryCostModel.Factory getCostModelFactory() {
+        return costModelFactory;
+    }
+    
+    public void setCostModelFactory(QueryCostModel.Factory costModelFactory) {
+        this.costModelFactory = costModelFactory;
+    }
+    
     protected ASTJexlScript parseQueryAndValidatePattern(String query, TraceStopwatch stopwatch) {
         ASTJexlScript queryTree;
         try {
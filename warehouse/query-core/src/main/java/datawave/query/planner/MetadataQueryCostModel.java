@@ -0,0 +1,117 @@
+package datawave.query.planner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import datawave.data.MetadataCardinalityCounts;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.index.stats.IndexStatsClient;
+import datawave.query.util.MetadataHelper;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.log4j.Logger;
+
+/**
+ * Estimates term cardinalities from the frequency counts in the metadata table and the weights in the index stats table.
+ * <ul>
+ * <li>a field is estimated by its counts for the days of the query</li>
+ * <li>a term with a metadata term count is estimated by that count, capped at the estimate of its field</li>
+ * <li>otherwise a term is estimated by the average number of entries per value, which is the inverse of the unique over total weight of the field in the
+ * index stats table</li>
+ * <li>otherwise a term is estimated by the estimate of its field</li>
+ * </ul>
+ */
+public class MetadataQueryCostModel implements QueryCostModel {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(MetadataQueryCostModel.class);
+    
+    protected final ShardQueryConfiguration config;
+    protected final MetadataHelper helper;
+    
+    private final Map<String,Long> fieldEstimates = new HashMap<>();
+    private final Map<String,Double> fieldWeights = new HashMap<>();
+    private Map<String,Map<String,MetadataCardinalityCounts>> termCounts = null;
+    private IndexStatsClient stats = null;
+    
+    public MetadataQueryCostModel(ShardQueryConfiguration config, MetadataHelper helper) {
+        this.config = config;
+        this.helper = helper;
+    }
+    
+    @Override
+    public long estimateTerm(String field, String value) {
+        long fieldEstimate = estimateField(field);
+        
+        MetadataCardinalityCounts counts = getTermCounts(field).get(value);
+        if (counts != null) {
+            long count = counts.getFieldValueCount();
+            // the term counts are not limited to the days of the query
+            return fieldEstimate == UNKNOWN ? count : Math.min(count, fieldEstimate);
+        }
+        
+        Double weight = getFieldWeight(field);
+        if (weight != null && weight > 0 && weight <= 1) {
+            long count = (long) Math.ceil(1 / weight);
+            return fieldEstimate == UNKNOWN ? count : Math.min(count, fieldEstimate);
+        }
+        
+        return fieldEstimate;
+    }
+    
+    @Override
+    public long estimateField(String field) {
+        Long estimate = fieldEstimates.get(field);
+        if (estimate == null) {
+            estimate = UNKNOWN;
+            try {
+                Long count = helper.getCountsByFieldForDays(field, config.getBeginDate(), config.getEndDate(), config.getDatatypeFilter());
+                if (count != null && count > 0) {
+                    estimate = count;
+                }
+            } catch (Exception e) {
+                log.warn("Could not retrieve the counts of " + field + " from the metadata helper", e);
+            }
+            fieldEstimates.put(field, estimate);
+        }
+        return estimate;
+    }
+    
+    private Map<String,MetadataCardinalityCounts> getTermCounts(String field) {
+        if (termCounts == null) {
+            try {
+                // We can get the term counts with root auths (ignoring user auths) because this information is not
+                // exposed to the user. It is only used to adjust the query planning.
+                termCounts = helper.getTermCountsWithRootAuths();
+            } catch (Exception e) {
+                log.error("Could not retrieve term counts from metadata helper", e);
+            }
+            if (termCounts == null) {
+                termCounts = Collections.emptyMap();
+            }
+        }
+        Map<String,MetadataCardinalityCounts> valueCounts = termCounts.get(field);
+        return valueCounts == null ? Collections.emptyMap() : valueCounts;
+    }
+    
+    private Double getFieldWeight(String field) {
+        if (null == config.getIndexStatsTableName() || null == config.getConnector()) {
+            return null;
+        }
+        if (!fieldWeights.containsKey(field)) {
+            if (stats == null) {
+                stats = new IndexStatsClient(config.getConnector(), config.getIndexStatsTableName());
+            }
+            Map<String,Double> stat = stats.safeGetStat(Collections.singleton(field), config.getDatatypeFilter(), config.getBeginDate(), config.getEndDate());
+            fieldWeights.put(field, stat.get(field));
+        }
+        return fieldWeights.get(field);
+    }
+    
+    public static class Factory extends QueryCostModel.Factory {
+        
+        @Override
+        public QueryCostModel createQueryCostModel(ShardQueryConfiguration config, MetadataHelper helper) {
+            return new MetadataQueryCostModel(config, helper);
+        }
+    }
+}
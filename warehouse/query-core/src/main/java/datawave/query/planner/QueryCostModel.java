@@ -0,0 +1,38 @@
+package datawave.query.planner;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.util.MetadataHelper;
+
+/**
+ * Estimates the number of entries in the global index that the terms of a query will match. A model is created for each query, so implementations may cache
+ * what they look up.
+ */
+public interface QueryCostModel {
+    
+    /**
+     * The estimate returned when nothing is known about a term or field
+     */
+    long UNKNOWN = -1;
+    
+    /**
+     * @param field
+     *            the indexed field
+     * @param value
+     *            the normalized value
+     * @return the estimated number of index entries for the term within the date range of the query, or {@link #UNKNOWN}
+     */
+    long estimateTerm(String field, String value);
+    
+    /**
+     * @param field
+     *            the indexed field
+     * @return the estimated number of index entries for all values of the field within the date range of the query, or {@link #UNKNOWN}
+     */
+    long estimateField(String field);
+    
+    abstract class Factory {
+        
+        public abstract QueryCostModel createQueryCostModel(ShardQueryConfiguration config, MetadataHelper helper);
+        
+    }
+}
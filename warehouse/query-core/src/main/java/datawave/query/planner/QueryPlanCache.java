@@ -0,0 +1,213 @@
+package datawave.query.planner;
+
+import static org.apache.commons.jexl2.parser.JexlNodes.id;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the query trees produced by a planning stage, keyed by the shape of the query. The string literals compared against fields are abstracted into
+ * placeholders before the stage is run, so queries that differ only in those values share one cached template. On a hit the template is copied and the
+ * literals of the query are bound back into it, which skips the stage entirely.
+ * <p>
+ * Only stages that treat the compared literals as opaque may be cached, such as the application of the query model. Stages that depend on the values (the
+ * normalizers, the index expansions) have to run on the bound query tree.
+ */
+public class QueryPlanCache {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(QueryPlanCache.class);
+    
+    /**
+     * The prefix of the placeholder literals. A query that already contains it is never cached.
+     */
+    private static final String PLACEHOLDER = "\u0000literal:";
+    
+    private final Cache<String,CachedTree> cache;
+    
+    private final int maximumSize;
+    
+    private final long expirationMillis;
+    
+    public QueryPlanCache(int maximumSize, long expiration, TimeUnit unit) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).concurrencyLevel(100).expireAfterWrite(expiration, unit).build();
+        this.maximumSize = maximumSize;
+        this.expirationMillis = unit.toMillis(expiration);
+    }
+    
+    /**
+     * Apply a planning stage to the query tree, reusing the result of a query with the same shape if there is one
+     *
+     * @param queryTree
+     *            the query tree, which is not modified
+     * @param context
+     *            everything besides the query tree that the stage depends upon, such as the query model, datatypes and auths
+     * @param stage
+     *            the planning stage, which must not depend on the values of the compared literals
+     * @return the planned query tree and the time saved
+     */
+    public Plan apply(ASTJexlScript queryTree, String context, Function<ASTJexlScript,ASTJexlScript> stage) {
+        long start = System.nanoTime();
+        
+        if (containsPlaceholder(queryTree)) {
+            return new Plan(stage.apply(queryTree), false, 0);
+        }
+        
+        // the literals are abstracted in place to build the key, so that a hit does not have to copy the query tree
+        List<String> values = new ArrayList<>();
+        String key;
+        ASTJexlScript template;
+        try {
+            abstractLiterals(queryTree, values);
+            key = context + '\n' + JexlStringBuildingVisitor.buildQuery(queryTree);
+            CachedTree cached = cache.getIfPresent(key);
+            if (cached != null) {
+                ASTJexlScript planned = bindLiterals((ASTJexlScript) RebuildingVisitor.copy(cached.queryTree), values);
+                long saved = Math.max(0, cached.nanos - (System.nanoTime() - start));
+                if (log.isDebugEnabled()) {
+                    log.debug("Query plan cache hit, saved " + TimeUnit.NANOSECONDS.toMillis(saved) + "ms");
+                }
+                return new Plan(planned, true, saved);
+            }
+            template = (ASTJexlScript) RebuildingVisitor.copy(queryTree);
+        } finally {
+            bindLiterals(queryTree, values);
+        }
+        
+        ASTJexlScript planned = stage.apply(template);
+        cache.put(key, new CachedTree((ASTJexlScript) RebuildingVisitor.copy(planned), System.nanoTime() - start));
+        return new Plan(bindLiterals(planned, values), false, 0);
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+    
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    /**
+     * @return true if the query already contains a placeholder, and cannot be abstracted
+     */
+    private static boolean containsPlaceholder(JexlNode node) {
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            JexlNode child = node.jjtGetChild(i);
+            if (child instanceof ASTStringLiteral ? child.image != null && child.image.startsWith(PLACEHOLDER) : containsPlaceholder(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replace the string literals compared against fields with numbered placeholders
+     */
+    private static void abstractLiterals(JexlNode node, List<String> values) {
+        boolean comparison = isComparison(node);
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            JexlNode child = node.jjtGetChild(i);
+            if (comparison && child instanceof ASTStringLiteral) {
+                values.add(child.image);
+                child.image = PLACEHOLDER + (values.size() - 1);
+            } else {
+                abstractLiterals(child, values);
+            }
+        }
+    }
+    
+    private static ASTJexlScript bindLiterals(ASTJexlScript queryTree, List<String> values) {
+        bind(queryTree, values);
+        return queryTree;
+    }
+    
+    private static void bind(JexlNode node, List<String> values) {
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            JexlNode child = node.jjtGetChild(i);
+            if (child instanceof ASTStringLiteral && child.image != null && child.image.startsWith(PLACEHOLDER)) {
+                child.image = values.get(Integer.parseInt(child.image.substring(PLACEHOLDER.length())));
+            } else {
+                bind(child, values);
+            }
+        }
+    }
+    
+    private static boolean isComparison(JexlNode node) {
+        switch (id(node)) {
+            case ParserTreeConstants.JJTEQNODE:
+            case ParserTreeConstants.JJTNENODE:
+            case ParserTreeConstants.JJTERNODE:
+            case ParserTreeConstants.JJTNRNODE:
+            case ParserTreeConstants.JJTLTNODE:
+            case ParserTreeConstants.JJTGTNODE:
+            case ParserTreeConstants.JJTLENODE:
+            case ParserTreeConstants.JJTGENODE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static class CachedTree {
+        private final ASTJexlScript queryTree;
+        private final long nanos;
+        
+        private CachedTree(ASTJexlScript queryTree, long nanos) {
+            this.queryTree = queryTree;
+            this.nanos = nanos;
+        }
+    }
+    
+    /**
+     * A planned query tree
+     */
+    public static class Plan {
+        private final ASTJexlScript queryTree;
+        private final boolean hit;
+        private final long timeSaved;
+        
+        private Plan(ASTJexlScript queryTree, boolean hit, long timeSaved) {
+            this.queryTree = queryTree;
+            this.hit = hit;
+            this.timeSaved = timeSaved;
+        }
+        
+        public ASTJexlScript getQueryTree() {
+            return queryTree;
+        }
+        
+        /**
+         * @return true if the plan was bound from a cached template
+         */
+        public boolean isHit() {
+            return hit;
+        }
+        
+        /**
+         * @return the time the cached stage took on the miss less the time spent binding the template, in nanoseconds
+         */
+        public long getTimeSaved() {
+            return timeSaved;
+        }
+    }
+}
@@ -125,13 +125,19 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
                 .setQueryPlanComparators(queryPlanComparators)
                 .setNumRangesToBuffer(numRangesToBuffer)
                 .setRangeBufferTimeoutMillis(rangeBufferTimeoutMillis)
-                .setRangeBufferPollMillis(rangeBufferPollMillis)
                 .build();
         // @formatter:on
         
         return iterator;
     }
     
+    /**
+     * @return the time in milliseconds from the start of the range stream until the first {@link QueryData} was available, or -1 if it is not yet known
+     */
+    public long getTimeToFirstRange() {
+        return null == iterator ? -1 : iterator.getTimeToFirstRange();
+    }
+    
     /**
      * Closes the underlying iterator.
      * 
@@ -29,10 +29,15 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * 
+ * Bundles the query plans produced by the range stream into {@link QueryData} for the scanners. A {@link RangeConsumer} thread pulls plans from the range
+ * stream into a bounded queue and the scanner side drains it through this iterator. Both sides hand off through conditions on a single lock: the consumer is
+ * woken as soon as plans arrive or production stops, and the producer only pulls the next plan from the range stream once the scanner side has made room for
+ * it.
  */
 public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closeable {
     private static final Logger log = ThreadConfigurableLogger.getLogger(ThreadedRangeBundlerIterator.class);
@@ -45,6 +50,11 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
     
     private final BlockingQueue<QueryPlan> rangeQueue;
     
+    // guards the hand-off of plans through the range queue
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition rangesAvailable = queueLock.newCondition();
+    private final Condition capacityAvailable = queueLock.newCondition();
+    
     private QueryData next = null;
     private Object producerLock = new Object();
     
@@ -66,9 +76,15 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
     
     protected int numRangesToBuffer;
     protected long rangeBufferTimeoutMillis;
-    protected long rangeBufferPollMillis;
     protected long startTimeMillis;
     
+    // time from the start of the range stream until the first QueryData was available, or -1 if none has been
+    protected volatile long timeToFirstRange = -1;
+    
+    // how often and how long the producer waited on the scanner side to drain the range queue. Only the producer writes these, but they are read elsewhere.
+    protected volatile long producerWaits = 0;
+    protected volatile long producerWaitMillis = 0;
+    
     private ThreadedRangeBundlerIterator(Builder builder) {
         
         this.original = builder.getOriginal();
@@ -102,7 +118,6 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         
         this.numRangesToBuffer = builder.getNumRangesToBuffer();
         this.rangeBufferTimeoutMillis = builder.getRangeBufferTimeoutMillis();
-        this.rangeBufferPollMillis = builder.getRangeBufferPollMillis();
         
         rangeConsumer = new RangeConsumer(builder.getRanges());
         rangeConsumerThread = new Thread(rangeConsumer);
@@ -135,14 +150,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                         log.trace(" has next " + rangeQueue.isEmpty() + " is stopped? " + rangeConsumer.isStopped() + " isalive "
                                         + rangeConsumerThread.isAlive());
                     
-                    // wait until we have a minimum number of ranges buffered OR the buffer is full OR the specified
-                    // amount of time to wait has elapsed OR we have processed all of our ranges before continuing
-                    while (this.rangeQueue.size() < numRangesToBuffer && this.rangeQueue.remainingCapacity() > 0
-                                    && (startTimeMillis + rangeBufferTimeoutMillis) > System.currentTimeMillis() && !rangeConsumer.isStopped()) {
-                        Thread.sleep(rangeBufferPollMillis);
-                    }
-                    
-                    QueryPlan plan = this.rangeQueue.poll(this.maxWaitValue, this.maxWaitUnit);
+                    QueryPlan plan = awaitPlan();
                     if (null == plan) {
                         if (!rangeConsumer.isStopped()) {
                             if (log.isTraceEnabled())
@@ -255,7 +263,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                                 } else {
                                     plansToCombine.add(nextPlan);
                                     // pop the previous new plan off
-                                    this.rangeQueue.poll();
+                                    pollPlan();
                                 }
                                 
                             } else {
@@ -275,6 +283,9 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                     }
                     
                     next = createNewQueryData(plan);
+                    if (timeToFirstRange < 0) {
+                        timeToFirstRange = System.currentTimeMillis() - startTimeMillis;
+                    }
                     if (log.isTraceEnabled()) {
                         if (null != next) {
                             log.trace("Built QueryData with " + next.getRanges().size() + " range(s)");
@@ -324,6 +335,131 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         return current;
     }
     
+    /**
+     * Wait until we have a minimum number of ranges buffered OR the buffer is full OR the buffer timeout has elapsed OR we have processed all of our ranges,
+     * then wait up to the max wait for a plan to arrive. Waiting threads are signalled by the producer, so a plan is returned as soon as it is available.
+     * 
+     * @return the next plan, or null if none arrived within the max wait
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private QueryPlan awaitPlan() throws InterruptedException {
+        queueLock.lockInterruptibly();
+        try {
+            long bufferRemaining = (startTimeMillis + rangeBufferTimeoutMillis) - System.currentTimeMillis();
+            while (rangeQueue.size() < numRangesToBuffer && rangeQueue.remainingCapacity() > 0 && bufferRemaining > 0 && !rangeConsumer.isStopped()) {
+                rangesAvailable.await(bufferRemaining, TimeUnit.MILLISECONDS);
+                bufferRemaining = (startTimeMillis + rangeBufferTimeoutMillis) - System.currentTimeMillis();
+            }
+            
+            long waitNanos = maxWaitUnit.toNanos(maxWaitValue);
+            while (rangeQueue.isEmpty() && waitNanos > 0 && !rangeConsumer.isStopped()) {
+                waitNanos = rangesAvailable.awaitNanos(waitNanos);
+            }
+            
+            return pollPlan();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+    
+    /**
+     * Remove the head of the range queue and let the producer know there is room for another plan.
+     * 
+     * @return the head of the range queue, or null if it is empty
+     */
+    private QueryPlan pollPlan() {
+        queueLock.lock();
+        try {
+            QueryPlan plan = rangeQueue.poll();
+            if (null != plan) {
+                capacityAvailable.signal();
+            }
+            return plan;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+    
+    /**
+     * Block the producer until the scanner side has made room in the range queue. This is the backpressure from the scanners to the range stream: the next plan
+     * is not pulled from the range stream until there is room to hold it.
+     * 
+     * @return true if there is room for another plan, false if production was stopped while waiting
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private boolean awaitCapacity() throws InterruptedException {
+        queueLock.lockInterruptibly();
+        try {
+            if (rangeQueue.remainingCapacity() == 0 && !rangeConsumer.isStopped()) {
+                long start = System.currentTimeMillis();
+                producerWaits++;
+                while (rangeQueue.remainingCapacity() == 0 && !rangeConsumer.isStopped()) {
+                    capacityAvailable.await();
+                }
+                producerWaitMillis += System.currentTimeMillis() - start;
+            }
+            return !rangeConsumer.isStopped();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+    
+    /**
+     * Add a plan to the range queue and wake the scanner side.
+     * 
+     * @param plan
+     *            the plan to hand off
+     * @throws InterruptedException
+     *             if interrupted while waiting for room in the queue
+     */
+    private void offerPlan(QueryPlan plan) throws InterruptedException {
+        queueLock.lockInterruptibly();
+        try {
+            while (!rangeQueue.offer(plan)) {
+                capacityAvailable.await();
+            }
+            rangesAvailable.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+    
+    /**
+     * Wake every thread waiting on the hand-off, used when production stops.
+     */
+    private void signalAll() {
+        queueLock.lock();
+        try {
+            rangesAvailable.signalAll();
+            capacityAvailable.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+    
+    /**
+     * @return the time in milliseconds from the start of the range stream until the first {@link QueryData} was available, or -1 if none has been
+     */
+    public long getTimeToFirstRange() {
+        return timeToFirstRange;
+    }
+    
+    /**
+     * @return the number of times the producer waited for the scanner side to make room in the range queue
+     */
+    public long getProducerWaits() {
+        return producerWaits;
+    }
+    
+    /**
+     * @return the total time in milliseconds the producer waited for the scanner side to make room in the range queue
+     */
+    public long getProducerWaitMillis() {
+        return producerWaitMillis;
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -493,7 +629,9 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                 sb.append(", Event Ranges: ").append(eventRanges);
                 sb.append(", Shard-Datatype Ranges: ").append(shardDatatypeRanges);
                 sb.append(", Shard Ranges: ").append(shardRanges);
-                sb.append(", Day Ranges: ").append(dayRanges).append("}");
+                sb.append(", Day Ranges: ").append(dayRanges);
+                sb.append(", Time to first range: ").append(timeToFirstRange).append("ms");
+                sb.append(", Producer waited ").append(producerWaits).append(" times for ").append(producerWaitMillis).append("ms}");
                 log.debug(sb.toString());
             }
         }
@@ -517,6 +655,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             } catch (IOException e) {
                 log.error(e);
             }
+            signalAll();
         }
         
         public boolean isStopped() {
@@ -532,13 +671,14 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         public void run() {
             try {
                 Iterator<QueryPlan> ranges = rangeIterable.iterator();
-                while (running && ranges.hasNext()) {
+                // do not ask the range stream for another plan until the scanner side has room for it
+                while (running && awaitCapacity() && ranges.hasNext()) {
                     count++;
                     
                     QueryPlan nextPlan = ranges.next();
                     if (log.isTraceEnabled())
                         log.trace("RangeConsumer count is " + count + " " + nextPlan.getRanges());
-                    rangeQueue.put(nextPlan);
+                    offerPlan(nextPlan);
                     
                 }
                 
@@ -674,10 +814,18 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             return this;
         }
         
+        /**
+         * @deprecated the iterator is signalled as soon as ranges arrive instead of polling, so this is no longer used
+         */
+        @Deprecated
         public long getRangeBufferPollMillis() {
             return rangeBufferPollMillis;
         }
         
+        /**
+         * @deprecated the iterator is signalled as soon as ranges arrive instead of polling, so this is no longer used
+         */
+        @Deprecated
         public Builder setRangeBufferPollMillis(long rangeBufferPollMillis) {
             this.rangeBufferPollMillis = rangeBufferPollMillis;
             return this;
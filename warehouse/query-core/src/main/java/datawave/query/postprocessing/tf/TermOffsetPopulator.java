@@ -16,8 +16,8 @@ import datawave.core.iterators.TermFrequencyIterator.FieldValue;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.ingest.protobuf.TermWeight;
-import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.jexl.functions.TermFrequencyList;
+import datawave.query.jexl.functions.TermPositions;
 import datawave.query.predicate.EventDataQueryFilter;
 import datawave.query.Constants;
 import datawave.query.attributes.Content;
@@ -40,7 +40,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultimap;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 public class TermOffsetPopulator {
@@ -164,21 +163,18 @@ public class TermOffsetPopulator {
             
             this.document.put(fv.getField(), attr);
             
-            TreeMultimap<TermFrequencyList.Zone,TermWeightPosition> offsets = TreeMultimap.create();
+            TermFrequencyList.Zone twZone;
+            TermPositions positions;
             try {
                 TermWeight.Info twInfo = TermWeight.Info.parseFrom(tfSource.getTopValue().get());
                 
                 // if no content expansion fields then assume every field is permitted for unfielded content functions
-                TermFrequencyList.Zone twZone = new TermFrequencyList.Zone(fv.getField(),
+                twZone = new TermFrequencyList.Zone(fv.getField(),
                                 (contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField())),
                                 TermFrequencyList.getEventId(key));
                 
-                TermWeightPosition.Builder position = new TermWeightPosition.Builder();
-                for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
-                    position.setTermWeightOffsetInfo(twInfo, i);
-                    offsets.put(twZone, position.build());
-                    position.reset();
-                }
+                // decode the offsets straight into primitive arrays rather than an object per offset
+                positions = TermPositions.create(twInfo);
                 
             } catch (InvalidProtocolBufferException e) {
                 log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
@@ -189,11 +185,11 @@ public class TermOffsetPopulator {
             // First time looking up this term in a field
             TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
             if (null == tfl) {
-                termOffsetMap.put(fv.getValue(), new TermFrequencyList(offsets));
+                termOffsetMap.put(fv.getValue(), new TermFrequencyList(twZone, positions));
             } else {
                 // Merge in the offsets for the current field+term with all previous
                 // offsets from other fields in the same term
-                tfl.addOffsets(offsets);
+                tfl.addPositions(twZone, positions);
             }
             
             try {
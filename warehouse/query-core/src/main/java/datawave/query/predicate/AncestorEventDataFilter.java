@@ -3,9 +3,10 @@ package datawave.query.predicate;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import datawave.query.Constants;
 import datawave.query.tld.TLD;
 import datawave.query.util.TypeMetadata;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 
@@ -43,12 +44,13 @@ public class AncestorEventDataFilter extends EventDataQueryExpressionFilter {
         }
     }
     
-    protected String docUid = null;
+    protected ByteSequence docUid = null;
     
     @Override
     public void startNewDocument(Key document) {
         super.startNewDocument(document);
-        this.docUid = getUid(document);
+        // copy the uid so that it does not hold on to the document key
+        this.docUid = new ArrayByteSequence(getUid(document).toArray());
     }
     
     /*
@@ -59,7 +61,7 @@ public class AncestorEventDataFilter extends EventDataQueryExpressionFilter {
     @Override
     public boolean keep(Key k) {
         // only keep the data for the document of interest
-        return (docUid == null || docUid.equals(getUid(k)));
+        return (docUid == null || TLD.isUid(k.getColumnFamilyData(), k.getColumnQualifierData(), docUid));
     }
     
     /**
@@ -72,20 +74,8 @@ public class AncestorEventDataFilter extends EventDataQueryExpressionFilter {
         return new Key(from.getRow().toString(), TLD.parseRootPointerFromId(from.getColumnFamily().toString()));
     }
     
-    protected String getUid(Key k) {
-        String uid;
-        String cf = k.getColumnFamily().toString();
-        if (cf.equals(Constants.TERM_FREQUENCY_COLUMN_FAMILY.toString())) {
-            String cq = k.getColumnQualifier().toString();
-            int start = cq.indexOf('\0') + 1;
-            uid = cq.substring(start, cq.indexOf('\0', start));
-        } else if (cf.startsWith("fi\0")) {
-            String cq = k.getColumnQualifier().toString();
-            uid = cq.substring(cq.lastIndexOf('\0') + 1);
-        } else {
-            uid = cf.substring(cf.lastIndexOf('\0') + 1);
-        }
-        return uid;
+    protected ByteSequence getUid(Key k) {
+        return TLD.parseUid(k.getColumnFamilyData(), k.getColumnQualifierData());
     }
     
     @Override
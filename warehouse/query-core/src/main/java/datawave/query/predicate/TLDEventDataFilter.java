@@ -237,19 +237,7 @@ public class TLDEventDataFilter extends EventDataQueryExpressionFilter {
     }
     
     protected String getUid(Key k) {
-        String uid;
-        String cf = k.getColumnFamily().toString();
-        if (cf.equals(Constants.TERM_FREQUENCY_COLUMN_FAMILY.toString())) {
-            String cq = k.getColumnQualifier().toString();
-            int start = cq.indexOf('\0') + 1;
-            uid = cq.substring(start, cq.indexOf('\0', start));
-        } else if (cf.startsWith("fi\0")) {
-            String cq = k.getColumnQualifier().toString();
-            uid = cq.substring(cq.lastIndexOf('\0') + 1);
-        } else {
-            uid = cf.substring(cf.lastIndexOf('\0') + 1);
-        }
-        return uid;
+        return TLD.parseUid(k.getColumnFamilyData(), k.getColumnQualifierData()).toString();
     }
     
     private boolean isEventKey(Key k) {
@@ -741,26 +729,9 @@ public class TLDEventDataFilter extends EventDataQueryExpressionFilter {
         ByteSequence cf = current.getColumnFamilyData();
         
         if (WritableComparator.compareBytes(cf.getBackingArray(), 0, 2, FI_CF, 0, 2) == 0) {
-            ArrayList<Integer> nullIndexes = TLD.instancesOf(0, cf, 1);
-            final int startFn = nullIndexes.get(0) + 1;
-            final int stopFn = cf.length();
-            
-            byte[] fn = new byte[stopFn - startFn];
-            
-            System.arraycopy(cf.getBackingArray(), startFn + cf.offset(), fn, 0, stopFn - startFn);
-            
-            return JexlASTHelper.deconstructIdentifier(new String(fn));
+            return JexlASTHelper.deconstructIdentifier(TLD.parseFieldFromFI(cf));
         } else if (WritableComparator.compareBytes(cf.getBackingArray(), 0, 2, TF_CF, 0, 2) == 0) {
-            ByteSequence cq = current.getColumnQualifierData();
-            ArrayList<Integer> nullIndexes = TLD.lastInstancesOf(0, cq, 1);
-            final int startFn = nullIndexes.get(0) + 1;
-            final int stopFn = cq.length();
-            
-            byte[] fn = new byte[stopFn - startFn];
-            
-            System.arraycopy(cq.getBackingArray(), startFn + cq.offset(), fn, 0, stopFn - startFn);
-            
-            return JexlASTHelper.deconstructIdentifier(new String(fn));
+            return JexlASTHelper.deconstructIdentifier(TLD.parseFieldFromTF(current.getColumnQualifierData()));
         } else {
             final byte[] cq = current.getColumnQualifierData().getBackingArray();
             final int length = cq.length;
@@ -1,22 +1,38 @@
 package datawave.query.tables;
 
+import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.Set;
+
 import datawave.core.iterators.ResultCountingIterator;
+import datawave.core.iterators.ResultSketchingIterator;
+import datawave.query.Constants;
+import datawave.query.QueryParameters;
+import datawave.query.cardinality.CardinalitySketches;
 import datawave.query.config.ShardQueryConfiguration;
 import datawave.query.scheduler.PushdownScheduler;
 import datawave.query.scheduler.Scheduler;
 import datawave.query.tables.shard.CountAggregatingIterator;
+import datawave.query.tables.shard.SketchAggregatingIterator;
 import datawave.query.transformer.ShardQueryCountTableTransformer;
+import datawave.query.transformer.ShardQueryDistinctCountTransformer;
 import datawave.webservice.query.Query;
+import datawave.webservice.query.exception.BadRequestQueryException;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.commons.collections4.iterators.TransformIterator;
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 /**
  * A simple extension of the basic ShardQueryTable which applies a counting iterator on top of the "normal" iterator stack.
  * 
- * 
+ * When a distinct count field is set, through the {@link QueryParameters#DISTINCT_COUNT_FIELD} parameter or the distinctCountField property, the number of
+ * distinct values of that field is estimated for each day instead. The values of the documents are offered into HyperLogLog sketches on the tablet servers,
+ * one set of sketches is returned per range, and the sketches are merged here. The field is named as it is stored, not as it is mapped by the query model.
  * 
  */
 public class CountingShardQueryLogic extends ShardQueryLogic {
@@ -37,19 +53,85 @@ public class CountingShardQueryLogic extends ShardQueryLogic {
     
     @Override
     public QueryLogicTransformer getTransformer(Query settings) {
+        if (isDistinctCount(settings)) {
+            return new ShardQueryDistinctCountTransformer(settings, this.markingFunctions, this.responseObjectFactory);
+        }
         return new ShardQueryCountTableTransformer(settings, this.markingFunctions, this.responseObjectFactory);
     }
     
     @Override
     public TransformIterator getTransformIterator(Query settings) {
+        if (isDistinctCount(settings)) {
+            return new SketchAggregatingIterator(this.iterator(), getTransformer(settings), getConfig().getDistinctCountPrecision());
+        }
         return new CountAggregatingIterator(this.iterator(), getTransformer(settings));
     }
     
     @Override
     public Scheduler getScheduler(ShardQueryConfiguration config, ScannerFactory scannerFactory) {
         PushdownScheduler scheduler = new PushdownScheduler(config, scannerFactory, this.metadataHelperFactory);
-        scheduler.addSetting(new IteratorSetting(config.getBaseIteratorPriority() + 50, "counter", ResultCountingIterator.class.getName()));
+        if (StringUtils.isNotBlank(config.getDistinctCountField())) {
+            IteratorSetting setting = new IteratorSetting(config.getBaseIteratorPriority() + 50, "sketcher", ResultSketchingIterator.class.getName());
+            setting.addOption(ResultSketchingIterator.FIELD, config.getDistinctCountField());
+            setting.addOption(ResultSketchingIterator.PRECISION, Integer.toString(config.getDistinctCountPrecision()));
+            setting.addOption(Constants.RETURN_TYPE, config.getReturnType().name());
+            scheduler.addSetting(setting);
+        } else {
+            scheduler.addSetting(new IteratorSetting(config.getBaseIteratorPriority() + 50, "counter", ResultCountingIterator.class.getName()));
+        }
         return scheduler;
     }
     
+    @Override
+    protected void loadQueryParameters(ShardQueryConfiguration config, Query settings) throws QueryException {
+        super.loadQueryParameters(config, settings);
+        
+        // Get the DISTINCT_COUNT_FIELD parameter if given
+        String distinctCountField = settings.findParameter(QueryParameters.DISTINCT_COUNT_FIELD).getParameterValue().trim();
+        if (StringUtils.isNotBlank(distinctCountField)) {
+            config.setDistinctCountField(distinctCountField);
+        }
+        
+        String distinctCountPrecision = settings.findParameter(QueryParameters.DISTINCT_COUNT_PRECISION).getParameterValue().trim();
+        if (StringUtils.isNotBlank(distinctCountPrecision)) {
+            try {
+                config.setDistinctCountPrecision(Integer.parseInt(distinctCountPrecision));
+            } catch (NumberFormatException e) {
+                throw new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, e, MessageFormat.format("{0}: {1}",
+                                QueryParameters.DISTINCT_COUNT_PRECISION, distinctCountPrecision));
+            }
+        }
+        
+        String field = config.getDistinctCountField();
+        if (StringUtils.isNotBlank(field)) {
+            int precision = config.getDistinctCountPrecision();
+            if (precision < CardinalitySketches.MIN_PRECISION || precision > CardinalitySketches.MAX_PRECISION) {
+                throw new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("{0} must be between {1} and {2}: {3}",
+                                QueryParameters.DISTINCT_COUNT_PRECISION, CardinalitySketches.MIN_PRECISION, CardinalitySketches.MAX_PRECISION, precision));
+            }
+            
+            // a blacklisted field is never returned by the documents, so its values cannot be counted
+            if (config.getBlacklistedFields().contains(field)) {
+                throw new BadRequestQueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("The {0} {1} is blacklisted",
+                                QueryParameters.DISTINCT_COUNT_FIELD, field));
+            }
+            
+            // the documents have to return the field for its values to be counted
+            if (!config.getProjectFields().isEmpty() && !config.getProjectFields().contains(field)) {
+                Set<String> projectFields = new HashSet<>(config.getProjectFields());
+                projectFields.add(field);
+                config.setProjectFields(projectFields);
+            }
+            
+            if (log.isDebugEnabled()) {
+                log.debug("Estimating the distinct values of " + field + " with a precision of " + precision);
+            }
+        }
+    }
+    
+    private boolean isDistinctCount(Query settings) {
+        String distinctCountField = settings.findParameter(QueryParameters.DISTINCT_COUNT_FIELD).getParameterValue().trim();
+        return StringUtils.isNotBlank(distinctCountField) || StringUtils.isNotBlank(getDistinctCountField());
+    }
+    
 }
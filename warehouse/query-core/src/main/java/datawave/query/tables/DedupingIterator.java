@@ -1,32 +1,56 @@
 package datawave.query.tables;
 
-import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.PrimitiveSink;
+import datawave.query.transformer.UniqueSignatureSet;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
-import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
 
 /**
+ * Drops the entries whose row, datatype and uid were already returned. By default the entries are tracked in a {@link ScalableBloomFilter} that starts small
+ * and grows in stages within the memory budget. In exact mode they are tracked in a {@link UniqueSignatureSet} sized to the memory budget, which spills to disk
+ * instead of losing precision as the results grow.
+ * 
  * Created on 9/13/16.
  */
-class DedupingIterator implements Iterator<Entry<Key,Value>> {
+class DedupingIterator implements Iterator<Entry<Key,Value>>, Closeable {
+    private static final Logger log = Logger.getLogger(DedupingIterator.class);
+    
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+    
+    // the in memory table of the signature set holds between two and four slots of 16 bytes per hash
+    private static final int EXACT_BYTES_PER_ENTRY = 64;
+    
     private Iterator<Entry<Key,Value>> delegate;
     private Entry<Key,Value> next;
-    private BloomFilter<byte[]> bloom = null;
-    private HashSet<ByteSequence> seen;
-    private final boolean DEBUG = true;
+    private ScalableBloomFilter<byte[]> bloom = null;
+    private UniqueSignatureSet seen = null;
     
     public DedupingIterator(Iterator<Entry<Key,Value>> iterator) {
+        this(iterator, DEFAULT_MEMORY_BUDGET, false);
+    }
+    
+    /**
+     * @param iterator
+     *            the entries to dedupe
+     * @param memoryBudget
+     *            the max number of bytes to hold in memory
+     * @param exact
+     *            true to track the entries in a set that spills to disk, false to track them in a bloom filter
+     */
+    public DedupingIterator(Iterator<Entry<Key,Value>> iterator, long memoryBudget, boolean exact) {
         this.delegate = iterator;
-        this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
-        if (DEBUG) {
-            this.seen = new HashSet<>();
+        if (exact) {
+            this.seen = new UniqueSignatureSet((int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / EXACT_BYTES_PER_ENTRY)), true);
+        } else {
+            this.bloom = new ScalableBloomFilter<>(new ByteFunnel(), memoryBudget);
         }
         getNext();
     }
@@ -46,18 +70,16 @@ class DedupingIterator implements Iterator<Entry<Key,Value>> {
         ByteSequence cf = entry.getKey().getColumnFamilyData();
         
         // only append the last 2 tokens (the datatype and uid)
-        // we are expecting that they may be prefixed with a count (see sortedUIDs in the DefaultQueryPlanner / QueryIterator)
+        // we are expecting that they may be prefixed with a count (see sortedUIDs in the DefaultQueryPlanner / QueryIterator), but document specific
+        // ranges are not, so find the start of the datatype from the end
         int nullCount = 0;
-        int index = -1;
-        for (int i = 0; i < cf.length() && nullCount < 2; i++) {
-            if (cf.byteAt(i) == 0) {
-                nullCount++;
-                if (index == -1) {
-                    index = i;
-                }
+        int dataTypeOffset = 0;
+        for (int i = cf.length() - 1; i >= 0; i--) {
+            if (cf.byteAt(i) == 0 && ++nullCount == 2) {
+                dataTypeOffset = i + 1;
+                break;
             }
         }
-        int dataTypeOffset = index + 1;
         int offset = cf.offset() + dataTypeOffset;
         int length = cf.length() - dataTypeOffset;
         
@@ -88,19 +110,51 @@ class DedupingIterator implements Iterator<Entry<Key,Value>> {
     
     private boolean isDuplicate(Entry<Key,Value> entry) {
         byte[] bytes = getBytes(entry);
-        ByteSequence byteSeq = new ArrayByteSequence(bytes);
-        if (bloom.mightContain(bytes)) {
-            if (DEBUG && !seen.contains(byteSeq)) {
-                throw new IllegalStateException("This event is 1 in 1Q!");
-            } else {
-                return true;
+        if (seen != null) {
+            try {
+                return !seen.add(bytes);
+            } catch (IOException ioe) {
+                log.error("Failed to check the entry signature.  Returning entry as unique.", ioe);
+                return false;
             }
         }
-        bloom.put(bytes);
-        if (DEBUG) {
-            seen.add(byteSeq);
+        boolean added = bloom.put(bytes);
+        if (bloom.isSaturated() && bloom.getCount() == bloom.getCapacity() + 1) {
+            log.warn("Dedupe bloom filter reached its memory budget of " + bloom.getBytesUsed() + " bytes at " + bloom.getCapacity()
+                            + " entries, the false positive probability will degrade");
+        }
+        return !added;
+    }
+    
+    /**
+     * @return the number of entries that can be tracked before the false positive probability degrades or, in exact mode, before spilling to disk
+     */
+    public long getCapacity() {
+        return seen != null ? seen.getMaxInMemory() : bloom.getCapacity();
+    }
+    
+    /**
+     * @return the number of unique entries tracked over the capacity
+     */
+    public double getFillRatio() {
+        return seen != null ? (double) seen.size() / seen.getMaxInMemory() : bloom.getFillRatio();
+    }
+    
+    /**
+     * @return the number of bytes held in memory to track the entries
+     */
+    public long getBytesUsed() {
+        return seen != null ? seen.getBytesInMemory() : bloom.getBytesUsed();
+    }
+    
+    /**
+     * Delete any entries spilled to disk
+     */
+    @Override
+    public void close() {
+        if (seen != null) {
+            seen.close();
         }
-        return false;
     }
     
     public static class ByteFunnel implements Funnel<byte[]>, Serializable {
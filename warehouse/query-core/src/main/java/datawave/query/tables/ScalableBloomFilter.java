@@ -0,0 +1,173 @@
+package datawave.query.tables;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bloom filter that grows in stages as entries are added. Each stage is larger than the last and has a tighter false positive probability, so the compound
+ * false positive probability stays bounded by twice that of the first stage no matter how many stages are added. A new stage is only added while the total
+ * size of the stages fits within the memory budget. Once the budget is reached the last stage keeps taking entries past its capacity, and the fill ratio
+ * reports how far the false positive probability has degraded. This class is not thread safe.
+ *
+ * @param <T>
+ */
+class ScalableBloomFilter<T> {
+    
+    public static final int DEFAULT_INITIAL_CAPACITY = 10000;
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 1e-12;
+    
+    // each stage holds this many times the entries of the previous stage
+    private static final int GROWTH_FACTOR = 4;
+    // each stage has this fraction of the false positive probability of the previous stage
+    private static final double TIGHTENING_RATIO = 0.5;
+    
+    private final Funnel<T> funnel;
+    private final long memoryBudget;
+    private final List<BloomFilter<T>> stages = new ArrayList<>();
+    
+    private long nextCapacity;
+    private double nextProbability;
+    
+    // the capacity of and the entries added to the last stage
+    private long stageCapacity = 0;
+    private long stageCount = 0;
+    
+    private long capacity = 0;
+    private long count = 0;
+    private long bytesUsed = 0;
+    private boolean saturated = false;
+    
+    /**
+     * @param funnel
+     *            the funnel for the entries
+     * @param memoryBudget
+     *            the max number of bytes to allocate for the stages. The first stage is always allocated.
+     */
+    public ScalableBloomFilter(Funnel<T> funnel, long memoryBudget) {
+        this(funnel, memoryBudget, DEFAULT_INITIAL_CAPACITY, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+    
+    /**
+     * @param funnel
+     *            the funnel for the entries
+     * @param memoryBudget
+     *            the max number of bytes to allocate for the stages. The first stage is always allocated.
+     * @param initialCapacity
+     *            the number of entries in the first stage
+     * @param falsePositiveProbability
+     *            the false positive probability of the first stage
+     */
+    public ScalableBloomFilter(Funnel<T> funnel, long memoryBudget, long initialCapacity, double falsePositiveProbability) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("The initial capacity must be positive: " + initialCapacity);
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1: " + falsePositiveProbability);
+        }
+        this.funnel = funnel;
+        this.memoryBudget = memoryBudget;
+        this.nextCapacity = initialCapacity;
+        this.nextProbability = falsePositiveProbability;
+        addStage();
+    }
+    
+    /**
+     * Add an entry to the filter
+     *
+     * @param entry
+     * @return true if the entry might not have been added before, false if it definitely was
+     */
+    public boolean put(T entry) {
+        if (mightContain(entry)) {
+            return false;
+        }
+        if (stageCount >= stageCapacity && !saturated) {
+            if (bytesUsed + bytes(nextCapacity, nextProbability) <= memoryBudget) {
+                addStage();
+            } else {
+                saturated = true;
+            }
+        }
+        stages.get(stages.size() - 1).put(entry);
+        stageCount++;
+        count++;
+        return true;
+    }
+    
+    /**
+     * @param entry
+     * @return true if the entry might have been added, false if it definitely was not
+     */
+    public boolean mightContain(T entry) {
+        // the later stages are larger and more likely to hold the entry
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).mightContain(entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void addStage() {
+        stages.add(BloomFilter.create(funnel, (int) Math.min(Integer.MAX_VALUE, nextCapacity), nextProbability));
+        bytesUsed += bytes(nextCapacity, nextProbability);
+        capacity += nextCapacity;
+        stageCapacity = nextCapacity;
+        stageCount = 0;
+        nextCapacity *= GROWTH_FACTOR;
+        nextProbability *= TIGHTENING_RATIO;
+    }
+    
+    /**
+     * The size of a stage, computed the way the bloom filter sizes its bit array
+     */
+    static long bytes(long capacity, double probability) {
+        long bits = (long) (-capacity * Math.log(probability) / (Math.log(2) * Math.log(2)));
+        return ((bits + Long.SIZE - 1) / Long.SIZE) * (Long.SIZE / Byte.SIZE);
+    }
+    
+    /**
+     * @return the number of stages
+     */
+    public int getStages() {
+        return stages.size();
+    }
+    
+    /**
+     * @return the number of entries the stages were sized for
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * @return the number of entries added
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return the number of entries added over the capacity, which is greater than 1 once the memory budget stopped the filter from growing
+     */
+    public double getFillRatio() {
+        return (double) count / capacity;
+    }
+    
+    /**
+     * @return the number of bytes allocated for the stages
+     */
+    public long getBytesUsed() {
+        return bytesUsed;
+    }
+    
+    /**
+     * @return true if the memory budget stopped the filter from growing
+     */
+    public boolean isSaturated() {
+        return saturated;
+    }
+}
@@ -14,6 +14,7 @@ import datawave.query.CloseableIterable;
 import datawave.query.Constants;
 import datawave.query.DocumentSerialization;
 import datawave.query.QueryParameters;
+import datawave.query.cache.ResultCache;
 import datawave.query.cardinality.CardinalityConfiguration;
 import datawave.query.config.IndexHole;
 import datawave.query.config.Profile;
@@ -23,6 +24,7 @@ import datawave.query.enrich.EnrichingMaster;
 import datawave.query.index.lookup.CreateUidsIterator;
 import datawave.query.index.lookup.IndexInfo;
 import datawave.query.index.lookup.UidIntersector;
+import datawave.query.jexl.JexlASTHelper;
 import datawave.query.iterator.QueryOptions;
 import datawave.query.language.parser.ParseException;
 import datawave.query.language.parser.QueryParser;
@@ -32,6 +34,7 @@ import datawave.query.planner.DefaultQueryPlanner;
 import datawave.query.planner.MetadataHelperQueryModelProvider;
 import datawave.query.planner.QueryModelProvider;
 import datawave.query.planner.QueryPlanner;
+import datawave.query.planner.ThreadedRangeBundler;
 import datawave.query.scheduler.PushdownScheduler;
 import datawave.query.scheduler.Scheduler;
 import datawave.query.scheduler.SequentialScheduler;
@@ -64,6 +67,7 @@ import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
@@ -71,6 +75,7 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -83,6 +88,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -169,6 +175,12 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     protected Scheduler scheduler = null;
     protected EventQueryDataDecoratorTransformer eventQueryDataDecoratorTransformer = null;
     private ShardQueryConfiguration config;
+    private DedupingIterator dedupingIterator = null;
+    private String resultCacheKey = null;
+    private String resultCacheDate = null;
+    private String resultCacheLoadDate = null;
+    private ResultCache.ResultIterator cachedResults = null;
+    private ResultCache.ResultIterator recordedResults = null;
     protected MetadataHelperFactory metadataHelperFactory = null;
     protected DateIndexHelperFactory dateIndexHelperFactory = null;
     protected Function<String,String> queryMacroFunction;
@@ -272,6 +284,8 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
                             + (this.getSettings() == null ? "empty" : this.getSettings().getId()) + ')');
         this.config.setExpandFields(expandFields);
         this.config.setExpandValues(expandValues);
+        // the plan has to be computed, so it is never served from the result cache
+        this.config.setCacheResults(false);
         initialize(config, connection, settings, auths);
         return config.getQueryString();
     }
@@ -415,6 +429,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         
         validateConfiguration(config);
         
+        if (config.isCacheResults() && lookupCachedResults(config, jexlQueryString, settings, auths)) {
+            log.info("Serving the results of " + jexlQueryString + " from the result cache");
+            return;
+        }
+        
         if (getCardinalityConfiguration() != null && (!config.getBlacklistedFields().isEmpty() || !config.getProjectFields().isEmpty())) {
             // Ensure that fields used for resultCardinalities are returned. They will be removed in the DocumentTransformer.
             // Modify the projectFields and blacklistFields only for this stage, then return to the original values.
@@ -448,6 +467,132 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         stopwatch.stop();
     }
     
+    /**
+     * Look up the results of the query in the result cache. The key of the query is kept so that the results can be recorded on a miss.
+     *
+     * @param config
+     * @param jexlQueryString
+     *            the query, after any macros have been expanded and the syntax has been converted to JEXL
+     * @param settings
+     * @param auths
+     * @return true if the results were cached, in which case the query does not need to be planned
+     * @throws Exception
+     */
+    protected boolean lookupCachedResults(ShardQueryConfiguration config, String jexlQueryString, Query settings, Set<Authorizations> auths)
+                    throws Exception {
+        Set<String> fields = getLoadDateFields(jexlQueryString);
+        if (fields.contains(Constants.ANY_FIELD) || fields.contains(Constants.NO_FIELD)) {
+            // the load dates of an unfielded query cannot be checked
+            log.debug("Not caching the results of an unfielded query");
+            return false;
+        }
+        
+        Map<String,String> parameters = new HashMap<>();
+        for (Parameter parameter : settings.getParameters()) {
+            parameters.put(parameter.getParameterName(), parameter.getParameterValue());
+        }
+        
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String today = format.format(new Date());
+        String key = ResultCache.key(getLogicName(), jexlQueryString, config.getBeginDate(), config.getEndDate(), auths, parameters);
+        String loadDate = getLatestLoadDate(config, fields, settings, auths);
+        
+        // an entry without a load date is evicted, as there is no way to tell when its results change
+        ResultCache cache = ResultCache.getInstance(config.getResultCacheDir(), config.getResultCacheMaxMemory(), config.getResultCacheMaxDisk());
+        this.cachedResults = cache.get(key, loadDate, today);
+        if (null == loadDate) {
+            log.debug("Not caching the results of a query whose fields have no load dates");
+            return false;
+        }
+        
+        this.resultCacheKey = key;
+        this.resultCacheDate = today;
+        this.resultCacheLoadDate = loadDate;
+        return this.cachedResults != null;
+    }
+    
+    /**
+     * Record the results of the query in the result cache if they were not found there, so that they are cached once they have all been returned
+     *
+     * @param config
+     * @param results
+     *            the results of the query
+     * @return an iterator over the results
+     * @throws IOException
+     *             if the results could not be written to the disk tier
+     */
+    protected Iterator<Entry<Key,Value>> recordCachedResults(ShardQueryConfiguration config, Iterator<Entry<Key,Value>> results) throws IOException {
+        if (null == this.resultCacheKey) {
+            return results;
+        }
+        ResultCache cache = ResultCache.getInstance(config.getResultCacheDir(), config.getResultCacheMaxMemory(), config.getResultCacheMaxDisk());
+        this.recordedResults = cache.record(resultCacheKey, resultCacheDate, resultCacheLoadDate, results);
+        return this.recordedResults;
+    }
+    
+    /**
+     * @param jexlQueryString
+     * @return the fields of the query, along with the fields they map to in the query model
+     * @throws Exception
+     */
+    protected Set<String> getLoadDateFields(String jexlQueryString) throws Exception {
+        Set<String> fields = new HashSet<>();
+        for (String identifier : JexlASTHelper.getIdentifierNames(JexlASTHelper.parseJexlQuery(jexlQueryString))) {
+            String field = JexlASTHelper.deconstructIdentifier(identifier);
+            fields.add(field);
+            if (null != queryModel) {
+                fields.addAll(queryModel.getForwardQueryMapping().get(field));
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * Find the latest load date of the fields in the load dates table, whose rows are the field names and whose column qualifiers start with the load date
+     *
+     * @param config
+     * @param fields
+     * @param settings
+     * @param auths
+     * @return the latest load date as yyyyMMdd, or null if none of the fields were loaded
+     * @throws Exception
+     */
+    protected String getLatestLoadDate(ShardQueryConfiguration config, Set<String> fields, Query settings, Set<Authorizations> auths) throws Exception {
+        if (fields.isEmpty()) {
+            return null;
+        }
+        
+        List<Range> ranges = new ArrayList<>();
+        for (String field : fields) {
+            ranges.add(Range.exact(field));
+        }
+        
+        String latest = null;
+        BatchScanner bs = getScannerFactory().newScanner(config.getLoadDatesTableName(), auths, 1, settings);
+        try {
+            bs.setRanges(ranges);
+            for (Entry<Key,Value> entry : bs) {
+                String cq = entry.getKey().getColumnQualifier().toString();
+                int index = cq.indexOf('\0');
+                String date = index < 0 ? cq : cq.substring(0, index);
+                if (null == latest || date.compareTo(latest) > 0) {
+                    latest = date;
+                }
+            }
+        } finally {
+            getScannerFactory().close(bs);
+        }
+        return latest;
+    }
+    
+    /**
+     * @return true if the results of the query are being served from the result cache
+     */
+    public boolean isServedFromResultCache() {
+        return null != cachedResults;
+    }
+    
     /**
      * Validate that the configuration is in a consistent state
      *
@@ -506,6 +651,12 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         final QueryStopwatch timers = config.getTimers();
         TraceStopwatch stopwatch = timers.newStartedStopwatch("ShardQueryLogic - Setup Query");
         
+        if (null != this.cachedResults) {
+            this.iterator = this.cachedResults;
+            stopwatch.stop();
+            return;
+        }
+        
         // Ensure we have all of the information needed to run a query
         if (!config.canRunQuery()) {
             log.warn("The given query '" + config + "' could not be run, most likely due to not matching any records in the global index.");
@@ -548,9 +699,12 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.iterator = this.scheduler.iterator();
         
         if (!config.isSortedUIDs()) {
-            this.iterator = new DedupingIterator(this.iterator);
+            this.dedupingIterator = new DedupingIterator(this.iterator, config.getDedupeMemoryBudget(), config.isExactDedupe());
+            this.iterator = this.dedupingIterator;
         }
         
+        this.iterator = recordCachedResults(config, this.iterator);
+        
         stopwatch.stop();
         
         log.info(getStopwatchHeader(config));
@@ -714,6 +868,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             config.setLimitFieldsPreQueryEvaluation(limitFieldsPreQueryEvaluationValue);
         }
         
+        String tournamentMerge = settings.findParameter(QueryOptions.TOURNAMENT_MERGE).getParameterValue().trim();
+        if (org.apache.commons.lang.StringUtils.isNotBlank(tournamentMerge)) {
+            config.setTournamentMerge(Boolean.parseBoolean(tournamentMerge));
+        }
+        
         String limitFieldsField = settings.findParameter(QueryOptions.LIMIT_FIELDS_FIELD).getParameterValue().trim();
         if (org.apache.commons.lang.StringUtils.isNotBlank(limitFieldsField)) {
             this.setLimitFieldsField(limitFieldsField);
@@ -1075,6 +1234,20 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             }
         }
         
+        if (null != this.dedupingIterator) {
+            this.dedupingIterator.close();
+        }
+        
+        for (ResultCache.ResultIterator results : Arrays.asList(this.cachedResults, this.recordedResults)) {
+            if (null != results) {
+                try {
+                    results.close();
+                } catch (IOException e) {
+                    log.error("Caught exception trying to close cached results", e);
+                }
+            }
+        }
+        
         if (null != this.scheduler) {
             try {
                 log.debug("Closing ShardQueryLogic scheduler: " + System.identityHashCode(this));
@@ -1764,6 +1937,58 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.queries = queries;
     }
     
+    /**
+     * @return the time in milliseconds from the start of the range stream until the first range was handed to the scanners, or -1 if it is not known
+     */
+    public long getTimeToFirstRange() {
+        if (queries instanceof ThreadedRangeBundler) {
+            return ((ThreadedRangeBundler) queries).getTimeToFirstRange();
+        }
+        return -1;
+    }
+    
+    /**
+     * @return the number of results the dedupe can track within its memory budget, or -1 if the results are not being deduped
+     */
+    public long getDedupeCapacity() {
+        return null == dedupingIterator ? -1 : dedupingIterator.getCapacity();
+    }
+    
+    /**
+     * @return the number of unique results tracked by the dedupe over its capacity, or 0 if the results are not being deduped
+     */
+    public double getDedupeFillRatio() {
+        return null == dedupingIterator ? 0 : dedupingIterator.getFillRatio();
+    }
+    
+    /**
+     * @return the number of bytes held in memory by the dedupe, or 0 if the results are not being deduped
+     */
+    public long getDedupeBytesUsed() {
+        return null == dedupingIterator ? 0 : dedupingIterator.getBytesUsed();
+    }
+    
+    /**
+     * @return the estimated number of global index entries matched by the planned query, or -1 if the query was not cost based planned
+     */
+    public long getEstimatedCardinality() {
+        return getConfig().getEstimatedCardinality();
+    }
+    
+    /**
+     * @return the estimates and decisions of the cost based planning, or null if the query was not cost based planned
+     */
+    public String getPlanCostEstimates() {
+        return getConfig().getPlanCostEstimates();
+    }
+    
+    /**
+     * @return the planning time in milliseconds saved by reusing cached query plans
+     */
+    public long getPlanCacheTimeSaved() {
+        return getConfig().getPlanCacheTimeSaved();
+    }
+    
     public QueryModel getQueryModel() {
         return queryModel;
     }
@@ -1858,6 +2083,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         optionalParams.add(QueryOptions.POSTPROCESSING_CLASSES);
         optionalParams.add(QueryOptions.COMPRESS_SERVER_SIDE_RESULTS);
         optionalParams.add(QueryOptions.HIT_LIST);
+        optionalParams.add(QueryOptions.TOURNAMENT_MERGE);
         optionalParams.add(QueryOptions.TYPE_METADATA_IN_HDFS);
         optionalParams.add(QueryOptions.DATE_INDEX_TIME_TRAVEL);
         optionalParams.add(QueryParameters.LIMIT_FIELDS);
@@ -2215,6 +2441,150 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setTrackSizes(trackSizes);
     }
     
+    public boolean isCompiledEvaluation() {
+        return getConfig().isCompiledEvaluation();
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        getConfig().setCompiledEvaluation(compiledEvaluation);
+    }
+    
+    public int getUniqueCacheBufferSize() {
+        return getConfig().getUniqueCacheBufferSize();
+    }
+    
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        getConfig().setUniqueCacheBufferSize(uniqueCacheBufferSize);
+    }
+    
+    public boolean isTournamentMerge() {
+        return getConfig().isTournamentMerge();
+    }
+    
+    public void setTournamentMerge(boolean tournamentMerge) {
+        getConfig().setTournamentMerge(tournamentMerge);
+    }
+    
+    public long getDedupeMemoryBudget() {
+        return getConfig().getDedupeMemoryBudget();
+    }
+    
+    public void setDedupeMemoryBudget(long dedupeMemoryBudget) {
+        getConfig().setDedupeMemoryBudget(dedupeMemoryBudget);
+    }
+    
+    public boolean isExactDedupe() {
+        return getConfig().isExactDedupe();
+    }
+    
+    public void setExactDedupe(boolean exactDedupe) {
+        getConfig().setExactDedupe(exactDedupe);
+    }
+    
+    public boolean isCacheResults() {
+        return getConfig().isCacheResults();
+    }
+    
+    public void setCacheResults(boolean cacheResults) {
+        getConfig().setCacheResults(cacheResults);
+    }
+    
+    public String getResultCacheDir() {
+        return getConfig().getResultCacheDir();
+    }
+    
+    public void setResultCacheDir(String resultCacheDir) {
+        getConfig().setResultCacheDir(resultCacheDir);
+    }
+    
+    public long getResultCacheMaxMemory() {
+        return getConfig().getResultCacheMaxMemory();
+    }
+    
+    public void setResultCacheMaxMemory(long resultCacheMaxMemory) {
+        getConfig().setResultCacheMaxMemory(resultCacheMaxMemory);
+    }
+    
+    public long getResultCacheMaxDisk() {
+        return getConfig().getResultCacheMaxDisk();
+    }
+    
+    public void setResultCacheMaxDisk(long resultCacheMaxDisk) {
+        getConfig().setResultCacheMaxDisk(resultCacheMaxDisk);
+    }
+    
+    public String getLoadDatesTableName() {
+        return getConfig().getLoadDatesTableName();
+    }
+    
+    public void setLoadDatesTableName(String loadDatesTableName) {
+        getConfig().setLoadDatesTableName(loadDatesTableName);
+    }
+    
+    public boolean isCostBasedPlanning() {
+        return getConfig().isCostBasedPlanning();
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        getConfig().setCostBasedPlanning(costBasedPlanning);
+    }
+    
+    public double getCostBasedPushdownRatio() {
+        return getConfig().getCostBasedPushdownRatio();
+    }
+    
+    public void setCostBasedPushdownRatio(double costBasedPushdownRatio) {
+        getConfig().setCostBasedPushdownRatio(costBasedPushdownRatio);
+    }
+    
+    public double getCostBasedIvaratorRatio() {
+        return getConfig().getCostBasedIvaratorRatio();
+    }
+    
+    public void setCostBasedIvaratorRatio(double costBasedIvaratorRatio) {
+        getConfig().setCostBasedIvaratorRatio(costBasedIvaratorRatio);
+    }
+    
+    public boolean isCacheQueryPlans() {
+        return getConfig().isCacheQueryPlans();
+    }
+    
+    public void setCacheQueryPlans(boolean cacheQueryPlans) {
+        getConfig().setCacheQueryPlans(cacheQueryPlans);
+    }
+    
+    public int getQueryPlanCacheSize() {
+        return getConfig().getQueryPlanCacheSize();
+    }
+    
+    public void setQueryPlanCacheSize(int queryPlanCacheSize) {
+        getConfig().setQueryPlanCacheSize(queryPlanCacheSize);
+    }
+    
+    public long getQueryPlanCacheTTL() {
+        return getConfig().getQueryPlanCacheTTL();
+    }
+    
+    public void setQueryPlanCacheTTL(long queryPlanCacheTTL) {
+        getConfig().setQueryPlanCacheTTL(queryPlanCacheTTL);
+    }
+    
+    public String getDistinctCountField() {
+        return getConfig().getDistinctCountField();
+    }
+    
+    public void setDistinctCountField(String distinctCountField) {
+        getConfig().setDistinctCountField(distinctCountField);
+    }
+    
+    public int getDistinctCountPrecision() {
+        return getConfig().getDistinctCountPrecision();
+    }
+    
+    public void setDistinctCountPrecision(int distinctCountPrecision) {
+        getConfig().setDistinctCountPrecision(distinctCountPrecision);
+    }
+    
     public Profile getSelectedProfile() {
         return this.selectedProfile;
     }
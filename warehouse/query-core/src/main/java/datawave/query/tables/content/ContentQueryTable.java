@@ -29,6 +29,8 @@ import org.apache.log4j.Logger;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,6 +48,11 @@ import java.util.TreeSet;
  * 
  * The optional parameter content.view.name can be used to retrieve an alternate view of the document, assuming one is stored with that name. The optional
  * parameter content.view.all can be used to retrieve all documents for the parent and children Both optional parameters can be used together
+ * <p>
+ * All of the documents are retrieved with a single batch scanner, using one range per document and no more threads than there are distinct shards. The
+ * batch scanner returns documents in no particular order, so the optional parameter content.request.order can be used to return the documents in the order
+ * in which they appear in the query. The shards are then scanned in groups of requestOrderShardsPerScan, in request order, and each document is returned
+ * once the documents before it have been scanned. Smaller groups return the first documents sooner, while larger groups scan more shards in parallel.
  */
 public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
@@ -55,6 +62,8 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     private static final String ALL = "\u10FFFF";
     
     private int queryThreads = 100;
+    private int requestOrderShardsPerScan = 10;
+    private long maxRequestOrderBufferBytes = 32L * 1024 * 1024;
     private ScannerFactory scannerFactory;
     private String viewName = null;
     
@@ -64,6 +73,9 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
     public ContentQueryTable(final ContentQueryTable contentQueryTable) {
         super(contentQueryTable);
+        this.queryThreads = contentQueryTable.queryThreads;
+        this.requestOrderShardsPerScan = contentQueryTable.requestOrderShardsPerScan;
+        this.maxRequestOrderBufferBytes = contentQueryTable.maxRequestOrderBufferBytes;
     }
     
     /**
@@ -110,6 +122,12 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
             end = PARENT_ONLY;
         }
         
+        // Decide whether or not to return the documents in request order
+        p = settings.findParameter(QueryParameters.CONTENT_REQUEST_ORDER);
+        if ((null != p) && StringUtils.isNotBlank(p.getParameterValue())) {
+            config.setRequestOrder(Boolean.parseBoolean(p.getParameterValue().trim()));
+        }
+        
         // Configure ranges
         final Collection<Range> ranges = this.createRanges(settings, end);
         config.setRanges(ranges);
@@ -121,6 +139,22 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         this.queryThreads = queryThreads;
     }
     
+    public int getRequestOrderShardsPerScan() {
+        return requestOrderShardsPerScan;
+    }
+    
+    public void setRequestOrderShardsPerScan(int requestOrderShardsPerScan) {
+        this.requestOrderShardsPerScan = requestOrderShardsPerScan;
+    }
+    
+    public long getMaxRequestOrderBufferBytes() {
+        return maxRequestOrderBufferBytes;
+    }
+    
+    public void setMaxRequestOrderBufferBytes(long maxRequestOrderBufferBytes) {
+        this.maxRequestOrderBufferBytes = maxRequestOrderBufferBytes;
+    }
+    
     @Override
     public void setupQuery(GenericQueryConfiguration genericConfig) throws Exception {
         if (!genericConfig.getClass().getName().equals(ContentQueryConfiguration.class.getName())) {
@@ -130,36 +164,55 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         final ContentQueryConfiguration config = (ContentQueryConfiguration) genericConfig;
         
         try {
-            final BatchScanner scanner = this.scannerFactory
-                            .newScanner(config.getTableName(), config.getAuthorizations(), this.queryThreads, config.getQuery());
-            scanner.setRanges(config.getRanges());
-            
-            if (null != this.viewName) {
-                final IteratorSetting cfg = new IteratorSetting(50, RegExFilter.class);
-                cfg.addOption(RegExFilter.COLQ_REGEX, this.viewName);
-                scanner.addScanIterator(cfg);
+            if (config.isRequestOrder()) {
+                // Scan the shards a group at a time so that documents can be returned before the whole request has been scanned
+                final int threads = Math.max(1, Math.min(this.queryThreads, this.requestOrderShardsPerScan));
+                this.iterator = new ContentRequestOrderIterator(ranges -> scan(config, ranges, threads), config.getDocumentRanges(),
+                                this.requestOrderShardsPerScan, this.maxRequestOrderBufferBytes);
+            } else {
+                // The ranges of a shard are served by one tablet, so there is no benefit in more threads than shards
+                final int threads = Math.max(1, Math.min(this.queryThreads, config.getShardCount()));
+                this.iterator = scan(config, config.getRanges(), threads);
             }
-            
-            this.iterator = scanner.iterator();
-            this.scanner = scanner;
-            
         } catch (TableNotFoundException e) {
             throw new RuntimeException("Table not found: " + this.getTableName(), e);
         }
     }
     
     /*
-     * Create an ordered collection of Ranges for scanning
+     * Scan the ranges with a new batch scanner, closing the batch scanner of any earlier scan
+     */
+    private Iterator<Entry<Key,Value>> scan(final ContentQueryConfiguration config, final Collection<Range> ranges, final int threads)
+                    throws TableNotFoundException {
+        if (null != this.scanner) {
+            this.scannerFactory.close(this.scanner);
+        }
+        
+        final BatchScanner scanner = this.scannerFactory.newScanner(config.getTableName(), config.getAuthorizations(), threads, config.getQuery());
+        scanner.setRanges(ranges);
+        
+        if (null != this.viewName) {
+            final IteratorSetting cfg = new IteratorSetting(50, RegExFilter.class);
+            cfg.addOption(RegExFilter.COLQ_REGEX, this.viewName);
+            scanner.addScanIterator(cfg);
+        }
+        
+        this.scanner = scanner;
+        return scanner.iterator();
+    }
+    
+    /*
+     * Create a collection of Ranges for scanning, one for each distinct document in the order in which they appear in the query
      * 
      * @param settings the query
      * 
      * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
      * 
-     * @return one or more Ranges
+     * @return one or more Ranges, in request order
      */
     private Collection<Range> createRanges(final Query settings, final String endKeyTerminator) {
-        // Initialize the returned collection of ordered ranges
-        final Set<Range> ranges = new TreeSet<>();
+        // Initialize the returned collection of ranges in request order
+        final Set<Range> ranges = new LinkedHashSet<>();
         
         // Get the query
         final String query = settings.getQuery().trim();
@@ -248,6 +301,7 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         Set<String> params = new TreeSet<>();
         params.add(QueryParameters.CONTENT_VIEW_NAME);
         params.add(QueryParameters.CONTENT_VIEW_ALL);
+        params.add(QueryParameters.CONTENT_REQUEST_ORDER);
         return params;
     }
     
@@ -0,0 +1,209 @@
+package datawave.query.tables.content;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+/**
+ * Returns the content entries of the requested documents in the order in which the documents were requested. A batch scanner returns the entries of its
+ * ranges in no particular order and does not tell when a range is complete, so the shards are scanned in groups, in the order in which each shard first
+ * appears in the request. Once the scan of a group is complete, every document up to the first document of a shard that has not been scanned yet is returned.
+ * The first documents are therefore returned after the first group is scanned rather than after the whole request is scanned, and only the documents that
+ * follow a document from a later group are held. Smaller groups return the first documents sooner, but scan fewer shards in parallel.
+ * <p>
+ * The entries held are bounded by an estimate of their size in bytes. If the bound is exceeded, the entries held so far are returned in request order and the
+ * remaining entries are returned in the order they are scanned.
+ */
+public class ContentRequestOrderIterator implements Iterator<Entry<Key,Value>> {
+    
+    private static final Logger log = Logger.getLogger(ContentRequestOrderIterator.class);
+    
+    /**
+     * Scans the ranges of a group of shards
+     */
+    public interface ScanSource {
+        Iterator<Entry<Key,Value>> scan(Collection<Range> ranges) throws TableNotFoundException;
+    }
+    
+    private final ScanSource source;
+    private final long maxBufferBytes;
+    
+    // the document ranges for each shard in the order in which the shards first appear in the request, and the position of each range in the request
+    private final Map<String,List<Range>> rangesByShard = new LinkedHashMap<>();
+    private final Map<Range,Integer> requestIndex = new HashMap<>();
+    private final Deque<List<String>> shardGroups = new ArrayDeque<>();
+    
+    private final List<List<Entry<Key,Value>>> buffered;
+    private final boolean[] scanned;
+    private List<Entry<Key,Value>> unrequested = new ArrayList<>();
+    private long bufferedBytes = 0;
+    private int nextDocument = 0;
+    
+    private Iterator<Entry<Key,Value>> scan = null;
+    private List<String> scanShards = null;
+    private Iterator<Entry<Key,Value>> current = Collections.emptyIterator();
+    private boolean passThrough = false;
+    
+    /**
+     * @param source
+     *            scans the ranges of each group of shards
+     * @param documentRanges
+     *            the range of each document, in request order
+     * @param shardsPerScan
+     *            the number of shards to scan at a time
+     * @param maxBufferBytes
+     *            the maximum estimated size of the entries to hold for ordering
+     */
+    public ContentRequestOrderIterator(final ScanSource source, final List<Range> documentRanges, final int shardsPerScan, final long maxBufferBytes) {
+        this.source = source;
+        this.maxBufferBytes = maxBufferBytes;
+        this.buffered = new ArrayList<>(documentRanges.size());
+        this.scanned = new boolean[documentRanges.size()];
+        for (final Range range : documentRanges) {
+            final String shard = range.getStartKey().getRow().toString();
+            this.rangesByShard.computeIfAbsent(shard, k -> new ArrayList<>()).add(range);
+            this.requestIndex.put(range, this.buffered.size());
+            this.buffered.add(null);
+        }
+        
+        List<String> group = new ArrayList<>();
+        for (final String shard : this.rangesByShard.keySet()) {
+            group.add(shard);
+            if (group.size() >= Math.max(1, shardsPerScan)) {
+                this.shardGroups.add(group);
+                group = new ArrayList<>();
+            }
+        }
+        if (!group.isEmpty()) {
+            this.shardGroups.add(group);
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!this.current.hasNext()) {
+            if (this.nextDocument < this.buffered.size() && this.scanned[this.nextDocument]) {
+                // every earlier document has been returned
+                final List<Entry<Key,Value>> entries = this.buffered.set(this.nextDocument++, null);
+                if (null != entries) {
+                    this.bufferedBytes -= size(entries);
+                    this.current = entries.iterator();
+                }
+            } else if (null != this.scan && this.scan.hasNext()) {
+                add(this.scan.next());
+            } else if (null != this.scan) {
+                for (final String shard : this.scanShards) {
+                    for (final Range range : this.rangesByShard.get(shard)) {
+                        this.scanned[this.requestIndex.get(range)] = true;
+                    }
+                }
+                this.scan = null;
+            } else if (!this.shardGroups.isEmpty()) {
+                startScan(this.shardGroups.poll());
+            } else if (!this.unrequested.isEmpty()) {
+                this.current = this.unrequested.iterator();
+                this.unrequested = new ArrayList<>();
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+    
+    private void startScan(final List<String> shards) {
+        final Collection<Range> ranges = new TreeSet<>();
+        for (final String shard : shards) {
+            ranges.addAll(this.rangesByShard.get(shard));
+        }
+        try {
+            this.scan = this.source.scan(ranges);
+        } catch (TableNotFoundException e) {
+            throw new RuntimeException("Table not found while scanning content", e);
+        }
+        this.scanShards = shards;
+    }
+    
+    /*
+     * Hold a scanned entry with the rest of its document, or return it as scanned once the buffer has been exceeded
+     */
+    private void add(final Entry<Key,Value> entry) {
+        if (this.passThrough) {
+            this.current = Collections.singletonList(entry).iterator();
+            return;
+        }
+        
+        final int index = indexOf(entry.getKey());
+        List<Entry<Key,Value>> entries = index < 0 ? this.unrequested : this.buffered.get(index);
+        if (null == entries) {
+            entries = new ArrayList<>(1);
+            this.buffered.set(index, entries);
+        }
+        entries.add(entry);
+        this.bufferedBytes += entry.getKey().getSize() + entry.getValue().getSize();
+        
+        if (this.maxBufferBytes > 0 && this.bufferedBytes >= this.maxBufferBytes) {
+            log.warn("Content for " + this.buffered.size() + " documents exceeded " + this.maxBufferBytes
+                            + " bytes, returning the remaining entries in scan order");
+            this.passThrough = true;
+            final List<Entry<Key,Value>> held = new ArrayList<>();
+            for (int i = this.nextDocument; i < this.buffered.size(); i++) {
+                final List<Entry<Key,Value>> documentEntries = this.buffered.set(i, null);
+                if (null != documentEntries) {
+                    held.addAll(documentEntries);
+                }
+            }
+            held.addAll(this.unrequested);
+            this.unrequested = new ArrayList<>();
+            this.nextDocument = this.buffered.size();
+            this.bufferedBytes = 0;
+            this.current = held.iterator();
+        }
+    }
+    
+    private static long size(final List<Entry<Key,Value>> entries) {
+        long size = 0;
+        for (final Entry<Key,Value> entry : entries) {
+            size += entry.getKey().getSize() + entry.getValue().getSize();
+        }
+        return size;
+    }
+    
+    /*
+     * Find the position in the request of the document containing the key, or -1 for an entry outside of the requested ranges
+     */
+    private int indexOf(final Key key) {
+        final List<Range> ranges = this.rangesByShard.get(key.getRow().toString());
+        if (null != ranges) {
+            for (final Range range : ranges) {
+                if (range.contains(key)) {
+                    return this.requestIndex.get(range);
+                }
+            }
+        }
+        return -1;
+    }
+}
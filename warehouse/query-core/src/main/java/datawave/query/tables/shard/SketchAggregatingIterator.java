@@ -0,0 +1,119 @@
+package datawave.query.tables.shard;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import datawave.core.iterators.ResultSketchingIterator;
+import datawave.marking.MarkingFunctions;
+import datawave.query.cardinality.CardinalitySketches;
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import datawave.query.transformer.ShardQueryDistinctCountTransformer.DistinctCount;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.collections4.Transformer;
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.apache.log4j.Logger;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Merges the sketches returned by the {@link ResultSketchingIterator} for every range and returns the estimated number of distinct values for each shard date,
+ * in date order, along with the relative error of the estimates.
+ */
+public class SketchAggregatingIterator extends TransformIterator {
+    private static final Logger log = Logger.getLogger(SketchAggregatingIterator.class);
+    
+    private final int precision;
+    private CardinalitySketches sketches = null;
+    private Iterator<Entry<String,Long>> estimates = null;
+    private ColumnVisibility cv = null;
+    
+    protected Set<ColumnVisibility> columnVisibilities = Sets.newHashSet();
+    
+    private MarkingFunctions markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
+    
+    private Kryo kryo = new Kryo();
+    
+    public SketchAggregatingIterator(Iterator<Entry<Key,Value>> iterator, Transformer transformer, int precision) {
+        super(iterator, transformer);
+        this.precision = precision;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (estimates == null) {
+            aggregate();
+        }
+        return estimates.hasNext();
+    }
+    
+    private void aggregate() {
+        sketches = new CardinalitySketches(precision);
+        while (getIterator().hasNext()) {
+            @SuppressWarnings("unchecked")
+            Entry<Key,Value> entry = (Entry<Key,Value>) getIterator().next();
+            
+            if (null == entry || entry.getKey() == null || entry.getValue() == null) {
+                break;
+            }
+            
+            // Unpack the kryo serialized object, it contains the sketches and the accumulated visibility
+            ResultSketchingIterator.ResultSketchTuple tuple = unpackValue(entry.getValue());
+            try {
+                sketches.merge(tuple.getSketches());
+            } catch (IOException e) {
+                throw new DatawaveFatalQueryException("Unable to merge the distinct count sketches", e);
+            }
+            this.columnVisibilities.add(tuple.getVisibility());
+        }
+        
+        try {
+            // Calculate the columnVisibility for the estimates from the combination.
+            cv = markingFunctions.combine(columnVisibilities);
+        } catch (Exception e) {
+            log.error("Could not create combined columnVisibilities for the distinct count", e);
+        }
+        
+        List<Entry<String,Long>> counts = new ArrayList<>();
+        for (Map.Entry<String,HyperLogLogPlus> sketch : sketches.getSketches().entrySet()) {
+            counts.add(Maps.immutableEntry(sketch.getKey(), sketch.getValue().cardinality()));
+        }
+        if (counts.isEmpty()) {
+            // nothing matched, return a single estimate of zero
+            cv = new ColumnVisibility("");
+            counts.add(Maps.immutableEntry("", 0L));
+        }
+        estimates = counts.iterator();
+    }
+    
+    private ResultSketchingIterator.ResultSketchTuple unpackValue(Value value) {
+        ByteArrayInputStream bais = new ByteArrayInputStream(value.get());
+        Input input = new Input(bais);
+        return kryo.readObject(input, ResultSketchingIterator.ResultSketchTuple.class);
+    }
+    
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry<String,Long> estimate = estimates.next();
+        if (cv == null) {
+            return null;
+        }
+        return getTransformer().transform(Maps.immutableEntry(new DistinctCount(estimate.getKey(), estimate.getValue(), sketches.getRelativeError()), cv));
+    }
+}
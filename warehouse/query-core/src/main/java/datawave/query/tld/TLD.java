@@ -9,6 +9,7 @@ import org.apache.hadoop.io.Text;
 import java.util.ArrayList;
 
 import static datawave.data.hash.UIDConstants.DEFAULT_SEPARATOR;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static datawave.query.Constants.MAX_UNICODE_STRING;
 import static datawave.query.Constants.NULL;
 
@@ -20,6 +21,8 @@ import static datawave.query.Constants.NULL;
  * <li>Parses parent pointers from keys</li>
  * <li>Builds parent keys for seeking</li>
  * </ul>
+ * The parsers locate delimiters in place over the backing array of the {@link ByteSequence}, so they do not allocate beyond the sequence they return. The
+ * index and comparison helpers allocate nothing at all and are intended for the per-key paths of TLD and ancestor queries.
  */
 public class TLD {
     
@@ -37,9 +40,7 @@ public class TLD {
      * @return - the document id
      */
     public static ByteSequence parsePointerFromFI(ByteSequence cq) {
-        ArrayList<Integer> nulls = lastInstancesOf(0, cq, 2);
-        final int start = nulls.get(1) + 1, stop = cq.length();
-        return cq.subSequence(start, stop);
+        return cq.subSequence(nthLastIndexOf(0, cq, 2) + 1, cq.length());
     }
     
     /**
@@ -57,10 +58,10 @@ public class TLD {
      * @return - the parent id
      */
     public static ByteSequence parseParentPointerFromId(ByteSequence id) {
-        ArrayList<Integer> dots = instancesOf('.', id);
+        int dots = countOf('.', id, 0, id.length(), -1);
         int stop;
-        if (dots.size() > 2) {
-            stop = dots.get(Math.max(2, dots.size() - 2));
+        if (dots > 2) {
+            stop = nthIndexOf('.', id, 0, Math.max(3, dots - 1));
         } else {
             stop = id.length();
         }
@@ -79,11 +80,8 @@ public class TLD {
      * @return - a byte sequence that is the field and value separated by a null byte
      */
     public static ByteSequence parseFieldAndValueFromFI(ByteSequence cf, ByteSequence cq) {
-        ArrayList<Integer> nulls = instancesOf(0, cf, 1);
-        final int startFn = nulls.get(0) + 1, stopFn = cf.length();
-        
-        nulls = lastInstancesOf(0, cq, 2);
-        final int startFv = 0, stopFv = nulls.get(1);
+        final int startFn = indexOf(0, cf, 0) + 1, stopFn = cf.length();
+        final int startFv = 0, stopFv = nthLastIndexOf(0, cq, 2);
         
         byte[] fnFv = new byte[stopFn - startFn + 1 + stopFv - startFv];
         
@@ -100,10 +98,9 @@ public class TLD {
      * @return - a byte sequence that is the field and value separated by a null byte
      */
     public static ByteSequence parseFieldAndValueFromTF(ByteSequence cq) {
-        ArrayList<Integer> nulls = instancesOf(0, cq, 2);
-        ArrayList<Integer> otherNulls = lastInstancesOf(0, cq, 1);
-        final int startFn = otherNulls.get(0) + 1, stopFn = cq.length();
-        final int startFv = nulls.get(1) + 1, stopFv = otherNulls.get(0);
+        final int lastNull = lastIndexOf(0, cq, cq.length() - 1);
+        final int startFn = lastNull + 1, stopFn = cq.length();
+        final int startFv = nthIndexOf(0, cq, 0, 2) + 1, stopFv = lastNull;
         
         byte[] fnFv = new byte[stopFn - startFn + 1 + stopFv - startFv];
         
@@ -124,9 +121,35 @@ public class TLD {
      * @return - the parent document id
      */
     public static ByteSequence parseRootPointerFromFI(ByteSequence cq) {
-        ArrayList<Integer> nulls = lastInstancesOf(0, cq, 2);
-        final int start = nulls.get(1) + 1, stop = cq.length();
-        return parseRootPointerFromId(cq.subSequence(start, stop));
+        final int start = nthLastIndexOf(0, cq, 2) + 1;
+        return cq.subSequence(start, rootPointerEnd(cq, start, cq.length()));
+    }
+    
+    /**
+     * Determines if the root pointer of the local Field Index key's ColumnQualifier matches the provided root pointer, without allocating.
+     *
+     * @param cq
+     *            - a ByteSequence representing the Key's ColumnQualifier
+     * @param rootPointer
+     *            - a root pointer as returned by {@link #parseRootPointerFromFI(ByteSequence)}
+     * @return - true if the root pointers are equal
+     */
+    public static boolean isRootPointerFromFI(ByteSequence cq, ByteSequence rootPointer) {
+        final int start = nthLastIndexOf(0, cq, 2) + 1;
+        return equals(cq, start, rootPointerEnd(cq, start, cq.length()), rootPointer);
+    }
+    
+    /**
+     * Determines if the pointer of the local Field Index key's ColumnQualifier matches the provided pointer, without allocating.
+     *
+     * @param cq
+     *            - a ByteSequence representing the Key's ColumnQualifier
+     * @param pointer
+     *            - a pointer as returned by {@link #parsePointerFromFI(ByteSequence)}
+     * @return - true if the pointers are equal
+     */
+    public static boolean isPointerFromFI(ByteSequence cq, ByteSequence pointer) {
+        return equals(cq, nthLastIndexOf(0, cq, 2) + 1, cq.length(), pointer);
     }
     
     /**
@@ -137,14 +160,7 @@ public class TLD {
      * @return - a ByteSequence containing the parent document id.
      */
     public static ByteSequence parseRootPointerFromId(ByteSequence id) {
-        ArrayList<Integer> dots = instancesOf('.', id);
-        int stop;
-        if (dots.size() > 2) {
-            stop = dots.get(2);
-        } else {
-            stop = id.length();
-        }
-        return id.subSequence(0, stop);
+        return id.subSequence(0, rootPointerEnd(id, 0, id.length()));
     }
     
     /**
@@ -194,14 +210,207 @@ public class TLD {
      * @return - true if the provided id is a parent document id
      */
     public static boolean isRootPointer(ByteSequence id) {
-        ArrayList<Integer> dots = instancesOf('.', id);
-        return dots.size() <= 2;
+        return countOf('.', id, 0, id.length(), 3) <= 2;
+    }
+    
+    /**
+     * Parses the uid from a shard table key: the uid of an event key's ColumnFamily (datatype\0uid), of a Field Index key's ColumnQualifier
+     * (value\0datatype\0uid) or of a Term Frequency key's ColumnQualifier (datatype\0uid\0value\0field).
+     *
+     * @param cf
+     *            - the key's ColumnFamily
+     * @param cq
+     *            - the key's ColumnQualifier
+     * @return - the uid
+     */
+    public static ByteSequence parseUid(ByteSequence cf, ByteSequence cq) {
+        if (isTermFrequency(cf)) {
+            final int start = indexOf(0, cq, 0) + 1;
+            return cq.subSequence(start, indexOf(0, cq, start));
+        } else if (isFieldIndex(cf)) {
+            return cq.subSequence(lastIndexOf(0, cq, cq.length() - 1) + 1, cq.length());
+        } else {
+            return cf.subSequence(lastIndexOf(0, cf, cf.length() - 1) + 1, cf.length());
+        }
+    }
+    
+    /**
+     * Determines if the uid of a shard table key matches the provided uid, without allocating. See {@link #parseUid(ByteSequence, ByteSequence)}.
+     *
+     * @param cf
+     *            - the key's ColumnFamily
+     * @param cq
+     *            - the key's ColumnQualifier
+     * @param uid
+     *            - the uid to compare against
+     * @return - true if the key has the uid
+     */
+    public static boolean isUid(ByteSequence cf, ByteSequence cq, ByteSequence uid) {
+        if (isTermFrequency(cf)) {
+            final int start = indexOf(0, cq, 0) + 1;
+            return equals(cq, start, indexOf(0, cq, start), uid);
+        } else if (isFieldIndex(cf)) {
+            return equals(cq, lastIndexOf(0, cq, cq.length() - 1) + 1, cq.length(), uid);
+        } else {
+            return equals(cf, lastIndexOf(0, cf, cf.length() - 1) + 1, cf.length(), uid);
+        }
+    }
+    
+    /**
+     * Parses the field name from the local Field Index key's ColumnFamily (fi\0field)
+     *
+     * @param cf
+     *            - the field index key's ColumnFamily
+     * @return - the field name
+     */
+    public static String parseFieldFromFI(ByteSequence cf) {
+        final int start = indexOf(0, cf, 0) + 1;
+        return new String(cf.getBackingArray(), cf.offset() + start, cf.length() - start, UTF_8);
+    }
+    
+    /**
+     * Parses the field value from the local Field Index key's ColumnQualifier (value\0datatype\0uid), up to the first null byte
+     *
+     * @param cq
+     *            - the field index key's ColumnQualifier
+     * @return - the field value
+     */
+    public static String parseValueFromFI(ByteSequence cq) {
+        final int stop = indexOf(0, cq, 0);
+        return new String(cq.getBackingArray(), cq.offset(), stop < 0 ? cq.length() : stop, UTF_8);
+    }
+    
+    /**
+     * Parses the field name from a Term Frequency key's ColumnQualifier (datatype\0uid\0value\0field)
+     *
+     * @param cq
+     *            - the term frequency key's ColumnQualifier
+     * @return - the field name
+     */
+    public static String parseFieldFromTF(ByteSequence cq) {
+        final int start = lastIndexOf(0, cq, cq.length() - 1) + 1;
+        return new String(cq.getBackingArray(), cq.offset() + start, cq.length() - start, UTF_8);
+    }
+    
+    public static boolean isFieldIndex(ByteSequence cf) {
+        return cf.length() >= 3 && cf.byteAt(0) == 'f' && cf.byteAt(1) == 'i' && cf.byteAt(2) == 0;
+    }
+    
+    public static boolean isTermFrequency(ByteSequence cf) {
+        return cf.length() == 2 && cf.byteAt(0) == 't' && cf.byteAt(1) == 'f';
     }
     
     public static ByteSequence fromString(String s) {
         return new ArrayByteSequence(s.getBytes());
     }
     
+    /**
+     * Finds the end of the root pointer within a dot-delimited document id, which is the third dot or the end of the id.
+     *
+     * @param sequence
+     *            - the sequence containing the id
+     * @param start
+     *            - the start of the id
+     * @param end
+     *            - the end of the id, exclusive
+     * @return - the end of the root pointer, exclusive
+     */
+    public static int rootPointerEnd(ByteSequence sequence, int start, int end) {
+        int dot = nthIndexOf('.', sequence, start, 3);
+        return (dot < 0 || dot >= end) ? end : dot;
+    }
+    
+    /**
+     * @return the index of the first instance of b at or after from, or -1 if there is none
+     */
+    public static int indexOf(int b, ByteSequence sequence, int from) {
+        final byte[] bytes = sequence.getBackingArray();
+        final int offset = sequence.offset();
+        for (int i = Math.max(0, from); i < sequence.length(); ++i) {
+            if (bytes[offset + i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return the index of the last instance of b at or before from, or -1 if there is none
+     */
+    public static int lastIndexOf(int b, ByteSequence sequence, int from) {
+        final byte[] bytes = sequence.getBackingArray();
+        final int offset = sequence.offset();
+        for (int i = Math.min(from, sequence.length() - 1); i >= 0; --i) {
+            if (bytes[offset + i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return the index of the nth instance of b at or after from, counting from 1, or -1 if there are fewer instances
+     */
+    public static int nthIndexOf(int b, ByteSequence sequence, int from, int n) {
+        int index = from - 1;
+        for (int i = 0; i < n; ++i) {
+            index = indexOf(b, sequence, index + 1);
+            if (index < 0) {
+                return -1;
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * @return the index of the nth instance of b from the end of the sequence, counting from 1, or -1 if there are fewer instances
+     */
+    public static int nthLastIndexOf(int b, ByteSequence sequence, int n) {
+        int index = sequence.length();
+        for (int i = 0; i < n; ++i) {
+            index = lastIndexOf(b, sequence, index - 1);
+            if (index < 0) {
+                return -1;
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * @return the number of instances of b within [from, to), stopping once limit instances are found unless limit is negative
+     */
+    public static int countOf(int b, ByteSequence sequence, int from, int to, int limit) {
+        final byte[] bytes = sequence.getBackingArray();
+        final int offset = sequence.offset();
+        int count = 0;
+        for (int i = from; i < to && count != limit; ++i) {
+            if (bytes[offset + i] == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return true if the bytes of sequence within [start, end) are equal to other
+     */
+    public static boolean equals(ByteSequence sequence, int start, int end, ByteSequence other) {
+        final int length = end - start;
+        if (start < 0 || length != other.length()) {
+            return false;
+        }
+        final byte[] bytes = sequence.getBackingArray();
+        final byte[] otherBytes = other.getBackingArray();
+        final int offset = sequence.offset() + start;
+        final int otherOffset = other.offset();
+        for (int i = 0; i < length; ++i) {
+            if (bytes[offset + i] != otherBytes[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     public static ArrayList<Integer> instancesOf(int b, ByteSequence sequence) {
         return instancesOf(b, sequence, -1);
     }
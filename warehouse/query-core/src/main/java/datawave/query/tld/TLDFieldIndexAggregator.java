@@ -4,6 +4,7 @@ import static datawave.query.tld.TLD.parsePointerFromFI;
 import static datawave.query.tld.TLD.parseRootPointerFromFI;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import java.util.Set;
 
@@ -25,6 +26,8 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.hadoop.io.Text;
 
 public class TLDFieldIndexAggregator extends SeekingAggregator implements FieldIndexAggregator {
+    private static final byte[] MAX_UNICODE_BYTES = Constants.MAX_UNICODE_STRING.getBytes(StandardCharsets.UTF_8);
+    
     private Set<String> fieldsToAggregate;
     private EventDataQueryFilter attrFilter;
     
@@ -46,9 +49,9 @@ public class TLDFieldIndexAggregator extends SeekingAggregator implements FieldI
         Key nextKey = key;
         do {
             key = nextKey;
-            String field = key.getColumnFamily().toString().substring(3);
-            String value = key.getColumnQualifier().toString();
-            value = value.substring(0, value.indexOf('\0'));
+            ByteSequence cq = key.getColumnQualifierData();
+            String field = TLD.parseFieldFromFI(key.getColumnFamilyData());
+            String value = TLD.parseValueFromFI(cq);
             Attribute<?> attr = af.create(field, value, key, true);
             // in addition to keeping fields that the filter indicates should be kept, also keep fields that the filter applies. This is due to inconsistent
             // behavior between event/tld queries where an index only field index will be kept except when it is a child of a tld
@@ -56,9 +59,9 @@ public class TLDFieldIndexAggregator extends SeekingAggregator implements FieldI
                             && (attrFilter == null || attrFilter.keep(key)));
             d.put(field, attr);
             
-            ByteSequence thisId = parsePointerFromFI(key.getColumnQualifierData());
-            if (docId == null || !docId.equals(thisId)) {
-                docId = thisId;
+            // only parse the pointer when moving to another document
+            if (docId == null || !TLD.isPointerFromFI(cq, docId)) {
+                docId = parsePointerFromFI(cq);
                 Key docKey = new Key(key.getRow(), new Text(docId.toArray()), new Text(), ColumnVisibilityCache.get(key.getColumnVisibilityData()),
                                 key.getTimestamp());
                 attr = new DocumentKey(docKey, false);
@@ -96,15 +99,17 @@ public class TLDFieldIndexAggregator extends SeekingAggregator implements FieldI
     
     @Override
     protected boolean skip(Key next, Text row, ByteSequence pointer) {
-        return next != null && isFi(next.getColumnFamilyData()) && pointer.equals(parseRootPointerFromFI(next.getColumnQualifierData()));
+        return next != null && isFi(next.getColumnFamilyData()) && TLD.isRootPointerFromFI(next.getColumnQualifierData(), pointer);
     }
     
     @Override
     protected Key getSeekStartKey(Key current, ByteSequence pointer) {
-        int lastNullIndex = current.getColumnQualifier().toString().lastIndexOf(Constants.NULL);
-        lastNullIndex = current.getColumnQualifier().toString().lastIndexOf(Constants.NULL, lastNullIndex - 1);
-        String prefix = current.getColumnQualifier().toString().substring(0, lastNullIndex + 1);
-        return new Key(current.getRow(), current.getColumnFamily(), new Text(prefix + pointer + Constants.MAX_UNICODE_STRING));
+        ByteSequence cq = current.getColumnQualifierData();
+        Text seekCq = new Text();
+        seekCq.append(cq.getBackingArray(), cq.offset(), TLD.nthLastIndexOf(0, cq, 2) + 1);
+        seekCq.append(pointer.getBackingArray(), pointer.offset(), pointer.length());
+        seekCq.append(MAX_UNICODE_BYTES, 0, MAX_UNICODE_BYTES.length);
+        return new Key(current.getRow(), current.getColumnFamily(), seekCq);
     }
     
     public boolean isFi(ByteSequence byteSeq) {
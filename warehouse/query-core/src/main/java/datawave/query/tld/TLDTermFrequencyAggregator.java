@@ -4,7 +4,6 @@ import datawave.query.jexl.functions.TermFrequencyAggregator;
 import datawave.query.predicate.EventDataQueryFilter;
 import org.apache.accumulo.core.data.ByteSequence;
 
-import java.util.ArrayList;
 import java.util.Set;
 
 /**
@@ -18,15 +17,8 @@ public class TLDTermFrequencyAggregator extends TermFrequencyAggregator {
     
     @Override
     protected ByteSequence parsePointer(ByteSequence qualifier) {
-        ArrayList<Integer> deezNulls = TLD.instancesOf(0, qualifier, -1);
-        final int stop = deezNulls.get(1);
-        final int uidStart = deezNulls.get(0);
-        ByteSequence uid = qualifier.subSequence(uidStart + 1, stop);
-        ArrayList<Integer> deezDots = TLD.instancesOf('.', uid);
-        if (deezDots.size() > 2) {
-            return qualifier.subSequence(0, uidStart + deezDots.get(2) + 1);
-        } else {
-            return qualifier.subSequence(0, stop);
-        }
+        final int uidStart = TLD.indexOf(0, qualifier, 0);
+        final int stop = TLD.indexOf(0, qualifier, uidStart + 1);
+        return qualifier.subSequence(0, TLD.rootPointerEnd(qualifier, uidStart + 1, stop));
     }
 }
@@ -16,6 +16,7 @@ import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.iterator.QueryOptions;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.jexl.JexlASTHelper;
+import datawave.query.tables.ShardQueryLogic;
 import datawave.util.StringUtils;
 import datawave.util.time.DateHelper;
 import datawave.webservice.query.Query;
@@ -260,6 +261,36 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             metric.setDocRanges(docRanges);
             metric.setFiRanges(fiRanges);
         }
+        
+        if (logic instanceof ShardQueryLogic) {
+            long timeToFirstRange = ((ShardQueryLogic) logic).getTimeToFirstRange();
+            if (timeToFirstRange >= 0) {
+                metric.setTimeToFirstRange(timeToFirstRange);
+            }
+            long dedupeCapacity = ((ShardQueryLogic) logic).getDedupeCapacity();
+            if (dedupeCapacity >= 0) {
+                metric.setDedupeCapacity(dedupeCapacity);
+                metric.setDedupeFillRatio(((ShardQueryLogic) logic).getDedupeFillRatio());
+                metric.setDedupeBytesUsed(((ShardQueryLogic) logic).getDedupeBytesUsed());
+            }
+            long estimatedCardinality = ((ShardQueryLogic) logic).getEstimatedCardinality();
+            if (estimatedCardinality >= 0) {
+                metric.setEstimatedCardinality(estimatedCardinality);
+                metric.setPlanCostEstimates(((ShardQueryLogic) logic).getPlanCostEstimates());
+            }
+            if (((ShardQueryLogic) logic).isCacheQueryPlans()) {
+                metric.setPlanCacheTimeSaved(((ShardQueryLogic) logic).getPlanCacheTimeSaved());
+            }
+            if (((ShardQueryLogic) logic).getConfig().isCacheResults()) {
+                metric.setResultCacheHits(((ShardQueryLogic) logic).isServedFromResultCache() ? 1 : 0);
+            }
+        }
+        
+        for (DocumentTransform transform : transforms) {
+            if (transform instanceof WritesQueryMetrics) {
+                ((WritesQueryMetrics) transform).writeQueryMetrics(metric);
+            }
+        }
     }
     
     protected List<String> getFieldValues(Document document, String field, boolean shortCircuit) {
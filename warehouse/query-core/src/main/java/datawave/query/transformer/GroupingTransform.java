@@ -1,5 +1,6 @@
 package datawave.query.transformer;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -39,7 +40,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -256,6 +256,13 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
             Entry<Key,Document> entry = Maps.immutableEntry(key, d);
             log.trace("flushing out {}", entry);
             countingMap.clear();
+            fieldVisibilities.clear();
+            // only the most recent key is needed to know where to start, so do not hold on to the keys of a whole scan session
+            if (keys.size() > 1) {
+                Key last = keys.get(keys.size() - 1);
+                keys.clear();
+                keys.add(last);
+            }
             return entry;
         }
         return null;
@@ -443,7 +450,7 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
                     count = 1;
                 // see above comment about the COUNT field
                 log.trace("{} adding {} of {} to counting map", flatten ? "tserver" : "webserver", count, fieldCollection);
-                IntStream.range(0, count).forEach(j -> countingMap.add(fieldCollection));
+                countingMap.add(fieldCollection, count);
                 fieldVisibilities.put(fieldCollection, getColumnVisibility(entry));
                 log.trace("put {} to {} into fieldVisibilities {}", fieldCollection, getColumnVisibility(entry), fieldVisibilities);
             } else {
@@ -478,31 +485,56 @@ public class GroupingTransform extends DocumentTransform.DefaultDocumentTransfor
         
         private MarkingFunctions markingFunctions;
         
+        /**
+         * the attributes of the map keys indexed by value, so that merging visibilities does not have to walk every key in the map
+         */
+        private Multimap<String,GroupingTypeAttribute<?>> keyAttributes = ArrayListMultimap.create();
+        
         public GroupCountingHashMap(MarkingFunctions markingFunctions) {
             this.markingFunctions = markingFunctions;
         }
         
         public int add(Collection<GroupingTypeAttribute<?>> in) {
-            int count = 0;
-            if (super.containsKey(in)) {
-                count = super.get(in);
+            return add(in, 1);
+        }
+        
+        /**
+         * Add a number of occurrences of a group at once, as when merging the partial counts aggregated on a tserver.
+         * 
+         * @param in
+         *            the group
+         * @param occurrences
+         *            the number of occurrences
+         * @return the count for the group
+         */
+        public int add(Collection<GroupingTypeAttribute<?>> in, int occurrences) {
+            Integer existing = super.get(in);
+            int count = occurrences;
+            if (existing != null) {
+                count += existing;
                 // aggregate the visibilities
-                combine(this.keySet(), in);
+                combine(in);
+            } else {
+                in.forEach(attribute -> keyAttributes.put(attribute.getType().getDelegateAsString(), attribute));
             }
-            count++;
             super.put(in, count);
             return count;
         }
         
-        private void combine(Set<Collection<GroupingTypeAttribute<?>>> existingMapKeys, Collection<? extends Attribute<?>> incomingAttributes) {
+        @Override
+        public void clear() {
+            super.clear();
+            keyAttributes.clear();
+        }
+        
+        private void combine(Collection<? extends GroupingTypeAttribute<?>> incomingAttributes) {
             
             // for each Attribute in the incomingAttributes, find the existing map key attribute that matches its data.
             // combine the column visibilities of the incoming attribute and the existing one, and set
             // the column visibility of the EXISTING map key to the new value.
             // Note that the hashCode and equals methods for the GroupingTypeAttribute will ignore the metadata (which contains the column visibility)
             incomingAttributes.forEach(incomingAttribute -> {
-                existingMapKeys.stream()
-                                .flatMap(Collection::stream)
+                keyAttributes.get(incomingAttribute.getType().getDelegateAsString()).stream()
                                 // if the existing and incoming attributes are equal (other than the metadata), the incoming attribute's visibility will be
                                 // considered for merging into the existing attribute unless the column visibilities are already equal
                                 .filter(existingAttribute -> existingAttribute.getData().equals(incomingAttribute.getData())
@@ -0,0 +1,142 @@
+package datawave.query.transformer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import datawave.marking.MarkingFunctions;
+import datawave.marking.MarkingFunctions.Exception;
+import datawave.query.Constants;
+import datawave.query.transformer.ShardQueryDistinctCountTransformer.DistinctCount;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.cachedresults.CacheableLogic;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.exception.QueryException;
+import datawave.webservice.query.logic.BaseQueryLogicTransformer;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
+import datawave.webservice.query.result.event.Metadata;
+import datawave.webservice.query.result.event.ResponseObjectFactory;
+import datawave.webservice.result.BaseQueryResponse;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+/**
+ * Transforms the estimated number of distinct values of a field for one shard date into an event holding the date, the estimate and the relative standard
+ * error of the estimate.
+ */
+public class ShardQueryDistinctCountTransformer extends BaseQueryLogicTransformer<Entry<DistinctCount,ColumnVisibility>,EventBase> implements CacheableLogic {
+    public static final String DATE_CELL = "date";
+    public static final String COUNT_CELL = ShardQueryCountTableTransformer.COUNT_CELL;
+    public static final String ERROR_CELL = "error";
+    
+    private Authorizations auths = null;
+    
+    private ResponseObjectFactory responseObjectFactory;
+    
+    /**
+     * The responses and cached results of a distinct count have the same form as those of a count
+     */
+    private ShardQueryCountTableTransformer countTransformer;
+    
+    public ShardQueryDistinctCountTransformer(Query settings, MarkingFunctions markingFunctions, ResponseObjectFactory responseObjectFactory) {
+        super(markingFunctions);
+        this.responseObjectFactory = responseObjectFactory;
+        this.auths = new Authorizations(settings.getQueryAuthorizations().split(","));
+        this.countTransformer = new ShardQueryCountTableTransformer(settings, markingFunctions, responseObjectFactory);
+    }
+    
+    @Override
+    public EventBase transform(Entry<DistinctCount,ColumnVisibility> untypedEntry) {
+        
+        DistinctCount count = untypedEntry.getKey();
+        ColumnVisibility vis = untypedEntry.getValue();
+        
+        Map<String,String> markings;
+        try {
+            markings = markingFunctions.translateFromColumnVisibilityForAuths(vis, auths);
+        } catch (Exception e1) {
+            throw new IllegalArgumentException("Unable to translate markings", e1);
+        }
+        
+        EventBase e = this.responseObjectFactory.getEvent();
+        e.setMarkings(markings);
+        
+        long timestamp = System.currentTimeMillis();
+        List<FieldBase> fields = new ArrayList<>();
+        fields.add(this.makeField(DATE_CELL, markings, vis, timestamp, count.getDate()));
+        fields.add(this.makeField(COUNT_CELL, markings, vis, timestamp, count.getCount()));
+        fields.add(this.makeField(ERROR_CELL, markings, vis, timestamp, count.getRelativeError()));
+        e.setFields(fields);
+        
+        Metadata metadata = new Metadata();
+        metadata.setDataType(Constants.EMPTY_STRING);
+        metadata.setInternalId(COUNT_CELL + Constants.NULL + count.getDate()); // There is one item returned for each date.
+        metadata.setRow(count.getDate());
+        e.setMetadata(metadata);
+        
+        return e;
+    }
+    
+    private FieldBase makeField(String name, Map<String,String> markings, ColumnVisibility columnVisibility, Long timestamp, Object value) {
+        FieldBase field = this.responseObjectFactory.getField();
+        field.setName(name);
+        field.setMarkings(markings);
+        field.setColumnVisibility(columnVisibility);
+        field.setTimestamp(timestamp);
+        field.setValue(value);
+        return field;
+    }
+    
+    @Override
+    public BaseQueryResponse createResponse(List<Object> resultList) {
+        return countTransformer.createResponse(resultList);
+    }
+    
+    @Override
+    public List<CacheableQueryRow> writeToCache(Object o) throws QueryException {
+        return countTransformer.writeToCache(o);
+    }
+    
+    @Override
+    public List<Object> readFromCache(List<CacheableQueryRow> cacheableQueryRowList) {
+        return countTransformer.readFromCache(cacheableQueryRowList);
+    }
+    
+    /**
+     * The estimated number of distinct values for one shard date
+     */
+    public static class DistinctCount {
+        private final String date;
+        private final long count;
+        private final double relativeError;
+        
+        public DistinctCount(String date, long count, double relativeError) {
+            this.date = date;
+            this.count = count;
+            this.relativeError = relativeError;
+        }
+        
+        public String getDate() {
+            return date;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        /**
+         * @return the relative standard error of the estimate
+         */
+        public double getRelativeError() {
+            return relativeError;
+        }
+        
+        @Override
+        public String toString() {
+            return "DistinctCount{" + "date=" + date + ", count=" + count + ", relativeError=" + relativeError + '}';
+        }
+    }
+}
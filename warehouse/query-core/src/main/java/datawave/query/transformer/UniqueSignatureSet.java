@@ -0,0 +1,287 @@
+package datawave.query.transformer;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import datawave.query.util.sortedset.SortedSetTempFileHandler;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of document signatures used to determine uniqueness. Signatures are reduced to a 128 bit hash and held in a primitive open addressed table, which
+ * takes a fraction of the memory needed to hold the signatures themselves.
+ * <p>
+ * Once the table holds the configured number of hashes it is either spilled to disk as a sorted run, or, when spilling is disabled, reset. A spilled run keeps
+ * a bloom filter and a sparse index in memory so that a lookup reads at most one block of the run. A set that is reset only remembers the most recent hashes,
+ * which is enough for a pre-dedupe where a later exact pass catches anything that gets through. This class is not thread safe.
+ */
+public class UniqueSignatureSet implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(UniqueSignatureSet.class);
+    
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    
+    // the number of hashes between sparse index entries of a spilled run
+    private static final int BLOCK_SIZE = 256;
+    private static final int HASH_BYTES = 16;
+    
+    private final int maxInMemory;
+    private final boolean spill;
+    
+    // open addressed table of hashes, a slot of (0, 0) is empty
+    private long[] high;
+    private long[] low;
+    private int mask;
+    private int count = 0;
+    
+    private final List<SpilledRun> runs = new ArrayList<>();
+    private long size = 0;
+    
+    /**
+     * @param maxInMemory
+     *            the max number of hashes to hold in memory
+     * @param spill
+     *            true to spill the in memory hashes to disk when full, false to reset them
+     */
+    public UniqueSignatureSet(int maxInMemory, boolean spill) {
+        if (maxInMemory < 1) {
+            throw new IllegalArgumentException("The unique signature set must hold at least one hash in memory");
+        }
+        this.maxInMemory = maxInMemory;
+        this.spill = spill;
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.min(1 << 30, maxInMemory * 2L)) - 1) << 1;
+        this.high = new long[capacity];
+        this.low = new long[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Add a signature to the set.
+     *
+     * @param signature
+     *            the document signature
+     * @return true if the signature was not already in the set. If spilling is disabled, a signature that was seen before the last reset is reported as new.
+     * @throws IOException
+     *             if the set could not be spilled to or read from disk
+     */
+    public boolean add(byte[] signature) throws IOException {
+        HashCode hash = HASH.hashBytes(signature);
+        byte[] bytes = hash.asBytes();
+        long h = Longs.fromBytes(bytes[0], bytes[1], bytes[2], bytes[3], bytes[4], bytes[5], bytes[6], bytes[7]);
+        long l = Longs.fromBytes(bytes[8], bytes[9], bytes[10], bytes[11], bytes[12], bytes[13], bytes[14], bytes[15]);
+        if (h == 0 && l == 0) {
+            // (0, 0) marks an empty slot
+            l = 1;
+        }
+        
+        int slot = slot(h, l);
+        if (high[slot] != 0 || low[slot] != 0) {
+            return false;
+        }
+        for (SpilledRun run : runs) {
+            if (run.contains(h, l)) {
+                return false;
+            }
+        }
+        
+        high[slot] = h;
+        low[slot] = l;
+        count++;
+        size++;
+        if (count >= maxInMemory) {
+            if (spill) {
+                spill();
+            } else {
+                clearTable();
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return the number of hashes added to the set, including those spilled or reset
+     */
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * @return the number of runs spilled to disk
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+    
+    /**
+     * @return the max number of hashes held in memory before the set is spilled or reset
+     */
+    public int getMaxInMemory() {
+        return maxInMemory;
+    }
+    
+    /**
+     * @return the approximate number of bytes held in memory by the table and the indexes of the spilled runs
+     */
+    public long getBytesInMemory() {
+        long bytes = (long) high.length * HASH_BYTES;
+        for (SpilledRun run : runs) {
+            bytes += run.getBytesInMemory();
+        }
+        return bytes;
+    }
+    
+    /**
+     * Find the slot holding the hash, or the empty slot where it belongs.
+     */
+    private int slot(long h, long l) {
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while ((high[slot] != 0 || low[slot] != 0) && (high[slot] != h || low[slot] != l)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void clearTable() {
+        Arrays.fill(high, 0);
+        Arrays.fill(low, 0);
+        count = 0;
+    }
+    
+    private void spill() throws IOException {
+        long[][] sorted = new long[count][];
+        int index = 0;
+        for (int i = 0; i < high.length; i++) {
+            if (high[i] != 0 || low[i] != 0) {
+                sorted[index++] = new long[] {high[i], low[i]};
+            }
+        }
+        Arrays.sort(sorted, (a, b) -> compare(a[0], a[1], b[0], b[1]));
+        runs.add(new SpilledRun(sorted));
+        clearTable();
+    }
+    
+    private static int compare(long h1, long l1, long h2, long l2) {
+        int comparison = Long.compare(h1, h2);
+        return (comparison == 0 ? Long.compare(l1, l2) : comparison);
+    }
+    
+    /**
+     * Delete any spilled runs and clear the set
+     */
+    @Override
+    public void close() {
+        for (SpilledRun run : runs) {
+            run.close();
+        }
+        runs.clear();
+        clearTable();
+    }
+    
+    /**
+     * A sorted run of hashes on disk. The first hash of each block is kept in memory along with a bloom filter over the high bits of every hash.
+     */
+    private static class SpilledRun {
+        private final SortedSetTempFileHandler handler;
+        private final RandomAccessFile file;
+        private final int count;
+        private final long[] indexHigh;
+        private final long[] indexLow;
+        private final BloomFilter<Long> bloom;
+        private final byte[] block = new byte[BLOCK_SIZE * HASH_BYTES];
+        
+        SpilledRun(long[][] sorted) throws IOException {
+            this.handler = new SortedSetTempFileHandler();
+            this.count = sorted.length;
+            int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.indexHigh = new long[blocks];
+            this.indexLow = new long[blocks];
+            this.bloom = BloomFilter.create(Funnels.longFunnel(), Math.max(1, count), 0.01);
+            
+            try (DataOutputStream out = new DataOutputStream(handler.getOutputStream())) {
+                for (int i = 0; i < count; i++) {
+                    long[] hash = sorted[i];
+                    if (i % BLOCK_SIZE == 0) {
+                        indexHigh[i / BLOCK_SIZE] = hash[0];
+                        indexLow[i / BLOCK_SIZE] = hash[1];
+                    }
+                    bloom.put(hash[0]);
+                    out.writeLong(hash[0]);
+                    out.writeLong(hash[1]);
+                }
+            }
+            this.file = new RandomAccessFile(handler.getFile(), "r");
+            if (log.isDebugEnabled()) {
+                log.debug("Spilled " + count + " unique signatures to " + handler);
+            }
+        }
+        
+        boolean contains(long h, long l) throws IOException {
+            if (!bloom.mightContain(h)) {
+                return false;
+            }
+            
+            // find the last block starting at or before the hash
+            int lo = 0;
+            int hi = indexHigh.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (compare(indexHigh[mid], indexLow[mid], h, l) <= 0) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            int blockIndex = lo;
+            if (compare(indexHigh[blockIndex], indexLow[blockIndex], h, l) > 0) {
+                return false;
+            }
+            
+            int entries = Math.min(BLOCK_SIZE, count - blockIndex * BLOCK_SIZE);
+            file.seek((long) blockIndex * BLOCK_SIZE * HASH_BYTES);
+            file.readFully(block, 0, entries * HASH_BYTES);
+            lo = 0;
+            hi = entries - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int comparison = compare(readLong(mid * HASH_BYTES), readLong(mid * HASH_BYTES + 8), h, l);
+                if (comparison == 0) {
+                    return true;
+                } else if (comparison < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return false;
+        }
+        
+        long getBytesInMemory() {
+            // the bloom filter holds about 10 bits per hash at a 1% false positive probability
+            return (long) indexHigh.length * HASH_BYTES + block.length + count * 10L / Byte.SIZE;
+        }
+        
+        private long readLong(int offset) {
+            return Longs.fromBytes(block[offset], block[offset + 1], block[offset + 2], block[offset + 3], block[offset + 4], block[offset + 5],
+                            block[offset + 6], block[offset + 7]);
+        }
+        
+        void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Failed to close spilled unique signatures " + handler, e);
+            }
+            handler.deleteFile();
+        }
+    }
+}
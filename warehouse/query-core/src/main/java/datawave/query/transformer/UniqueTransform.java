@@ -4,9 +4,6 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnel;
-import com.google.common.hash.PrimitiveSink;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Attributes;
 import datawave.query.attributes.Document;
@@ -15,8 +12,8 @@ import datawave.query.model.QueryModel;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.util.StringUtils;
 import datawave.webservice.query.logic.BaseQueryLogic;
-import org.apache.accumulo.core.data.ArrayByteSequence;
-import org.apache.accumulo.core.data.ByteSequence;
+import datawave.webservice.query.logic.WritesQueryMetrics;
+import datawave.webservice.query.metric.BaseQueryMetric;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
@@ -25,7 +22,6 @@ import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -42,23 +38,39 @@ import java.util.stream.Collectors;
 /**
  * This is a iterator that will filter documents base on a uniqueness across a set of configured fields. Only the first instance of an event with a unique set
  * of those fields will be returned. This transform is thread safe.
+ * <p>
+ * The transform is applied twice for a query. The tablet servers pre-dedupe the documents of each scan session with a bounded set of signatures that is
+ * reset when full, which removes most duplicates before they are serialized and shipped. The web server then applies the exact transform with a set of
+ * signatures that spills to disk when full.
  */
-public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform {
+public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform implements WritesQueryMetrics {
     
-    private static final Logger log = Logger.getLogger(GroupingTransform.class);
+    private static final Logger log = Logger.getLogger(UniqueTransform.class);
     
-    private BloomFilter<byte[]> bloom = null;
-    private HashSet<ByteSequence> seen;
+    public static final int DEFAULT_CACHE_BUFFER_SIZE = 100000;
+    
+    private final UniqueSignatureSet seen;
     private Set<String> fields;
     private Multimap<String,String> modelMapping;
-    private final boolean DEBUG = false;
+    private long seenCount = 0;
+    private long droppedCount = 0;
     
     public UniqueTransform(Set<String> fields) {
+        this(fields, DEFAULT_CACHE_BUFFER_SIZE, false);
+    }
+    
+    /**
+     * @param fields
+     *            the unique fields
+     * @param cacheBufferSize
+     *            the number of signatures to hold in memory
+     * @param spill
+     *            true to spill signatures to disk once the buffer is full, false to reset the buffer. Only a transform that spills is guaranteed to remove
+     *            every duplicate.
+     */
+    public UniqueTransform(Set<String> fields, int cacheBufferSize, boolean spill) {
         this.fields = deconstruct(fields);
-        this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
-        if (DEBUG) {
-            this.seen = new HashSet<>();
-        }
+        this.seen = new UniqueSignatureSet(cacheBufferSize, spill);
         if (log.isTraceEnabled())
             log.trace("unique fields: " + this.fields);
     }
@@ -74,7 +86,7 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      * @param fields
      */
     public UniqueTransform(BaseQueryLogic<Entry<Key,Value>> logic, Set<String> fields) {
-        this(fields);
+        this(fields, ((ShardQueryLogic) logic).getUniqueCacheBufferSize(), true);
         QueryModel model = ((ShardQueryLogic) logic).getQueryModel();
         if (model != null) {
             modelMapping = HashMultimap.create();
@@ -109,12 +121,51 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
                     keyDocumentEntry = null;
                 }
             } catch (IOException ioe) {
-                log.error("Failed to convert document to bytes.  Returning document as unique.", ioe);
+                log.error("Failed to check the document signature.  Returning document as unique.", ioe);
             }
         }
         return keyDocumentEntry;
     }
     
+    /**
+     * No more documents will be passed through, so release the signatures.
+     *
+     * @return null
+     */
+    @Override
+    public Entry<Key,Document> flush() {
+        synchronized (seen) {
+            seen.close();
+        }
+        return null;
+    }
+    
+    @Override
+    public void writeQueryMetrics(BaseQueryMetric metric) {
+        synchronized (seen) {
+            metric.setUniqueSeenCount(seenCount);
+            metric.setUniqueDroppedCount(droppedCount);
+        }
+    }
+    
+    /**
+     * @return the number of documents checked for uniqueness
+     */
+    public long getSeenCount() {
+        synchronized (seen) {
+            return seenCount;
+        }
+    }
+    
+    /**
+     * @return the number of duplicate documents removed
+     */
+    public long getDroppedCount() {
+        synchronized (seen) {
+            return droppedCount;
+        }
+    }
+    
     /**
      * Determine if a document is unique per the fields specified. If we have seen this set of fields and values before, then it is not unique.
      * 
@@ -124,18 +175,11 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      */
     private boolean isDuplicate(Document document) throws IOException {
         byte[] bytes = getBytes(document);
-        ByteSequence byteSeq = new ArrayByteSequence(bytes);
-        synchronized (bloom) {
-            if (bloom.mightContain(bytes)) {
-                if (DEBUG && !seen.contains(byteSeq)) {
-                    throw new IllegalStateException("This event is 1 in 1Q!");
-                } else {
-                    return true;
-                }
-            }
-            bloom.put(bytes);
-            if (DEBUG) {
-                seen.add(byteSeq);
+        synchronized (seen) {
+            seenCount++;
+            if (!seen.add(bytes)) {
+                droppedCount++;
+                return true;
             }
         }
         return false;
@@ -401,15 +445,4 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
         return false;
     }
     
-    public static class ByteFunnel implements Funnel<byte[]>, Serializable {
-        
-        private static final long serialVersionUID = -2126172579955897986L;
-        
-        @Override
-        public void funnel(byte[] from, PrimitiveSink into) {
-            into.putBytes(from);
-        }
-        
-    }
-    
 }
@@ -106,11 +106,23 @@ public class BufferedFileBackedSortedSet<E> implements SortedSet<E> {
         return null;
     }
     
+    /**
+     * Get the handler factories to try, in order, when writing a set of the specified size
+     * 
+     * @param setSize
+     *            the number of entries in the set to be written
+     * @return the handler factories
+     */
+    protected List<SortedSetFileHandlerFactory> getHandlerFactories(int setSize) {
+        return handlerFactories;
+    }
+    
     public void persist() throws IOException {
         if (buffer != null) {
             // go through the handler factories and try to persist the sorted set
-            for (int i = 0; i < handlerFactories.size() && !buffer.isPersisted(); i++) {
-                SortedSetFileHandlerFactory handlerFactory = handlerFactories.get(i);
+            List<SortedSetFileHandlerFactory> factories = getHandlerFactories(buffer.size());
+            for (int i = 0; i < factories.size() && !buffer.isPersisted(); i++) {
+                SortedSetFileHandlerFactory handlerFactory = factories.get(i);
                 SortedSetFileHandler handler = createFileHandler(handlerFactory);
                 
                 // if we have a valid handler, try to persist
@@ -298,8 +310,14 @@ public class BufferedFileBackedSortedSet<E> implements SortedSet<E> {
         FileSortedSet<E> compactedSet = null;
         
         // go through the handler factories and try to persist the sorted set
-        for (int i = 0; i < handlerFactories.size() && compactedSet == null; i++) {
-            SortedSetFileHandlerFactory handlerFactory = handlerFactories.get(i);
+        // the sum of the set sizes is an upper bound on the compacted size, and avoids iterating over the merged sets
+        long setSize = 0;
+        for (SortedSet<E> subSet : setToCompact.getSets()) {
+            setSize += subSet.size();
+        }
+        List<SortedSetFileHandlerFactory> factories = getHandlerFactories((int) Math.min(Integer.MAX_VALUE, setSize));
+        for (int i = 0; i < factories.size() && compactedSet == null; i++) {
+            SortedSetFileHandlerFactory handlerFactory = factories.get(i);
             SortedSetFileHandler handler = createFileHandler(handlerFactory);
             
             // if we have a valid handler, try to persist
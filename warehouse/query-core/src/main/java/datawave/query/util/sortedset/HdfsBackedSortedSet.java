@@ -2,6 +2,9 @@ package datawave.query.util.sortedset;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -11,20 +14,28 @@ import java.util.List;
 import java.util.SortedSet;
 
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirManager;
 import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
 
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.FsStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.log4j.Logger;
 
 public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> implements SortedSet<E> {
     private static final Logger log = Logger.getLogger(HdfsBackedSortedSet.class);
     private static final String FILENAME_PREFIX = "SortedSetFile.";
+    private static final String MEMORY_FILENAME_PREFIX = FILENAME_PREFIX + "mem.";
+    
+    protected IvaratorCacheDirManager manager;
+    
+    // keeps small sets in memory, or null if the memory tier is disabled
+    protected SortedSetMemoryFileHandlerFactory memoryHandlerFactory;
     
     public HdfsBackedSortedSet(HdfsBackedSortedSet<E> other) throws IOException {
         super(other);
+        this.manager = other.manager;
+        this.memoryHandlerFactory = other.memoryHandlerFactory;
     }
     
     public HdfsBackedSortedSet(List<IvaratorCacheDir> ivaratorCacheDirs, String uniqueSubPath, int maxOpenFiles, int numRetries) throws IOException {
@@ -62,6 +73,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
     public HdfsBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, List<IvaratorCacheDir> ivaratorCacheDirs, String uniqueSubPath,
                     int maxOpenFiles, int numRetries, FileSortedSet.FileSortedSetFactory<E> setFactory) throws IOException {
         super(comparator, bufferPersistThreshold, maxOpenFiles, numRetries, createFileHandlerFactories(ivaratorCacheDirs, uniqueSubPath), setFactory);
+        this.manager = IvaratorCacheDirManager.getInstance();
         
         // for each of the handler factories, check to see if there are any existing files we should load
         for (SortedSetFileHandlerFactory handlerFactory : handlerFactories) {
@@ -87,6 +99,42 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
                 }
             }
         }
+        
+        // the memory files are kept under the path of the first cache dir
+        if (manager.getMemoryTierMaxSetSize() > 0 && !ivaratorCacheDirs.isEmpty()) {
+            memoryHandlerFactory = new SortedSetMemoryFileHandlerFactory(manager, new Path(ivaratorCacheDirs.get(0).getPathURI(), uniqueSubPath).toString());
+            List<String> files = manager.getMemoryFiles(memoryHandlerFactory.getUniqueDir());
+            for (String file : files) {
+                addSet(setFactory.newInstance(comparator, new SortedSetMemoryFileHandler(manager, file), true));
+            }
+            memoryHandlerFactory.setFileCount(files.size());
+        }
+    }
+    
+    /**
+     * Small sets are kept in memory when there is room, and the cache dirs are ordered by priority, remaining quota, and latency
+     */
+    @Override
+    protected List<SortedSetFileHandlerFactory> getHandlerFactories(int setSize) {
+        List<SortedSetFileHandlerFactory> factories = new ArrayList<>();
+        if (memoryHandlerFactory != null && setSize <= manager.getMemoryTierMaxSetSize()) {
+            factories.add(memoryHandlerFactory);
+        }
+        factories.addAll(manager.order(handlerFactories, factory -> (factory instanceof SortedSetHdfsFileHandlerFactory) ? ((SortedSetHdfsFileHandlerFactory) factory)
+                        .getIvaratorCacheDir() : null));
+        return factories;
+    }
+    
+    /**
+     * @return true if any of the persisted sets are held in memory rather than in a filesystem
+     */
+    public boolean hasMemoryTierData() {
+        for (FileSortedSet<E> fss : getSets()) {
+            if (fss.isPersisted() && fss.handler instanceof SortedSetMemoryFileHandler) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
@@ -98,8 +146,8 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         // We should still be able to access the FileSortedSet objects to get their handler because we
         // have a copy of the object in 'sortedSets'
         for (FileSortedSet<E> fss : sortedSets) {
-            if (fss.isPersisted() && fss.handler instanceof SortedSetHdfsFileHandler) {
-                ((SortedSetHdfsFileHandler) fss.handler).deleteFile();
+            if (fss.isPersisted() && (fss.handler instanceof SortedSetHdfsFileHandler || fss.handler instanceof SortedSetMemoryFileHandler)) {
+                fss.handler.deleteFile();
             }
         }
     }
@@ -135,24 +183,8 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         }
         
         public boolean isValid() {
-            FsStatus fsStatus = null;
-            try {
-                fsStatus = ivaratorCacheDir.getFs().getStatus();
-            } catch (IOException e) {
-                log.warn("Unable to determine status of the filesystem: " + ivaratorCacheDir.getFs());
-            }
-            
-            // determine whether this fs is a good candidate
-            if (fsStatus != null) {
-                long availableStorageMiB = fsStatus.getRemaining() / 0x100000L;
-                double availableStoragePercent = (double) fsStatus.getRemaining() / fsStatus.getCapacity();
-                
-                // if we are using less than our storage limit, the cache dir is valid
-                return availableStorageMiB >= ivaratorCacheDir.getConfig().getMinAvailableStorageMiB()
-                                && availableStoragePercent >= ivaratorCacheDir.getConfig().getMinAvailableStoragePercent();
-            }
-            
-            return false;
+            // if we are using less than our storage limit, the cache dir is valid
+            return IvaratorCacheDirManager.getInstance().hasAvailableStorage(ivaratorCacheDir);
         }
         
         @Override
@@ -167,7 +199,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             // generate a unique file name
             fileCount++;
             Path file = new Path(uniqueDir, FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis());
-            return new SortedSetHdfsFileHandler(fs, file);
+            return new SortedSetHdfsFileHandler(fs, file, ivaratorCacheDir);
         }
         
         @Override
@@ -177,13 +209,120 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         
     }
     
+    public static class SortedSetMemoryFileHandlerFactory implements SortedSetFileHandlerFactory {
+        final private IvaratorCacheDirManager manager;
+        final private String uniqueDir;
+        private int fileCount = 0;
+        
+        public SortedSetMemoryFileHandlerFactory(IvaratorCacheDirManager manager, String uniqueDir) {
+            this.manager = manager;
+            this.uniqueDir = uniqueDir;
+        }
+        
+        public String getUniqueDir() {
+            return uniqueDir;
+        }
+        
+        public int getFileCount() {
+            return fileCount;
+        }
+        
+        void setFileCount(int count) {
+            this.fileCount = count;
+        }
+        
+        @Override
+        public boolean isValid() {
+            return manager.hasMemoryAvailable();
+        }
+        
+        @Override
+        public SortedSetFileHandler createHandler() {
+            // generate a unique file name
+            fileCount++;
+            String file = uniqueDir + Path.SEPARATOR + MEMORY_FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis();
+            return new SortedSetMemoryFileHandler(manager, file);
+        }
+        
+        @Override
+        public String toString() {
+            return "memory:" + uniqueDir + " (fileCount=" + fileCount + ')';
+        }
+    }
+    
+    /**
+     * A sorted set file kept in memory by the {@link IvaratorCacheDirManager}. The file is stored when the output stream is closed, which fails if the memory
+     * tier is full.
+     */
+    public static class SortedSetMemoryFileHandler implements SortedSetFileHandler {
+        private final IvaratorCacheDirManager manager;
+        private final String file;
+        
+        public SortedSetMemoryFileHandler(IvaratorCacheDirManager manager, String file) {
+            this.manager = manager;
+            this.file = file;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            byte[] contents = manager.getMemoryFile(file);
+            if (contents == null) {
+                throw new IOException("Memory file no longer exists: " + file);
+            }
+            return new ByteArrayInputStream(contents);
+        }
+        
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream() {
+                private boolean closed = false;
+                
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        if (!manager.putMemoryFile(file, toByteArray())) {
+                            throw new IOException("The ivarator memory tier is full");
+                        }
+                    }
+                }
+            };
+        }
+        
+        @Override
+        public long getSize() {
+            byte[] contents = manager.getMemoryFile(file);
+            return contents == null ? 0 : contents.length;
+        }
+        
+        @Override
+        public void deleteFile() {
+            if (log.isDebugEnabled()) {
+                log.debug("Deleting " + file);
+            }
+            manager.deleteMemoryFile(file);
+        }
+        
+        @Override
+        public String toString() {
+            return "memory:" + file;
+        }
+    }
+    
     public static class SortedSetHdfsFileHandler implements SortedSetFileHandler {
         private FileSystem fs;
         private Path file;
+        // the cache dir to record write latency against, may be null
+        private IvaratorCacheDir ivaratorCacheDir;
         
         public SortedSetHdfsFileHandler(FileSystem fs, Path file) {
+            this(fs, file, null);
+        }
+        
+        public SortedSetHdfsFileHandler(FileSystem fs, Path file, IvaratorCacheDir ivaratorCacheDir) {
             this.fs = fs;
             this.file = file;
+            this.ivaratorCacheDir = ivaratorCacheDir;
         }
         
         private String getScheme() {
@@ -207,7 +346,12 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             if (log.isDebugEnabled()) {
                 log.debug("Creating " + file);
             }
-            return new BufferedOutputStream(fs.create(file));
+            long start = System.nanoTime();
+            OutputStream stream = fs.create(file);
+            if (ivaratorCacheDir != null) {
+                stream = new TimedOutputStream(stream, ivaratorCacheDir, System.nanoTime() - start);
+            }
+            return new BufferedOutputStream(stream);
         }
         
         @Override
@@ -241,4 +385,54 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         }
         
     }
+    
+    /**
+     * Measures the time spent writing to the filesystem, and records it with the {@link IvaratorCacheDirManager} when closed
+     */
+    private static class TimedOutputStream extends FilterOutputStream {
+        private final IvaratorCacheDir ivaratorCacheDir;
+        private long nanos;
+        private long bytes = 0;
+        private boolean closed = false;
+        
+        TimedOutputStream(OutputStream out, IvaratorCacheDir ivaratorCacheDir, long createNanos) {
+            super(out);
+            this.ivaratorCacheDir = ivaratorCacheDir;
+            this.nanos = createNanos;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - start;
+            bytes++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            bytes += len;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos += System.nanoTime() - start;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                long start = System.nanoTime();
+                out.close();
+                nanos += System.nanoTime() - start;
+                IvaratorCacheDirManager.getInstance().recordWrite(ivaratorCacheDir, bytes, nanos);
+            }
+        }
+    }
 }
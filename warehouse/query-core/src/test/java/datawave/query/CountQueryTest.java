@@ -1,5 +1,7 @@
 package datawave.query;
 
+import datawave.edge.util.ExtendedHyperLogLogPlus;
+import datawave.query.cardinality.CardinalitySketches;
 import datawave.query.tables.CountingShardQueryLogic;
 import datawave.query.testframework.AbstractFunctionalQuery;
 import datawave.query.testframework.AccumuloSetupHelper;
@@ -9,15 +11,26 @@ import datawave.query.testframework.CitiesDataType.CityField;
 import datawave.query.testframework.DataTypeHadoopConfig;
 import datawave.query.testframework.FieldConfig;
 import datawave.query.testframework.GenericCityFields;
+import datawave.query.testframework.QueryJexl;
+import datawave.query.transformer.ShardQueryDistinctCountTransformer;
+import datawave.webservice.query.exception.BadRequestQueryException;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
 import org.apache.log4j.Logger;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import static datawave.query.testframework.RawDataManager.AND_OP;
 import static datawave.query.testframework.RawDataManager.EQ_OP;
@@ -102,6 +115,104 @@ public class CountQueryTest extends AbstractFunctionalQuery {
         runCountTest(query);
     }
     
+    @Test
+    public void testDistinctCount() throws Exception {
+        log.info("------  testDistinctCount  ------");
+        
+        String query = CityField.CODE.name() + EQ_OP + "'usA'" + OR_OP + CityField.CODE.name() + EQ_OP + "'itA'" + OR_OP + CityField.CODE.name() + EQ_OP
+                        + "'edG'";
+        runDistinctCountTest(query, CityField.STATE.name());
+    }
+    
+    @Test
+    public void testDistinctCountOr() throws Exception {
+        log.info("------  testDistinctCountOr  ------");
+        
+        String query = CityField.CITY.name() + EQ_OP + "'paris'" + OR_OP + CityField.CITY.name() + EQ_OP + "'rome'";
+        runDistinctCountTest(query, CityField.STATE.name());
+        runDistinctCountTest(query, CityField.COUNTRY.name());
+    }
+    
+    @Test
+    public void testDistinctCountPrecision() throws Exception {
+        log.info("------  testDistinctCountPrecision  ------");
+        
+        String query = CityField.CODE.name() + EQ_OP + "'usA'";
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryParameters.DISTINCT_COUNT_PRECISION, Integer.toString(CardinalitySketches.MIN_PRECISION));
+        runDistinctCountTest(query, CityField.STATE.name(), options, CardinalitySketches.relativeError(CardinalitySketches.MIN_PRECISION));
+    }
+    
+    @Test(expected = BadRequestQueryException.class)
+    public void testDistinctCountPrecisionNotANumber() throws Exception {
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryParameters.DISTINCT_COUNT_FIELD, CityField.STATE.name());
+        options.put(QueryParameters.DISTINCT_COUNT_PRECISION, "fourteen");
+        runDistinctCountQuery(CityField.CODE.name() + EQ_OP + "'usA'", options);
+    }
+    
+    @Test(expected = BadRequestQueryException.class)
+    public void testDistinctCountPrecisionOutOfRange() throws Exception {
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryParameters.DISTINCT_COUNT_FIELD, CityField.STATE.name());
+        options.put(QueryParameters.DISTINCT_COUNT_PRECISION, Integer.toString(CardinalitySketches.MAX_PRECISION + 1));
+        runDistinctCountQuery(CityField.CODE.name() + EQ_OP + "'usA'", options);
+    }
+    
+    @Test(expected = BadRequestQueryException.class)
+    public void testDistinctCountBlacklistedField() throws Exception {
+        Map<String,String> options = new HashMap<>();
+        options.put(QueryParameters.DISTINCT_COUNT_FIELD, CityField.STATE.name());
+        options.put(QueryParameters.BLACKLISTED_FIELDS, CityField.STATE.name());
+        runDistinctCountQuery(CityField.CODE.name() + EQ_OP + "'usA'", options);
+    }
+    
+    private void runDistinctCountTest(String query, String field) throws Exception {
+        runDistinctCountTest(query, field, new HashMap<>(), CardinalitySketches.relativeError(ExtendedHyperLogLogPlus.P));
+    }
+    
+    /**
+     * The documents of each shard date are spread over several shards, so the sketches returned for each range have to be merged into one estimate per date.
+     * The test data is small enough for the estimates to be exact.
+     */
+    private void runDistinctCountTest(String query, String field, Map<String,String> options, double relativeError) throws Exception {
+        options.put(QueryParameters.DISTINCT_COUNT_FIELD, field);
+        List<EventBase> events = runDistinctCountQuery(query, options);
+        
+        Map<String,Long> actual = new TreeMap<>();
+        for (EventBase<?,?> event : events) {
+            String date = getCell(event, ShardQueryDistinctCountTransformer.DATE_CELL);
+            Assert.assertEquals(date, event.getMetadata().getRow());
+            Assert.assertEquals(ShardQueryDistinctCountTransformer.COUNT_CELL + Constants.NULL + date, event.getMetadata().getInternalId());
+            Assert.assertEquals(relativeError, Double.parseDouble(getCell(event, ShardQueryDistinctCountTransformer.ERROR_CELL)), 0.000001);
+            long count = Long.parseLong(getCell(event, ShardQueryDistinctCountTransformer.COUNT_CELL));
+            Assert.assertNull("date " + date + " was returned twice", actual.put(date, count));
+        }
+        
+        Date[] startEndDate = this.dataManager.getShardStartEndDate();
+        Map<String,Set<String>> values = new TreeMap<>();
+        for (Map<String,String> entry : new QueryJexl(query, this.dataManager, startEndDate[0], startEndDate[1]).evaluate()) {
+            String date = entry.get(CityField.START_DATE.name().toLowerCase());
+            values.computeIfAbsent(date, d -> new HashSet<>()).add(entry.get(field.toLowerCase()).toLowerCase());
+        }
+        Map<String,Long> expected = new TreeMap<>();
+        for (Map.Entry<String,Set<String>> entry : values.entrySet()) {
+            expected.put(entry.getKey(), (long) entry.getValue().size());
+        }
+        
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, actual);
+    }
+    
+    private static String getCell(EventBase<?,?> event, String name) {
+        for (FieldBase<?> field : event.getFields()) {
+            if (name.equals(field.getName())) {
+                return field.getValueString();
+            }
+        }
+        throw new AssertionError("No " + name + " cell in " + event);
+    }
+    
     // ============================================
     // implemented abstract methods
     protected void testInit() {
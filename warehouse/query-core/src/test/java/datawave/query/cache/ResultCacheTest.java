@@ -0,0 +1,157 @@
+package datawave.query.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+public class ResultCacheTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void testKey() {
+        Date begin = new Date(0);
+        Date end = new Date(1000);
+        String key = ResultCache.key("EventQuery", "FOO == 'bar' && BAR == 'foo'", begin, end, Collections.singleton(new Authorizations("A", "B")),
+                        ImmutableMap.of("query.syntax", "JEXL", "return.fields", "FOO"));
+        
+        // whitespace, auth order and parameter order do not matter
+        Assert.assertEquals(key, ResultCache.key("EventQuery", " FOO == 'bar'\n  && BAR == 'foo' ", begin, end, Collections.singleton(new Authorizations("B", "A")),
+                        ImmutableMap.of("return.fields", "FOO", "query.syntax", "JEXL")));
+        
+        Assert.assertNotEquals(key, ResultCache.key("EventQuery", "FOO == 'bar' && BAR == 'foo'", begin, end, Collections.singleton(new Authorizations("A")),
+                        ImmutableMap.of("query.syntax", "JEXL", "return.fields", "FOO")));
+        Assert.assertNotEquals(key, ResultCache.key("EventQuery", "FOO == 'bar' && BAR == 'foo'", begin, new Date(2000),
+                        Collections.singleton(new Authorizations("A", "B")), ImmutableMap.of("query.syntax", "JEXL", "return.fields", "FOO")));
+        Assert.assertNotEquals(key, ResultCache.key("EventQuery", "FOO == 'bar' && BAR == 'foo'", begin, end, Collections.singleton(new Authorizations("A", "B")),
+                        ImmutableMap.of("query.syntax", "JEXL", "return.fields", "BAR")));
+    }
+    
+    @Test
+    public void testRecordAndGet() throws IOException {
+        ResultCache cache = new ResultCache(temporaryFolder.newFolder(), 1024 * 1024, 1024 * 1024);
+        List<Entry<Key,Value>> results = results(100);
+        
+        Assert.assertNull(cache.get("key", "20190101", "20190102"));
+        Assert.assertEquals(results, drain(cache.record("key", "20190102", "20190101", results.iterator())));
+        
+        Assert.assertEquals(results, drain(cache.get("key", "20190101", "20190102")));
+        Assert.assertEquals(results, drain(cache.get("key", "20190101", "20190105")));
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+        Assert.assertTrue(cache.getMemoryUsed() > 0);
+        
+        // a field loaded after the results were cached invalidates them
+        Assert.assertNull(cache.get("key", "20190103", "20190105"));
+        Assert.assertEquals(1, cache.getInvalidations());
+        Assert.assertNull(cache.get("key", "20190101", "20190105"));
+        Assert.assertEquals(0, cache.getMemoryUsed());
+        Assert.assertEquals(0, cache.getDiskUsed());
+    }
+    
+    @Test
+    public void testLoadedOnTheDayCached() throws IOException {
+        ResultCache cache = new ResultCache(temporaryFolder.newFolder(), 1024 * 1024, 1024 * 1024);
+        List<Entry<Key,Value>> results = results(10);
+        drain(cache.record("key", "20190102", "20190102", results.iterator()));
+        
+        // served for the rest of the day, as a later load that day cannot be seen
+        Assert.assertEquals(results, drain(cache.get("key", "20190102", "20190102")));
+        Assert.assertEquals(results, drain(cache.get("key", "20190102", "20190102")));
+        Assert.assertNull(cache.get("key", "20190102", "20190103"));
+        Assert.assertEquals(1, cache.getInvalidations());
+    }
+    
+    @Test
+    public void testNoLoadDate() throws IOException {
+        ResultCache cache = new ResultCache(temporaryFolder.newFolder(), 1024 * 1024, 1024 * 1024);
+        drain(cache.record("key", "20190102", "20190101", results(10).iterator()));
+        
+        // the fields no longer have load dates, so the entry is evicted
+        Assert.assertNull(cache.get("key", null, "20190102"));
+        Assert.assertEquals(1, cache.getInvalidations());
+        Assert.assertEquals(0, cache.getDiskUsed());
+        Assert.assertNull(cache.get("key", "20190101", "20190102"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordWithoutLoadDate() throws IOException {
+        new ResultCache(temporaryFolder.newFolder(), 1024 * 1024, 1024 * 1024).record("key", "20190102", null, results(10).iterator());
+    }
+    
+    @Test
+    public void testAbandonedRecording() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        ResultCache cache = new ResultCache(directory, 1024 * 1024, 1024 * 1024);
+        
+        ResultCache.ResultIterator recording = cache.record("key", "20190102", "20190101", results(100).iterator());
+        recording.next();
+        recording.close();
+        
+        Assert.assertNull(cache.get("key", "20190101", "20190102"));
+        Assert.assertEquals(0, directory.list().length);
+    }
+    
+    @Test
+    public void testEviction() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        List<Entry<Key,Value>> results = results(100);
+        drain(new ResultCache(directory, 0, Long.MAX_VALUE).record("key", "20190102", "20190101", results.iterator()));
+        long size = new File(directory, "key.results").length();
+        
+        // room for two results on disk and none in memory
+        ResultCache cache = new ResultCache(directory, 0, size * 2);
+        Assert.assertEquals(size, cache.getDiskUsed());
+        drain(cache.record("key2", "20190102", "20190101", results.iterator()));
+        Assert.assertEquals(results, drain(cache.get("key", "20190101", "20190102")));
+        drain(cache.record("key3", "20190102", "20190101", results.iterator()));
+        
+        Assert.assertEquals(0, cache.getMemoryUsed());
+        Assert.assertEquals(size * 2, cache.getDiskUsed());
+        Assert.assertEquals(results, drain(cache.get("key", "20190101", "20190102")));
+        Assert.assertNull(cache.get("key2", "20190101", "20190102"));
+        Assert.assertEquals(results, drain(cache.get("key3", "20190101", "20190102")));
+        
+        // results larger than the disk tier are not cached
+        cache = new ResultCache(temporaryFolder.newFolder(), 0, size / 2);
+        Assert.assertEquals(results, drain(cache.record("key", "20190102", "20190101", results.iterator())));
+        Assert.assertNull(cache.get("key", "20190101", "20190102"));
+    }
+    
+    private static List<Entry<Key,Value>> results(int count) {
+        List<Entry<Key,Value>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(new AbstractMap.SimpleImmutableEntry<>(new Key("20190101_" + (i % 10), "datatype\u0000uid" + i), new Value(("document " + i)
+                            .getBytes())));
+        }
+        return results;
+    }
+    
+    private static List<Entry<Key,Value>> drain(Iterator<Entry<Key,Value>> itr) {
+        if (itr == null) {
+            return Collections.emptyList();
+        }
+        List<Entry<Key,Value>> results = new ArrayList<>();
+        while (itr.hasNext()) {
+            results.add(itr.next());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,227 @@
+package datawave.query.cardinality;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.collect.Maps;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCardinalitySketchIterator {
+    
+    private TreeMap<Key,Value> table;
+    
+    @Before
+    public void setup() throws IOException {
+        table = new TreeMap<>();
+        put("20200101", "FIELD1", "csv", "a", 0, 100);
+        put("20200101", "FIELD1", "wiki", "a", 50, 150);
+        put("20200101", "FIELD1", "csv", "b", 0, 10);
+        put("20200101", "FIELD2", "csv", "a", 0, 1000);
+        put("20200102", "FIELD1", "csv", "a", 100, 200);
+    }
+    
+    @Test
+    public void testMergesByDay() throws IOException {
+        CardinalitySketches sketches = scan(new Range(), options(null, "DAY", false));
+        
+        Assert.assertEquals(5, sketches.getSketches().size());
+        assertEstimate(100, sketches, "20200101\0csv\0a\0FIELD1");
+        assertEstimate(100, sketches, "20200101\0wiki\0a\0FIELD1");
+        assertEstimate(100, sketches, "20200102\0csv\0a\0FIELD1");
+    }
+    
+    @Test
+    public void testMergesAcrossDatatypesAndDates() throws IOException {
+        CardinalitySketches sketches = scan(new Range(), options("FIELD1", "ALL", true));
+        
+        Assert.assertEquals(2, sketches.getSketches().size());
+        // the events 0 to 200 across both datatypes and dates
+        assertEstimate(200, sketches, "\0ALL\0a\0FIELD1");
+        assertEstimate(10, sketches, "\0ALL\0b\0FIELD1");
+    }
+    
+    @Test
+    public void testMergesByMonth() throws IOException {
+        CardinalitySketches sketches = scan(new Range(), options("FIELD1", "MONTH", false));
+        
+        assertEstimate(200, sketches, "202001\0csv\0a\0FIELD1");
+        assertEstimate(100, sketches, "202001\0wiki\0a\0FIELD1");
+    }
+    
+    @Test
+    public void testOneValuePerSeek() throws IOException {
+        CardinalitySketchIterator iterator = new CardinalitySketchIterator();
+        iterator.init(new SortedMapIterator(table), options(null, "ALL", true), null);
+        iterator.seek(new Range("20200101", "20200101\0"), Collections.emptySet(), false);
+        
+        Assert.assertTrue(iterator.hasTop());
+        Assert.assertEquals("20200101", iterator.getTopKey().getRow().toString());
+        CardinalitySketches sketches = CardinalitySketches.fromValue(iterator.getTopValue());
+        assertEstimate(150, sketches, "\0ALL\0a\0FIELD1");
+        iterator.next();
+        Assert.assertFalse(iterator.hasTop());
+        
+        // nothing after the returned key
+        iterator.seek(new Range(table.lastKey(), false, null, true), Collections.emptySet(), false);
+        Assert.assertFalse(iterator.hasTop());
+    }
+    
+    @Test
+    public void testPartialSketchesAtLabelLimit() throws IOException {
+        Map<String,String> options = options(null, "DAY", false);
+        options.put(CardinalitySketchIterator.MAX_LABELS, "2");
+        List<Map.Entry<Key,Value>> entries = scanAll(new Range(), options);
+        
+        // five labels, returned two at a time
+        Assert.assertEquals(3, entries.size());
+        CardinalitySketches merged = new CardinalitySketches();
+        for (Map.Entry<Key,Value> entry : entries) {
+            CardinalitySketches sketches = CardinalitySketches.fromValue(entry.getValue());
+            Assert.assertTrue(sketches.getSketches().size() <= 2);
+            merged.merge(sketches);
+        }
+        Assert.assertEquals(5, merged.getSketches().size());
+        assertEstimate(100, merged, "20200101\0csv\0a\0FIELD1");
+        assertEstimate(1000, merged, "20200101\0csv\0a\0FIELD2");
+        assertEstimate(100, merged, "20200102\0csv\0a\0FIELD1");
+    }
+    
+    @Test
+    public void testReseekAfterPartialSketches() throws IOException {
+        Map<String,String> options = options("FIELD1", "ALL", true);
+        options.put(CardinalitySketchIterator.MAX_LABELS, "1");
+        CardinalitySketchIterator iterator = new CardinalitySketchIterator();
+        iterator.init(new SortedMapIterator(table), options, null);
+        iterator.seek(new Range(), Collections.emptySet(), false);
+        Assert.assertTrue(iterator.hasTop());
+        Key last = iterator.getTopKey();
+        CardinalitySketches merged = CardinalitySketches.fromValue(iterator.getTopValue());
+        
+        // a scan torn down after the partial sketches continues after the returned key, without reading any sketch twice
+        List<Map.Entry<Key,Value>> rest = scanAll(new Range(last, false, null, true), options);
+        Assert.assertFalse(rest.isEmpty());
+        for (Map.Entry<Key,Value> entry : rest) {
+            Assert.assertTrue(entry.getKey().compareTo(last) > 0);
+            last = entry.getKey();
+            merged.merge(CardinalitySketches.fromValue(entry.getValue()));
+        }
+        assertEstimate(200, merged, "\0ALL\0a\0FIELD1");
+        assertEstimate(10, merged, "\0ALL\0b\0FIELD1");
+    }
+    
+    @Test
+    public void testPartialSketchesAtByteLimit() throws IOException {
+        Map<String,String> options = options(null, "ALL", true);
+        options.put(CardinalitySketchIterator.MAX_BYTES, "1");
+        List<Map.Entry<Key,Value>> entries = scanAll(new Range(), options);
+        
+        // every sketch read exceeds the limit, so each is returned on its own
+        Assert.assertEquals(table.size(), entries.size());
+        CardinalitySketches merged = new CardinalitySketches();
+        for (Map.Entry<Key,Value> entry : entries) {
+            merged.merge(CardinalitySketches.fromValue(entry.getValue()));
+        }
+        assertEstimate(200, merged, "\0ALL\0a\0FIELD1");
+        assertEstimate(1000, merged, "\0ALL\0a\0FIELD2");
+    }
+    
+    @Test
+    public void testInvalidLimits() {
+        CardinalitySketchIterator iterator = new CardinalitySketchIterator();
+        Assert.assertTrue(iterator.validateOptions(Collections.singletonMap(CardinalitySketchIterator.MAX_LABELS, "10")));
+        Assert.assertFalse(iterator.validateOptions(Collections.singletonMap(CardinalitySketchIterator.MAX_LABELS, "0")));
+        Assert.assertFalse(iterator.validateOptions(Collections.singletonMap(CardinalitySketchIterator.MAX_BYTES, "lots")));
+    }
+    
+    @Test
+    public void testSketchesRoundTrip() throws IOException {
+        CardinalitySketches sketches = new CardinalitySketches(14);
+        for (int i = 0; i < 1000; i++) {
+            sketches.offer("20200101", "value" + i);
+            sketches.offer("20200102", "value" + (i % 10));
+        }
+        
+        CardinalitySketches copy = CardinalitySketches.fromValue(sketches.toValue());
+        Assert.assertEquals(14, copy.getPrecision());
+        assertEstimate(1000, copy, "20200101");
+        assertEstimate(10, copy, "20200102");
+        Assert.assertEquals(0, copy.cardinality("20200103"));
+        
+        copy.merge(sketches);
+        assertEstimate(1000, copy, "20200101");
+        Assert.assertEquals(1.04 / 128, copy.getRelativeError(), 0.0);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testMergeDifferentPrecision() throws IOException {
+        CardinalitySketches sketches = new CardinalitySketches(12);
+        sketches.offer("20200101", "a");
+        new CardinalitySketches(14).merge(sketches);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() {
+        new CardinalitySketches(CardinalitySketches.MAX_PRECISION + 1);
+    }
+    
+    private CardinalitySketches scan(Range range, Map<String,String> options) throws IOException {
+        CardinalitySketchIterator iterator = new CardinalitySketchIterator();
+        iterator.init(new SortedMapIterator(table), options, null);
+        iterator.seek(range, Collections.emptySet(), false);
+        Assert.assertTrue(iterator.hasTop());
+        CardinalitySketches sketches = CardinalitySketches.fromValue(iterator.getTopValue());
+        iterator.next();
+        Assert.assertFalse(iterator.hasTop());
+        return sketches;
+    }
+    
+    private List<Map.Entry<Key,Value>> scanAll(Range range, Map<String,String> options) throws IOException {
+        CardinalitySketchIterator iterator = new CardinalitySketchIterator();
+        iterator.init(new SortedMapIterator(table), options, null);
+        iterator.seek(range, Collections.emptySet(), false);
+        List<Map.Entry<Key,Value>> entries = new ArrayList<>();
+        Key previous = null;
+        while (iterator.hasTop()) {
+            Assert.assertTrue(previous == null || iterator.getTopKey().compareTo(previous) > 0);
+            previous = new Key(iterator.getTopKey());
+            entries.add(Maps.immutableEntry(previous, new Value(iterator.getTopValue())));
+            iterator.next();
+        }
+        return entries;
+    }
+    
+    private void put(String date, String field, String datatype, String value, int firstEvent, int lastEvent) throws IOException {
+        HyperLogLogPlus hllp = new HyperLogLogPlus(12, 20);
+        for (int i = firstEvent; i < lastEvent; i++) {
+            hllp.offer("event" + i);
+        }
+        table.put(new Key(date, field, datatype + '\0' + value), new Value(hllp.getBytes()));
+    }
+    
+    private static Map<String,String> options(String fields, String dateAggregation, boolean ignoreDatatypes) {
+        Map<String,String> options = new HashMap<>();
+        if (fields != null) {
+            options.put(CardinalitySketchIterator.FIELDS, fields);
+        }
+        options.put(CardinalitySketchIterator.DATE_AGGREGATION, dateAggregation);
+        options.put(CardinalitySketchIterator.IGNORE_DATATYPES, Boolean.toString(ignoreDatatypes));
+        return options;
+    }
+    
+    private static void assertEstimate(long expected, CardinalitySketches sketches, String label) {
+        long estimate = sketches.cardinality(label);
+        Assert.assertEquals(label + " estimated at " + estimate, expected, estimate, Math.max(1, expected * 3 * sketches.getRelativeError()));
+    }
+}
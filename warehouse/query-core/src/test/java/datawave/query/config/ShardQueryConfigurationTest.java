@@ -14,6 +14,7 @@ import datawave.data.type.GeometryType;
 import datawave.data.type.NoOpType;
 import datawave.data.type.StringType;
 import datawave.data.type.Type;
+import datawave.edge.util.ExtendedHyperLogLogPlus;
 import datawave.query.DocumentSerialization;
 import datawave.query.function.DocumentPermutation;
 import datawave.query.function.DocumentProjection;
@@ -26,6 +27,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -187,6 +189,28 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(Sets.newHashSet(), config.getUniqueFields());
         Assert.assertFalse(config.getCacheModel());
         Assert.assertTrue(config.isTrackSizes());
+        Assert.assertFalse(config.isCompiledEvaluation());
+        Assert.assertEquals(100000, config.getUniqueCacheBufferSize());
+        Assert.assertFalse(config.isTournamentMerge());
+        Assert.assertEquals(32L * 1024 * 1024, config.getDedupeMemoryBudget());
+        Assert.assertFalse(config.isExactDedupe());
+        Assert.assertFalse(config.isCacheResults());
+        Assert.assertEquals(System.getProperty("java.io.tmpdir") + "/datawave-result-cache", config.getResultCacheDir());
+        Assert.assertEquals(256L * 1024 * 1024, config.getResultCacheMaxMemory());
+        Assert.assertEquals(10L * 1024 * 1024 * 1024, config.getResultCacheMaxDisk());
+        Assert.assertEquals(TableName.LOAD_DATES, config.getLoadDatesTableName());
+        Assert.assertFalse(config.isCostBasedPlanning());
+        Assert.assertEquals(1000.0, config.getCostBasedPushdownRatio(), 0);
+        Assert.assertEquals(0.5, config.getCostBasedIvaratorRatio(), 0);
+        Assert.assertEquals(Collections.emptySet(), config.getCostBasedIvaratorFields());
+        Assert.assertEquals(-1, config.getEstimatedCardinality());
+        Assert.assertNull(config.getPlanCostEstimates());
+        Assert.assertFalse(config.isCacheQueryPlans());
+        Assert.assertEquals(0, config.getPlanCacheTimeSaved());
+        Assert.assertNull(config.getDistinctCountField());
+        Assert.assertEquals(ExtendedHyperLogLogPlus.P, config.getDistinctCountPrecision());
+        Assert.assertEquals(1000, config.getQueryPlanCacheSize());
+        Assert.assertEquals(86400000L, config.getQueryPlanCacheTTL());
         Assert.assertEquals(Lists.newArrayList(), config.getContentFieldNames());
     }
     
@@ -432,7 +456,7 @@ public class ShardQueryConfigurationTest {
      */
     @Test
     public void testCheckForNewAdditions() throws IOException {
-        int expectedObjectCount = 168;
+        int expectedObjectCount = 190;
         ShardQueryConfiguration config = ShardQueryConfiguration.create();
         ObjectMapper mapper = new ObjectMapper();
         JsonNode root = mapper.readTree(mapper.writeValueAsString(config));
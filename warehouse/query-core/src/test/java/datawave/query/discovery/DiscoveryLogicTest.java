@@ -12,6 +12,7 @@ import datawave.query.QueryTestTableHelper;
 import datawave.query.util.MetadataHelperFactory;
 import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.exception.BadRequestQueryException;
 import datawave.webservice.query.result.event.DefaultResponseObjectFactory;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
@@ -288,4 +289,20 @@ public class DiscoveryLogicTest {
         assertEquals(ImmutableSet.of(Pair.with("xxx.skydiver", "OCCUPATION"), Pair.with("yyy.skydiver", "OCCUPATION")), matches);
     }
     
+    @Test
+    public void testTopTerms() throws Throwable {
+        assertEquals(0, DiscoveryLogic.parseTopTerms("0"));
+        assertEquals(25, DiscoveryLogic.parseTopTerms("25"));
+    }
+    
+    @Test(expected = BadRequestQueryException.class)
+    public void testTopTermsNotANumber() throws Throwable {
+        DiscoveryLogic.parseTopTerms("ten");
+    }
+    
+    @Test(expected = BadRequestQueryException.class)
+    public void testTopTermsNegative() throws Throwable {
+        DiscoveryLogic.parseTopTerms("-1");
+    }
+    
 }
@@ -0,0 +1,270 @@
+package datawave.query.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VLongWritable;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DiscoveryScanPipelineTest {
+    
+    // shared by the pipelines of every test, like the executor of the DiscoveryLogic
+    private static final ExecutorService executor = Executors.newFixedThreadPool(4);
+    
+    private static final long WAIT_MILLIS = 10000;
+    
+    @AfterClass
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testStreamsEverything() {
+        List<TestScan> scans = Arrays.asList(new TestScan(thing("a", 1), thing("b", 2)), new TestScan(), new TestScan(thing("c", 3)));
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(scans, executor, 2, 1, 0, 1000, WAIT_MILLIS);
+        
+        List<String> terms = new ArrayList<>();
+        while (pipeline.hasNext()) {
+            terms.add(pipeline.next().getTerm());
+        }
+        Collections.sort(terms);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), terms);
+        for (TestScan scan : scans) {
+            Assert.assertTrue(scan.closed);
+        }
+    }
+    
+    @Test
+    public void testStreamsBeforeAllScansComplete() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        TestScan slow = new TestScan(thing("slow", 1)) {
+            @Override
+            public Iterator<DiscoveredThing> start() throws Exception {
+                release.await(10, TimeUnit.SECONDS);
+                return super.start();
+            }
+        };
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(Arrays.asList(slow, new TestScan(thing("fast", 1))), executor, 2, 10, 0, 1000,
+                        WAIT_MILLIS);
+        
+        Assert.assertTrue(pipeline.hasNext());
+        Assert.assertEquals("fast", pipeline.next().getTerm());
+        release.countDown();
+        Assert.assertEquals("slow", pipeline.next().getTerm());
+        Assert.assertFalse(pipeline.hasNext());
+    }
+    
+    @Test
+    public void testTopTermsMergesPartialCounts() {
+        // the forward and reverse index both find c
+        List<TestScan> scans = Arrays.asList(new TestScan(thing("a", 5), thing("b", 1), thing("c", 2)), new TestScan(thing("c", 4), thing("d", 3)),
+                        new TestScan(thing("e", 1)));
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(scans, executor, 3, 2, 2, 1000, WAIT_MILLIS);
+        
+        DiscoveredThing c = pipeline.next();
+        Assert.assertEquals("c", c.getTerm());
+        Assert.assertEquals(6, c.getCount());
+        Assert.assertEquals(new VLongWritable(6), c.getCountsByColumnVisibility().get(new Text("A")));
+        Assert.assertEquals("a", pipeline.next().getTerm());
+        Assert.assertFalse(pipeline.hasNext());
+    }
+    
+    @Test
+    public void testTopTermsRanksTermsAcrossDates() {
+        List<TestScan> scans = Arrays.asList(new TestScan(thing("a", "20200101", 2), thing("a", "20200102", 2), thing("b", "20200101", 3)));
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(scans, executor, 1, 10, 1, 1000, WAIT_MILLIS);
+        
+        Assert.assertEquals("20200101", pipeline.next().getDate());
+        Assert.assertEquals("20200102", pipeline.next().getDate());
+        Assert.assertFalse(pipeline.hasNext());
+    }
+    
+    @Test
+    public void testMaxConcurrentScansOnSharedExecutor() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<TestScan> scans = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            scans.add(new TestScan(thing("t" + i, 1)) {
+                @Override
+                public Iterator<DiscoveredThing> start() throws Exception {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    return super.start();
+                }
+                
+                @Override
+                public void close() {
+                    active.decrementAndGet();
+                    super.close();
+                }
+            });
+        }
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(scans, executor, 2, 10, 0, 1000, WAIT_MILLIS);
+        
+        int found = 0;
+        while (pipeline.hasNext()) {
+            pipeline.next();
+            found++;
+        }
+        Assert.assertEquals(6, found);
+        // the executor has four threads, but the pipeline runs no more than two of its scans at once
+        Assert.assertTrue(maxActive.get() <= 2);
+    }
+    
+    @Test(expected = DatawaveFatalQueryException.class)
+    public void testRankedThingsAreBounded() {
+        List<TestScan> scans = Arrays.asList(new TestScan(thing("a", 1), thing("b", 2)), new TestScan(thing("c", 3), thing("d", 4)));
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(scans, executor, 2, 10, 1, 3, WAIT_MILLIS);
+        pipeline.hasNext();
+    }
+    
+    @Test(expected = DatawaveFatalQueryException.class)
+    public void testScanFailure() {
+        TestScan failing = new TestScan() {
+            @Override
+            public Iterator<DiscoveredThing> start() {
+                throw new IllegalStateException("scan failed");
+            }
+        };
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(Arrays.asList(new TestScan(thing("a", 1)), failing), executor, 1, 10, 0, 1000,
+                        WAIT_MILLIS);
+        while (pipeline.hasNext()) {
+            pipeline.next();
+        }
+    }
+    
+    @Test
+    public void testCloseStopsScans() throws InterruptedException {
+        AtomicInteger produced = new AtomicInteger();
+        TestScan endless = new EndlessScan(produced);
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(Collections.singletonList(endless), executor, 1, 5, 0, 1000, WAIT_MILLIS);
+        Assert.assertTrue(pipeline.hasNext());
+        pipeline.next();
+        pipeline.close();
+        
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!endless.closed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(endless.closed);
+        Assert.assertFalse(pipeline.hasNext());
+        // the scan ran no further ahead than the queue
+        Assert.assertTrue(produced.get() <= 8);
+    }
+    
+    @Test
+    public void testFullQueueReleasesThread() throws InterruptedException {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            TestScan endless = new EndlessScan(new AtomicInteger());
+            DiscoveryScanPipeline stalled = new DiscoveryScanPipeline(Collections.singletonList(endless), single, 1, 2, 0, 1000, WAIT_MILLIS);
+            Assert.assertTrue(stalled.hasNext());
+            
+            // the scan of the first pipeline gives the only thread back once its queue is full, so the second pipeline can run
+            DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(Collections.singletonList(new TestScan(thing("a", 1))), single, 1, 2, 0, 1000,
+                            WAIT_MILLIS);
+            Assert.assertEquals("a", pipeline.next().getTerm());
+            Assert.assertFalse(pipeline.hasNext());
+            
+            // and is resumed once its client takes a thing
+            for (int i = 0; i < 10; i++) {
+                stalled.next();
+            }
+            stalled.close();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!endless.closed && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(endless.closed);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+    
+    @Test(expected = DatawaveFatalQueryException.class)
+    public void testWaitIsBounded() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        TestScan stuck = new TestScan(thing("stuck", 1)) {
+            @Override
+            public Iterator<DiscoveredThing> start() throws Exception {
+                release.await(10, TimeUnit.SECONDS);
+                return super.start();
+            }
+        };
+        DiscoveryScanPipeline pipeline = new DiscoveryScanPipeline(Collections.singletonList(stuck), executor, 1, 10, 0, 1000, 200);
+        try {
+            pipeline.hasNext();
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    private static DiscoveredThing thing(String term, long count) {
+        return thing(term, "20200101", count);
+    }
+    
+    private static DiscoveredThing thing(String term, String date, long count) {
+        MapWritable counts = new MapWritable();
+        counts.put(new Text("A"), new VLongWritable(count));
+        return new DiscoveredThing(term, "FIELD", "type", date, "A", count, counts);
+    }
+    
+    private static class TestScan implements DiscoveryScanPipeline.Scan {
+        private final List<DiscoveredThing> things;
+        private volatile boolean closed = false;
+        
+        private TestScan(DiscoveredThing... things) {
+            this.things = Arrays.asList(things);
+        }
+        
+        @Override
+        public Iterator<DiscoveredThing> start() throws Exception {
+            return things.iterator();
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+    
+    /**
+     * Finds things until it is closed
+     */
+    private static class EndlessScan extends TestScan {
+        private final AtomicInteger produced;
+        
+        private EndlessScan(AtomicInteger produced) {
+            this.produced = produced;
+        }
+        
+        @Override
+        public Iterator<DiscoveredThing> start() {
+            return new Iterator<DiscoveredThing>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+                
+                @Override
+                public DiscoveredThing next() {
+                    return thing("t" + produced.incrementAndGet(), 1);
+                }
+            };
+        }
+    }
+}
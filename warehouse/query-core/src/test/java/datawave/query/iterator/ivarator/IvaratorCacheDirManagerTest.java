@@ -0,0 +1,147 @@
+package datawave.query.iterator.ivarator;
+
+import com.google.common.io.Files;
+import datawave.core.iterators.querylock.QueryLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+public class IvaratorCacheDirManagerTest {
+    
+    private File tempDir;
+    private LocalFileSystem fs;
+    private IvaratorCacheDirManager manager;
+    
+    @Before
+    public void setup() throws Exception {
+        tempDir = Files.createTempDir();
+        tempDir.deleteOnExit();
+        fs = new LocalFileSystem();
+        fs.initialize(tempDir.toURI(), new Configuration());
+        // no background eviction, and everything not recently touched is abandoned
+        manager = new IvaratorCacheDirManager(100, 10, 0, 0, -1);
+    }
+    
+    @After
+    public void cleanup() {
+        manager.shutdown();
+    }
+    
+    private IvaratorCacheDir createCacheDir(String name, IvaratorCacheDirConfig config) {
+        File dir = new File(tempDir, name);
+        Assert.assertTrue(dir.mkdirs());
+        return new IvaratorCacheDir(config, fs, config.getBasePathURI());
+    }
+    
+    @Test
+    public void memoryTierTest() {
+        Assert.assertTrue(manager.hasMemoryAvailable());
+        Assert.assertTrue(manager.putMemoryFile("/query/row/file.1", new byte[60]));
+        
+        // over the budget
+        Assert.assertFalse(manager.putMemoryFile("/query/row/file.2", new byte[60]));
+        Assert.assertEquals(60, manager.getMemoryTierBytes());
+        
+        Assert.assertTrue(manager.putMemoryFile("/query/row/file.2", new byte[40]));
+        Assert.assertTrue(manager.putMemoryFile("/query/row/sub/file.3", new byte[0]));
+        Assert.assertFalse(manager.hasMemoryAvailable());
+        
+        // only the files directly under the directory
+        Assert.assertEquals(Arrays.asList("/query/row/file.1", "/query/row/file.2"), manager.getMemoryFiles("/query/row"));
+        Assert.assertTrue(manager.getMemoryFiles("/query/ro").isEmpty());
+        
+        manager.deleteMemoryFile("/query/row/file.1");
+        Assert.assertNull(manager.getMemoryFile("/query/row/file.1"));
+        Assert.assertEquals(40, manager.getMemoryTierBytes());
+        Assert.assertTrue(manager.hasMemoryAvailable());
+    }
+    
+    @Test
+    public void placementTest() {
+        String base = tempDir.toURI().toString();
+        IvaratorCacheDir full = createCacheDir("full", new IvaratorCacheDirConfig(base + "full", 1, 1.0));
+        IvaratorCacheDir slow = createCacheDir("slow", new IvaratorCacheDirConfig(base + "slow", 1));
+        IvaratorCacheDir fast = createCacheDir("fast", new IvaratorCacheDirConfig(base + "fast", 1));
+        IvaratorCacheDir preferred = createCacheDir("preferred", new IvaratorCacheDirConfig(base + "preferred", 0));
+        
+        Assert.assertFalse(manager.hasAvailableStorage(full));
+        Assert.assertTrue(manager.hasAvailableStorage(slow));
+        Assert.assertTrue(manager.getRemainingBytes(slow) > 0);
+        
+        // priority first, then available storage, and otherwise the original order
+        List<IvaratorCacheDir> ordered = manager.order(Arrays.asList(full, slow, fast, preferred), Function.identity());
+        Assert.assertEquals(Arrays.asList(preferred, slow, fast, full), ordered);
+        
+        // latency is not used until enough writes have been measured
+        for (int i = 0; i < IvaratorCacheDirManager.MIN_LATENCY_SAMPLES - 1; i++) {
+            manager.recordWrite(slow, 1000, 100000);
+            manager.recordWrite(fast, 1000, 1000);
+        }
+        Assert.assertEquals(-1, manager.getLatency(slow), 0.0);
+        ordered = manager.order(Arrays.asList(full, slow, fast, preferred), Function.identity());
+        Assert.assertEquals(Arrays.asList(preferred, slow, fast, full), ordered);
+        
+        manager.recordWrite(slow, 1000, 100000);
+        manager.recordWrite(fast, 1000, 1000);
+        Assert.assertEquals(100.0, manager.getLatency(slow), 0.001);
+        Assert.assertEquals(1.0, manager.getLatency(fast), 0.001);
+        ordered = manager.order(Arrays.asList(full, slow, fast, preferred), Function.identity());
+        Assert.assertEquals(Arrays.asList(preferred, fast, slow, full), ordered);
+    }
+    
+    @Test
+    public void evictAbandonedTest() throws Exception {
+        String base = tempDir.toURI().toString() + "cache";
+        IvaratorCacheDirConfig config = new IvaratorCacheDirConfig(base, 0);
+        Path queryDir = new Path(base, "query");
+        Path termDir = new Path(new Path(queryDir, "scan"), "term1");
+        Assert.assertTrue(fs.mkdirs(termDir));
+        IvaratorCacheDir cacheDir = new IvaratorCacheDir(config, fs, termDir.toUri().toString());
+        Assert.assertEquals(queryDir, IvaratorCacheDirManager.getQueryDir(cacheDir));
+        
+        String memoryFile = new Path(termDir, "row/file.1").toString();
+        Assert.assertTrue(manager.putMemoryFile(memoryFile, new byte[10]));
+        
+        TestQueryLock queryLock = new TestQueryLock();
+        manager.touch(cacheDir, queryLock);
+        
+        // the query is still running
+        manager.evictAbandoned();
+        Assert.assertTrue(fs.exists(queryDir));
+        Assert.assertNotNull(manager.getMemoryFile(memoryFile));
+        
+        queryLock.running = false;
+        manager.evictAbandoned();
+        Assert.assertFalse(fs.exists(queryDir));
+        Assert.assertTrue(fs.exists(new Path(base)));
+        Assert.assertNull(manager.getMemoryFile(memoryFile));
+        Assert.assertEquals(0, manager.getMemoryTierBytes());
+    }
+    
+    private static class TestQueryLock implements QueryLock {
+        private boolean running = true;
+        
+        @Override
+        public void startQuery() {}
+        
+        @Override
+        public boolean isQueryRunning() {
+            return running;
+        }
+        
+        @Override
+        public void stopQuery() {}
+        
+        @Override
+        public void cleanup() {}
+    }
+}
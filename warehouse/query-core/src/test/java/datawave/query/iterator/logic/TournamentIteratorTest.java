@@ -0,0 +1,246 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+public class TournamentIteratorTest {
+    
+    private static final Logger log = Logger.getLogger(TournamentIteratorTest.class);
+    
+    public static int BENCHMARK_SIZE = 20000;
+    
+    @BeforeClass
+    public static void setLogging() {
+        log.setLevel(Level.INFO);
+    }
+    
+    @Test
+    public void testTournament() {
+        List<NestedIterator<Integer>> sources = sources(new Random(7), 5, 10, 100);
+        NestedIteratorTournament<Integer> tournament = new NestedIteratorTournament<>(sources);
+        Assert.assertEquals(5, tournament.size());
+        Assert.assertTrue(tournament.isEmpty());
+        Assert.assertEquals(-1, tournament.top());
+        
+        tournament.set(3, 7);
+        tournament.set(1, 9);
+        tournament.set(4, 7);
+        Assert.assertEquals(3, tournament.top());
+        Assert.assertEquals(Integer.valueOf(9), tournament.highest());
+        
+        tournament.set(3, 12);
+        Assert.assertEquals(4, tournament.top());
+        tournament.set(4, null);
+        Assert.assertEquals(1, tournament.top());
+        
+        tournament.clear();
+        Assert.assertTrue(tournament.isEmpty());
+    }
+    
+    @Test
+    public void testOr() {
+        Random random = new Random(1234);
+        for (int children : new int[] {1, 2, 3, 10, 100}) {
+            List<List<Integer>> values = values(random, children, 50, 2000);
+            Assert.assertEquals(drain(new OrIterator<>(sources(values), true)), drain(new TournamentOrIterator<>(sources(values), true)));
+        }
+    }
+    
+    @Test
+    public void testOrWithFilters() {
+        Random random = new Random(4321);
+        List<List<Integer>> values = values(random, 20, 50, 2000);
+        List<List<Integer>> filters = values(random, 3, 200, 2000);
+        List<Integer> expected = drain(new OrIterator<>(sources(values), sources(filters), true));
+        Assert.assertEquals(expected, drain(new TournamentOrIterator<>(sources(values), sources(filters), true)));
+        
+        TreeSet<Integer> excluded = new TreeSet<>();
+        filters.forEach(excluded::addAll);
+        expected.forEach(value -> Assert.assertFalse(excluded.contains(value)));
+    }
+    
+    @Test
+    public void testAnd() {
+        Random random = new Random(1234);
+        for (int children : new int[] {1, 2, 3, 10}) {
+            List<List<Integer>> values = values(random, children, 1000, 2000);
+            Assert.assertEquals(drain(new AndIterator<>(sources(values))), drain(new TournamentAndIterator<>(sources(values))));
+        }
+    }
+    
+    @Test
+    public void testAndWithFilters() {
+        Random random = new Random(4321);
+        List<List<Integer>> values = values(random, 3, 1000, 2000);
+        List<List<Integer>> filters = values(random, 2, 200, 2000);
+        Assert.assertEquals(drain(new AndIterator<>(sources(values), sources(filters))),
+                        drain(new TournamentAndIterator<>(sources(values), sources(filters))));
+    }
+    
+    @Test
+    public void testAndExhausted() {
+        List<List<Integer>> values = new ArrayList<>();
+        values.add(Collections.singletonList(1));
+        values.add(Collections.emptyList());
+        TournamentAndIterator<Integer> and = new TournamentAndIterator<>(sources(values));
+        and.initialize();
+        Assert.assertFalse(and.hasNext());
+    }
+    
+    @Test
+    public void testMove() {
+        Random random = new Random(99);
+        List<List<Integer>> values = values(random, 10, 100, 5000);
+        List<List<Integer>> andValues = values(random, 3, 2000, 5000);
+        for (int step : new int[] {1, 7, 50}) {
+            Assert.assertEquals(seek(new OrIterator<>(sources(values), true), step), seek(new TournamentOrIterator<>(sources(values), true), step));
+            Assert.assertEquals(seek(new AndIterator<>(sources(andValues)), step), seek(new TournamentAndIterator<>(sources(andValues)), step));
+        }
+    }
+    
+    @Test
+    public void testBenchmark() {
+        for (int children : new int[] {10, 100, 1000}) {
+            Random random = new Random(children);
+            List<List<Integer>> values = values(random, children, BENCHMARK_SIZE / children, BENCHMARK_SIZE * 4);
+            
+            benchmark("or", children, values, sources -> new OrIterator<>(sources, true), sources -> new TournamentOrIterator<>(sources, true));
+            
+            // denser children for the intersection, which is dominated by the lowest child jumping to the highest
+            List<List<Integer>> andValues = values(random, children, Math.min(BENCHMARK_SIZE / 2, BENCHMARK_SIZE * 10 / children), BENCHMARK_SIZE);
+            benchmark("and", children, andValues, AndIterator::new, TournamentAndIterator::new);
+        }
+    }
+    
+    private void benchmark(String name, int children, List<List<Integer>> values, Function<List<NestedIterator<Integer>>,NestedIterator<Integer>> multimap,
+                    Function<List<NestedIterator<Integer>>,NestedIterator<Integer>> tournament) {
+        // warm up both implementations before timing them
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(seek(multimap.apply(sources(values)), 3), seek(tournament.apply(sources(values)), 3));
+        }
+        
+        long start = System.nanoTime();
+        int results = seek(multimap.apply(sources(values)), 3).size();
+        long multimapDuration = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        seek(tournament.apply(sources(values)), 3);
+        long tournamentDuration = System.nanoTime() - start;
+        
+        log.info(String.format("%s with %d children (%d results): multimap %d ms, tournament %d ms", name, children, results, multimapDuration / 1000000,
+                        tournamentDuration / 1000000));
+    }
+    
+    private static List<List<Integer>> values(Random random, int children, int size, int max) {
+        List<List<Integer>> values = new ArrayList<>();
+        for (int i = 0; i < children; i++) {
+            TreeSet<Integer> set = new TreeSet<>();
+            for (int j = 0; j < size; j++) {
+                set.add(random.nextInt(max));
+            }
+            values.add(new ArrayList<>(set));
+        }
+        return values;
+    }
+    
+    private static List<NestedIterator<Integer>> sources(Random random, int children, int size, int max) {
+        return sources(values(random, children, size, max));
+    }
+    
+    private static List<NestedIterator<Integer>> sources(List<List<Integer>> values) {
+        List<NestedIterator<Integer>> sources = new ArrayList<>();
+        for (List<Integer> list : values) {
+            sources.add(new ListIterator(list));
+        }
+        return sources;
+    }
+    
+    private static List<Integer> drain(NestedIterator<Integer> itr) {
+        itr.initialize();
+        List<Integer> results = new ArrayList<>();
+        while (itr.hasNext()) {
+            results.add(itr.next());
+        }
+        return results;
+    }
+    
+    /**
+     * Alternate between next and move calls, moving past the next few values each time
+     */
+    private static List<Integer> seek(NestedIterator<Integer> itr, int step) {
+        itr.initialize();
+        List<Integer> results = new ArrayList<>();
+        Integer last = null;
+        while (itr.hasNext()) {
+            last = itr.next();
+            results.add(last);
+            Integer moved = itr.move(last + step);
+            if (moved == null) {
+                break;
+            }
+            results.add(moved);
+        }
+        return results;
+    }
+    
+    /**
+     * A nested iterator over a sorted list, with a move that binary searches the list like a seek
+     */
+    static class ListIterator implements NestedIterator<Integer> {
+        private final List<Integer> values;
+        private final Document document = new Document();
+        private int index = 0;
+        
+        ListIterator(List<Integer> values) {
+            this.values = values;
+        }
+        
+        @Override
+        public void initialize() {}
+        
+        @Override
+        public boolean hasNext() {
+            return index < values.size();
+        }
+        
+        @Override
+        public Integer next() {
+            return values.get(index++);
+        }
+        
+        @Override
+        public Integer move(Integer minimum) {
+            int found = Collections.binarySearch(values.subList(index, values.size()), minimum);
+            index += found < 0 ? -found - 1 : found;
+            return hasNext() ? next() : null;
+        }
+        
+        @Override
+        public Collection<NestedIterator<Integer>> leaves() {
+            return Collections.singletonList(this);
+        }
+        
+        @Override
+        public Collection<NestedIterator<Integer>> children() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public Document document() {
+            return document;
+        }
+    }
+}
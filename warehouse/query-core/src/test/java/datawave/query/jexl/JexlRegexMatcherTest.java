@@ -0,0 +1,231 @@
+package datawave.query.jexl;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class JexlRegexMatcherTest {
+    
+    private static final Logger log = Logger.getLogger(JexlRegexMatcherTest.class);
+    
+    public static int BENCHMARK_SIZE = 2000;
+    
+    // @formatter:off
+    private static final List<String> REGEXES = Arrays.asList(
+                    "abc",
+                    "ABC",
+                    "abc.*",
+                    ".*abc",
+                    ".*abc.*",
+                    "ab.*yz",
+                    "a.c",
+                    "a.+c",
+                    "a.*?c",
+                    "^abc$",
+                    "abc|xyz",
+                    "(ab|cd)+e",
+                    "(?:ab)?c",
+                    "a{2,3}b",
+                    "a{2}",
+                    "a{2,}",
+                    "[a-c]+",
+                    "[^a-c]+",
+                    "[^x]",
+                    "[A-C]x",
+                    "[-a]",
+                    "[a-]",
+                    "[.$^]+",
+                    "\\d+",
+                    "\\d{3}-\\d{4}",
+                    "\\w+@\\w+\\.com",
+                    "\\s*abc\\s*",
+                    "\\D+",
+                    "\\W",
+                    "\\S+",
+                    "[\\d_]+",
+                    "a\\.b",
+                    "a\\\\b",
+                    "a\\+",
+                    "\\t",
+                    "a|",
+                    "(|a)b",
+                    "1\\.2\\.3\\.4",
+                    "192\\.168\\..*",
+                    "\u00e9t\u00e9.*",
+                    "\ud83d\ude00?x",
+                    // unsupported constructs, evaluated with the pattern
+                    "(?i)abc",
+                    "(?-i)abc",
+                    "a\\bb",
+                    "(a)\\1",
+                    "a(?=b)b",
+                    "\\p{Alpha}+",
+                    "\\Qa.b\\E",
+                    "a*+b",
+                    "[a-z&&[^e]]+",
+                    "abc.*\\p{L}",
+                    ".*foo\\b.*");
+    
+    private static final List<String> VALUES = Arrays.asList(
+                    "",
+                    "abc",
+                    "ABC",
+                    "aBc",
+                    "abcd",
+                    "xabc",
+                    "xabcx",
+                    "abyz",
+                    "ab\nyz",
+                    "abc\n",
+                    "a\nc",
+                    "a\u2028c",
+                    "axc",
+                    "axxc",
+                    "ac",
+                    "xyz",
+                    "XYZ",
+                    "ababe",
+                    "abcde",
+                    "c",
+                    "abc",
+                    "aab",
+                    "AAAB",
+                    "aa",
+                    "aaaa",
+                    "x",
+                    "X",
+                    "y",
+                    "Ax",
+                    "bx",
+                    "-",
+                    ".$^",
+                    "12345",
+                    "555-1234",
+                    "user@host.com",
+                    "USER@HOST.COM",
+                    " abc\t",
+                    "a.b",
+                    "a\\b",
+                    "a+",
+                    "\t",
+                    "a",
+                    "b",
+                    "ab",
+                    "1.2.3.4",
+                    "192.168.1.1",
+                    "\u00e9t\u00e9 long",
+                    "\u00c9T\u00c9 long",
+                    "\ud83d\ude00x",
+                    "x",
+                    "e",
+                    "foo bar",
+                    "a foo",
+                    "abc\u00e9");
+    
+    private static final List<String> BENCHMARK_REGEXES = Arrays.asList(
+                    ".*error.*",
+                    "192\\.168\\..*",
+                    ".*\\.exe",
+                    "[a-z]+\\d{2,4}",
+                    "(get|post|put)/api/.*",
+                    "user\\d+@example\\.com");
+    // @formatter:on
+    
+    @BeforeClass
+    public static void setLogging() {
+        log.setLevel(Level.INFO);
+    }
+    
+    @Test
+    public void testMatchesPattern() {
+        for (String regex : REGEXES) {
+            JexlRegexMatcher matcher = JexlRegexMatcher.compile(regex);
+            Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            for (String value : VALUES) {
+                Assert.assertEquals("regex " + regex + " against " + value, pattern.matcher(value).matches(), matcher.matches(value));
+            }
+        }
+    }
+    
+    @Test
+    public void testCompiled() {
+        Assert.assertTrue(JexlRegexMatcher.compile("abc").isCompiled());
+        Assert.assertTrue(JexlRegexMatcher.compile(".*abc.*").isCompiled());
+        Assert.assertTrue(JexlRegexMatcher.compile("192\\.168\\..*").isCompiled());
+        Assert.assertTrue(JexlRegexMatcher.compile("[a-z]+\\d{2,4}").isCompiled());
+        Assert.assertTrue(JexlRegexMatcher.compile("(get|post)/api/.*").isCompiled());
+        
+        Assert.assertFalse(JexlRegexMatcher.compile("(?-i)abc").isCompiled());
+        Assert.assertFalse(JexlRegexMatcher.compile("(a)\\1").isCompiled());
+        Assert.assertFalse(JexlRegexMatcher.compile("a\\bb").isCompiled());
+        Assert.assertFalse(JexlRegexMatcher.create(Pattern.compile("abc")).isCompiled());
+    }
+    
+    @Test
+    public void testPrefixAndSuffix() {
+        Assert.assertTrue(JexlRegexMatcher.regionMatches("ABCdef", 0, "abc"));
+        Assert.assertTrue(JexlRegexMatcher.regionMatches("defabc", 3, "ABC"));
+        Assert.assertFalse(JexlRegexMatcher.regionMatches("ab", 0, "abc"));
+        Assert.assertFalse(JexlRegexMatcher.regionMatches("abc", -1, "abc"));
+        Assert.assertFalse(JexlRegexMatcher.regionMatches("\u00c9", 0, "\u00e9"));
+    }
+    
+    @Test
+    public void testCache() {
+        JexlRegexMatcher matcher = JexlPatternCache.getMatcher("abc.*");
+        Assert.assertSame(matcher, JexlPatternCache.getMatcher("abc.*"));
+        Assert.assertSame(matcher.getPattern(), JexlPatternCache.getPattern("abc.*"));
+        Assert.assertSame(matcher, JexlPatternCache.getMatcher(matcher.getPattern()));
+    }
+    
+    @Test
+    public void testBenchmark() {
+        Random random = new Random(1234);
+        List<String> values = new ArrayList<>(BENCHMARK_SIZE);
+        String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789./@-_ ";
+        for (int i = 0; i < BENCHMARK_SIZE; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = 5 + random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            values.add(builder.toString());
+        }
+        
+        for (String regex : BENCHMARK_REGEXES) {
+            Pattern pattern = Pattern.compile(regex, JexlRegexMatcher.DEFAULT_FLAGS);
+            JexlRegexMatcher matcher = JexlRegexMatcher.compile(regex);
+            
+            // warm up both paths before timing them
+            int expected = 0;
+            int actual = 0;
+            for (String value : values) {
+                expected += pattern.matcher(value).matches() ? 1 : 0;
+                actual += matcher.matches(value) ? 1 : 0;
+            }
+            Assert.assertEquals(regex, expected, actual);
+            
+            long start = System.nanoTime();
+            for (String value : values) {
+                pattern.matcher(value).matches();
+            }
+            long patternDuration = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (String value : values) {
+                matcher.matches(value);
+            }
+            long matcherDuration = System.nanoTime() - start;
+            
+            log.info(String.format("%s: pattern %d ns/value, matcher %d ns/value", regex, patternDuration / BENCHMARK_SIZE, matcherDuration / BENCHMARK_SIZE));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package datawave.query.jexl.compiled;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.NumberType;
+import datawave.data.type.Type;
+import datawave.query.attributes.TypeAttribute;
+import datawave.query.attributes.ValueTuple;
+import datawave.query.collections.FunctionalSet;
+import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.DatawaveInterpreter;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.DatawaveJexlEngine;
+import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.HitListArithmetic;
+import org.apache.accumulo.core.data.Key;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.Script;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class CompiledJexlScriptTest {
+    
+    // @formatter:off
+    private static final List<String> QUERIES = Arrays.asList(
+                    "FOO == 'bar'",
+                    "FOO == 'nope'",
+                    "FOO != 'bar'",
+                    "MISSING == null",
+                    "MISSING != 'bar'",
+                    "FOO =~ 'ba.*'",
+                    "FOO !~ 'ba.*'",
+                    "FOO =~ 'z.*'",
+                    "FOO == 'bar' && NUM == '+bE2.5'",
+                    "FOO == 'nope' && NUM == '+bE2.5'",
+                    "FOO == 'nope' || NUM == '+bE2.5'",
+                    "FOO == 'nope' || FOO == 'baz' || FOO == 'bar'",
+                    "!(FOO == 'bar')",
+                    "!(FOO == 'nope') && FOO =~ 'b.*'",
+                    "(FOO >= 'bap' && FOO <= 'bas')",
+                    "(FOO > 'bar' && FOO < 'bas')",
+                    "(NUM >= '+aE1' && NUM <= '+bE3')",
+                    "((_Bounded_ = true) && (NUM >= '+aE1' && NUM <= '+bE3'))",
+                    "((_Bounded_ = true) && (FOO >= 'a' && FOO <= 'c'))",
+                    "FOO < 'c'",
+                    "FOO >= 'c'",
+                    "filter:includeRegex(FOO, 'ba.*')",
+                    "FOO == 'bar' && filter:includeRegex(FOO, 'ba.*')",
+                    "FOO == 'bar' && (BAR == 'one' || BAR == 'two')",
+                    "(FOO == 'nope' || BAR == 'two') && !(NUM == '+aE1')");
+    // @formatter:on
+    
+    private static ValueTuple makeValueTuple(String field, Type<?> type, String value) {
+        type.setDelegateFromString(value);
+        TypeAttribute<?> typeAttribute = new TypeAttribute<>(type, new Key("row", "dt\0uid"), true);
+        return new ValueTuple(field, type, type.getNormalizedValue(), typeAttribute);
+    }
+    
+    private static DatawaveJexlContext makeContext() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", new FunctionalSet<>(new HashSet<>(Arrays.asList(makeValueTuple("FOO", new LcNoDiacriticsType(), "BAR"),
+                        makeValueTuple("FOO", new LcNoDiacriticsType(), "BAZ")))));
+        context.set("NUM", new FunctionalSet<>(new HashSet<>(Arrays.asList(makeValueTuple("NUM", new NumberType(), "25")))));
+        context.set("BAR", new FunctionalSet<>(new HashSet<>(Arrays.asList(makeValueTuple("BAR", new LcNoDiacriticsType(), "two")))));
+        return context;
+    }
+    
+    @Test
+    public void testDefaultArithmetic() {
+        for (String query : QUERIES) {
+            assertSameResult(query, new DefaultArithmetic(), new DefaultArithmetic());
+        }
+    }
+    
+    @Test
+    public void testHitListArithmetic() {
+        for (String query : QUERIES) {
+            assertSameResult(query, new HitListArithmetic(), new HitListArithmetic());
+        }
+    }
+    
+    @Test
+    public void testCompiledNodes() {
+        DatawaveJexlEngine engine = ArithmeticJexlEngines.getEngine(new DefaultArithmetic());
+        CompiledJexlScript compiled = CompiledJexlScript.compile(engine, engine.parse("FOO == 'bar' && (NUM > '+aE1' || FOO =~ 'b.*')"));
+        Assert.assertTrue(compiled.isFullyCompiled());
+        
+        compiled = CompiledJexlScript.compile(engine, engine.parse("FOO == 'bar' && filter:includeRegex(FOO, 'ba.*')"));
+        Assert.assertFalse(compiled.isFullyCompiled());
+        Assert.assertEquals(1, compiled.getNumInterpreted());
+    }
+    
+    private void assertSameResult(String query, JexlArithmetic interpretedArithmetic, JexlArithmetic compiledArithmetic) {
+        DatawaveJexlEngine interpretedEngine = ArithmeticJexlEngines.getEngine(interpretedArithmetic);
+        Script script = interpretedEngine.createScript(query);
+        boolean expected = DatawaveInterpreter.isMatched(script.execute(makeContext()));
+        
+        DatawaveJexlEngine compiledEngine = ArithmeticJexlEngines.getEngine(compiledArithmetic);
+        CompiledJexlScript compiled = CompiledJexlScript.compile(compiledEngine, compiledEngine.parse(query));
+        boolean actual = DatawaveInterpreter.isMatched(compiled.execute(makeContext()));
+        
+        Assert.assertEquals(query, expected, actual);
+        if (interpretedArithmetic instanceof HitListArithmetic) {
+            Assert.assertEquals(query, ((HitListArithmetic) interpretedArithmetic).getHitSet(), ((HitListArithmetic) compiledArithmetic).getHitSet());
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package datawave.query.jexl.functions;
 
+import datawave.ingest.protobuf.TermWeight;
 import datawave.ingest.protobuf.TermWeightPosition;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class ContentOrderedEvaluatorTest {
     
+    private static final Logger log = Logger.getLogger(ContentOrderedEvaluatorTest.class);
+    
     private WrappedContentOrderedEvaluator evaluator;
     
+    @BeforeClass
+    public static void setLogging() {
+        log.setLevel(Level.INFO);
+    }
+    
     @Before
     public void setup() {}
     
@@ -283,6 +298,114 @@ public class ContentOrderedEvaluatorTest {
         Assert.assertTrue(evaluator.evaluate(offsets));
     }
     
+    @Test
+    public void evaluate_randomPositionsTest() {
+        Random random = new Random(0);
+        String[] vocabulary = {"a", "b", "c"};
+        for (int test = 0; test < 5000; test++) {
+            String[] terms = new String[2 + random.nextInt(4)];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = vocabulary[random.nextInt(vocabulary.length)];
+            }
+            int distance = 1 + random.nextInt(3);
+            
+            Map<String,List<TermWeightPosition>> positions = new HashMap<>();
+            for (String term : vocabulary) {
+                TreeSet<TermWeightPosition> set = new TreeSet<>();
+                int count = 1 + random.nextInt(8);
+                for (int i = 0; i < count; i++) {
+                    set.add(getPosition(random.nextInt(20), random.nextBoolean() ? random.nextInt(3) : -1, random.nextInt(4) != 0));
+                }
+                positions.put(term, new ArrayList<>(set));
+            }
+            
+            List<List<TermWeightPosition>> offsets = new ArrayList<>();
+            for (String term : terms) {
+                offsets.add(positions.get(term));
+            }
+            
+            evaluator = new WrappedContentOrderedEvaluator(null, distance, new HashMap<>(), terms);
+            Assert.assertEquals(Arrays.toString(terms) + " " + distance + " " + positions, findPhrase(terms, distance, offsets, 0, null),
+                            evaluator.evaluate(offsets));
+        }
+    }
+    
+    /**
+     * Find a phrase by trying every combination of positions
+     */
+    private static boolean findPhrase(String[] terms, int distance, List<List<TermWeightPosition>> offsets, int index, TermWeightPosition previous) {
+        if (index == terms.length) {
+            return true;
+        }
+        for (TermWeightPosition position : offsets.get(index)) {
+            if (previous != null) {
+                boolean zeroOffset = previous.getOffset() == position.getOffset() && (!previous.getZeroOffsetMatch() || !position.getZeroOffsetMatch());
+                boolean samePosition = terms[index].equals(terms[index - 1]) && previous.equals(position);
+                boolean within = previous.getLowOffset() <= position.getOffset() && position.getLowOffset() <= previous.getOffset() + distance;
+                if (zeroOffset || samePosition || !within) {
+                    continue;
+                }
+            }
+            if (findPhrase(terms, distance, offsets, index + 1, position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Phrases of 2 to 8 terms over a content field, evaluated from the term frequency values as the TermOffsetPopulator loads them, logging the rate for each
+     * length
+     */
+    @Test
+    public void evaluate_phraseLengthTimingTest() {
+        Random random = new Random(1);
+        int numTokens = 20000;
+        String eventId = "shard\0type\0uid";
+        TermFrequencyList.Zone zone = new TermFrequencyList.Zone("BODY", true, eventId);
+        
+        // a document with a few very common terms, so that their offset lists are long
+        String[] document = new String[numTokens];
+        Map<String,TermWeight.Info.Builder> builders = new HashMap<>();
+        for (int i = 0; i < numTokens; i++) {
+            document[i] = "term" + (random.nextBoolean() ? random.nextInt(20) : random.nextInt(5000));
+            builders.computeIfAbsent(document[i], k -> TermWeight.Info.newBuilder()).addTermOffset(i);
+        }
+        Map<String,TermWeight.Info> infos = new HashMap<>();
+        for (Map.Entry<String,TermWeight.Info.Builder> entry : builders.entrySet()) {
+            infos.put(entry.getKey(), entry.getValue().build());
+        }
+        
+        for (int length = 2; length <= 8; length++) {
+            // half of the phrases are found in the document, the other half are shuffled
+            List<String[]> phrases = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int start = random.nextInt(numTokens - length);
+                String[] phrase = Arrays.copyOfRange(document, start, start + length);
+                if (i % 2 == 1) {
+                    Collections.shuffle(Arrays.asList(phrase), random);
+                }
+                phrases.add(phrase);
+            }
+            
+            long start = System.nanoTime();
+            int found = 0;
+            for (String[] phrase : phrases) {
+                Map<String,TermFrequencyList> termOffsetMap = new HashMap<>();
+                for (String term : phrase) {
+                    termOffsetMap.computeIfAbsent(term, k -> new TermFrequencyList(zone, TermPositions.create(infos.get(k))));
+                }
+                if (new ContentOrderedEvaluator(null, 1, Float.NEGATIVE_INFINITY, termOffsetMap, phrase).evaluate()) {
+                    found++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            
+            Assert.assertTrue(found >= phrases.size() / 2);
+            log.info(String.format("phrase length %d: %.1f phrases/sec over %d tokens", length, phrases.size() * 1e9 / elapsed, numTokens));
+        }
+    }
+    
     private static class WrappedContentOrderedEvaluator extends ContentOrderedEvaluator {
         public WrappedContentOrderedEvaluator(Set<String> fields, int distance, Map<String,TermFrequencyList> termOffsetMap, String... terms) {
             super(fields, distance, Float.MIN_VALUE, termOffsetMap, terms);
@@ -0,0 +1,152 @@
+package datawave.query.jexl.functions;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class ContentUnorderedEvaluatorTest {
+    
+    private List<TermWeightPosition> asList(int... offsets) {
+        List<TermWeightPosition> list = new ArrayList<>();
+        for (int offset : offsets) {
+            list.add(new TermWeightPosition.Builder().setOffset(offset).build());
+        }
+        return list;
+    }
+    
+    @Test
+    public void evaluate_withinDistanceTest() {
+        List<List<TermWeightPosition>> offsets = Arrays.asList(asList(1, 20), asList(9, 22), asList(3, 30));
+        
+        Assert.assertTrue(new ContentUnorderedEvaluator(null, 8, Float.NEGATIVE_INFINITY, new HashMap<>(), "a", "b", "c").evaluate(offsets));
+        Assert.assertFalse(new ContentUnorderedEvaluator(null, 7, Float.NEGATIVE_INFINITY, new HashMap<>(), "a", "b", "c").evaluate(offsets));
+    }
+    
+    @Test
+    public void evaluate_skipsTest() {
+        // 'b' at 5 with two previous skips may be anywhere from 3 to 5
+        List<List<TermWeightPosition>> offsets = Arrays.asList(asList(1),
+                        Collections.singletonList(new TermWeightPosition.Builder().setOffset(5).setPrevSkips(2).build()));
+        
+        Assert.assertTrue(new ContentUnorderedEvaluator(null, 2, Float.NEGATIVE_INFINITY, new HashMap<>(), "a", "b").evaluate(offsets));
+        Assert.assertFalse(new ContentUnorderedEvaluator(null, 1, Float.NEGATIVE_INFINITY, new HashMap<>(), "a", "b").evaluate(offsets));
+    }
+    
+    /**
+     * The evaluator walks the term positions in place, it must return the same result as the previous implementation that copied and consumed the offset
+     * lists
+     */
+    @Test
+    public void evaluate_randomPositionsTest() {
+        Random random = new Random(0);
+        String[] vocabulary = {"a", "b", "c"};
+        for (int test = 0; test < 20000; test++) {
+            String[] terms = new String[2 + random.nextInt(4)];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = vocabulary[random.nextInt(vocabulary.length)];
+            }
+            int distance = random.nextInt(6);
+            float maxScore = random.nextBoolean() ? Float.NEGATIVE_INFINITY : TermWeightPosition.termWeightScoreToPositionScore(random.nextInt(100));
+            
+            Map<String,List<TermWeightPosition>> positions = new HashMap<>();
+            for (String term : vocabulary) {
+                TreeSet<TermWeightPosition> set = new TreeSet<>();
+                int count = random.nextInt(8);
+                for (int i = 0; i < count; i++) {
+                    set.add(new TermWeightPosition.Builder().setOffset(random.nextInt(30)).setPrevSkips(random.nextBoolean() ? random.nextInt(3) : -1)
+                                    .setScore(random.nextBoolean() ? random.nextInt(100) : -1).build());
+                }
+                positions.put(term, new ArrayList<>(set));
+            }
+            
+            List<List<TermWeightPosition>> offsets = new ArrayList<>();
+            List<List<TermWeightPosition>> copies = new ArrayList<>();
+            for (String term : terms) {
+                offsets.add(positions.get(term));
+                copies.add(new ArrayList<>(positions.get(term)));
+            }
+            
+            ContentUnorderedEvaluator evaluator = new ContentUnorderedEvaluator(null, distance, maxScore, new HashMap<>(), terms);
+            Assert.assertEquals(Arrays.toString(terms) + " " + distance + " " + maxScore + " " + positions,
+                            legacyEvaluate(distance, TermWeightPosition.positionScoreToTermWeightScore(maxScore), terms, copies), evaluator.evaluate(offsets));
+        }
+    }
+    
+    /**
+     * The unordered evaluation as it was done before the positions were held in arrays, kept as the reference for the random test
+     */
+    private static boolean legacyEvaluate(int distance, int maxScore, String[] terms, List<List<TermWeightPosition>> offsets) {
+        for (List<TermWeightPosition> offset : offsets) {
+            offset.removeIf(position -> position.getScore() > maxScore);
+        }
+        
+        if (terms.length > offsets.size()) {
+            return false;
+        }
+        PriorityQueue<LegacyOffsetList> offsetQueue = new PriorityQueue<>();
+        TermWeightPosition maxOffset = null;
+        Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
+        for (int i = 0; i < offsets.size(); i++) {
+            // a repeated term consumes the same copy of the offsets
+            List<TermWeightPosition> offsetList = termsSeen.get(terms[i]);
+            if (offsetList == null) {
+                offsetList = new LinkedList<>(offsets.get(i));
+                termsSeen.put(terms[i], offsetList);
+            }
+            if (offsetList.isEmpty()) {
+                return false;
+            }
+            LegacyOffsetList entry = new LegacyOffsetList(offsetList);
+            if (maxOffset == null || entry.minOffset.compareTo(maxOffset) > 0) {
+                maxOffset = entry.minOffset;
+            }
+            offsetQueue.add(entry);
+        }
+        
+        while (true) {
+            LegacyOffsetList o = offsetQueue.remove();
+            if (maxOffset.getLowOffset() - o.minOffset.getOffset() <= distance) {
+                return true;
+            }
+            if (maxOffset.getLowOffset() - o.maxOffset.getOffset() > distance) {
+                return false;
+            }
+            if (o.offsets.isEmpty()) {
+                return false;
+            }
+            o.minOffset = o.offsets.remove(0);
+            if (o.minOffset.compareTo(maxOffset) > 0) {
+                maxOffset = o.minOffset;
+            }
+            offsetQueue.add(o);
+        }
+    }
+    
+    private static class LegacyOffsetList implements Comparable<LegacyOffsetList> {
+        private final List<TermWeightPosition> offsets;
+        private final TermWeightPosition maxOffset;
+        private TermWeightPosition minOffset;
+        
+        public LegacyOffsetList(List<TermWeightPosition> offsets) {
+            this.offsets = offsets;
+            this.maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
+            this.minOffset = offsets.remove(0);
+        }
+        
+        @Override
+        public int compareTo(LegacyOffsetList o) {
+            return minOffset.compareTo(o.minOffset);
+        }
+    }
+}
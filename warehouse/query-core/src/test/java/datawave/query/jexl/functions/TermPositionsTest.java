@@ -0,0 +1,114 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermPositionsTest {
+    
+    @Test
+    public void testCreateFromInfo() {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(3, 7, 12)).addAllPrevSkips(Arrays.asList(0, 2, 0))
+                        .addAllScore(Arrays.asList(10, 20, 30)).setZeroOffsetMatch(false).build();
+        TermPositions positions = TermPositions.create(info);
+        
+        Assert.assertEquals(3, positions.size());
+        Assert.assertEquals(7, positions.getOffset(1));
+        Assert.assertEquals(5, positions.getLowOffset(1));
+        Assert.assertEquals(2, positions.getMaxSkips());
+        Assert.assertEquals(20, positions.getScore(1));
+        Assert.assertFalse(positions.getZeroOffsetMatch(2));
+        
+        TermWeightPosition.Builder builder = new TermWeightPosition.Builder();
+        for (int i = 0; i < info.getTermOffsetCount(); i++) {
+            TermWeightPosition expected = builder.setTermWeightOffsetInfo(info, i).build();
+            builder.reset();
+            TermWeightPosition actual = positions.getTermWeightPosition(i);
+            Assert.assertEquals(expected.toString(), actual.toString());
+        }
+    }
+    
+    @Test
+    public void testMismatchedSkipsAndScoresIgnored() {
+        // skips and scores are only used when their counts match the offsets
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(3, 7)).addPrevSkips(1).addScore(5).build();
+        TermPositions positions = TermPositions.create(info);
+        
+        Assert.assertEquals(TermWeightPosition.DEFAULT_PREV_SKIPS, positions.getPrevSkips(0));
+        Assert.assertEquals(TermWeightPosition.DEFAULT_SCORE, positions.getScore(1));
+        Assert.assertEquals(3, positions.getLowOffset(0));
+        Assert.assertEquals(0, positions.getMaxSkips());
+    }
+    
+    @Test
+    public void testSortedAndUniqueAsTreeSet() {
+        Random random = new Random(0);
+        for (int test = 0; test < 1000; test++) {
+            TermPositions.Builder builder = new TermPositions.Builder(2);
+            TreeSet<TermWeightPosition> expected = new TreeSet<>();
+            int count = random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                TermWeightPosition position = new TermWeightPosition.Builder().setOffset(random.nextInt(30))
+                                .setPrevSkips(random.nextBoolean() ? random.nextInt(3) : TermWeightPosition.DEFAULT_PREV_SKIPS)
+                                .setScore(random.nextInt(100)).setZeroOffsetMatch(random.nextBoolean()).build();
+                builder.add(position);
+                expected.add(position);
+            }
+            TermPositions positions = builder.build();
+            
+            Assert.assertEquals(toStrings(new ArrayList<>(expected)), toStrings(positions.toTermWeightPositions()));
+        }
+    }
+    
+    @Test
+    public void testMerge() {
+        TermPositions positions1 = TermPositions.create(TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(1, 5, 9)).build());
+        TermPositions positions2 = TermPositions
+                        .create(TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(2, 5, 10)).addAllScore(Arrays.asList(1, 2, 3)).build());
+        TermPositions merged = TermPositions.merge(positions1, positions2);
+        
+        Assert.assertEquals(5, merged.size());
+        int[] offsets = new int[merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            offsets[i] = merged.getOffset(i);
+        }
+        Assert.assertArrayEquals(new int[] {1, 2, 5, 9, 10}, offsets);
+        // the first of equal positions is kept
+        Assert.assertEquals(TermWeightPosition.DEFAULT_SCORE, merged.getScore(2));
+        Assert.assertEquals(1, merged.getScore(1));
+        
+        Assert.assertSame(positions1, TermPositions.merge(positions1, TermPositions.EMPTY));
+        Assert.assertSame(positions2, TermPositions.merge(TermPositions.EMPTY, positions2));
+    }
+    
+    @Test
+    public void testTermFrequencyListOffsets() {
+        TermFrequencyList.Zone zone = new TermFrequencyList.Zone("BODY", true, "shard\0dt\0uid");
+        TermFrequencyList list = new TermFrequencyList(zone, TermPositions.create(TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(4, 8)).build()));
+        list.addPositions(zone, TermPositions.create(TermWeight.Info.newBuilder().addTermOffset(6).build()));
+        
+        Assert.assertEquals(3, list.fetchPositions(zone).size());
+        Assert.assertEquals(3, list.fetchOffsets().get(zone).size());
+        Assert.assertEquals(4, list.fetchOffsets().get(zone).first().getOffset());
+        Assert.assertEquals(8, list.fetchOffsets().get(zone).last().getOffset());
+        
+        TermFrequencyList copy = new TermFrequencyList(list.fetchOffsets());
+        Assert.assertEquals(list, copy);
+        Assert.assertEquals(list.hashCode(), copy.hashCode());
+    }
+    
+    private static List<String> toStrings(List<TermWeightPosition> positions) {
+        List<String> strings = new ArrayList<>();
+        for (TermWeightPosition position : positions) {
+            strings.add(position.toString());
+        }
+        return strings;
+    }
+}
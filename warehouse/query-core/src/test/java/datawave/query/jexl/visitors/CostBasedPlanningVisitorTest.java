@@ -0,0 +1,156 @@
+package datawave.query.jexl.visitors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.planner.QueryCostModel;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CostBasedPlanningVisitorTest {
+    
+    private ShardQueryConfiguration config;
+    private MapCostModel model;
+    private Set<String> indexedFields;
+    private Set<String> indexOnlyFields;
+    
+    @Before
+    public void setup() {
+        config = ShardQueryConfiguration.create();
+        model = new MapCostModel();
+        indexedFields = Sets.newHashSet("FOO", "BAR", "BAZ", "BODY");
+        indexOnlyFields = Sets.newHashSet("BODY");
+    }
+    
+    @Test
+    public void testAndOrderedByEstimate() throws ParseException {
+        model.terms.put("FOO:a", 100L);
+        model.terms.put("BAR:b", 5L);
+        model.terms.put("BAZ:c", 50L);
+        
+        visitAndValidate("FOO == 'a' && BAR == 'b' && BAZ == 'c'", "BAR == 'b' && BAZ == 'c' && FOO == 'a'");
+        assertEquals(5, config.getEstimatedCardinality());
+    }
+    
+    @Test
+    public void testUnknownTermsOrderedLast() throws ParseException {
+        model.terms.put("FOO:a", 100L);
+        model.terms.put("BAR:b", 5L);
+        
+        // NOT_INDEXED is not indexed and the function has no estimate
+        visitAndValidate("NOT_INDEXED == 'x' && FOO == 'a' && filter:includeRegex(FOO, 'a.*') && BAR == 'b'",
+                        "BAR == 'b' && FOO == 'a' && NOT_INDEXED == 'x' && filter:includeRegex(FOO, 'a.*')");
+    }
+    
+    @Test
+    public void testExpensiveTermDelayed() throws ParseException {
+        model.terms.put("FOO:a", 10_000_000L);
+        model.terms.put("BAR:b", 5L);
+        
+        visitAndValidate("FOO == 'a' && BAR == 'b'", "BAR == 'b' && ((ASTDelayedPredicate = true) && (FOO == 'a'))");
+        assertTrue(config.getPlanCostEstimates().contains("FOO == 'a' delayed"));
+    }
+    
+    @Test
+    public void testIndexOnlyTermNotDelayed() throws ParseException {
+        model.terms.put("BODY:a", 10_000_000L);
+        model.terms.put("BAR:b", 5L);
+        
+        visitAndValidate("BODY == 'a' && BAR == 'b'", "BAR == 'b' && BODY == 'a'");
+    }
+    
+    @Test
+    public void testPushdownDisabled() throws ParseException {
+        config.setCostBasedPushdownRatio(0);
+        model.terms.put("FOO:a", 10_000_000L);
+        model.terms.put("BAR:b", 5L);
+        
+        visitAndValidate("FOO == 'a' && BAR == 'b'", "BAR == 'b' && FOO == 'a'");
+    }
+    
+    @Test
+    public void testNestedEstimates() throws ParseException {
+        model.terms.put("FOO:a", 100L);
+        model.terms.put("FOO:b", 200L);
+        model.terms.put("BAR:c", 1000L);
+        model.terms.put("BAZ:d", 50L);
+        
+        // the OR is estimated at 300 and the nested AND at 50
+        visitAndValidate("BAR == 'c' && (FOO == 'a' || FOO == 'b') && (BAZ == 'd' && BAR == 'c')",
+                        "(BAZ == 'd' && BAR == 'c') && (FOO == 'a' || FOO == 'b') && BAR == 'c'");
+        assertEquals(50, config.getEstimatedCardinality());
+    }
+    
+    @Test
+    public void testBoundedRangeNotReordered() throws ParseException {
+        model.terms.put("FOO:a", 100L);
+        
+        visitAndValidate("FOO == 'a' && ((BAR >= '1' && BAR <= '5'))", "FOO == 'a' && ((BAR >= '1' && BAR <= '5'))");
+    }
+    
+    @Test
+    public void testIvaratorChosenForFieldedList() throws ParseException {
+        model.terms.put("FOO:a", 40L);
+        model.terms.put("FOO:b", 40L);
+        model.terms.put("FOO:c", 40L);
+        model.terms.put("BAR:d", 1L);
+        model.fields.put("FOO", 200L);
+        model.fields.put("BAR", 1000L);
+        
+        visitAndValidate("FOO == 'a' || FOO == 'b' || FOO == 'c' || BAR == 'd'", "FOO == 'a' || FOO == 'b' || FOO == 'c' || BAR == 'd'");
+        assertEquals(Collections.singleton("FOO"), config.getCostBasedIvaratorFields());
+        assertEquals(121, config.getEstimatedCardinality());
+    }
+    
+    @Test
+    public void testIndexChosenForSelectiveFieldedList() throws ParseException {
+        model.terms.put("FOO:a", 40L);
+        model.terms.put("FOO:b", 40L);
+        model.fields.put("FOO", 1000L);
+        
+        visitAndValidate("FOO == 'a' || FOO == 'b'", "FOO == 'a' || FOO == 'b'");
+        assertEquals(Collections.emptySet(), config.getCostBasedIvaratorFields());
+    }
+    
+    @Test
+    public void testUnknownEstimate() throws ParseException {
+        visitAndValidate("FOO == 'a' && BAR == 'b'", "FOO == 'a' && BAR == 'b'");
+        assertEquals(QueryCostModel.UNKNOWN, config.getEstimatedCardinality());
+        assertEquals("estimate: -1", config.getPlanCostEstimates());
+    }
+    
+    private void visitAndValidate(String original, String expected) throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(original);
+        ASTJexlScript planned = CostBasedPlanningVisitor.plan(script, config, model, indexedFields, indexOnlyFields);
+        assertEquals(expected, JexlStringBuildingVisitor.buildQuery(planned));
+        assertTrue(JexlASTHelper.validateLineage(planned, false));
+    }
+    
+    /**
+     * A cost model over fixed estimates
+     */
+    private static class MapCostModel implements QueryCostModel {
+        private final Map<String,Long> terms = new HashMap<>();
+        private final Map<String,Long> fields = new HashMap<>();
+        
+        @Override
+        public long estimateTerm(String field, String value) {
+            return terms.getOrDefault(field + ':' + value, UNKNOWN);
+        }
+        
+        @Override
+        public long estimateField(String field) {
+            return fields.getOrDefault(field, UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package datawave.query.planner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.QueryModelVisitor;
+import datawave.query.jexl.visitors.TreeEqualityVisitor;
+import datawave.query.model.QueryModel;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class QueryPlanCacheTest {
+    
+    private static final Logger log = Logger.getLogger(QueryPlanCacheTest.class);
+    private static final int BENCHMARK_SIZE = 200;
+    
+    private QueryPlanCache cache;
+    private Function<ASTJexlScript,ASTJexlScript> stage;
+    private QueryModel model;
+    private Set<String> allFields;
+    
+    @BeforeClass
+    public static void setLogging() {
+        log.setLevel(Level.INFO);
+    }
+    
+    @Before
+    public void setup() {
+        model = new QueryModel();
+        model.addTermToModel("FOO", "BAR1");
+        model.addTermToModel("FOO", "BAR2");
+        model.addTermToModel("OUT", "IN");
+        model.addTermToReverseModel("BAR1", "FOO");
+        model.addTermToReverseModel("BAR2", "FOO");
+        model.addTermToReverseModel("IN", "OUT");
+        allFields = Sets.newHashSet("FOO", "BAR1", "BAR2", "OUT", "IN", "BAZ");
+        
+        cache = new QueryPlanCache(10, 1, TimeUnit.HOURS);
+        stage = queryTree -> QueryModelVisitor.applyModel(queryTree, model, allFields);
+    }
+    
+    @Test
+    public void testHitForSameShape() throws ParseException {
+        assertPlan("FOO == 'a' && OUT =~ 'b.*' && BAZ > '5'", false);
+        assertPlan("FOO == 'x' && OUT =~ 'y.*' && BAZ > '7'", true);
+        Assert.assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void testMissForDifferentShape() throws ParseException {
+        assertPlan("FOO == 'a' && OUT == 'b'", false);
+        assertPlan("FOO == 'a' || OUT == 'b'", false);
+        assertPlan("OUT == 'a' && FOO == 'b'", false);
+        Assert.assertEquals(3, cache.size());
+    }
+    
+    @Test
+    public void testMissForDifferentContext() throws ParseException {
+        assertPlan("FOO == 'a'", "model1", false);
+        assertPlan("FOO == 'b'", "model2", false);
+        assertPlan("FOO == 'c'", "model1", true);
+    }
+    
+    @Test
+    public void testFunctionArgumentsArePartOfShape() throws ParseException {
+        assertPlan("FOO == 'a' && filter:includeRegex(OUT, 'b.*')", false);
+        assertPlan("FOO == 'x' && filter:includeRegex(OUT, 'c.*')", false);
+        assertPlan("FOO == 'y' && filter:includeRegex(OUT, 'c.*')", true);
+    }
+    
+    @Test
+    public void testRepeatedLiterals() throws ParseException {
+        assertPlan("FOO == 'a' || FOO == 'b'", false);
+        assertPlan("FOO == 'c' || FOO == 'c'", true);
+    }
+    
+    @Test
+    public void testPlaceholderNotCached() throws ParseException {
+        assertPlan("FOO == '\u0000literal:0'", false);
+        assertPlan("FOO == '\u0000literal:0'", false);
+        Assert.assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testQueryTreeNotModified() throws ParseException {
+        String query = "FOO == 'a' && OUT == 'b'";
+        ASTJexlScript queryTree = JexlASTHelper.parseJexlQuery(query);
+        cache.apply(queryTree, "", stage);
+        cache.apply(queryTree, "", stage);
+        Assert.assertEquals(query, JexlStringBuildingVisitor.buildQuery(queryTree));
+    }
+    
+    @Test
+    public void testContextChangesWithModelAndFields() {
+        DefaultQueryPlanner planner = new DefaultQueryPlanner();
+        ShardQueryConfiguration config = ShardQueryConfiguration.create();
+        String context = planner.getQueryPlanCacheContext(config, model, allFields);
+        Assert.assertEquals(context, planner.getQueryPlanCacheContext(config, model, Sets.newTreeSet(allFields)));
+        
+        model.addTermToModel("OUT", "IN2");
+        String modelChanged = planner.getQueryPlanCacheContext(config, model, allFields);
+        Assert.assertNotEquals(context, modelChanged);
+        
+        allFields.add("IN2");
+        Assert.assertNotEquals(modelChanged, planner.getQueryPlanCacheContext(config, model, allFields));
+    }
+    
+    @Test
+    public void testCacheFollowsConfiguration() {
+        ShardQueryConfiguration config = ShardQueryConfiguration.create();
+        config.setQueryPlanCacheSize(5);
+        config.setQueryPlanCacheTTL(TimeUnit.MINUTES.toMillis(10));
+        QueryPlanCache configured = DefaultQueryPlanner.getQueryPlanCache(config);
+        Assert.assertEquals(5, configured.getMaximumSize());
+        Assert.assertEquals(TimeUnit.MINUTES.toMillis(10), configured.getExpirationMillis());
+        Assert.assertSame(configured, DefaultQueryPlanner.getQueryPlanCache(config));
+        
+        // queries configured differently share the caches rather than replacing them
+        ShardQueryConfiguration other = ShardQueryConfiguration.create();
+        other.setQueryPlanCacheSize(5);
+        other.setQueryPlanCacheTTL(TimeUnit.MINUTES.toMillis(5));
+        QueryPlanCache otherConfigured = DefaultQueryPlanner.getQueryPlanCache(other);
+        Assert.assertEquals(TimeUnit.MINUTES.toMillis(5), otherConfigured.getExpirationMillis());
+        Assert.assertSame(configured, DefaultQueryPlanner.getQueryPlanCache(config));
+        Assert.assertSame(otherConfigured, DefaultQueryPlanner.getQueryPlanCache(other));
+    }
+    
+    @Test
+    public void testCachedPlanTiming() throws ParseException {
+        // a model in which every field has several alternates, and queries of the same shape with different values
+        QueryModel largeModel = new QueryModel();
+        Set<String> largeFields = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 4; j++) {
+                largeModel.addTermToModel("FIELD" + i, "FIELD" + i + "_" + j);
+                largeModel.addTermToReverseModel("FIELD" + i + "_" + j, "FIELD" + i);
+                largeFields.add("FIELD" + i + "_" + j);
+            }
+        }
+        Function<ASTJexlScript,ASTJexlScript> largeStage = queryTree -> QueryModelVisitor.applyModel(queryTree, largeModel, largeFields);
+        
+        List<ASTJexlScript> queries = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_SIZE; i++) {
+            StringBuilder query = new StringBuilder();
+            for (int term = 0; term < 20; term++) {
+                if (term > 0) {
+                    query.append(term % 5 == 0 ? " || " : " && ");
+                }
+                query.append("FIELD").append(term * 5).append(" == 'value").append(i).append('_').append(term).append('\'');
+            }
+            queries.add(JexlASTHelper.parseJexlQuery(query.toString()));
+        }
+        
+        // warm up both paths before timing them
+        for (ASTJexlScript query : queries) {
+            largeStage.apply(query);
+            cache.apply(query, "large", largeStage);
+        }
+        
+        long startTime = System.nanoTime();
+        for (ASTJexlScript query : queries) {
+            largeStage.apply(query);
+        }
+        long uncached = System.nanoTime() - startTime;
+        
+        startTime = System.nanoTime();
+        for (ASTJexlScript query : queries) {
+            Assert.assertTrue(cache.apply(query, "large", largeStage).isHit());
+        }
+        long cached = System.nanoTime() - startTime;
+        
+        log.info(String.format("Applied the query model in %d ns/query, bound a cached plan in %d ns/query", uncached / BENCHMARK_SIZE, cached
+                        / BENCHMARK_SIZE));
+        
+        ASTJexlScript query = queries.get(BENCHMARK_SIZE - 1);
+        TreeEqualityVisitor.Reason reason = new TreeEqualityVisitor.Reason();
+        Assert.assertTrue(reason.reason, TreeEqualityVisitor.isEqual(largeStage.apply(query), cache.apply(query, "large", largeStage).getQueryTree(), reason));
+    }
+    
+    private void assertPlan(String query, boolean hit) throws ParseException {
+        assertPlan(query, "", hit);
+    }
+    
+    private void assertPlan(String query, String context, boolean hit) throws ParseException {
+        QueryPlanCache.Plan plan = cache.apply(JexlASTHelper.parseJexlQuery(query), context, stage);
+        Assert.assertEquals(hit, plan.isHit());
+        if (!hit) {
+            Assert.assertEquals(0, plan.getTimeSaved());
+        }
+        
+        ASTJexlScript expected = stage.apply(JexlASTHelper.parseJexlQuery(query));
+        TreeEqualityVisitor.Reason reason = new TreeEqualityVisitor.Reason();
+        Assert.assertTrue(reason.reason, TreeEqualityVisitor.isEqual(expected, plan.getQueryTree(), reason));
+    }
+}
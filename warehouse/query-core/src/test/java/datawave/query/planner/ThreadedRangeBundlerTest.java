@@ -1,19 +1,30 @@
 package datawave.query.planner;
 
 import datawave.query.CloseableIterable;
+import datawave.query.jexl.JexlASTHelper;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.configuration.QueryData;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Range;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ParseException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.mock;
+import static org.easymock.EasyMock.niceMock;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
@@ -110,6 +121,146 @@ public class ThreadedRangeBundlerTest {
         verify(iterator);
     }
     
+    @Test
+    public void whenIteratorIsNotCreated_thenTimeToFirstRangeIsUnknown() {
+        ThreadedRangeBundler bundler = ThreadedRangeBundler.builder().build();
+        
+        assertEquals(-1L, bundler.getTimeToFirstRange());
+    }
+    
+    @Test
+    public void whenTimeToFirstRangeIsCalled_thenUnderlyingIteratorIsCalled() throws NoSuchFieldException, IllegalAccessException {
+        ThreadedRangeBundler bundler = ThreadedRangeBundler.builder().build();
+        
+        ThreadedRangeBundlerIterator iterator = mock(ThreadedRangeBundlerIterator.class);
+        expect(iterator.getTimeToFirstRange()).andReturn(25L);
+        replay(iterator);
+        setIterator(bundler, iterator);
+        
+        assertEquals(25L, bundler.getTimeToFirstRange());
+        verify(iterator);
+    }
+    
+    @Test
+    public void whenRangeQueueIsFull_thenProducerWaitsForConsumer() throws Exception {
+        RangeStream ranges = new RangeStream(10);
+        ThreadedRangeBundlerIterator iterator = buildIterator(ranges, 2);
+        try {
+            // the producer fills the queue and then waits rather than pulling more plans from the range stream
+            awaitProducerWaits(iterator, 1);
+            Thread.sleep(50);
+            assertEquals(2, ranges.pulled.get());
+            assertEquals(1L, iterator.getProducerWaits());
+            
+            // taking a plan makes room for exactly one more
+            assertTrue(iterator.hasNext());
+            iterator.next();
+            awaitProducerWaits(iterator, 2);
+            assertEquals(3, ranges.pulled.get());
+            
+            int count = 1;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            assertEquals(10, count);
+            assertEquals(10, ranges.pulled.get());
+            assertTrue(iterator.getProducerWaitMillis() >= 0);
+        } finally {
+            iterator.close();
+        }
+    }
+    
+    @Test
+    public void whenClosedWhileProducerWaits_thenProducerStops() throws Exception {
+        RangeStream ranges = new RangeStream(10);
+        ThreadedRangeBundlerIterator iterator = buildIterator(ranges, 2);
+        awaitProducerWaits(iterator, 1);
+        
+        Thread producer = (Thread) getField(iterator, "rangeConsumerThread");
+        assertTrue(producer.isAlive());
+        
+        iterator.close();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(producer.isAlive());
+        assertTrue(ranges.closed);
+        // nothing more was pulled from the range stream once it was closed
+        assertEquals(2, ranges.pulled.get());
+        assertEquals(1L, iterator.getProducerWaits());
+    }
+    
+    private ThreadedRangeBundlerIterator buildIterator(CloseableIterable<QueryPlan> ranges, int maxRanges) {
+        Query settings = niceMock(Query.class);
+        replay(settings);
+        
+        QueryData original = new QueryData(RangeStream.QUERY, new ArrayList<Range>(), new ArrayList<IteratorSetting>());
+        
+        // @formatter:off
+        return new ThreadedRangeBundlerIterator.Builder()
+                        .setOriginal(original)
+                        .setRanges(ranges)
+                        .setMaxRanges(maxRanges)
+                        .setSettings(settings)
+                        .setMaxWaitValue(10)
+                        .setMaxWaitUnit(TimeUnit.MILLISECONDS)
+                        .build();
+        // @formatter:on
+    }
+    
+    private void awaitProducerWaits(ThreadedRangeBundlerIterator iterator, long waits) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (iterator.getProducerWaits() < waits && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(waits, iterator.getProducerWaits());
+    }
+    
+    private Object getField(Object object, String name) throws NoSuchFieldException, IllegalAccessException {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+    
+    /**
+     * A range stream of shard plans that counts how many plans were pulled from it
+     */
+    private static class RangeStream implements CloseableIterable<QueryPlan> {
+        static final String QUERY = "FOO == 'bar'";
+        
+        private final int size;
+        private final AtomicInteger pulled = new AtomicInteger();
+        private volatile boolean closed = false;
+        
+        RangeStream(int size) {
+            this.size = size;
+        }
+        
+        @Override
+        public Iterator<QueryPlan> iterator() {
+            return new Iterator<QueryPlan>() {
+                @Override
+                public boolean hasNext() {
+                    return !closed && pulled.get() < size;
+                }
+                
+                @Override
+                public QueryPlan next() {
+                    int shard = pulled.incrementAndGet();
+                    try {
+                        return new QueryPlan(QUERY, JexlASTHelper.parseJexlQuery(QUERY), Collections.singleton(new Range("20200101_" + shard)));
+                    } catch (ParseException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+    
     private void setIterator(final ThreadedRangeBundler bundler, final ThreadedRangeBundlerIterator iterator) throws NoSuchFieldException,
                     IllegalAccessException {
         Field field = bundler.getClass().getDeclaredField("iterator");
@@ -0,0 +1,110 @@
+package datawave.query.tables;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+public class DedupingIteratorTest {
+    
+    private static final Value EMPTY = new Value(new byte[0]);
+    
+    @Test
+    public void testDedupe() {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        entries.add(entry("20190101_0", "datatype\u0000uid1"));
+        entries.add(entry("20190101_0", "datatype\u0000uid2"));
+        // the same document returned by a different range, prefixed with a count
+        entries.add(entry("20190101_0", "3\u0000datatype\u0000uid1"));
+        entries.add(entry("20190101_1", "datatype\u0000uid1"));
+        entries.add(entry("20190101_0", "datatype\u0000uid2"));
+        
+        DedupingIterator itr = new DedupingIterator(entries.iterator());
+        List<Entry<Key,Value>> results = drain(itr);
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(entries.get(0), results.get(0));
+        Assert.assertEquals(entries.get(1), results.get(1));
+        Assert.assertEquals(entries.get(3), results.get(2));
+        
+        // a small result set only allocates the first stage
+        Assert.assertEquals(ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY, itr.getCapacity());
+        Assert.assertEquals(ScalableBloomFilter.bytes(ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY, ScalableBloomFilter.DEFAULT_FALSE_POSITIVE_PROBABILITY),
+                        itr.getBytesUsed());
+        Assert.assertEquals(3.0 / ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY, itr.getFillRatio(), 1e-9);
+    }
+    
+    @Test
+    public void testGrowth() {
+        List<Entry<Key,Value>> entries = entries(60000, 10000);
+        DedupingIterator itr = new DedupingIterator(entries.iterator());
+        Assert.assertEquals(60000, drain(itr).size());
+        
+        // 10,000 + 40,000 + 160,000
+        Assert.assertEquals(210000, itr.getCapacity());
+        Assert.assertTrue(itr.getFillRatio() < 1);
+    }
+    
+    @Test
+    public void testMemoryBudget() {
+        ScalableBloomFilter<byte[]> bloom = new ScalableBloomFilter<>(new DedupingIterator.ByteFunnel(), 1024 * 1024, 1000, 1e-12);
+        for (int i = 0; i < 100000; i++) {
+            bloom.put(Integer.toString(i).getBytes());
+        }
+        
+        // the stages stop growing within the budget and the last one is overfilled
+        Assert.assertTrue(bloom.isSaturated());
+        Assert.assertTrue(bloom.getBytesUsed() <= 1024 * 1024);
+        Assert.assertEquals(1000 + 4000 + 16000 + 64000, bloom.getCapacity());
+        Assert.assertTrue(bloom.getFillRatio() > 1);
+        Assert.assertTrue(bloom.getCount() <= 100000);
+    }
+    
+    @Test
+    public void testExact() {
+        List<Entry<Key,Value>> entries = entries(20000, 5000);
+        // small enough to spill several times
+        DedupingIterator itr = new DedupingIterator(entries.iterator(), 64 * 1000, true);
+        List<Entry<Key,Value>> results = drain(itr);
+        Assert.assertEquals(20000, results.size());
+        Assert.assertEquals(1000, itr.getCapacity());
+        Assert.assertEquals(20.0, itr.getFillRatio(), 1e-9);
+        Assert.assertTrue(itr.getBytesUsed() > 0);
+        itr.close();
+    }
+    
+    /**
+     * Create the unique entries, plus the duplicates, in a random order
+     */
+    private static List<Entry<Key,Value>> entries(int unique, int duplicates) {
+        Random random = new Random(unique);
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        for (int i = 0; i < unique; i++) {
+            entries.add(entry("20190101_" + (i % 10), "datatype\u0000uid" + i));
+        }
+        for (int i = 0; i < duplicates; i++) {
+            int uid = random.nextInt(unique);
+            entries.add(entry("20190101_" + (uid % 10), random.nextInt(5) + "\u0000datatype\u0000uid" + uid));
+        }
+        Collections.shuffle(entries, random);
+        return entries;
+    }
+    
+    private static Entry<Key,Value> entry(String row, String cf) {
+        return new AbstractMap.SimpleEntry<>(new Key(row, cf), EMPTY);
+    }
+    
+    private static List<Entry<Key,Value>> drain(DedupingIterator itr) {
+        List<Entry<Key,Value>> results = new ArrayList<>();
+        while (itr.hasNext()) {
+            results.add(itr.next());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,123 @@
+package datawave.query.tables;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks how the {@link ShardQueryLogic} uses the load dates of the fields of a query to decide whether its results may be cached and served from the result
+ * cache
+ */
+public class ShardQueryLogicResultCacheTest {
+    
+    private static final String QUERY = "FOO == 'bar' && BAR == 'foo'";
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final Set<Authorizations> auths = Collections.singleton(new Authorizations("A", "B"));
+    private final List<Entry<Key,Value>> results = new ArrayList<>();
+    private ShardQueryConfiguration config;
+    private QueryImpl settings;
+    
+    @Before
+    public void setup() throws IOException {
+        config = new ShardQueryConfiguration();
+        config.setCacheResults(true);
+        config.setResultCacheDir(temporaryFolder.newFolder().getAbsolutePath());
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date(TimeUnit.DAYS.toMillis(1)));
+        settings = new QueryImpl();
+        
+        for (int i = 0; i < 10; i++) {
+            results.add(new AbstractMap.SimpleImmutableEntry<>(new Key("19700101_" + i, "datatype\u0000uid" + i), new Value(("document " + i).getBytes())));
+        }
+    }
+    
+    @Test
+    public void testNoLoadDate() throws Exception {
+        Assert.assertEquals(results, run(new LoadDateLogic("20190101")));
+        Assert.assertTrue(new LoadDateLogic("20190101").lookupCachedResults(config, QUERY, settings, auths));
+        
+        // without a load date the cached results are evicted, and the new results are not recorded
+        LoadDateLogic logic = new LoadDateLogic(null);
+        Assert.assertFalse(logic.lookupCachedResults(config, QUERY, settings, auths));
+        Assert.assertFalse(logic.isServedFromResultCache());
+        Iterator<Entry<Key,Value>> itr = results.iterator();
+        Assert.assertSame(itr, logic.recordCachedResults(config, itr));
+        
+        Assert.assertFalse(new LoadDateLogic("20190101").lookupCachedResults(config, QUERY, settings, auths));
+    }
+    
+    @Test
+    public void testLoadedToday() throws Exception {
+        long now = System.currentTimeMillis();
+        String today = format(now);
+        
+        // the results of fields loaded today are served for the rest of the day
+        Assert.assertEquals(results, run(new LoadDateLogic(today)));
+        LoadDateLogic logic = new LoadDateLogic(today);
+        Assert.assertTrue(logic.lookupCachedResults(config, QUERY, settings, auths));
+        Assert.assertTrue(logic.isServedFromResultCache());
+        Assert.assertTrue(new LoadDateLogic(today).lookupCachedResults(config, QUERY, settings, auths));
+        
+        // until the fields are loaded again
+        Assert.assertFalse(new LoadDateLogic(format(now + TimeUnit.DAYS.toMillis(1))).lookupCachedResults(config, QUERY, settings, auths));
+    }
+    
+    /**
+     * Run the query with a logic that did not find it in the cache, recording its results
+     */
+    private List<Entry<Key,Value>> run(LoadDateLogic logic) throws Exception {
+        Assert.assertFalse(logic.lookupCachedResults(config, QUERY, settings, auths));
+        List<Entry<Key,Value>> recorded = new ArrayList<>();
+        Iterator<Entry<Key,Value>> itr = logic.recordCachedResults(config, results.iterator());
+        while (itr.hasNext()) {
+            recorded.add(itr.next());
+        }
+        return recorded;
+    }
+    
+    private static String format(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+    
+    /**
+     * A logic whose fields have a fixed load date rather than those of the load dates table
+     */
+    private static class LoadDateLogic extends ShardQueryLogic {
+        private final String loadDate;
+        
+        LoadDateLogic(String loadDate) {
+            this.loadDate = loadDate;
+        }
+        
+        @Override
+        protected String getLatestLoadDate(ShardQueryConfiguration config, Set<String> fields, Query settings, Set<Authorizations> auths) {
+            return loadDate;
+        }
+    }
+}
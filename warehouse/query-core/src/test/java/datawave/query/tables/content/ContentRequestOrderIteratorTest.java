@@ -0,0 +1,112 @@
+package datawave.query.tables.content;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContentRequestOrderIteratorTest {
+    
+    private static final String CF = "d";
+    
+    private static Range documentRange(String shard, String datatype, String uid) {
+        String cq = datatype + '\0' + uid;
+        return new Range(new Key(shard, CF, cq + '\0'), true, new Key(shard, CF, cq + "\u10FFFF"), false);
+    }
+    
+    private static Entry<Key,Value> entry(String shard, String datatype, String uid, String view) {
+        return new AbstractMap.SimpleEntry<>(new Key(shard, CF, datatype + '\0' + uid + '\0' + view), new Value(uid.getBytes()));
+    }
+    
+    private static List<String> uids(ContentRequestOrderIterator iterator) {
+        List<String> uids = new ArrayList<>();
+        while (iterator.hasNext()) {
+            uids.add(new String(iterator.next().getValue().get()));
+        }
+        return uids;
+    }
+    
+    /**
+     * Returns the entries within the scanned ranges in the order in which a batch scanner might return them
+     */
+    private static class Scans implements ContentRequestOrderIterator.ScanSource {
+        private final List<Entry<Key,Value>> entries;
+        private final List<Collection<Range>> scans = new ArrayList<>();
+        
+        Scans(List<Entry<Key,Value>> entries) {
+            this.entries = entries;
+        }
+        
+        @Override
+        public Iterator<Entry<Key,Value>> scan(Collection<Range> ranges) {
+            scans.add(ranges);
+            List<Entry<Key,Value>> scanned = new ArrayList<>();
+            for (Entry<Key,Value> entry : entries) {
+                for (Range range : ranges) {
+                    if (range.contains(entry.getKey())) {
+                        scanned.add(entry);
+                        break;
+                    }
+                }
+            }
+            return scanned.iterator();
+        }
+    }
+    
+    @Test
+    public void testRequestOrder() {
+        List<Range> request = Arrays.asList(documentRange("20190102_1", "dt", "c"), documentRange("20190101_0", "dt", "a"),
+                        documentRange("20190102_1", "dt", "b"), documentRange("20190101_0", "dt", "missing"));
+        List<Entry<Key,Value>> scanned = Arrays.asList(entry("20190101_0", "dt", "a", "view1"), entry("20190102_1", "dt", "b", "view1"),
+                        entry("20190102_1", "dt", "c", "view1"), entry("20190101_0", "dt", "a", "view2"), entry("20190102_1", "dt", "c.1", "view1"));
+        
+        for (int shardsPerScan : new int[] {1, 2}) {
+            Scans scans = new Scans(scanned);
+            ContentRequestOrderIterator iterator = new ContentRequestOrderIterator(scans, request, shardsPerScan, 0);
+            Assert.assertEquals(Arrays.asList("c", "c.1", "a", "a", "b"), uids(iterator));
+            Assert.assertEquals(2 / shardsPerScan, scans.scans.size());
+        }
+    }
+    
+    @Test
+    public void testStreamsShardGroups() {
+        List<Range> request = Arrays.asList(documentRange("20190103_0", "dt", "a"), documentRange("20190101_0", "dt", "b"),
+                        documentRange("20190102_0", "dt", "c"), documentRange("20190103_0", "dt", "d"));
+        List<Entry<Key,Value>> scanned = Arrays.asList(entry("20190101_0", "dt", "b", "view"), entry("20190102_0", "dt", "c", "view"),
+                        entry("20190103_0", "dt", "d", "view"), entry("20190103_0", "dt", "a", "view"));
+        
+        Scans scans = new Scans(scanned);
+        ContentRequestOrderIterator iterator = new ContentRequestOrderIterator(scans, request, 1, 0);
+        
+        // the shard of the first document is scanned first, and its first document is returned before the other shards are scanned
+        Assert.assertEquals("a", new String(iterator.next().getValue().get()));
+        Assert.assertEquals(1, scans.scans.size());
+        Assert.assertEquals(Arrays.asList(request.get(0), request.get(3)), new ArrayList<>(scans.scans.get(0)));
+        Assert.assertEquals("b", new String(iterator.next().getValue().get()));
+        Assert.assertEquals(2, scans.scans.size());
+        Assert.assertEquals(Arrays.asList("c", "d"), uids(iterator));
+        Assert.assertEquals(3, scans.scans.size());
+    }
+    
+    @Test
+    public void testBufferLimit() {
+        List<Range> request = Arrays.asList(documentRange("20190101_0", "dt", "c"), documentRange("20190101_0", "dt", "b"),
+                        documentRange("20190101_0", "dt", "a"));
+        List<Entry<Key,Value>> scanned = Arrays.asList(entry("20190101_0", "dt", "a", "view"), entry("20190101_0", "dt", "b", "view"),
+                        entry("20190101_0", "dt", "c", "view"));
+        
+        // the first two entries are ordered and the rest are returned as scanned
+        long limit = scanned.get(0).getKey().getSize() + scanned.get(0).getValue().getSize() + 1;
+        ContentRequestOrderIterator iterator = new ContentRequestOrderIterator(new Scans(scanned), request, 1, limit);
+        Assert.assertEquals(Arrays.asList("b", "a", "c"), uids(iterator));
+    }
+}
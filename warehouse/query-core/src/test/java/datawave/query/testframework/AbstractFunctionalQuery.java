@@ -21,6 +21,7 @@ import datawave.query.tables.CountingShardQueryLogic;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.query.testframework.QueryLogicTestHarness.DocumentChecker;
 import datawave.query.transformer.ShardQueryCountTableTransformer;
+import datawave.query.transformer.ShardQueryDistinctCountTransformer;
 import datawave.query.util.DateIndexHelperFactory;
 import datawave.query.util.MetadataHelperFactory;
 import datawave.security.authorization.DatawavePrincipal;
@@ -462,6 +463,42 @@ public abstract class AbstractFunctionalQuery implements QueryLogicTestHarness.T
         Assert.assertEquals("" + expect.size(), val);
     }
     
+    /**
+     * Executes test cases that use {@link CountingShardQueryLogic} to estimate the number of distinct values of a field.
+     *
+     * @param query
+     *            query for evaluation
+     * @param options
+     *            query parameters, including the distinct count field
+     * @return one event per shard date holding the date, the estimate and its relative error
+     * @throws Exception
+     *             error condition during execution of query
+     */
+    protected List<EventBase> runDistinctCountQuery(String query, Map<String,String> options) throws Exception {
+        Date[] startEndDate = this.dataManager.getShardStartEndDate();
+        if (log.isDebugEnabled()) {
+            log.debug("  distinct count query[" + query + "]  options(" + options + ")  start(" + YMD_DateFormat.format(startEndDate[0]) + ")  end("
+                            + YMD_DateFormat.format(startEndDate[1]) + ")");
+        }
+        
+        QueryImpl q = new QueryImpl();
+        q.setBeginDate(startEndDate[0]);
+        q.setEndDate(startEndDate[1]);
+        q.setQuery(query);
+        q.setParameters(options);
+        
+        q.setId(UUID.randomUUID());
+        q.setPagesize(Integer.MAX_VALUE);
+        q.setQueryAuthorizations(auths.toString());
+        
+        RunningQuery runner = new RunningQuery(connector, AccumuloConnectionFactory.Priority.NORMAL, this.countLogic, q, "", principal,
+                        new QueryMetricFactoryImpl());
+        TransformIterator it = runner.getTransformIterator();
+        ShardQueryDistinctCountTransformer dct = (ShardQueryDistinctCountTransformer) it.getTransformer();
+        EventQueryResponseBase resp = (EventQueryResponseBase) dct.createResponse(runner.next());
+        return resp.getEvents();
+    }
+    
     /**
      * Used by test cases that verify the configuration.
      *
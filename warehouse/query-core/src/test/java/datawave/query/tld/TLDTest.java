@@ -7,9 +7,11 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -20,6 +22,10 @@ import static org.junit.Assert.assertTrue;
  */
 public class TLDTest {
     
+    private static final Logger log = Logger.getLogger(TLDTest.class);
+    
+    public static int BENCHMARK_SIZE = 200;
+    
     // Default values for events
     private final String row = "20190314";
     private final String field = "FIELD_A";
@@ -225,6 +231,136 @@ public class TLDTest {
         }
     }
     
+    @Test
+    public void testIndexOf() {
+        ByteSequence bytes = new ArrayByteSequence("how.many.dots.do.we.have?");
+        assertEquals(3, TLD.indexOf('.', bytes, 0));
+        assertEquals(8, TLD.indexOf('.', bytes, 4));
+        assertEquals(-1, TLD.indexOf('!', bytes, 0));
+        assertEquals(19, TLD.lastIndexOf('.', bytes, bytes.length() - 1));
+        assertEquals(16, TLD.lastIndexOf('.', bytes, 18));
+        assertEquals(13, TLD.nthIndexOf('.', bytes, 0, 3));
+        assertEquals(16, TLD.nthIndexOf('.', bytes, 4, 3));
+        assertEquals(-1, TLD.nthIndexOf('.', bytes, 0, 6));
+        assertEquals(13, TLD.nthLastIndexOf('.', bytes, 3));
+        assertEquals(-1, TLD.nthLastIndexOf('.', bytes, 6));
+        assertEquals(5, TLD.countOf('.', bytes, 0, bytes.length(), -1));
+        assertEquals(3, TLD.countOf('.', bytes, 0, bytes.length(), 3));
+        assertEquals(2, TLD.countOf('.', bytes, 4, 16, -1));
+    }
+    
+    @Test
+    public void testIndexOfSubSequence() {
+        // parsers must honor the offset of a sequence over a larger array
+        ByteSequence bytes = new ArrayByteSequence("xx.how.many.dots".getBytes(), 3, 13);
+        assertEquals(3, TLD.indexOf('.', bytes, 0));
+        assertEquals(8, TLD.lastIndexOf('.', bytes, bytes.length() - 1));
+        assertEquals(2, TLD.countOf('.', bytes, 0, bytes.length(), -1));
+        assertTrue(TLD.equals(bytes, 4, 8, new ArrayByteSequence("many")));
+        assertFalse(TLD.equals(bytes, 4, 8, new ArrayByteSequence("many.")));
+    }
+    
+    @Test
+    public void testParseUid() {
+        for (String uid : new String[] {rootId, childId, grandchildId}) {
+            ByteSequence expected = new ArrayByteSequence(uid);
+            for (Key key : new Key[] {buildFiKey(uid), buildTFKey(uid), buildEventDataKey(uid)}) {
+                assertEquals(expected, TLD.parseUid(key.getColumnFamilyData(), key.getColumnQualifierData()));
+                assertTrue(TLD.isUid(key.getColumnFamilyData(), key.getColumnQualifierData(), expected));
+                assertFalse(TLD.isUid(key.getColumnFamilyData(), key.getColumnQualifierData(), root.equals(expected) ? child : root));
+            }
+        }
+    }
+    
+    @Test
+    public void testParseFieldAndValue() {
+        Key fiKey = buildFiKey(childId);
+        assertEquals(field, TLD.parseFieldFromFI(fiKey.getColumnFamilyData()));
+        assertEquals(value, TLD.parseValueFromFI(fiKey.getColumnQualifierData()));
+        
+        Key tfKey = buildTFKey(childId);
+        assertEquals(field, TLD.parseFieldFromTF(tfKey.getColumnQualifierData()));
+        
+        assertTrue(TLD.isFieldIndex(fiKey.getColumnFamilyData()));
+        assertFalse(TLD.isFieldIndex(tfKey.getColumnFamilyData()));
+        assertTrue(TLD.isTermFrequency(tfKey.getColumnFamilyData()));
+        assertFalse(TLD.isTermFrequency(fiKey.getColumnFamilyData()));
+    }
+    
+    @Test
+    public void testIsPointerFromFI() {
+        ByteSequence rootPointer = new ArrayByteSequence(datatype + '\u0000' + rootId);
+        ByteSequence childPointer = new ArrayByteSequence(datatype + '\u0000' + childId);
+        for (String uid : new String[] {rootId, childId, grandchildId}) {
+            ByteSequence cq = buildFiKey(uid).getColumnQualifierData();
+            assertTrue(TLD.isRootPointerFromFI(cq, rootPointer));
+            assertFalse(TLD.isRootPointerFromFI(cq, childPointer));
+            assertTrue(TLD.isPointerFromFI(cq, TLD.parsePointerFromFI(cq)));
+        }
+        assertTrue(TLD.isPointerFromFI(buildFiKey(childId).getColumnQualifierData(), childPointer));
+        assertFalse(TLD.isPointerFromFI(buildFiKey(grandchildId).getColumnQualifierData(), childPointer));
+    }
+    
+    /**
+     * Compares the in place parsers against the String based parsing they replaced for the keys of a document with a deep hierarchy of children, logging the
+     * time taken by each.
+     */
+    @Test
+    public void testBenchmark() {
+        List<Key> keys = new ArrayList<>();
+        StringBuilder uid = new StringBuilder(rootId);
+        for (int depth = 0; depth < 10; depth++) {
+            uid.append('.').append(depth);
+            for (int child = 0; child < BENCHMARK_SIZE; child++) {
+                String id = uid.toString() + '.' + child;
+                keys.add(buildFiKey(id));
+                keys.add(buildTFKey(id));
+                keys.add(buildEventDataKey(id));
+            }
+        }
+        ByteSequence docUid = new ArrayByteSequence(rootId);
+        
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            int stringMatches = 0;
+            for (Key key : keys) {
+                String cf = key.getColumnFamily().toString();
+                String cq = key.getColumnQualifier().toString();
+                String parsed;
+                if (cf.equals("tf")) {
+                    int uidStart = cq.indexOf('\0') + 1;
+                    parsed = cq.substring(uidStart, cq.indexOf('\0', uidStart));
+                } else if (cf.startsWith("fi\0")) {
+                    parsed = cq.substring(cq.lastIndexOf('\0') + 1);
+                } else {
+                    parsed = cf.substring(cf.lastIndexOf('\0') + 1);
+                }
+                if (TLD.parseRootPointerFromId(parsed).equals(rootId)) {
+                    stringMatches++;
+                }
+            }
+            long stringDuration = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            int byteMatches = 0;
+            for (Key key : keys) {
+                ByteSequence cf = key.getColumnFamilyData();
+                ByteSequence cq = key.getColumnQualifierData();
+                ByteSequence id = TLD.isTermFrequency(cf) || TLD.isFieldIndex(cf) ? cq : cf;
+                int uidStart = TLD.isTermFrequency(cf) ? TLD.indexOf(0, cq, 0) + 1 : TLD.lastIndexOf(0, id, id.length() - 1) + 1;
+                int uidEnd = TLD.isTermFrequency(cf) ? TLD.indexOf(0, cq, uidStart) : id.length();
+                if (TLD.equals(id, uidStart, TLD.rootPointerEnd(id, uidStart, uidEnd), docUid)) {
+                    byteMatches++;
+                }
+            }
+            long byteDuration = System.nanoTime() - start;
+            
+            assertEquals(keys.size(), stringMatches);
+            assertEquals(stringMatches, byteMatches);
+            log.info("parsed root pointers of " + keys.size() + " keys: strings " + stringDuration / 1000000 + " ms, in place " + byteDuration / 1000000 + " ms");
+        }
+    }
+    
     // Build parent keys from FI keys
     @Test
     public void testBuildParentKey() {
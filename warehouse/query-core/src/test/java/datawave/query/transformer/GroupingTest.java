@@ -461,6 +461,28 @@ public abstract class GroupingTest {
         }
     }
     
+    @Test
+    public void testCountingMapWithPartialCounts() {
+        MarkingFunctions markingFunctions = new MarkingFunctions.Default();
+        GroupingTransform.GroupCountingHashMap map = new GroupingTransform.GroupCountingHashMap(markingFunctions);
+        GroupingTypeAttribute attr1 = new GroupingTypeAttribute(new LcType("FOO"), new Key("FOO"), true);
+        attr1.setColumnVisibility(new ColumnVisibility("A"));
+        Assert.assertEquals(3, map.add(Collections.singleton(attr1), 3));
+        
+        GroupingTypeAttribute attr2 = new GroupingTypeAttribute(new LcType("FOO"), new Key("FOO"), true);
+        attr2.setColumnVisibility(new ColumnVisibility("B"));
+        Assert.assertEquals(7, map.add(Collections.singleton(attr2), 4));
+        Assert.assertEquals(8, map.add(Collections.singleton(attr2)));
+        
+        Assert.assertEquals(1, map.size());
+        Attribute<?> attr = map.keySet().iterator().next().iterator().next();
+        Assert.assertEquals(new ColumnVisibility("A&B"), attr.getColumnVisibility());
+        
+        map.clear();
+        Assert.assertEquals(2, map.add(Collections.singleton(attr2), 2));
+        Assert.assertEquals(new ColumnVisibility("B"), map.keySet().iterator().next().iterator().next().getColumnVisibility());
+    }
+    
     @Test
     public void testCountingMapAgain() {
         MarkingFunctions markingFunctions = new MarkingFunctions.Default();
@@ -0,0 +1,60 @@
+package datawave.query.transformer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class UniqueSignatureSetTest {
+    
+    private static byte[] signature(int i) {
+        return ("f0:FIELD=value" + i).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testInMemory() throws IOException {
+        UniqueSignatureSet set = new UniqueSignatureSet(1000, true);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(set.add(signature(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(set.add(signature(i)));
+        }
+        Assert.assertEquals(100, set.size());
+        Assert.assertEquals(0, set.getSpilledRuns());
+        set.close();
+    }
+    
+    @Test
+    public void testSpill() throws IOException {
+        UniqueSignatureSet set = new UniqueSignatureSet(1000, true);
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(set.add(signature(i)));
+        }
+        Assert.assertEquals(10, set.getSpilledRuns());
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertFalse(set.add(signature(i)));
+        }
+        for (int i = 10000; i < 11000; i++) {
+            Assert.assertTrue(set.add(signature(i)));
+        }
+        Assert.assertEquals(11000, set.size());
+        set.close();
+        Assert.assertEquals(0, set.getSpilledRuns());
+    }
+    
+    @Test
+    public void testReset() throws IOException {
+        UniqueSignatureSet set = new UniqueSignatureSet(10, false);
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(set.add(signature(i)));
+            Assert.assertFalse(set.add(signature(i)));
+        }
+        
+        // the tenth signature fills the set which is then reset
+        Assert.assertTrue(set.add(signature(9)));
+        Assert.assertTrue(set.add(signature(0)));
+        Assert.assertEquals(0, set.getSpilledRuns());
+    }
+}
@@ -189,6 +189,8 @@ public class UniqueTransformTest {
         }
         
         Assert.assertEquals(expected, eventList.size());
+        Assert.assertEquals(input.size(), transform.getSeenCount());
+        Assert.assertEquals(input.size() - expected, transform.getDroppedCount());
         Assert.assertNull(transform.apply(null));
     }
     
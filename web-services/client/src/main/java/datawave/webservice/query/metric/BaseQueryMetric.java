@@ -578,6 +578,32 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
     protected String plan = null;
     @XmlElement
     protected long loginTime = -1;
+    @XmlElement
+    protected long prefetchBufferOccupancy = 0;
+    @XmlElement
+    protected long prefetchBufferMaxOccupancy = 0;
+    @XmlElement
+    protected long uniqueSeenCount = 0;
+    @XmlElement
+    protected long uniqueDroppedCount = 0;
+    @XmlElement
+    protected long timeToFirstRange = 0;
+    @XmlElement
+    protected long timeToFirstResult = 0;
+    @XmlElement
+    protected long dedupeCapacity = 0;
+    @XmlElement
+    protected double dedupeFillRatio = 0;
+    @XmlElement
+    protected long dedupeBytesUsed = 0;
+    @XmlElement
+    protected long resultCacheHits = 0;
+    @XmlElement
+    protected long estimatedCardinality = 0;
+    @XmlElement
+    protected String planCostEstimates = null;
+    @XmlElement
+    protected long planCacheTimeSaved = 0;
     @XmlElementWrapper(name = "predictions")
     @XmlElement(name = "prediction")
     protected Set<Prediction> predictions = new HashSet<Prediction>();
@@ -770,6 +796,110 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.loginTime = loginTime;
     }
     
+    public long getPrefetchBufferOccupancy() {
+        return prefetchBufferOccupancy;
+    }
+    
+    public void setPrefetchBufferOccupancy(long prefetchBufferOccupancy) {
+        this.prefetchBufferOccupancy = prefetchBufferOccupancy;
+    }
+    
+    public long getPrefetchBufferMaxOccupancy() {
+        return prefetchBufferMaxOccupancy;
+    }
+    
+    public void setPrefetchBufferMaxOccupancy(long prefetchBufferMaxOccupancy) {
+        this.prefetchBufferMaxOccupancy = prefetchBufferMaxOccupancy;
+    }
+    
+    public long getUniqueSeenCount() {
+        return uniqueSeenCount;
+    }
+    
+    public void setUniqueSeenCount(long uniqueSeenCount) {
+        this.uniqueSeenCount = uniqueSeenCount;
+    }
+    
+    public long getUniqueDroppedCount() {
+        return uniqueDroppedCount;
+    }
+    
+    public void setUniqueDroppedCount(long uniqueDroppedCount) {
+        this.uniqueDroppedCount = uniqueDroppedCount;
+    }
+    
+    public long getTimeToFirstRange() {
+        return timeToFirstRange;
+    }
+    
+    public void setTimeToFirstRange(long timeToFirstRange) {
+        this.timeToFirstRange = timeToFirstRange;
+    }
+    
+    public long getTimeToFirstResult() {
+        return timeToFirstResult;
+    }
+    
+    public void setTimeToFirstResult(long timeToFirstResult) {
+        this.timeToFirstResult = timeToFirstResult;
+    }
+    
+    public long getDedupeCapacity() {
+        return dedupeCapacity;
+    }
+    
+    public void setDedupeCapacity(long dedupeCapacity) {
+        this.dedupeCapacity = dedupeCapacity;
+    }
+    
+    public double getDedupeFillRatio() {
+        return dedupeFillRatio;
+    }
+    
+    public void setDedupeFillRatio(double dedupeFillRatio) {
+        this.dedupeFillRatio = dedupeFillRatio;
+    }
+    
+    public long getDedupeBytesUsed() {
+        return dedupeBytesUsed;
+    }
+    
+    public void setDedupeBytesUsed(long dedupeBytesUsed) {
+        this.dedupeBytesUsed = dedupeBytesUsed;
+    }
+    
+    public long getResultCacheHits() {
+        return resultCacheHits;
+    }
+    
+    public void setResultCacheHits(long resultCacheHits) {
+        this.resultCacheHits = resultCacheHits;
+    }
+    
+    public long getEstimatedCardinality() {
+        return estimatedCardinality;
+    }
+    
+    public void setEstimatedCardinality(long estimatedCardinality) {
+        this.estimatedCardinality = estimatedCardinality;
+    }
+    
+    public String getPlanCostEstimates() {
+        return planCostEstimates;
+    }
+    
+    public void setPlanCostEstimates(String planCostEstimates) {
+        this.planCostEstimates = planCostEstimates;
+    }
+    
+    public long getPlanCacheTimeSaved() {
+        return planCacheTimeSaved;
+    }
+    
+    public void setPlanCacheTimeSaved(long planCacheTimeSaved) {
+        this.planCacheTimeSaved = planCacheTimeSaved;
+    }
+    
     public void addPageMetric(PageMetric pageMetric) {
         this.numPages++;
         this.numResults += pageMetric.getPagesize();
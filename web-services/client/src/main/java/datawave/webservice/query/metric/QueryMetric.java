@@ -97,6 +97,19 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         this.fiRanges = other.fiRanges;
         this.plan = other.plan;
         this.loginTime = other.loginTime;
+        this.prefetchBufferMaxOccupancy = other.prefetchBufferMaxOccupancy;
+        this.prefetchBufferOccupancy = other.prefetchBufferOccupancy;
+        this.uniqueSeenCount = other.uniqueSeenCount;
+        this.uniqueDroppedCount = other.uniqueDroppedCount;
+        this.timeToFirstRange = other.timeToFirstRange;
+        this.timeToFirstResult = other.timeToFirstResult;
+        this.dedupeCapacity = other.dedupeCapacity;
+        this.dedupeFillRatio = other.dedupeFillRatio;
+        this.dedupeBytesUsed = other.dedupeBytesUsed;
+        this.resultCacheHits = other.resultCacheHits;
+        this.estimatedCardinality = other.estimatedCardinality;
+        this.planCostEstimates = other.planCostEstimates;
+        this.planCacheTimeSaved = other.planCacheTimeSaved;
         
         if (other.predictions != null) {
             this.predictions = new HashSet<Prediction>();
@@ -119,7 +132,11 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         .append(this.getErrorMessage()).append(this.getCreateCallTime()).append(this.getErrorCode()).append(this.getQueryName())
                         .append(this.getParameters()).append(this.getSourceCount()).append(this.getNextCount()).append(this.getSeekCount())
                         .append(this.getYieldCount()).append(this.getDocRanges()).append(this.getFiRanges()).append(this.getPlan()).append(this.getLoginTime())
-                        .append(this.getPredictions()).toHashCode();
+                        .append(this.getPredictions()).append(this.getPrefetchBufferOccupancy()).append(this.getPrefetchBufferMaxOccupancy())
+                        .append(this.getUniqueSeenCount()).append(this.getUniqueDroppedCount()).append(this.getTimeToFirstRange())
+                        .append(this.getTimeToFirstResult()).append(this.getDedupeCapacity()).append(this.getDedupeFillRatio())
+                        .append(this.getDedupeBytesUsed()).append(this.getResultCacheHits()).append(this.getEstimatedCardinality())
+                        .append(this.getPlanCostEstimates()).append(this.getPlanCacheTimeSaved()).toHashCode();
     }
     
     @Override
@@ -146,7 +163,20 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                             .append(this.getNextCount(), other.getNextCount()).append(this.getSeekCount(), other.getSeekCount())
                             .append(this.getYieldCount(), other.getYieldCount()).append(this.getDocRanges(), other.getDocRanges())
                             .append(this.getFiRanges(), other.getFiRanges()).append(this.getPlan(), other.getPlan())
-                            .append(this.getLoginTime(), other.getLoginTime()).append(this.getPredictions(), other.getPredictions()).isEquals();
+                            .append(this.getLoginTime(), other.getLoginTime()).append(this.getPredictions(), other.getPredictions())
+                            .append(this.getPrefetchBufferOccupancy(), other.getPrefetchBufferOccupancy())
+                            .append(this.getPrefetchBufferMaxOccupancy(), other.getPrefetchBufferMaxOccupancy())
+                            .append(this.getUniqueSeenCount(), other.getUniqueSeenCount())
+                            .append(this.getUniqueDroppedCount(), other.getUniqueDroppedCount())
+                            .append(this.getTimeToFirstRange(), other.getTimeToFirstRange())
+                            .append(this.getTimeToFirstResult(), other.getTimeToFirstResult())
+                            .append(this.getDedupeCapacity(), other.getDedupeCapacity())
+                            .append(this.getDedupeFillRatio(), other.getDedupeFillRatio())
+                            .append(this.getDedupeBytesUsed(), other.getDedupeBytesUsed())
+                            .append(this.getResultCacheHits(), other.getResultCacheHits())
+                            .append(this.getEstimatedCardinality(), other.getEstimatedCardinality())
+                            .append(this.getPlanCostEstimates(), other.getPlanCostEstimates())
+                            .append(this.getPlanCacheTimeSaved(), other.getPlanCacheTimeSaved()).isEquals();
         } else {
             return false;
         }
@@ -186,6 +216,19 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         buf.append(" FI Ranges: ").append(this.getFiRanges());
         buf.append(" Login Time: ").append(this.getLoginTime());
         buf.append(" Predictions: ").append(this.getPredictions());
+        buf.append(" Prefetch Buffer Occupancy: ").append(this.getPrefetchBufferOccupancy());
+        buf.append(" Prefetch Buffer Max Occupancy: ").append(this.getPrefetchBufferMaxOccupancy());
+        buf.append(" Unique Seen Count: ").append(this.getUniqueSeenCount());
+        buf.append(" Unique Dropped Count: ").append(this.getUniqueDroppedCount());
+        buf.append(" Time To First Range: ").append(this.getTimeToFirstRange());
+        buf.append(" Time To First Result: ").append(this.getTimeToFirstResult());
+        buf.append(" Dedupe Capacity: ").append(this.getDedupeCapacity());
+        buf.append(" Dedupe Fill Ratio: ").append(this.getDedupeFillRatio());
+        buf.append(" Dedupe Bytes Used: ").append(this.getDedupeBytesUsed());
+        buf.append(" Result Cache Hits: ").append(this.getResultCacheHits());
+        buf.append(" Estimated Cardinality: ").append(this.getEstimatedCardinality());
+        buf.append(" Plan Cost Estimates: ").append(this.getPlanCostEstimates());
+        buf.append(" Plan Cache Time Saved: ").append(this.getPlanCacheTimeSaved());
         buf.append("\n");
         return buf.toString();
     }
@@ -369,6 +412,22 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                 }
             }
             
+            output.writeInt64(37, message.prefetchBufferOccupancy, false);
+            output.writeInt64(38, message.prefetchBufferMaxOccupancy, false);
+            output.writeInt64(39, message.uniqueSeenCount, false);
+            output.writeInt64(40, message.uniqueDroppedCount, false);
+            output.writeInt64(41, message.timeToFirstRange, false);
+            output.writeInt64(42, message.timeToFirstResult, false);
+            output.writeInt64(43, message.dedupeCapacity, false);
+            output.writeDouble(44, message.dedupeFillRatio, false);
+            output.writeInt64(45, message.dedupeBytesUsed, false);
+            output.writeInt64(46, message.resultCacheHits, false);
+            output.writeInt64(47, message.estimatedCardinality, false);
+            
+            if (message.planCostEstimates != null) {
+                output.writeString(48, message.planCostEstimates, false);
+            }
+            output.writeInt64(49, message.planCacheTimeSaved, false);
         }
         
         public void mergeFrom(Input input, QueryMetric message) throws IOException {
@@ -501,6 +560,45 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         }
                         message.predictions.add(input.mergeObject(null, Prediction.getSchema()));
                         break;
+                    case 37:
+                        message.prefetchBufferOccupancy = input.readInt64();
+                        break;
+                    case 38:
+                        message.prefetchBufferMaxOccupancy = input.readInt64();
+                        break;
+                    case 39:
+                        message.uniqueSeenCount = input.readInt64();
+                        break;
+                    case 40:
+                        message.uniqueDroppedCount = input.readInt64();
+                        break;
+                    case 41:
+                        message.timeToFirstRange = input.readInt64();
+                        break;
+                    case 42:
+                        message.timeToFirstResult = input.readInt64();
+                        break;
+                    case 43:
+                        message.dedupeCapacity = input.readInt64();
+                        break;
+                    case 44:
+                        message.dedupeFillRatio = input.readDouble();
+                        break;
+                    case 45:
+                        message.dedupeBytesUsed = input.readInt64();
+                        break;
+                    case 46:
+                        message.resultCacheHits = input.readInt64();
+                        break;
+                    case 47:
+                        message.estimatedCardinality = input.readInt64();
+                        break;
+                    case 48:
+                        message.planCostEstimates = input.readString();
+                        break;
+                    case 49:
+                        message.planCacheTimeSaved = input.readInt64();
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -583,6 +681,32 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                     return "loginTime";
                 case 36:
                     return "predictions";
+                case 37:
+                    return "prefetchBufferOccupancy";
+                case 38:
+                    return "prefetchBufferMaxOccupancy";
+                case 39:
+                    return "uniqueSeenCount";
+                case 40:
+                    return "uniqueDroppedCount";
+                case 41:
+                    return "timeToFirstRange";
+                case 42:
+                    return "timeToFirstResult";
+                case 43:
+                    return "dedupeCapacity";
+                case 44:
+                    return "dedupeFillRatio";
+                case 45:
+                    return "dedupeBytesUsed";
+                case 46:
+                    return "resultCacheHits";
+                case 47:
+                    return "estimatedCardinality";
+                case 48:
+                    return "planCostEstimates";
+                case 49:
+                    return "planCacheTimeSaved";
                 default:
                     return null;
             }
@@ -632,6 +756,19 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
             fieldMap.put("plan", 34);
             fieldMap.put("loginTime", 35);
             fieldMap.put("predictions", 36);
+            fieldMap.put("prefetchBufferOccupancy", 37);
+            fieldMap.put("prefetchBufferMaxOccupancy", 38);
+            fieldMap.put("uniqueSeenCount", 39);
+            fieldMap.put("uniqueDroppedCount", 40);
+            fieldMap.put("timeToFirstRange", 41);
+            fieldMap.put("timeToFirstResult", 42);
+            fieldMap.put("dedupeCapacity", 43);
+            fieldMap.put("dedupeFillRatio", 44);
+            fieldMap.put("dedupeBytesUsed", 45);
+            fieldMap.put("resultCacheHits", 46);
+            fieldMap.put("estimatedCardinality", 47);
+            fieldMap.put("planCostEstimates", 48);
+            fieldMap.put("planCacheTimeSaved", 49);
         }
     };
     
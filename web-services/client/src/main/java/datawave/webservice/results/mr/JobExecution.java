@@ -32,6 +32,9 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
     @XmlAttribute(name = "state")
     private String state;
     
+    @XmlAttribute(name = "partition")
+    private String partition;
+    
     public String getMapReduceJobId() {
         return mapReduceJobId;
     }
@@ -44,6 +47,13 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
         return state;
     }
     
+    /**
+     * @return the shard day partition this execution reports on, or null if it reports on the whole job
+     */
+    public String getPartition() {
+        return partition;
+    }
+    
     public void setMapReduceJobId(String mapReduceJobId) {
         this.mapReduceJobId = mapReduceJobId;
     }
@@ -56,9 +66,14 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
         this.state = state;
     }
     
+    public void setPartition(String partition) {
+        this.partition = partition;
+    }
+    
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37).append(this.getTimestamp()).append(this.getMapReduceJobId()).append(this.getState()).toHashCode();
+        return new HashCodeBuilder(17, 37).append(this.getTimestamp()).append(this.getMapReduceJobId()).append(this.getState()).append(this.getPartition())
+                        .toHashCode();
     }
     
     @Override
@@ -70,17 +85,22 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
         if (o.getClass() != this.getClass())
             return false;
         JobExecution other = (JobExecution) o;
-        if (this.mapReduceJobId.equals(other.mapReduceJobId) && this.state.equals(other.state) && this.timestamp == other.timestamp)
+        if (this.mapReduceJobId.equals(other.mapReduceJobId) && this.state.equals(other.state) && this.timestamp == other.timestamp
+                        && (this.partition == null ? other.partition == null : this.partition.equals(other.partition)))
             return true;
         return false;
     }
     
     @Override
     public int compareTo(JobExecution o) {
-        // sort by the map reduce job id, timestamp, and then state
+        // sort by the map reduce job id, partition, timestamp, and then state
         int result = this.mapReduceJobId.compareTo(o.mapReduceJobId);
         if (result != 0)
             return result;
+        else if (this.partition != o.partition && (this.partition == null || o.partition == null))
+            return this.partition == null ? -1 : 1;
+        else if (this.partition != null && (result = this.partition.compareTo(o.partition)) != 0)
+            return result;
         else {
             if (this.timestamp < o.timestamp)
                 return -1;
@@ -136,6 +156,10 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
             if (message.getState() != null) {
                 output.writeString(3, message.getState(), false);
             }
+            
+            if (message.getPartition() != null) {
+                output.writeString(4, message.getPartition(), false);
+            }
         }
         
         public void mergeFrom(Input input, JobExecution message) throws IOException {
@@ -151,6 +175,9 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
                     case 3:
                         message.setState(input.readString());
                         break;
+                    case 4:
+                        message.setPartition(input.readString());
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -166,6 +193,8 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
                     return "timestamp";
                 case 3:
                     return "state";
+                case 4:
+                    return "partition";
                 default:
                     return null;
             }
@@ -181,6 +210,7 @@ public class JobExecution implements Serializable, Message<JobExecution>, Compar
             fieldMap.put("mapReduceJobId", 1);
             fieldMap.put("timestamp", 2);
             fieldMap.put("state", 3);
+            fieldMap.put("partition", 4);
         }
     };
     
@@ -50,6 +50,10 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
     @XmlElement(name = "JobExecution")
     private List<JobExecution> jobExecutions;
     
+    @XmlElementWrapper(name = "PartitionExecutionHistory")
+    @XmlElement(name = "PartitionExecution")
+    private List<JobExecution> partitionExecutions;
+    
     @XmlElementWrapper(name = "ResultFiles")
     @XmlElement(name = "ResultFile")
     private List<ResultFile> resultFiles;
@@ -82,6 +86,13 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
         return jobExecutions;
     }
     
+    /**
+     * @return the state history of the individual shard day partitions of partitioned jobs
+     */
+    public List<JobExecution> getPartitionExecutions() {
+        return partitionExecutions;
+    }
+    
     public List<ResultFile> getResultFiles() {
         return resultFiles;
     }
@@ -118,6 +129,10 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
         this.jobExecutions = jobExecutions;
     }
     
+    public void setPartitionExecutions(List<JobExecution> partitionExecutions) {
+        this.partitionExecutions = partitionExecutions;
+    }
+    
     public void setResultFiles(List<ResultFile> resultFiles) {
         this.resultFiles = resultFiles;
     }
@@ -195,11 +210,19 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
                 output.writeString(7, message.getJobName(), false);
             }
             
+            if (null != message.getPartitionExecutions()) {
+                for (JobExecution partition : message.getPartitionExecutions()) {
+                    if (null != partition)
+                        output.writeObject(8, partition, JobExecution.getSchema(), true);
+                }
+            }
+            
         }
         
         public void mergeFrom(Input input, MapReduceInfoResponse message) throws IOException {
             List<ResultFile> files = null;
             List<JobExecution> jobs = null;
+            List<JobExecution> partitions = null;
             int number;
             while ((number = input.readFieldNumber(this)) != 0) {
                 switch (number) {
@@ -228,6 +251,11 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
                     case 7:
                         message.setJobName(input.readString());
                         break;
+                    case 8:
+                        if (partitions == null)
+                            partitions = new ArrayList<JobExecution>();
+                        partitions.add(input.mergeObject(null, JobExecution.getSchema()));
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -237,6 +265,8 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
                 message.setJobExecutions(jobs);
             if (files != null)
                 message.setResultFiles(files);
+            if (partitions != null)
+                message.setPartitionExecutions(partitions);
         }
         
         public String getFieldName(int number) {
@@ -255,6 +285,8 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
                     return "resultFiles";
                 case 7:
                     return "jobName";
+                case 8:
+                    return "partitionExecutions";
                 default:
                     return null;
             }
@@ -274,6 +306,7 @@ public class MapReduceInfoResponse implements Serializable, Message<MapReduceInf
             fieldMap.put("jobExecutions", 5);
             fieldMap.put("resultFiles", 6);
             fieldMap.put("jobName", 7);
+            fieldMap.put("partitionExecutions", 8);
             
         }
     };
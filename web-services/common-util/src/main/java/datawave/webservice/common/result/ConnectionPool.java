@@ -44,6 +44,18 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
     @XmlElement(name = "NumWaiting")
     private Integer numWaiting = null;
     
+    @XmlElement(name = "NumQueued")
+    private Long numQueued = null;
+    
+    @XmlElement(name = "NumQueueTimeouts")
+    private Long numQueueTimeouts = null;
+    
+    @XmlElement(name = "AvgQueueWaitMillis")
+    private Long avgQueueWaitMillis = null;
+    
+    @XmlElement(name = "MaxQueueWaitMillis")
+    private Long maxQueueWaitMillis = null;
+    
     @XmlElementWrapper(name = "ConnectionRequests")
     @XmlElement(name = "Connection")
     private List<Connection> connectionRequests = null;
@@ -88,6 +100,38 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
         this.numWaiting = numWaiting;
     }
     
+    public Long getNumQueued() {
+        return numQueued;
+    }
+    
+    public void setNumQueued(Long numQueued) {
+        this.numQueued = numQueued;
+    }
+    
+    public Long getNumQueueTimeouts() {
+        return numQueueTimeouts;
+    }
+    
+    public void setNumQueueTimeouts(Long numQueueTimeouts) {
+        this.numQueueTimeouts = numQueueTimeouts;
+    }
+    
+    public Long getAvgQueueWaitMillis() {
+        return avgQueueWaitMillis;
+    }
+    
+    public void setAvgQueueWaitMillis(Long avgQueueWaitMillis) {
+        this.avgQueueWaitMillis = avgQueueWaitMillis;
+    }
+    
+    public Long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+    
+    public void setMaxQueueWaitMillis(Long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+    
     public List<Connection> getConnectionRequests() {
         return connectionRequests;
     }
@@ -159,6 +159,10 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
         pool.setTestOnReturn(true);
         pool.setMaxTotal(limit);
         pool.setMaxIdle(-1);
+        if (conf.isSchedulerEnabled()) {
+            pool.setScheduler(new AccumuloConnectionScheduler(limit, conf.getMaxWaitMillis(),
+                            AccumuloConnectionScheduler.parseUserWeights(conf.getUserWeights())));
+        }
         
         try {
             pool.addObject();
@@ -312,10 +316,14 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
         StringBuilder buf = new StringBuilder();
         for (Entry<String,Map<Priority,AccumuloConnectionPool>> entry : this.pools.entrySet()) {
             buf.append("**** ").append(entry.getKey()).append(" ****\n");
-            buf.append("ADMIN: ").append(entry.getValue().get(Priority.ADMIN)).append("\n");
-            buf.append("HIGH: ").append(entry.getValue().get(Priority.HIGH)).append("\n");
-            buf.append("NORMAL: ").append(entry.getValue().get(Priority.NORMAL)).append("\n");
-            buf.append("LOW: ").append(entry.getValue().get(Priority.LOW)).append("\n");
+            for (Priority priority : new Priority[] {Priority.ADMIN, Priority.HIGH, Priority.NORMAL, Priority.LOW}) {
+                AccumuloConnectionPool pool = entry.getValue().get(priority);
+                buf.append(priority.name()).append(": ").append(pool);
+                if (pool != null && pool.getScheduler() != null) {
+                    buf.append(pool.getScheduler());
+                }
+                buf.append("\n");
+            }
         }
         
         return buf.toString();
@@ -368,6 +376,13 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 poolInfo.setMaxIdle(maxIdle.toInteger());
                 poolInfo.setNumIdle(numIdle.toInteger());
                 poolInfo.setPoolName(poolName);
+                AccumuloConnectionScheduler scheduler = p.getScheduler();
+                if (scheduler != null) {
+                    poolInfo.setNumQueued(scheduler.getNumQueued());
+                    poolInfo.setNumQueueTimeouts(scheduler.getNumTimedOut());
+                    poolInfo.setAvgQueueWaitMillis(scheduler.getAverageQueueWaitMillis());
+                    poolInfo.setMaxQueueWaitMillis(scheduler.getMaxQueueWaitMillis());
+                }
                 
                 List<Connection> requestingConnections = new ArrayList<>();
                 for (Map<String,String> m : requestingConnectionsMap) {
@@ -3,9 +3,10 @@ package datawave.webservice.common.connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.commons.lang.mutable.MutableInt;
@@ -15,9 +16,10 @@ import org.apache.log4j.Logger;
 public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     
     private static final Logger log = Logger.getLogger(AccumuloConnectionPool.class);
-    private final Map<Long,Map<String,String>> threadToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
-    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Long,Map<String,String>> threadToTrackingMapMap = new ConcurrentHashMap<>();
+    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = new ConcurrentHashMap<>();
     private AccumuloConnectionPoolFactory factory = null;
+    private AccumuloConnectionScheduler scheduler = null;
     
     public AccumuloConnectionPool(AccumuloConnectionPoolFactory factory) {
         super(factory);
@@ -38,12 +40,23 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
             trackingMap.put("state", AccumuloConnectionFactory.State.WAITING.toString());
             trackingMap.put("thread.name", Thread.currentThread().getName());
             threadToTrackingMapMap.put(threadId, trackingMap);
-            o = super.borrowObject();
+            if (scheduler != null) {
+                long waited = scheduler.acquire(trackingMap.get("user.dn"));
+                trackingMap.put("connection.queue.wait.ms", Long.toString(TimeUnit.NANOSECONDS.toMillis(waited)));
+            }
+            try {
+                o = super.borrowObject();
+            } catch (Exception e) {
+                if (scheduler != null) {
+                    scheduler.release();
+                }
+                throw e;
+            }
             log.debug(System.currentTimeMillis() + " thread: " + threadId + " borrowed connector: " + o);
             if (log.isTraceEnabled()) {
                 log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
             }
-            // hopefully insignificant gap in synchronization where an object could be returned (and numActive incremented) without the
+            // hopefully insignificant gap where an object could be returned (and numActive incremented) without the
             // connection being moved from the threadToTrackingMapMap to the connectorToTrackingMapMap
             
             if (o != null) {
@@ -65,16 +78,21 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     
     public void returnObject(Connector connector) {
         if (connector != null) {
-            synchronized (connectorToTrackingMapMap) {
-                connectorToTrackingMapMap.remove(connector);
-                Long threadId = Thread.currentThread().getId();
-                log.debug(System.currentTimeMillis() + " thread: " + threadId + " returned connector: " + connector);
-                if (log.isTraceEnabled()) {
-                    log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
-                }
+            boolean tracked = connectorToTrackingMapMap.remove(connector) != null;
+            Long threadId = Thread.currentThread().getId();
+            log.debug(System.currentTimeMillis() + " thread: " + threadId + " returned connector: " + connector);
+            if (log.isTraceEnabled()) {
+                log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
             }
             
-            super.returnObject(connector);
+            try {
+                super.returnObject(connector);
+            } finally {
+                // release the permit taken when the connector was borrowed even if the pool rejects it
+                if (tracked && scheduler != null) {
+                    scheduler.release();
+                }
+            }
         }
     }
     
@@ -82,26 +100,15 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
                     MutableInt numWaiting) {
         
         ArrayList<Map<String,String>> t = new ArrayList<>();
-        // no changes to underlying values while collecting metrics
-        synchronized (connectorToTrackingMapMap) {
-            // no changes to underlying values while collecting metrics
-            synchronized (threadToTrackingMapMap) {
-                // synchronize this last to prevent race condition for this lock underlying super type
-                synchronized (this) {
-                    if (!threadToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(threadToTrackingMapMap.values()));
-                    }
-                    if (!connectorToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(connectorToTrackingMapMap.values()));
-                    }
-                    maxTotal.setValue(getMaxTotal());
-                    numActive.setValue(getNumActive());
-                    maxIdle.setValue(getMaxIdle());
-                    numIdle.setValue(getNumIdle());
-                    numWaiting.setValue(getNumWaiters());
-                }
-            }
-        }
+        // the tracking maps are concurrent, so collecting metrics does not block callers borrowing or returning connections. The snapshot is
+        // weakly consistent with the pool counters, which is sufficient for reporting purposes.
+        t.addAll(threadToTrackingMapMap.values());
+        t.addAll(connectorToTrackingMapMap.values());
+        maxTotal.setValue(getMaxTotal());
+        numActive.setValue(getNumActive());
+        maxIdle.setValue(getMaxIdle());
+        numIdle.setValue(getNumIdle());
+        numWaiting.setValue((scheduler != null) ? scheduler.getNumWaiting() + getNumWaiters() : getNumWaiters());
         return Collections.unmodifiableList(t);
     }
     
@@ -117,4 +124,15 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     public AccumuloConnectionPoolFactory getFactory() {
         return factory;
     }
+    
+    /**
+     * @return the scheduler used to order callers waiting for a connection, or null if callers block directly on the pool
+     */
+    public AccumuloConnectionScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    public void setScheduler(AccumuloConnectionScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
 }
@@ -0,0 +1,307 @@
+package datawave.webservice.common.connection;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Admission scheduler placed in front of an {@link AccumuloConnectionPool}. Each pool already serves a single {@link AccumuloConnectionFactory.Priority}, so
+ * the scheduler is responsible for fairness between the users competing for that priority. Callers waiting for a connection are queued per user and served
+ * using weighted deficit round robin, so that a single user holding many long running queries cannot starve other users of the same priority.
+ * <p>
+ * Waiting is deadline aware: a caller that has not been granted a connection before its deadline is removed from its queue and receives a
+ * {@link TimeoutException}. The time spent queued is recorded so that pool sizes can be tuned from observed data.
+ */
+public class AccumuloConnectionScheduler {
+    
+    private static final Logger log = Logger.getLogger(AccumuloConnectionScheduler.class);
+    
+    public static final String UNKNOWN_USER = "unknown";
+    
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<String,UserQueue> userQueues = new HashMap<>();
+    private final ArrayDeque<UserQueue> activeQueues = new ArrayDeque<>();
+    private final Map<String,Integer> userWeights;
+    private final long defaultMaxWaitMillis;
+    
+    private int available;
+    private int numWaiting;
+    
+    private final LongAdder numQueued = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder numTimedOut = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    
+    /**
+     * @param permits
+     *            the number of connections which may be handed out concurrently, normally the max total of the backing pool
+     * @param defaultMaxWaitMillis
+     *            how long a caller may wait for a connection, a negative value waits indefinitely
+     * @param userWeights
+     *            the relative share of connections per user, users not in the map receive a weight of 1
+     */
+    public AccumuloConnectionScheduler(int permits, long defaultMaxWaitMillis, Map<String,Integer> userWeights) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("The number of permits must be positive: " + permits);
+        }
+        this.available = permits;
+        this.defaultMaxWaitMillis = defaultMaxWaitMillis;
+        this.userWeights = (userWeights == null) ? Collections.emptyMap() : new HashMap<>(userWeights);
+    }
+    
+    /**
+     * Acquire a permit using the default maximum wait
+     *
+     * @param user
+     *            the user requesting a connection
+     * @return the number of nanoseconds spent waiting
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     * @throws TimeoutException
+     *             if no permit was granted before the deadline
+     */
+    public long acquire(String user) throws InterruptedException, TimeoutException {
+        long deadline = (defaultMaxWaitMillis < 0) ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(defaultMaxWaitMillis);
+        return acquire(user, deadline);
+    }
+    
+    /**
+     * Acquire a permit, waiting in the queue for this user until one is granted or the deadline passes
+     *
+     * @param user
+     *            the user requesting a connection
+     * @param deadlineNanos
+     *            the deadline relative to {@link System#nanoTime()}, or {@link Long#MAX_VALUE} to wait indefinitely
+     * @return the number of nanoseconds spent waiting
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     * @throws TimeoutException
+     *             if no permit was granted before the deadline
+     */
+    public long acquire(String user, long deadlineNanos) throws InterruptedException, TimeoutException {
+        final String key = (user == null) ? UNKNOWN_USER : user;
+        final long start = System.nanoTime();
+        lock.lockInterruptibly();
+        try {
+            // fast path, nobody is queued ahead of us
+            if (available > 0 && numWaiting == 0) {
+                available--;
+                return 0L;
+            }
+            
+            Waiter waiter = new Waiter(lock.newCondition());
+            UserQueue queue = userQueues.computeIfAbsent(key, k -> new UserQueue(k, getWeight(k)));
+            if (queue.waiters.isEmpty()) {
+                activeQueues.addLast(queue);
+            }
+            queue.waiters.addLast(waiter);
+            numWaiting++;
+            numQueued.increment();
+            
+            try {
+                while (!waiter.granted) {
+                    if (deadlineNanos == Long.MAX_VALUE) {
+                        waiter.condition.await();
+                    } else {
+                        long remaining = deadlineNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            numTimedOut.increment();
+                            throw new TimeoutException("Timed out waiting for a connection for " + key + " after "
+                                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+                        }
+                        waiter.condition.awaitNanos(remaining);
+                    }
+                }
+            } catch (InterruptedException | TimeoutException e) {
+                if (waiter.granted) {
+                    // we were granted a permit while giving up, pass it along
+                    release();
+                } else {
+                    removeWaiter(queue, waiter);
+                }
+                throw e;
+            }
+            
+            long waited = System.nanoTime() - start;
+            totalQueueWaitNanos.add(waited);
+            maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+            return waited;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Return a permit, handing it directly to the next waiter in weighted round robin order if any are queued
+     */
+    public void release() {
+        lock.lock();
+        try {
+            Waiter next = nextWaiter();
+            if (next != null) {
+                next.granted = true;
+                next.condition.signal();
+            } else {
+                available++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private Waiter nextWaiter() {
+        while (!activeQueues.isEmpty()) {
+            UserQueue queue = activeQueues.peekFirst();
+            Waiter waiter = queue.waiters.pollFirst();
+            if (waiter == null) {
+                activeQueues.pollFirst();
+                userQueues.remove(queue.user);
+                continue;
+            }
+            numWaiting--;
+            queue.credit--;
+            if (queue.waiters.isEmpty()) {
+                activeQueues.pollFirst();
+                userQueues.remove(queue.user);
+            } else if (queue.credit <= 0) {
+                // this user has used its share for the round, move to the back of the line
+                activeQueues.addLast(activeQueues.pollFirst());
+                queue.credit = queue.weight;
+            }
+            return waiter;
+        }
+        return null;
+    }
+    
+    private void removeWaiter(UserQueue queue, Waiter waiter) {
+        if (queue.waiters.remove(waiter)) {
+            numWaiting--;
+            if (queue.waiters.isEmpty()) {
+                for (Iterator<UserQueue> it = activeQueues.iterator(); it.hasNext();) {
+                    if (it.next() == queue) {
+                        it.remove();
+                        break;
+                    }
+                }
+                userQueues.remove(queue.user);
+            }
+        }
+    }
+    
+    private int getWeight(String user) {
+        Integer weight = userWeights.get(user);
+        if (weight == null || weight < 1) {
+            return 1;
+        }
+        return weight;
+    }
+    
+    /**
+     * Parse user weights of the form {@code weight:userDN|weight:userDN}. The pipe separator is used because user DNs contain commas.
+     *
+     * @param value
+     *            the configured weights, may be null
+     * @return a map of user to weight
+     */
+    public static Map<String,Integer> parseUserWeights(String value) {
+        Map<String,Integer> weights = new HashMap<>();
+        if (value == null || value.trim().isEmpty()) {
+            return weights;
+        }
+        for (String entry : value.split("\\|")) {
+            int index = entry.indexOf(':');
+            if (index <= 0) {
+                log.warn("Ignoring invalid connection scheduler weight: " + entry);
+                continue;
+            }
+            try {
+                weights.put(entry.substring(index + 1).trim(), Integer.parseInt(entry.substring(0, index).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid connection scheduler weight: " + entry);
+            }
+        }
+        return weights;
+    }
+    
+    public int getNumWaiting() {
+        lock.lock();
+        try {
+            return numWaiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getAvailable() {
+        lock.lock();
+        try {
+            return available;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getNumQueued() {
+        return numQueued.sum();
+    }
+    
+    public long getNumTimedOut() {
+        return numTimedOut.sum();
+    }
+    
+    public long getTotalQueueWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos.sum());
+    }
+    
+    public long getMaxQueueWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get());
+    }
+    
+    public long getAverageQueueWaitMillis() {
+        long queued = numQueued.sum();
+        return (queued == 0) ? 0L : getTotalQueueWaitMillis() / queued;
+    }
+    
+    @Override
+    public String toString() {
+        return " Available: " + getAvailable() + " Waiting: " + getNumWaiting() + " Queued: " + getNumQueued() + " TimedOut: " + getNumTimedOut()
+                        + " AvgQueueWaitMs: " + getAverageQueueWaitMillis() + " MaxQueueWaitMs: " + getMaxQueueWaitMillis();
+    }
+    
+    private static class UserQueue {
+        private final String user;
+        private final int weight;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int credit;
+        
+        UserQueue(String user, int weight) {
+            this.user = user;
+            this.weight = weight;
+            this.credit = weight;
+        }
+        
+        @Override
+        public String toString() {
+            return user + " (" + weight + ")";
+        }
+    }
+    
+    private static class Waiter {
+        private final Condition condition;
+        private boolean granted = false;
+        
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
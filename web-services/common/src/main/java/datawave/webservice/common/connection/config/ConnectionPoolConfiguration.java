@@ -12,6 +12,9 @@ public class ConnectionPoolConfiguration {
     private int normalPriorityPoolSize;
     private int highPriorityPoolSize;
     private int adminPriorityPoolSize;
+    private boolean schedulerEnabled;
+    private long maxWaitMillis;
+    private String userWeights;
     
     public ConnectionPoolConfiguration(String poolName) {
         username = ConfigResolver.getPropertyValue("dw." + poolName + ".accumulo.userName");
@@ -22,6 +25,9 @@ public class ConnectionPoolConfiguration {
         normalPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.normal.size", "50"));
         highPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.high.size", "100"));
         adminPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.admin.size", "200"));
+        schedulerEnabled = Boolean.parseBoolean(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.scheduler.enabled", "false"));
+        maxWaitMillis = Long.parseLong(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.scheduler.maxWait.ms", "-1"));
+        userWeights = ConfigResolver.getPropertyValue("dw." + poolName + ".pool.scheduler.userWeights", "");
     }
     
     public String getUsername() {
@@ -56,4 +62,16 @@ public class ConnectionPoolConfiguration {
         return adminPriorityPoolSize;
     }
     
+    public boolean isSchedulerEnabled() {
+        return schedulerEnabled;
+    }
+    
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    public String getUserWeights() {
+        return userWeights;
+    }
+    
 }
@@ -0,0 +1,138 @@
+package datawave.webservice.common.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class AccumuloConnectionSchedulerTest {
+    
+    @Test
+    public void testFastPath() throws Exception {
+        AccumuloConnectionScheduler scheduler = new AccumuloConnectionScheduler(2, -1, null);
+        assertEquals(0L, scheduler.acquire("userA"));
+        assertEquals(0L, scheduler.acquire("userB"));
+        assertEquals(0, scheduler.getAvailable());
+        scheduler.release();
+        scheduler.release();
+        assertEquals(2, scheduler.getAvailable());
+        assertEquals(0L, scheduler.getNumQueued());
+    }
+    
+    @Test
+    public void testDeadline() throws Exception {
+        AccumuloConnectionScheduler scheduler = new AccumuloConnectionScheduler(1, 50, null);
+        scheduler.acquire("userA");
+        try {
+            scheduler.acquire("userB");
+            fail("Expected the second acquire to time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertEquals(0, scheduler.getNumWaiting());
+        assertEquals(1L, scheduler.getNumTimedOut());
+        
+        // the timed out waiter must not have consumed the permit
+        scheduler.release();
+        assertEquals(1, scheduler.getAvailable());
+    }
+    
+    @Test
+    public void testRoundRobinBetweenUsers() throws Exception {
+        AccumuloConnectionScheduler scheduler = new AccumuloConnectionScheduler(1, -1, null);
+        scheduler.acquire("holder");
+        
+        // user A queues three requests before user B queues one
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startWaiter(scheduler, "userA", order));
+        threads.add(startWaiter(scheduler, "userA", order));
+        threads.add(startWaiter(scheduler, "userA", order));
+        threads.add(startWaiter(scheduler, "userB", order));
+        
+        for (int i = 0; i < threads.size(); i++) {
+            scheduler.release();
+            waitForGrants(order, i + 1);
+        }
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        
+        // user B should be served second rather than waiting behind all of user A's requests
+        assertEquals("userA", order.get(0));
+        assertEquals("userB", order.get(1));
+        assertEquals("userA", order.get(2));
+        assertEquals("userA", order.get(3));
+        assertEquals(4L, scheduler.getNumQueued());
+    }
+    
+    @Test
+    public void testWeightedUsers() throws Exception {
+        Map<String,Integer> weights = AccumuloConnectionScheduler.parseUserWeights("2:cn=user a, ou=test|bogus");
+        assertEquals(1, weights.size());
+        assertEquals(Integer.valueOf(2), weights.get("cn=user a, ou=test"));
+        
+        AccumuloConnectionScheduler scheduler = new AccumuloConnectionScheduler(1, -1, weights);
+        scheduler.acquire("holder");
+        
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startWaiter(scheduler, "cn=user a, ou=test", order));
+        threads.add(startWaiter(scheduler, "cn=user a, ou=test", order));
+        threads.add(startWaiter(scheduler, "cn=user a, ou=test", order));
+        threads.add(startWaiter(scheduler, "userB", order));
+        
+        for (int i = 0; i < threads.size(); i++) {
+            scheduler.release();
+            waitForGrants(order, i + 1);
+        }
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        
+        assertEquals("cn=user a, ou=test", order.get(0));
+        assertEquals("cn=user a, ou=test", order.get(1));
+        assertEquals("userB", order.get(2));
+        assertEquals("cn=user a, ou=test", order.get(3));
+    }
+    
+    private Thread startWaiter(AccumuloConnectionScheduler scheduler, String user, List<String> order) throws InterruptedException {
+        int waiting = scheduler.getNumWaiting();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            try {
+                started.countDown();
+                scheduler.acquire(user);
+                order.add(user);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        t.start();
+        started.await();
+        // wait until the thread is actually queued so that the queue order is deterministic
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (scheduler.getNumWaiting() == waiting && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(waiting + 1, scheduler.getNumWaiting());
+        return t;
+    }
+    
+    private void waitForGrants(List<String> order, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (order.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue("Expected " + expected + " grants but saw " + order.size(), order.size() >= expected);
+    }
+}
@@ -79,4 +79,45 @@ public class MapReduceStatusUpdateBean {
         }
     }
     
+    /**
+     * This method is meant to be a callback from the mappers of a partitioned BulkResults job and is not protected. Each mapper calls back to this servlet as
+     * it starts and finishes each of its shard day partitions. The mappers do not retry failed calls, and the job state is still reported by
+     * {@link #updateState(String, String)}.
+     *
+     * @param jobId
+     * @param partition
+     *            the shard day partition, i.e. yyyyMMdd
+     * @param partitionStatus
+     *
+     * @HTTP 200 success
+     * @HTTP 500 failure
+     *
+     * @return datawave.webservice.result.VoidResponse
+     * @ResponseHeader X-OperationTimeInMS time spent on the server performing the operation, does not account for network or result serialization
+     *
+     */
+    @GET
+    @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "application/x-protobuf",
+            "application/x-protostuff"})
+    @GZIP
+    @Path("/updatePartitionState")
+    @PermitAll
+    @Interceptors({ResponseInterceptor.class, RequiredInterceptor.class})
+    public VoidResponse updatePartitionState(@Required("jobId") @QueryParam("jobId") String jobId,
+                    @Required("partition") @QueryParam("partition") String partition,
+                    @Required("partitionStatus") @QueryParam("partitionStatus") String partitionStatus) {
+        log.debug("Received MapReduce partition status update for job: " + jobId + ", partition: " + partition + ", new status: " + partitionStatus);
+        
+        VoidResponse response = new VoidResponse();
+        try {
+            mapReduceState.updatePartitionState(jobId, partition, MapReduceState.valueOf(partitionStatus));
+            return response;
+        } catch (Exception e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.MAPRED_UPDATE_STATUS_ERROR, e);
+            log.error(qe);
+            response.addException(qe.getBottomQueryException());
+            throw new DatawaveWebApplicationException(qe, response);
+        }
+    }
+    
 }
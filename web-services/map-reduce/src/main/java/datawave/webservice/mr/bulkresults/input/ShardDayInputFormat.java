@@ -0,0 +1,201 @@
+package datawave.webservice.mr.bulkresults.input;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * Splits the date range of a query into shard day partitions. Each record is a single day (yyyyMMdd), and each split holds a run of consecutive days, so every
+ * mapper plans and evaluates the query for its own days against the index instead of the web server planning the whole query up front.
+ */
+public class ShardDayInputFormat extends InputFormat<Text,NullWritable> {
+    
+    /**
+     * Parameter to store the begin date of the query in milliseconds
+     */
+    public static final String BEGIN_DATE = "shard.day.begin.date";
+    /**
+     * Parameter to store the end date of the query in milliseconds
+     */
+    public static final String END_DATE = "shard.day.end.date";
+    /**
+     * Parameter to store the number of days given to each mapper
+     */
+    public static final String DAYS_PER_SPLIT = "shard.day.days.per.split";
+    
+    public static final String DAY_FORMAT = "yyyyMMdd";
+    
+    public static void setDateRange(Configuration conf, Date beginDate, Date endDate) {
+        if (beginDate.after(endDate)) {
+            throw new IllegalArgumentException("Begin date " + beginDate + " is after end date " + endDate);
+        }
+        conf.setLong(BEGIN_DATE, beginDate.getTime());
+        conf.setLong(END_DATE, endDate.getTime());
+    }
+    
+    public static void setDaysPerSplit(Configuration conf, int daysPerSplit) {
+        if (daysPerSplit < 1) {
+            throw new IllegalArgumentException("The days per split must be positive: " + daysPerSplit);
+        }
+        conf.setInt(DAYS_PER_SPLIT, daysPerSplit);
+    }
+    
+    /**
+     * @param beginDate
+     * @param endDate
+     * @return the shard days (yyyyMMdd) covered by the date range, in order
+     */
+    public static List<String> getDays(Date beginDate, Date endDate) {
+        SimpleDateFormat format = new SimpleDateFormat(DAY_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.setTime(beginDate);
+        String last = format.format(endDate);
+        
+        List<String> days = new ArrayList<>();
+        String day;
+        do {
+            day = format.format(calendar.getTime());
+            days.add(day);
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        } while (!day.equals(last));
+        return days;
+    }
+    
+    @Override
+    public List<InputSplit> getSplits(JobContext context) throws IOException {
+        Configuration conf = context.getConfiguration();
+        if (conf.get(BEGIN_DATE) == null || conf.get(END_DATE) == null) {
+            throw new IOException("The date range has not been set");
+        }
+        List<String> days = getDays(new Date(conf.getLong(BEGIN_DATE, 0)), new Date(conf.getLong(END_DATE, 0)));
+        int daysPerSplit = conf.getInt(DAYS_PER_SPLIT, 1);
+        
+        List<InputSplit> splits = new ArrayList<>();
+        for (int i = 0; i < days.size(); i += daysPerSplit) {
+            splits.add(new ShardDaySplit(days.subList(i, Math.min(i + daysPerSplit, days.size()))));
+        }
+        return splits;
+    }
+    
+    @Override
+    public RecordReader<Text,NullWritable> createRecordReader(InputSplit split, TaskAttemptContext context) {
+        return new ShardDayRecordReader();
+    }
+    
+    /**
+     * A run of shard days given to a single mapper
+     */
+    public static class ShardDaySplit extends InputSplit implements Writable {
+        
+        private List<String> days;
+        
+        public ShardDaySplit() {
+            this.days = Collections.emptyList();
+        }
+        
+        public ShardDaySplit(List<String> days) {
+            this.days = new ArrayList<>(days);
+        }
+        
+        public List<String> getDays() {
+            return days;
+        }
+        
+        @Override
+        public long getLength() {
+            return days.size();
+        }
+        
+        @Override
+        public String[] getLocations() {
+            // every day is spread across all of the tablet servers
+            return new String[0];
+        }
+        
+        @Override
+        public void write(DataOutput out) throws IOException {
+            WritableUtils.writeVInt(out, days.size());
+            for (String day : days) {
+                WritableUtils.writeString(out, day);
+            }
+        }
+        
+        @Override
+        public void readFields(DataInput in) throws IOException {
+            int size = WritableUtils.readVInt(in);
+            days = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                days.add(WritableUtils.readString(in));
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "ShardDaySplit" + days;
+        }
+    }
+    
+    /**
+     * Reads the days of a split, one per record
+     */
+    public static class ShardDayRecordReader extends RecordReader<Text,NullWritable> {
+        
+        private List<String> days;
+        private int index = -1;
+        private final Text key = new Text();
+        
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) {
+            this.days = ((ShardDaySplit) split).getDays();
+        }
+        
+        @Override
+        public boolean nextKeyValue() {
+            if (index + 1 >= days.size()) {
+                index = days.size();
+                return false;
+            }
+            key.set(days.get(++index));
+            return true;
+        }
+        
+        @Override
+        public Text getCurrentKey() {
+            return key;
+        }
+        
+        @Override
+        public NullWritable getCurrentValue() {
+            return NullWritable.get();
+        }
+        
+        @Override
+        public float getProgress() {
+            return days.isEmpty() ? 1.0f : Math.min(1.0f, (float) Math.max(index, 0) / days.size());
+        }
+        
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package datawave.webservice.mr.bulkresults.map;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.xml.bind.JAXBException;
+
+import datawave.webservice.mr.bulkresults.input.ShardDayInputFormat;
+import datawave.webservice.mr.bulkresults.output.ColumnarBlock;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.logic.QueryLogic;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
+import datawave.webservice.query.result.event.Metadata;
+
+import org.apache.accumulo.core.client.ClientConfiguration;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.ZooKeeperInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.log4j.Logger;
+import org.jboss.weld.environment.se.Weld;
+
+/**
+ * Runs the query for each shard day given to the mapper by the {@link ShardDayInputFormat}. The query is planned against the index for just that day, and the
+ * events are written out in {@link ColumnarBlock}s keyed by the day. The state of each day is reported back to the MapReduce status service as it starts and
+ * finishes, and the results of each day are counted in the {@link #PARTITION_COUNTER_GROUP} counters.
+ */
+public class BulkResultsPartitionMapper extends ApplicationContextAwareMapper<Text,NullWritable,Text,ColumnarBlock> {
+    
+    private static Logger log = Logger.getLogger(BulkResultsPartitionMapper.class);
+    
+    /**
+     * Parameter to store the URL the state of each partition is reported to
+     */
+    public static final String PARTITION_STATUS_URL = "bulk.results.partition.status.url";
+    /**
+     * Parameter to store the max number of rows in a columnar block
+     */
+    public static final String BLOCK_SIZE = "bulk.results.partition.block.size";
+    /**
+     * Parameters to store the accumulo connection information
+     */
+    public static final String INSTANCE_NAME = "bulk.results.partition.instance.name";
+    public static final String ZOOKEEPERS = "bulk.results.partition.zookeepers";
+    public static final String USERNAME = "bulk.results.partition.username";
+    public static final String PASSWORD_PATH = "bulk.results.partition.password.path";
+    /**
+     * Parameter to store the authorizations to run the query with
+     */
+    public static final String AUTHORIZATIONS = "bulk.results.partition.authorizations";
+    
+    public static final String PARTITION_COUNTER_GROUP = "BulkResultsPartitions";
+    
+    /**
+     * Columns written for the event metadata, alongside the event fields
+     */
+    public static final String ROW_COLUMN = "@row";
+    public static final String DATATYPE_COLUMN = "@dataType";
+    public static final String UID_COLUMN = "@uid";
+    
+    public static final int DEFAULT_BLOCK_SIZE = 10000;
+    
+    // separates the serialized authorizations, which are base64 encoded
+    private static final String AUTHORIZATIONS_SEPARATOR = ";";
+    
+    private Query query;
+    private String logicName;
+    private Connector connector;
+    private Set<Authorizations> authorizations;
+    private String statusUrl;
+    private int blockSize;
+    private Weld weld;
+    
+    /**
+     * Store the connection information for the mappers. The password is written to a file in the job directory that only the job owner can read.
+     *
+     * @param job
+     * @param jobDir
+     * @param instanceName
+     * @param zookeepers
+     * @param username
+     * @param password
+     * @param authorizations
+     * @throws IOException
+     */
+    public static void setConnectionInfo(Job job, Path jobDir, String instanceName, String zookeepers, String username, byte[] password,
+                    Set<Authorizations> authorizations) throws IOException {
+        Configuration conf = job.getConfiguration();
+        conf.set(INSTANCE_NAME, instanceName);
+        conf.set(ZOOKEEPERS, zookeepers);
+        conf.set(USERNAME, username);
+        
+        Path file = new Path(jobDir, "partition.pw");
+        FileSystem fs = FileSystem.get(file.toUri(), conf);
+        try (FSDataOutputStream out = FileSystem.create(fs, file, new FsPermission((short) 0400))) {
+            out.write(password);
+        }
+        conf.set(PASSWORD_PATH, file.toString());
+        
+        List<String> serialized = new ArrayList<>();
+        if (authorizations != null) {
+            for (Authorizations auths : authorizations) {
+                serialized.add(auths.serialize());
+            }
+        }
+        conf.set(AUTHORIZATIONS, String.join(AUTHORIZATIONS_SEPARATOR, serialized));
+    }
+    
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        if (System.getProperty("ignore.weld.startMain") == null) {
+            System.setProperty("com.sun.jersey.server.impl.cdi.lookupExtensionInBeanManager", "true"); // Disable CDI extensions in Jersey libs
+            
+            weld = new Weld();
+            weld.initialize();
+        }
+        
+        super.setup(context);
+        final Configuration configuration = context.getConfiguration();
+        try {
+            Class<? extends Query> queryImplClass = Class.forName(configuration.get(BulkResultsFileOutputMapper.QUERY_IMPL_CLASS)).asSubclass(Query.class);
+            query = BulkResultsFileOutputMapper.deserializeQuery(configuration.get(BulkResultsFileOutputMapper.QUERY_LOGIC_SETTINGS), queryImplClass);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Error deserializing Query", e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Error instantiating query impl class " + configuration.get(BulkResultsFileOutputMapper.QUERY_IMPL_CLASS), e);
+        }
+        
+        this.setApplicationContext(configuration.get(SPRING_CONFIG_LOCATIONS));
+        this.logicName = configuration.get(BulkResultsFileOutputMapper.QUERY_LOGIC_NAME);
+        this.statusUrl = configuration.get(PARTITION_STATUS_URL);
+        this.blockSize = configuration.getInt(BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+        
+        authorizations = new HashSet<>();
+        for (String auths : configuration.get(AUTHORIZATIONS, "").split(AUTHORIZATIONS_SEPARATOR, -1)) {
+            authorizations.add(auths.isEmpty() ? new Authorizations() : new Authorizations(auths.getBytes()));
+        }
+        
+        Path passwordPath = new Path(configuration.get(PASSWORD_PATH));
+        FileSystem fs = FileSystem.get(passwordPath.toUri(), configuration);
+        byte[] password = new byte[(int) fs.getFileStatus(passwordPath).getLen()];
+        try (FSDataInputStream in = fs.open(passwordPath)) {
+            IOUtils.readFully(in, password, 0, password.length);
+        }
+        try {
+            connector = new ZooKeeperInstance(ClientConfiguration.loadDefault().withInstance(configuration.get(INSTANCE_NAME))
+                            .withZkHosts(configuration.get(ZOOKEEPERS))).getConnector(configuration.get(USERNAME), new PasswordToken(password));
+        } catch (Exception e) {
+            throw new IOException("Unable to connect to accumulo", e);
+        }
+    }
+    
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        super.cleanup(context);
+        
+        if (weld != null) {
+            weld.shutdown();
+        }
+    }
+    
+    @Override
+    protected void map(Text key, NullWritable value, Context context) throws IOException, InterruptedException {
+        String day = key.toString();
+        String jobId = context.getJobID().toString();
+        reportState(jobId, day, "RUNNING");
+        
+        QueryLogic<?> logic = (QueryLogic<?>) super.applicationContext.getBean(logicName);
+        long results = 0;
+        try {
+            Query partition = partition(query, day);
+            GenericQueryConfiguration config = logic.initialize(connector, partition, authorizations);
+            logic.setupQuery(config);
+            QueryLogicTransformer transformer = logic.getTransformer(partition);
+            
+            Text partitionKey = new Text(day);
+            ColumnarBlock block = new ColumnarBlock();
+            for (Object result : logic) {
+                Object o = transformer.transform(result);
+                if (!(o instanceof EventBase)) {
+                    continue;
+                }
+                block.addRow(toRow((EventBase<?,?>) o));
+                results++;
+                if (block.getRows() >= blockSize) {
+                    context.write(partitionKey, block);
+                    block.clear();
+                }
+                context.progress();
+            }
+            if (block.getRows() > 0) {
+                context.write(partitionKey, block);
+            }
+        } catch (IOException | InterruptedException e) {
+            reportState(jobId, day, "FAILED");
+            throw e;
+        } catch (Exception e) {
+            reportState(jobId, day, "FAILED");
+            throw new IOException("Error running query for partition " + day, e);
+        } finally {
+            logic.close();
+        }
+        
+        context.getCounter(PARTITION_COUNTER_GROUP, day).increment(results);
+        context.getCounter(PARTITION_COUNTER_GROUP, "partitions").increment(1);
+        reportState(jobId, day, "SUCCEEDED");
+    }
+    
+    /**
+     * Restrict a query to a single shard day
+     *
+     * @param query
+     * @param day
+     *            yyyyMMdd
+     * @return a copy of the query that only covers the part of the day within the original date range
+     */
+    static Query partition(Query query, String day) {
+        SimpleDateFormat format = new SimpleDateFormat(ShardDayInputFormat.DAY_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Date dayBegin;
+        try {
+            dayBegin = format.parse(day);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid partition " + day, e);
+        }
+        Date dayEnd = new Date(dayBegin.getTime() + 24L * 60 * 60 * 1000 - 1);
+        
+        Query partition = query.duplicate(query.getQueryName());
+        partition.setId(query.getId());
+        partition.setBeginDate(query.getBeginDate().after(dayBegin) ? query.getBeginDate() : dayBegin);
+        partition.setEndDate(query.getEndDate().before(dayEnd) ? query.getEndDate() : dayEnd);
+        return partition;
+    }
+    
+    private static Map<String,List<String>> toRow(EventBase<?,?> event) {
+        Map<String,List<String>> row = new LinkedHashMap<>();
+        Metadata metadata = event.getMetadata();
+        if (metadata != null) {
+            addValue(row, ROW_COLUMN, metadata.getRow());
+            addValue(row, DATATYPE_COLUMN, metadata.getDataType());
+            addValue(row, UID_COLUMN, metadata.getInternalId());
+        }
+        if (event.getFields() != null) {
+            for (FieldBase<?> field : event.getFields()) {
+                addValue(row, field.getName(), field.getValueString());
+            }
+        }
+        return row;
+    }
+    
+    private static void addValue(Map<String,List<String>> row, String column, String value) {
+        if (column == null || value == null) {
+            return;
+        }
+        List<String> values = row.get(column);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            row.put(column, values);
+        }
+        values.add(value);
+    }
+    
+    /**
+     * Report the state of a partition to the MapReduce status service. The report is best effort, the job still succeeds or fails on its own if the service
+     * can not be reached.
+     */
+    private void reportState(String jobId, String partition, String state) {
+        if (statusUrl == null) {
+            return;
+        }
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(statusUrl + "?jobId=" + URLEncoder.encode(jobId, "UTF-8") + "&partition=" + URLEncoder.encode(partition, "UTF-8")
+                            + "&partitionStatus=" + state);
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                log.warn("Unable to report state " + state + " of partition " + partition + ", response code " + code);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to report state " + state + " of partition " + partition, e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package datawave.webservice.mr.bulkresults.output;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A block of results stored column by column. Each column holds the values of one field for every row in the block, and a row without the field holds no
+ * values. The columns are written one after the other, each prefixed with its length, so a reader that only wants some of the fields can skip the rest without
+ * decoding them.
+ */
+public class ColumnarBlock implements Writable {
+    
+    private int rows = 0;
+    private final Map<String,List<String[]>> columns = new LinkedHashMap<>();
+    
+    /**
+     * Add a row to the block. Columns are created as new fields are seen.
+     *
+     * @param fields
+     *            the values of the row, by field name
+     */
+    public void addRow(Map<String,? extends Collection<String>> fields) {
+        for (Entry<String,? extends Collection<String>> field : fields.entrySet()) {
+            List<String[]> column = columns.get(field.getKey());
+            if (column == null) {
+                column = new ArrayList<>();
+                columns.put(field.getKey(), column);
+            }
+            // the rows before this one did not have the field
+            while (column.size() < rows) {
+                column.add(null);
+            }
+            column.add(field.getValue().toArray(new String[field.getValue().size()]));
+        }
+        rows++;
+    }
+    
+    /**
+     * @return the number of rows in the block
+     */
+    public int getRows() {
+        return rows;
+    }
+    
+    /**
+     * @return the field names of the columns, in the order they were first seen
+     */
+    public Set<String> getColumnNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+    
+    /**
+     * @param column
+     * @param row
+     * @return the values of the field for the row, empty if the row does not have the field
+     */
+    public List<String> getValues(String column, int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        List<String[]> values = columns.get(column);
+        if (values == null || row >= values.size() || values.get(row) == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(values.get(row)));
+    }
+    
+    public void clear() {
+        rows = 0;
+        columns.clear();
+    }
+    
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, rows);
+        WritableUtils.writeVInt(out, columns.size());
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        for (Entry<String,List<String[]>> column : columns.entrySet()) {
+            buffer.reset();
+            List<String[]> values = column.getValue();
+            for (int row = 0; row < rows; row++) {
+                String[] cell = row < values.size() ? values.get(row) : null;
+                if (cell == null) {
+                    WritableUtils.writeVInt(buffer, 0);
+                } else {
+                    WritableUtils.writeVInt(buffer, cell.length);
+                    for (String value : cell) {
+                        WritableUtils.writeString(buffer, value);
+                    }
+                }
+            }
+            WritableUtils.writeString(out, column.getKey());
+            WritableUtils.writeVInt(out, buffer.getLength());
+            out.write(buffer.getData(), 0, buffer.getLength());
+        }
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        readFields(in, null);
+    }
+    
+    /**
+     * Read a block, skipping the columns that were not asked for
+     *
+     * @param in
+     * @param projection
+     *            the field names to read, or null for all of them
+     * @throws IOException
+     */
+    public void readFields(DataInput in, Set<String> projection) throws IOException {
+        clear();
+        rows = WritableUtils.readVInt(in);
+        int size = WritableUtils.readVInt(in);
+        for (int i = 0; i < size; i++) {
+            String name = WritableUtils.readString(in);
+            int length = WritableUtils.readVInt(in);
+            if (projection != null && !projection.contains(name)) {
+                while (length > 0) {
+                    int skipped = in.skipBytes(length);
+                    if (skipped <= 0) {
+                        throw new IOException("Unable to skip column " + name);
+                    }
+                    length -= skipped;
+                }
+                continue;
+            }
+            List<String[]> values = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                int count = WritableUtils.readVInt(in);
+                String[] cell = count == 0 ? null : new String[count];
+                for (int j = 0; j < count; j++) {
+                    cell[j] = WritableUtils.readString(in);
+                }
+                values.add(cell);
+            }
+            columns.put(name, values);
+        }
+    }
+}
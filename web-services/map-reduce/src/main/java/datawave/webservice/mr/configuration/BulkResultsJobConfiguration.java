@@ -6,9 +6,12 @@ import datawave.security.iterator.ConfigurableVisibilityFilter;
 import datawave.security.util.AuthorizationsUtil;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.common.exception.NoResultsException;
+import datawave.webservice.mr.bulkresults.input.ShardDayInputFormat;
 import datawave.webservice.mr.bulkresults.map.BulkResultsFileOutputMapper;
+import datawave.webservice.mr.bulkresults.map.BulkResultsPartitionMapper;
 import datawave.webservice.mr.bulkresults.map.BulkResultsTableOutputMapper;
 import datawave.webservice.mr.bulkresults.map.SerializationFormat;
+import datawave.webservice.mr.bulkresults.output.ColumnarBlock;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.cache.QueryCache;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
@@ -58,6 +61,11 @@ import java.util.concurrent.TimeUnit;
 public class BulkResultsJobConfiguration extends MapReduceJobConfiguration implements NeedCallerDetails, NeedAccumuloConnectionFactory, NeedAccumuloDetails,
                 NeedQueryLogicFactory, NeedQueryPersister, NeedQueryCache {
     
+    /**
+     * The output format that runs the query for each shard day in the mappers and writes columnar blocks
+     */
+    public static final String COLUMNAR_OUTPUT_FORMAT = "COLUMNAR";
+    
     /**
      * Container for query settings
      *
@@ -129,6 +137,13 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         if (runtimeParameters.containsKey("outputTableName"))
             this.tableName = runtimeParameters.get("outputTableName");
         
+        if (outputFormatParameter != null && outputFormatParameter.equalsIgnoreCase(COLUMNAR_OUTPUT_FORMAT)) {
+            if (null != this.tableName)
+                throw new IllegalArgumentException("Columnar output can not be written to a table");
+            setupPartitionedJob(job, jobDir, queryId, runtimeParameters.get("daysPerMapper"), serverPrincipal);
+            return;
+        }
+        
         // Initialize the Query
         QueryLogic<?> logic;
         GenericQueryConfiguration queryConfig;
@@ -272,9 +287,107 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
             BulkInputFormat.addIterator(job.getConfiguration(), cfg);
         }
         
+        setupQueryLogic(job, jobDir, logic.getLogicName(), base64EncodedQuery, queryImplClass, serverPrincipal);
+        job.setMapOutputKeyClass(Key.class);
+        job.setMapOutputValueClass(Value.class);
+    }
+    
+    /**
+     * Setup for a job that partitions the query by shard day. Each mapper plans and runs the query against the index for its own days, so the query is not
+     * initialized here and no ranges are computed up front.
+     *
+     * @param job
+     *            the job to configure
+     * @param jobDir
+     *            the directory in HDFS where aux job files are stored
+     * @param queryId
+     *            the id of the query to run
+     * @param daysPerMapper
+     *            the number of shard days given to each mapper, or null for one
+     * @param serverPrincipal
+     *            the {@link Principal} of the server running DATAWAVE
+     * @throws QueryException
+     */
+    private void setupPartitionedJob(Job job, Path jobDir, String queryId, String daysPerMapper, DatawavePrincipal serverPrincipal) throws QueryException {
+        Query q;
+        QueryLogic<?> logic;
+        Set<Authorizations> runtimeQueryAuthorizations;
+        String base64EncodedQuery;
+        try {
+            q = getQueryById(queryId);
+            if (!sid.equals(q.getOwner()))
+                throw new QueryException("This query does not belong to you. expected: " + q.getOwner() + ", value: " + sid,
+                                Response.Status.UNAUTHORIZED.getStatusCode());
+            
+            // will throw IllegalArgumentException if not defined
+            logic = queryFactory.getQueryLogic(q.getQueryLogicName(), principal);
+            runtimeQueryAuthorizations = AuthorizationsUtil.getDowngradedAuthorizations(q.getQueryAuthorizations(), principal);
+            base64EncodedQuery = BulkResultsFileOutputMapper.serializeQuery(q);
+        } catch (QueryException qe) {
+            log.error("Error getting Query for id: " + queryId, qe);
+            throw qe;
+        } catch (Exception e) {
+            log.error("Error setting up Query for id: " + queryId, e);
+            throw new QueryException(e);
+        }
+        
+        try {
+            job.setInputFormatClass(ShardDayInputFormat.class);
+            ShardDayInputFormat.setDateRange(job.getConfiguration(), q.getBeginDate(), q.getEndDate());
+            if (null != daysPerMapper)
+                ShardDayInputFormat.setDaysPerSplit(job.getConfiguration(), Integer.parseInt(daysPerMapper));
+            
+            BulkResultsPartitionMapper.setConnectionInfo(job, jobDir, this.instanceName, this.zookeepers, this.user, this.password.getBytes(),
+                            runtimeQueryAuthorizations);
+            if (null != this.callbackServletURL) {
+                // report the partitions to the status servlet next to the one that is called back when the job ends
+                String url = this.callbackServletURL;
+                if (url.indexOf('?') >= 0)
+                    url = url.substring(0, url.indexOf('?'));
+                job.getConfiguration().set(BulkResultsPartitionMapper.PARTITION_STATUS_URL, url.replaceFirst("/updateState$", "/updatePartitionState"));
+            }
+            
+            setupQueryLogic(job, jobDir, logic.getLogicName(), base64EncodedQuery, q.getClass(), serverPrincipal);
+            job.setMapperClass(BulkResultsPartitionMapper.class);
+            job.setMapOutputKeyClass(Text.class);
+            job.setMapOutputValueClass(ColumnarBlock.class);
+            
+            job.setOutputFormatClass(SequenceFileOutputFormat.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(ColumnarBlock.class);
+            SequenceFileOutputFormat.setOutputCompressionType(job, CompressionType.BLOCK);
+            job.setNumReduceTasks(0);
+            SequenceFileOutputFormat.setOutputPath(job, new Path(this.getResultsDir()));
+        } catch (WebApplicationException wex) {
+            throw wex;
+        } catch (Exception e) {
+            log.error("Error starting job", e);
+            throw new QueryException(DatawaveErrorCode.JOB_STARTING_ERROR, e);
+        }
+    }
+    
+    /**
+     * Pass the query and the application context of its logic to the mappers
+     *
+     * @param job
+     *            the job to configure
+     * @param jobDir
+     *            the directory in HDFS where aux job files are stored
+     * @param logicName
+     *            the name of the query logic
+     * @param base64EncodedQuery
+     *            the query, encoded using Base64
+     * @param queryImplClass
+     *            the class of query in {@code base64EncodedQuery}
+     * @param serverPrincipal
+     *            the {@link Principal} of the server running DATAWAVE
+     * @throws IOException
+     */
+    private void setupQueryLogic(Job job, Path jobDir, String logicName, String base64EncodedQuery, Class<? extends Query> queryImplClass,
+                    DatawavePrincipal serverPrincipal) throws IOException {
         job.getConfiguration().set(BulkResultsFileOutputMapper.QUERY_LOGIC_SETTINGS, base64EncodedQuery);
         job.getConfiguration().set(BulkResultsFileOutputMapper.QUERY_IMPL_CLASS, queryImplClass.getName());
-        job.getConfiguration().set(BulkResultsFileOutputMapper.QUERY_LOGIC_NAME, logic.getLogicName());
+        job.getConfiguration().set(BulkResultsFileOutputMapper.QUERY_LOGIC_NAME, logicName);
         
         job.getConfiguration().set(
                         BulkResultsFileOutputMapper.APPLICATION_CONTEXT_PATH,
@@ -289,8 +402,6 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         String javaOpts = job.getConfiguration().get("mapreduce.map.java.opts");
         javaOpts = (javaOpts == null) ? cdiOpts : (javaOpts + " " + cdiOpts);
         job.getConfiguration().set("mapreduce.map.java.opts", javaOpts);
-        job.setMapOutputKeyClass(Key.class);
-        job.setMapOutputValueClass(Value.class);
         
         job.setWorkingDirectory(jobDir);
     }
@@ -110,6 +110,12 @@ import java.util.concurrent.TimeUnit;
  * <td>state\0jobId</td>
  * <td>STARTED|SUCCEEDED|FAILED|PREP|KILLED</td>
  * </tr>
+ * <tr>
+ * <td>id</td>
+ * <td>sid</td>
+ * <td>partition\0jobId\0partition</td>
+ * <td>RUNNING|SUCCEEDED|FAILED</td>
+ * </tr>
  * </table>
  *
  * MapReduce Index
@@ -156,6 +162,7 @@ public class MapReduceStatePersisterBean {
     public static final String JT = "jt";
     public static final String STATE = "state";
     public static final String NAME = "name";
+    public static final String PARTITION = "partition";
     public static final String NULL = "\u0000";
     public static final Value NULL_VALUE = new Value(new byte[0]);
     
@@ -232,6 +239,27 @@ public class MapReduceStatePersisterBean {
      */
     @PermitAll
     public void updateState(String mapReduceJobId, MapReduceState state) throws QueryException {
+        updateState(mapReduceJobId, null, state);
+    }
+    
+    /**
+     * Update the state of one shard day partition of a partitioned Bulk Results job
+     *
+     * @param mapReduceJobId
+     *            job id
+     * @param partition
+     *            the partition processed by the job
+     * @param state
+     *            new state of the partition
+     * @throws QueryException
+     *             when zero or more than one result is found for the id
+     */
+    @PermitAll
+    public void updatePartitionState(String mapReduceJobId, String partition, MapReduceState state) throws QueryException {
+        updateState(mapReduceJobId, partition, state);
+    }
+    
+    private void updateState(String mapReduceJobId, String partition, MapReduceState state) throws QueryException {
         // We have the mapreduce job id and the new state, but we need to find out which id and sid this relates to
         // so that we can create a new mutation to put into the table.
         List<MapReduceServiceJobIndex> results = null;
@@ -271,7 +299,10 @@ public class MapReduceStatePersisterBean {
             MapReduceServiceJobIndex r = results.get(0);
             // We will insert a new history column in the table
             Mutation m = new Mutation(r.getId());
-            m.put(r.getUser(), STATE + NULL + r.getMapReduceJobId(), new Value(r.getState().getBytes()));
+            if (null == partition)
+                m.put(r.getUser(), STATE + NULL + r.getMapReduceJobId(), new Value(r.getState().getBytes()));
+            else
+                m.put(r.getUser(), PARTITION + NULL + r.getMapReduceJobId() + NULL + partition, new Value(r.getState().getBytes()));
             c = null;
             BatchWriter writer = null;
             try {
@@ -425,6 +456,7 @@ public class MapReduceStatePersisterBean {
         MapReduceInfoResponse result = null;
         String hdfs = null;
         TreeSet<JobExecution> jobs = null;
+        TreeSet<JobExecution> partitions = null;
         for (Entry<Key,Value> entry : data) {
             if (null == result)
                 result = new MapReduceInfoResponse();
@@ -451,12 +483,24 @@ public class MapReduceStatePersisterBean {
                 job.setState(new String(entry.getValue().get()));
                 job.setTimestamp(entry.getKey().getTimestamp());
                 jobs.add(job);
+            } else if (colq.startsWith(PARTITION + NULL)) {
+                if (null == partitions)
+                    partitions = new TreeSet<>();
+                String[] parts = colq.split(NULL, 3);
+                JobExecution job = new JobExecution();
+                job.setMapReduceJobId(parts[1]);
+                job.setPartition(parts[2]);
+                job.setState(new String(entry.getValue().get()));
+                job.setTimestamp(entry.getKey().getTimestamp());
+                partitions.add(job);
             } else if (colq.equals(NAME)) {
                 result.setJobName(new String(entry.getValue().get()));
             }
         }
         if (null != jobs)
             result.setJobExecutions(new ArrayList<>(jobs));
+        if (null != partitions)
+            result.setPartitionExecutions(new ArrayList<>(partitions));
         try {
             if (null != hdfs && !hdfs.isEmpty() && null != result.getResultsDirectory()) {
                 Configuration conf = new Configuration();
@@ -0,0 +1,69 @@
+package datawave.webservice.mr.bulkresults.input;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardDayInputFormatTest {
+    
+    @Test
+    public void testDays() throws Exception {
+        Assert.assertEquals(Arrays.asList("20190101"), ShardDayInputFormat.getDays(date("20190101 000000"), date("20190101 235959")));
+        // partial days at either end are included
+        Assert.assertEquals(Arrays.asList("20181231", "20190101", "20190102"),
+                        ShardDayInputFormat.getDays(date("20181231 230000"), date("20190102 010000")));
+    }
+    
+    @Test
+    public void testSplits() throws Exception {
+        Job job = Job.getInstance(new Configuration());
+        ShardDayInputFormat.setDateRange(job.getConfiguration(), date("20190101 120000"), date("20190105 120000"));
+        ShardDayInputFormat.setDaysPerSplit(job.getConfiguration(), 2);
+        
+        List<InputSplit> splits = new ShardDayInputFormat().getSplits(job);
+        Assert.assertEquals(3, splits.size());
+        Assert.assertEquals(Arrays.asList("20190101", "20190102"), ((ShardDayInputFormat.ShardDaySplit) splits.get(0)).getDays());
+        Assert.assertEquals(Arrays.asList("20190103", "20190104"), ((ShardDayInputFormat.ShardDaySplit) splits.get(1)).getDays());
+        Assert.assertEquals(Arrays.asList("20190105"), ((ShardDayInputFormat.ShardDaySplit) splits.get(2)).getDays());
+        
+        // the splits survive serialization to the mappers
+        DataOutputBuffer out = new DataOutputBuffer();
+        ((ShardDayInputFormat.ShardDaySplit) splits.get(0)).write(out);
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(out.getData(), out.getLength());
+        ShardDayInputFormat.ShardDaySplit split = new ShardDayInputFormat.ShardDaySplit();
+        split.readFields(in);
+        Assert.assertEquals(Arrays.asList("20190101", "20190102"), split.getDays());
+        
+        ShardDayInputFormat.ShardDayRecordReader reader = new ShardDayInputFormat.ShardDayRecordReader();
+        reader.initialize(split, null);
+        Assert.assertTrue(reader.nextKeyValue());
+        Assert.assertEquals("20190101", reader.getCurrentKey().toString());
+        Assert.assertTrue(reader.nextKeyValue());
+        Assert.assertEquals("20190102", reader.getCurrentKey().toString());
+        Assert.assertFalse(reader.nextKeyValue());
+        Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNoDateRange() throws Exception {
+        new ShardDayInputFormat().getSplits(Job.getInstance(new Configuration()));
+    }
+    
+    private static Date date(String date) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd HHmmss");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.parse(date);
+    }
+}
@@ -0,0 +1,78 @@
+package datawave.webservice.mr.bulkresults.output;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarBlockTest {
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        ColumnarBlock block = block();
+        Assert.assertEquals(3, block.getRows());
+        Assert.assertEquals(Arrays.asList("FOO", "BAR", "BAZ"), Arrays.asList(block.getColumnNames().toArray()));
+        
+        ColumnarBlock copy = new ColumnarBlock();
+        copy.readFields(in(block));
+        Assert.assertEquals(3, copy.getRows());
+        Assert.assertEquals(block.getColumnNames(), copy.getColumnNames());
+        for (String column : block.getColumnNames()) {
+            for (int row = 0; row < block.getRows(); row++) {
+                Assert.assertEquals(block.getValues(column, row), copy.getValues(column, row));
+            }
+        }
+        
+        // rows without a field have no values
+        Assert.assertEquals(Collections.emptyList(), copy.getValues("BAR", 0));
+        Assert.assertEquals(Arrays.asList("b1", "b2"), copy.getValues("BAR", 1));
+        Assert.assertEquals(Collections.emptyList(), copy.getValues("BAZ", 1));
+        Assert.assertEquals(Arrays.asList("z"), copy.getValues("BAZ", 2));
+    }
+    
+    @Test
+    public void testProjection() throws IOException {
+        DataInputBuffer in = in(block());
+        ColumnarBlock copy = new ColumnarBlock();
+        copy.readFields(in, Collections.singleton("BAR"));
+        
+        // the other columns are skipped, and the whole block is consumed
+        Assert.assertEquals(Collections.singleton("BAR"), copy.getColumnNames());
+        Assert.assertEquals(Arrays.asList("b1", "b2"), copy.getValues("BAR", 1));
+        Assert.assertEquals(Collections.emptyList(), copy.getValues("FOO", 0));
+        Assert.assertEquals(0, in.available());
+    }
+    
+    private static ColumnarBlock block() {
+        ColumnarBlock block = new ColumnarBlock();
+        block.addRow(row("FOO", Collections.singletonList("f1")));
+        block.addRow(row("FOO", Collections.singletonList("f2"), "BAR", Arrays.asList("b1", "b2")));
+        block.addRow(row("BAZ", Collections.singletonList("z")));
+        return block;
+    }
+    
+    private static Map<String,List<String>> row(Object... fields) {
+        Map<String,List<String>> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i += 2) {
+            @SuppressWarnings("unchecked")
+            List<String> values = (List<String>) fields[i + 1];
+            row.put((String) fields[i], values);
+        }
+        return row;
+    }
+    
+    private static DataInputBuffer in(ColumnarBlock block) throws IOException {
+        DataOutputBuffer out = new DataOutputBuffer();
+        block.write(out);
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(out.getData(), out.getLength());
+        return in;
+    }
+}
@@ -221,6 +221,44 @@ public class MapReduceStatePersisterTest {
         
     }
     
+    @Test
+    public void testUpdatePartitionState() throws Exception {
+        // create the initial entry
+        testPersistentCreate();
+        
+        PowerMock.resetAll();
+        
+        // Get ready to call updatePartitionState twice, then findById
+        HashMap<String,String> trackingMap = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(trackingMap);
+            expect(connectionFactory.getConnection(EasyMock.eq(AccumuloConnectionFactory.Priority.ADMIN), EasyMock.eq(trackingMap))).andReturn(connection);
+            connectionFactory.returnConnection(connection);
+        }
+        EasyMock.expect(ctx.getCallerPrincipal()).andReturn(principal);
+        expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(trackingMap);
+        expect(connectionFactory.getConnection(EasyMock.eq(AccumuloConnectionFactory.Priority.ADMIN), EasyMock.eq(trackingMap))).andReturn(connection);
+        connectionFactory.returnConnection(connection);
+        replayAll();
+        
+        bean.updatePartitionState(mapReduceJobId, "20190102", MapReduceState.SUCCEEDED);
+        bean.updatePartitionState(mapReduceJobId, "20190101", MapReduceState.RUNNING);
+        MapReduceInfoResponseList result = bean.findById(id);
+        verifyAll();
+        
+        // the partitions are reported separately from the job state
+        MapReduceInfoResponse response = result.getResults().get(0);
+        assertEquals(1, response.getJobExecutions().size());
+        assertEquals(MapReduceState.STARTED.toString(), response.getJobExecutions().get(0).getState());
+        assertNull(response.getJobExecutions().get(0).getPartition());
+        assertEquals(2, response.getPartitionExecutions().size());
+        assertEquals(mapReduceJobId, response.getPartitionExecutions().get(0).getMapReduceJobId());
+        assertEquals("20190101", response.getPartitionExecutions().get(0).getPartition());
+        assertEquals(MapReduceState.RUNNING.toString(), response.getPartitionExecutions().get(0).getState());
+        assertEquals("20190102", response.getPartitionExecutions().get(1).getPartition());
+        assertEquals(MapReduceState.SUCCEEDED.toString(), response.getPartitionExecutions().get(1).getState());
+    }
+    
     @Test
     public void testFind() throws Exception {
         
@@ -3,10 +3,13 @@ package datawave.webservice.websocket;
 import static datawave.webservice.metrics.Constants.REQUEST_LOGIN_TIME_HEADER;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
 import javax.inject.Inject;
 import javax.interceptor.Interceptors;
+import javax.websocket.EncodeException;
 import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
@@ -23,9 +26,11 @@ import datawave.webservice.result.BaseQueryResponse;
 import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.VoidResponse;
 import datawave.webservice.websocket.codec.JsonQueryMessageDecoder;
+import datawave.webservice.websocket.codec.QueryResponseMessageBinaryEncoder;
 import datawave.webservice.websocket.codec.QueryResponseMessageJsonEncoder;
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
@@ -39,6 +44,10 @@ import org.slf4j.LoggerFactory;
  * {@link CancelMessage} while the query is in progress in order to cancel execution of the query. Note that if there is a problem creating the query, a
  * creation failure message is sent and the websocket is closed.
  * <p>
+ * The {@link CreateQueryMessage} may request that responses are sent as binary messages instead of JSON text, and that the server waits for the client to
+ * grant credits with a {@link CreditMessage} before sending more pages. With flow control, the next page is only requested from the query once the client has
+ * credit for it, so a slow client does not cause pages to queue up on the server.
+ * <p>
  * Per the JSR-356 specification (section 2.1.1), since we have not configured the endpoint otherwise, there shall be one instance of this class per endpoint,
  * per peer.
  * <p>
@@ -54,6 +63,7 @@ public class QueryWebsocket {
     private static final String LOGIC_NAME = "logicName";
     private static final String ACTIVE_QUERY_FUTURE = "activeQueryFuture";
     private static final String ACTIVE_QUERY_ID = "activeQueryId";
+    private static final String ACTIVE_QUERY_OBSERVER = "activeQueryObserver";
     
     private Logger log = LoggerFactory.getLogger(getClass());
     
@@ -68,6 +78,7 @@ public class QueryWebsocket {
     @OnClose
     public void closeConnection(Session session) throws IOException {
         cancelActiveQuery(session);
+        releaseActiveQuery(session);
     }
     
     @OnMessage
@@ -80,7 +91,8 @@ public class QueryWebsocket {
                 } else {
                     CreateQueryMessage cqm = (CreateQueryMessage) message;
                     String logicName = (String) session.getUserProperties().get(LOGIC_NAME);
-                    QueryObserver observer = new QueryObserver(log, session);
+                    QueryObserver observer = new QueryObserver(log, session, cqm);
+                    session.getUserProperties().put(ACTIVE_QUERY_OBSERVER, observer);
                     
                     Long startTime = System.nanoTime();
                     Long loginTime = null;
@@ -92,6 +104,10 @@ public class QueryWebsocket {
                     
                     Future<?> activeQuery = queryExecutorBean.executeAsync(logicName, cqm.getParameters(), startTime, loginTime, observer);
                     session.getUserProperties().put(ACTIVE_QUERY_FUTURE, activeQuery);
+                    if (observer.isReleased()) {
+                        // the query closed before its future was recorded
+                        releaseActiveQuery(session);
+                    }
                 }
             }
                 break;
@@ -99,10 +115,23 @@ public class QueryWebsocket {
                 cancelActiveQuery(session);
             }
                 break;
+            case CREDIT: {
+                QueryObserver observer = (QueryObserver) session.getUserProperties().get(ACTIVE_QUERY_OBSERVER);
+                if (observer != null) {
+                    observer.addCredits(((CreditMessage) message).getCredits());
+                }
+            }
+                break;
         }
     }
     
     protected void cancelActiveQuery(Session session) {
+        // Release the query if it is waiting for credits
+        QueryObserver observer = (QueryObserver) session.getUserProperties().get(ACTIVE_QUERY_OBSERVER);
+        if (observer != null) {
+            observer.cancel();
+        }
+        
         Future<?> activeQuery = (Future<?>) session.getUserProperties().get(ACTIVE_QUERY_FUTURE);
         if (activeQuery != null && !activeQuery.isDone()) {
             // Attempt to cancel the async query call. This will cause the async call to return when it is between next calls.
@@ -119,31 +148,116 @@ public class QueryWebsocket {
         }
     }
     
+    /**
+     * Drop the references the session holds to the active query, so a closed query is not retained for the remaining lifetime of the websocket
+     */
+    protected static void releaseActiveQuery(Session session) {
+        QueryObserver observer = (QueryObserver) session.getUserProperties().remove(ACTIVE_QUERY_OBSERVER);
+        if (observer != null) {
+            observer.release();
+        }
+        session.getUserProperties().remove(ACTIVE_QUERY_ID);
+        session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+    }
+    
     private static class QueryObserver implements AsyncQueryStatusObserver {
+        private static final long CREDIT_WAIT_MILLIS = 1000;
+        
         private Logger log;
         private Session session;
+        private QueryResponseMessageBinaryEncoder binaryEncoder;
+        // the number of pages we may send before the client grants more, or -1 if the client did not request flow control
+        private int credits;
+        private boolean cancelled = false;
+        private volatile boolean released = false;
         
-        public QueryObserver(Logger log, Session session) {
+        public QueryObserver(Logger log, Session session, CreateQueryMessage createQueryMessage) {
             this.log = log;
             this.session = session;
+            if (createQueryMessage.getCodec() == CreateQueryMessage.Codec.BINARY) {
+                this.binaryEncoder = new QueryResponseMessageBinaryEncoder(createQueryMessage.isCompress());
+            }
+            this.credits = (createQueryMessage.getCredits() == null) ? -1 : createQueryMessage.getCredits();
+        }
+        
+        private void send(QueryResponseMessage message) {
+            if (binaryEncoder != null) {
+                ByteBuffer frame;
+                try {
+                    frame = binaryEncoder.encode(message);
+                } catch (EncodeException e) {
+                    log.error("Unable to encode query response message, sending it as JSON", e);
+                    session.getAsyncRemote().sendObject(message);
+                    return;
+                }
+                session.getAsyncRemote().sendBinary(frame);
+            } else {
+                session.getAsyncRemote().sendObject(message);
+            }
+        }
+        
+        public synchronized void addCredits(int count) {
+            if (credits >= 0) {
+                credits = (int) Math.min(Integer.MAX_VALUE, (long) credits + count);
+                notifyAll();
+            }
+        }
+        
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+        
+        /**
+         * Called once the query has closed. Stops any wait for credits, since no more pages will be requested.
+         */
+        public synchronized void release() {
+            released = true;
+            notifyAll();
+        }
+        
+        public boolean isReleased() {
+            return released;
+        }
+        
+        @Override
+        public synchronized boolean awaitResultsRequest(BooleanSupplier queryActive) {
+            try {
+                // wake up periodically to notice a query that expired or was cancelled elsewhere while we wait
+                while (credits == 0 && !cancelled && !released && session.isOpen() && queryActive.getAsBoolean()) {
+                    wait(CREDIT_WAIT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (cancelled || released || !session.isOpen() || !queryActive.getAsBoolean()) {
+                return false;
+            }
+            if (credits > 0) {
+                credits--;
+            }
+            return true;
         }
         
         @Override
         public void queryCreated(GenericResponse<String> createQueryResponse) {
             session.getUserProperties().put(ACTIVE_QUERY_ID, createQueryResponse.getResult());
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
+            send(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
         }
         
         @Override
         public void queryResultsAvailable(BaseQueryResponse results) {
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.RESULTS, results));
+            send(new QueryResponseMessage(ResponseType.RESULTS, results));
         }
         
         @Override
         public void queryCreateException(QueryException ex) {
+            releaseActiveQuery(session);
+            
             VoidResponse response = new VoidResponse();
             response.addException(ex);
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query creation failed", response));
+            send(new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query creation failed", response));
             try {
                 session.close();
             } catch (IOException e) {
@@ -154,20 +268,18 @@ public class QueryWebsocket {
         
         @Override
         public void queryException(QueryException ex) {
-            session.getUserProperties().remove(ACTIVE_QUERY_ID);
-            session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            releaseActiveQuery(session);
             
             VoidResponse response = new VoidResponse();
             response.addException(ex);
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.ERROR, response));
+            send(new QueryResponseMessage(ResponseType.ERROR, response));
         }
         
         @Override
         public void queryFinished(String queryId) {
-            session.getUserProperties().remove(ACTIVE_QUERY_ID);
-            session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            releaseActiveQuery(session);
             
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.COMPLETED));
+            send(new QueryResponseMessage(ResponseType.COMPLETED));
             try {
                 session.close();
             } catch (IOException e) {
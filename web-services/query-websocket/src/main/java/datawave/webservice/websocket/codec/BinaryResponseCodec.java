@@ -0,0 +1,416 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Encodes a JSON tree into a compact binary frame, and decodes such a frame back into a JSON tree. The tree is the same one the
+ * {@link QueryResponseMessageJsonEncoder} would write as text, so clients see the same structure regardless of the codec in use.
+ * <p>
+ * Each frame is self contained. The field names used anywhere in the tree are written once in a dictionary at the start of the frame and objects refer to
+ * their field names by index, which removes most of the size of wide events where every event repeats the same field names. Frames larger than the compression
+ * threshold may also be deflated when compression is enabled.
+ *
+ * <pre>
+ * frame    := version:byte flags:byte body          (flags bit 0 set when the body is deflated)
+ * body     := nameCount:varint string* value
+ * value    := NULL | FALSE | TRUE | LONG zigzag:varint | DOUBLE ieee754:8 bytes | STRING string | NUMBER string | BINARY length:varint bytes
+ *           | ARRAY count:varint value* | OBJECT count:varint (nameIndex:varint value)*
+ * string   := length:varint utf8 bytes
+ * </pre>
+ */
+public class BinaryResponseCodec {
+    
+    public static final byte VERSION = 1;
+    public static final int FLAG_DEFLATED = 0x01;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte NUMBER = 6;
+    private static final byte BINARY = 7;
+    private static final byte ARRAY = 8;
+    private static final byte OBJECT = 9;
+    
+    private final boolean compress;
+    private final int compressionThreshold;
+    
+    public BinaryResponseCodec(boolean compress) {
+        this(compress, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+    
+    /**
+     * @param compress
+     *            whether frames may be deflated
+     * @param compressionThreshold
+     *            the minimum size in bytes of a body before it is deflated
+     */
+    public BinaryResponseCodec(boolean compress, int compressionThreshold) {
+        this.compress = compress;
+        this.compressionThreshold = compressionThreshold;
+    }
+    
+    public boolean isCompress() {
+        return compress;
+    }
+    
+    /**
+     * Encode a JSON tree into a binary frame
+     *
+     * @param node
+     *            the tree
+     * @return a buffer containing the frame
+     * @throws IOException
+     *             if the tree cannot be encoded
+     */
+    public ByteBuffer encode(JsonNode node) throws IOException {
+        Map<String,Integer> names = new LinkedHashMap<>();
+        collectNames(node, names);
+        
+        Output body = new Output();
+        body.writeVarint(names.size());
+        for (String name : names.keySet()) {
+            body.writeString(name);
+        }
+        writeValue(node, names, body);
+        
+        int flags = 0;
+        byte[] bytes = body.toByteArray();
+        if (compress && bytes.length >= compressionThreshold) {
+            byte[] deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                bytes = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        
+        ByteBuffer frame = ByteBuffer.allocate(bytes.length + 2);
+        frame.put(VERSION).put((byte) flags).put(bytes);
+        frame.flip();
+        return frame;
+    }
+    
+    /**
+     * Decode a binary frame into a JSON tree
+     *
+     * @param frame
+     *            the frame
+     * @return the tree
+     * @throws IOException
+     *             if the frame is not a valid frame
+     */
+    public static JsonNode decode(ByteBuffer frame) throws IOException {
+        if (frame.remaining() < 2) {
+            throw new IOException("Frame is too short");
+        }
+        byte version = frame.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame version " + version);
+        }
+        int flags = frame.get();
+        ByteBuffer body = frame.slice();
+        if ((flags & FLAG_DEFLATED) != 0) {
+            body = ByteBuffer.wrap(inflate(body));
+        }
+        
+        try {
+            int nameCount = readCount(body);
+            List<String> names = new ArrayList<>(nameCount);
+            for (int i = 0; i < nameCount; i++) {
+                names.add(readString(body));
+            }
+            return readValue(body, names);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed frame", e);
+        }
+    }
+    
+    private static void collectNames(JsonNode node, Map<String,Integer> names) {
+        if (node.isObject()) {
+            for (Iterator<Map.Entry<String,JsonNode>> it = node.fields(); it.hasNext();) {
+                Map.Entry<String,JsonNode> field = it.next();
+                if (names.get(field.getKey()) == null) {
+                    names.put(field.getKey(), names.size());
+                }
+                collectNames(field.getValue(), names);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                collectNames(child, names);
+            }
+        }
+    }
+    
+    private static void writeValue(JsonNode node, Map<String,Integer> names, Output out) throws IOException {
+        switch (node.getNodeType()) {
+            case OBJECT:
+                out.write(OBJECT);
+                out.writeVarint(node.size());
+                for (Iterator<Map.Entry<String,JsonNode>> it = node.fields(); it.hasNext();) {
+                    Map.Entry<String,JsonNode> field = it.next();
+                    out.writeVarint(names.get(field.getKey()));
+                    writeValue(field.getValue(), names, out);
+                }
+                break;
+            case ARRAY:
+                out.write(ARRAY);
+                out.writeVarint(node.size());
+                for (JsonNode child : node) {
+                    writeValue(child, names, out);
+                }
+                break;
+            case STRING:
+                out.write(STRING);
+                out.writeString(node.textValue());
+                break;
+            case NUMBER:
+                if (node.canConvertToLong() && node.isIntegralNumber()) {
+                    out.write(LONG);
+                    out.writeVarlong((node.longValue() << 1) ^ (node.longValue() >> 63));
+                } else if (node.isDouble() || node.isFloat()) {
+                    out.write(DOUBLE);
+                    out.writeLong(Double.doubleToRawLongBits(node.doubleValue()));
+                } else {
+                    out.write(NUMBER);
+                    out.writeString(node.asText());
+                }
+                break;
+            case BOOLEAN:
+                out.write(node.booleanValue() ? TRUE : FALSE);
+                break;
+            case BINARY:
+                byte[] bytes = node.binaryValue();
+                out.write(BINARY);
+                out.writeVarint(bytes.length);
+                out.write(bytes, 0, bytes.length);
+                break;
+            case NULL:
+            case MISSING:
+                out.write(NULL);
+                break;
+            default:
+                // POJO nodes are not produced when a message is converted to a tree
+                throw new IOException("Cannot encode node of type " + node.getNodeType());
+        }
+    }
+    
+    private static JsonNode readValue(ByteBuffer in, List<String> names) throws IOException {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        byte type = in.get();
+        switch (type) {
+            case NULL:
+                return factory.nullNode();
+            case FALSE:
+                return factory.booleanNode(false);
+            case TRUE:
+                return factory.booleanNode(true);
+            case LONG:
+                long zigzag = readVarlong(in);
+                long value = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (value == (int) value) {
+                    return factory.numberNode((int) value);
+                }
+                return factory.numberNode(value);
+            case DOUBLE:
+                return factory.numberNode(Double.longBitsToDouble(in.getLong()));
+            case STRING:
+                return factory.textNode(readString(in));
+            case NUMBER:
+                String number = readString(in);
+                try {
+                    return factory.numberNode(new BigInteger(number));
+                } catch (NumberFormatException e) {
+                    return factory.numberNode(new BigDecimal(number));
+                }
+            case BINARY:
+                byte[] bytes = new byte[readCount(in)];
+                in.get(bytes);
+                return factory.binaryNode(bytes);
+            case ARRAY:
+                int length = readCount(in);
+                ArrayNode array = factory.arrayNode();
+                for (int i = 0; i < length; i++) {
+                    array.add(readValue(in, names));
+                }
+                return array;
+            case OBJECT:
+                int fieldCount = readCount(in);
+                ObjectNode object = factory.objectNode();
+                for (int i = 0; i < fieldCount; i++) {
+                    String name = names.get(readVarint(in));
+                    object.set(name, readValue(in, names));
+                }
+                return object;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+    
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(ByteBuffer body) throws IOException {
+        byte[] input = new byte[body.remaining()];
+        body.get(input);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflated frame");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed deflated frame", e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    private static int readVarint(ByteBuffer in) throws IOException {
+        long value = readVarlong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + value);
+        }
+        return (int) value;
+    }
+    
+    private static long readVarlong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Read the number of bytes or values that follow. Every value takes at least one byte, so a count larger than the rest of the frame is malformed and is
+     * rejected before anything is allocated for it.
+     */
+    private static int readCount(ByteBuffer in) throws IOException {
+        int count = readVarint(in);
+        if (count > in.remaining()) {
+            throw new IOException("Length " + count + " exceeds the frame");
+        }
+        return count;
+    }
+    
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = readCount(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * An unsynchronized, growable byte buffer that can write varints and strings
+     */
+    private static class Output {
+        private byte[] buffer = new byte[8192];
+        private int size = 0;
+        
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+        
+        void write(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+        
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+        
+        void writeVarint(int value) {
+            writeVarlong(value & 0xffffffffL);
+        }
+        
+        void writeVarlong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+        
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+        
+        void writeString(String value) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(bytes.length);
+                    write(bytes, 0, bytes.length);
+                    return;
+                }
+            }
+            // ascii strings are written directly, one byte per char
+            writeVarint(length);
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buffer[size++] = (byte) value.charAt(i);
+            }
+        }
+        
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
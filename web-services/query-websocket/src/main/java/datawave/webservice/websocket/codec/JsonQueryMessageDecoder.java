@@ -13,6 +13,7 @@ import javax.ws.rs.core.MultivaluedMap;
 
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
 import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
 
@@ -33,8 +34,57 @@ public class JsonQueryMessageDecoder implements Decoder.Text<QueryMessage> {
         }
         if (map.size() == 1 && map.containsKey("cancel"))
             return new CancelMessage();
+        else if (map.size() == 1 && map.containsKey("credit"))
+            return new CreditMessage(parseCredits(s, "credit", map.getFirst("credit")));
         else
-            return new CreateQueryMessage(map);
+            return decodeCreateQueryMessage(s, map);
+    }
+    
+    /**
+     * Removes the websocket settings from the query parameters and negotiates the codec, compression, and flow control for the query.
+     */
+    private CreateQueryMessage decodeCreateQueryMessage(String s, MultivaluedMap<String,String> map) throws DecodeException {
+        CreateQueryMessage.Codec codec = CreateQueryMessage.Codec.JSON;
+        String codecName = map.getFirst(CreateQueryMessage.CODEC);
+        if (codecName != null) {
+            try {
+                codec = CreateQueryMessage.Codec.valueOf(codecName.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new DecodeException(s, "Unknown codec " + codecName);
+            }
+        }
+        
+        boolean compress = false;
+        String compression = map.getFirst(CreateQueryMessage.COMPRESSION);
+        if (compression != null) {
+            if (compression.trim().equalsIgnoreCase("deflate")) {
+                compress = true;
+            } else if (!compression.trim().equalsIgnoreCase("none")) {
+                throw new DecodeException(s, "Unknown compression " + compression);
+            }
+        }
+        
+        Integer credits = null;
+        if (map.containsKey(CreateQueryMessage.CREDITS)) {
+            credits = parseCredits(s, CreateQueryMessage.CREDITS, map.getFirst(CreateQueryMessage.CREDITS));
+        }
+        
+        map.remove(CreateQueryMessage.CODEC);
+        map.remove(CreateQueryMessage.COMPRESSION);
+        map.remove(CreateQueryMessage.CREDITS);
+        return new CreateQueryMessage(map, codec, compress, credits);
+    }
+    
+    private int parseCredits(String s, String key, String value) throws DecodeException {
+        try {
+            int credits = Integer.parseInt(value);
+            if (credits < 0) {
+                throw new DecodeException(s, key + " must not be negative");
+            }
+            return credits;
+        } catch (NumberFormatException e) {
+            throw new DecodeException(s, "Invalid " + key + " " + value, e);
+        }
     }
     
     private void addValueToMap(String key, JsonParser parser, MultivaluedMap<String,String> map) {
@@ -0,0 +1,51 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+import javax.websocket.EndpointConfig;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+
+/**
+ * Encodes a {@link QueryResponseMessage} into a binary frame using the {@link BinaryResponseCodec}. The message is converted to the same JSON tree the
+ * {@link QueryResponseMessageJsonEncoder} writes, so a client decoding the frame with {@link BinaryResponseCodec#decode(ByteBuffer)} sees the same structure
+ * as a JSON client.
+ */
+public class QueryResponseMessageBinaryEncoder implements Encoder.Binary<QueryResponseMessage> {
+    private ObjectMapper mapper;
+    private BinaryResponseCodec codec;
+    
+    public QueryResponseMessageBinaryEncoder() {
+        this(false);
+    }
+    
+    /**
+     * @param compress
+     *            whether large frames should be deflated
+     */
+    public QueryResponseMessageBinaryEncoder(boolean compress) {
+        this.mapper = QueryResponseMessageJsonEncoder.createObjectMapper();
+        this.codec = new BinaryResponseCodec(compress);
+    }
+    
+    @Override
+    public ByteBuffer encode(QueryResponseMessage object) throws EncodeException {
+        try {
+            JsonNode tree = mapper.valueToTree(object);
+            return codec.encode(tree);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EncodeException(object, "Unable to encode query response message", e);
+        }
+    }
+    
+    @Override
+    public void init(EndpointConfig config) {}
+    
+    @Override
+    public void destroy() {}
+}
@@ -32,7 +32,17 @@ public class QueryResponseMessageJsonEncoder implements Encoder.TextStream<Query
     
     @Override
     public void init(EndpointConfig config) {
-        mapper = new ObjectMapper();
+        mapper = createObjectMapper();
+    }
+    
+    /**
+     * Creates the mapper used to convert a {@link QueryResponseMessage} to JSON. The binary encoder uses the same mapper so that both codecs produce the same
+     * structure.
+     *
+     * @return the mapper
+     */
+    static ObjectMapper createObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
         mapper.enable(MapperFeature.USE_WRAPPER_NAME_AS_PROPERTY_NAME);
         mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(),
                         new JaxbAnnotationIntrospector(mapper.getTypeFactory())));
@@ -40,6 +50,7 @@ public class QueryResponseMessageJsonEncoder implements Encoder.TextStream<Query
         mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
         // Don't include NULL properties.
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return mapper;
     }
     
     @Override
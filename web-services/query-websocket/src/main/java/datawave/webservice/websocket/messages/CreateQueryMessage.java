@@ -23,18 +23,60 @@ import javax.ws.rs.core.MultivaluedMap;
  * }
  * }
  * </pre>
+ * <p>
+ * The request may also include the following properties, which configure the websocket rather than the query:
+ * <ul>
+ * <li>{@value #CODEC}: {@code json} (the default) to receive each response as a JSON text message, or {@code binary} to receive each response as a binary
+ * message encoded by the {@link datawave.webservice.websocket.codec.BinaryResponseCodec}</li>
+ * <li>{@value #COMPRESSION}: {@code deflate} to deflate large binary messages, or {@code none} (the default)</li>
+ * <li>{@value #CREDITS}: the number of pages the server may send before the client grants more with a {@link CreditMessage}. When not specified, pages are
+ * sent as soon as they are available.</li>
+ * </ul>
  */
 public class CreateQueryMessage implements QueryMessage {
+    public static final String CODEC = "codec";
+    public static final String COMPRESSION = "compression";
+    public static final String CREDITS = "credits";
+    
+    public enum Codec {
+        JSON, BINARY
+    }
+    
     private MultivaluedMap<String,String> parameters;
+    private Codec codec = Codec.JSON;
+    private boolean compress = false;
+    private Integer credits = null;
     
     public CreateQueryMessage(MultivaluedMap parameters) {
         this.parameters = parameters;
     }
     
+    public CreateQueryMessage(MultivaluedMap parameters, Codec codec, boolean compress, Integer credits) {
+        this.parameters = parameters;
+        this.codec = codec;
+        this.compress = compress;
+        this.credits = credits;
+    }
+    
     public MultivaluedMap<String,String> getParameters() {
         return parameters;
     }
     
+    public Codec getCodec() {
+        return codec;
+    }
+    
+    public boolean isCompress() {
+        return compress;
+    }
+    
+    /**
+     * @return the number of pages the server may send before waiting for a {@link CreditMessage}, or null if the client did not request flow control
+     */
+    public Integer getCredits() {
+        return credits;
+    }
+    
     @Override
     public Type getType() {
         return Type.CREATE;
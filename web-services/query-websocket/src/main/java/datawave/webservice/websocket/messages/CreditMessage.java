@@ -0,0 +1,29 @@
+package datawave.webservice.websocket.messages;
+
+/**
+ * A query message for clients to send to grant the server permission to send more pages of results. This is only used when the client requested flow control
+ * by including the {@value CreateQueryMessage#CREDITS} parameter in the {@link CreateQueryMessage}. The client should send a JSON message with a single
+ * property "credit" set to the number of additional pages it is ready to receive. For example,
+ * 
+ * <pre>
+ * <code>
+ * { "credit": 2 }
+ * </code>
+ * </pre>
+ */
+public class CreditMessage implements QueryMessage {
+    private int credits;
+    
+    public CreditMessage(int credits) {
+        this.credits = credits;
+    }
+    
+    public int getCredits() {
+        return credits;
+    }
+    
+    @Override
+    public Type getType() {
+        return Type.CREDIT;
+    }
+}
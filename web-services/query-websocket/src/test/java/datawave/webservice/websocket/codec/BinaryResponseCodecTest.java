@@ -0,0 +1,183 @@
+package datawave.webservice.websocket.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class BinaryResponseCodecTest {
+    
+    private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+    
+    @Test
+    public void testValueTypes() throws IOException {
+        ObjectNode node = factory.objectNode();
+        node.putNull("null");
+        node.put("false", false);
+        node.put("true", true);
+        node.put("int", -42);
+        node.put("long", Long.MIN_VALUE);
+        node.put("double", 3.25d);
+        node.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        node.put("bigDecimal", new BigDecimal("1.50"));
+        node.put("binary", new byte[] {0, 1, (byte) 0xff});
+        node.put("string", "value");
+        node.put("empty", "");
+        node.putArray("emptyArray");
+        node.putObject("emptyObject");
+        ArrayNode array = node.putArray("array");
+        array.add(1).add("two").addNull().addObject().put("int", 3);
+        
+        for (boolean compress : new boolean[] {false, true}) {
+            assertEquals(node, roundTrip(new BinaryResponseCodec(compress), node));
+        }
+        assertEquals(factory.textNode("scalar"), roundTrip(new BinaryResponseCodec(false), factory.textNode("scalar")));
+    }
+    
+    @Test
+    public void testUnicode() throws IOException {
+        ObjectNode node = factory.objectNode();
+        node.put("caf\u00e9", "na\u00efve r\u00e9sum\u00e9");
+        node.put("\u6f22\u5b57", "\u65e5\u672c\u8a9e\u306e\u30c6\u30ad\u30b9\u30c8");
+        // characters outside the basic multilingual plane are written as surrogate pairs
+        node.put("emoji", "\ud83d\ude00 \ud83c\udf89");
+        node.put("mixed", "ascii \u00fc\u00f1\u00ee\u00e7\u00f8d\u00e9 \ud83d\ude00 ascii");
+        node.put("control", "tab\tnull\u0000newline\n");
+        
+        for (boolean compress : new boolean[] {false, true}) {
+            assertEquals(node, roundTrip(new BinaryResponseCodec(compress, 0), node));
+        }
+    }
+    
+    @Test
+    public void testCompressedFrames() throws IOException {
+        JsonNode node = events(200);
+        
+        ByteBuffer uncompressed = new BinaryResponseCodec(false).encode(node);
+        assertEquals(0, uncompressed.get(1) & BinaryResponseCodec.FLAG_DEFLATED);
+        assertEquals(node, BinaryResponseCodec.decode(uncompressed));
+        
+        ByteBuffer compressed = new BinaryResponseCodec(true).encode(node);
+        assertEquals(BinaryResponseCodec.FLAG_DEFLATED, compressed.get(1) & BinaryResponseCodec.FLAG_DEFLATED);
+        assertTrue(compressed.remaining() < uncompressed.remaining());
+        assertEquals(node, BinaryResponseCodec.decode(compressed));
+        
+        // frames under the threshold are left as they are
+        ByteBuffer small = new BinaryResponseCodec(true).encode(events(1));
+        assertEquals(0, small.get(1) & BinaryResponseCodec.FLAG_DEFLATED);
+        assertEquals(events(1), BinaryResponseCodec.decode(small));
+    }
+    
+    @Test
+    public void testTruncatedFrames() throws IOException {
+        for (boolean compress : new boolean[] {false, true}) {
+            byte[] frame = toBytes(new BinaryResponseCodec(compress).encode(events(50)));
+            for (int length = 0; length < frame.length; length++) {
+                byte[] truncated = new byte[length];
+                System.arraycopy(frame, 0, truncated, 0, length);
+                assertMalformed("frame truncated to " + length + " of " + frame.length + " bytes", truncated);
+            }
+        }
+    }
+    
+    @Test
+    public void testMalformedFrames() throws IOException {
+        byte[] frame = toBytes(new BinaryResponseCodec(false).encode(factory.objectNode().put("name", "value")));
+        
+        byte[] version = frame.clone();
+        version[0] = BinaryResponseCodec.VERSION + 1;
+        assertMalformed("unsupported version", version);
+        
+        byte[] deflated = frame.clone();
+        deflated[1] = BinaryResponseCodec.FLAG_DEFLATED;
+        assertMalformed("body that is not deflated", deflated);
+        
+        // no names, followed by a value of an unknown type
+        assertMalformed("unknown value type", new byte[] {BinaryResponseCodec.VERSION, 0, 0, 100});
+        // no names, followed by an object referring to the first name
+        assertMalformed("name index out of range", new byte[] {BinaryResponseCodec.VERSION, 0, 0, 9, 1, 0, 0});
+        // a string whose length is larger than the frame
+        assertMalformed("string length", new byte[] {BinaryResponseCodec.VERSION, 0, 0, 5, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+        // an array claiming two billion values
+        assertMalformed("array length", new byte[] {BinaryResponseCodec.VERSION, 0, 0, 8, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+        // a varint that never terminates
+        byte[] varint = new byte[14];
+        varint[0] = BinaryResponseCodec.VERSION;
+        for (int i = 2; i < varint.length; i++) {
+            varint[i] = (byte) 0x80;
+        }
+        assertMalformed("unterminated varint", varint);
+    }
+    
+    @Test
+    public void testCorruptFrames() {
+        Random random = new Random(31);
+        for (boolean compress : new boolean[] {false, true}) {
+            byte[] frame;
+            try {
+                frame = toBytes(new BinaryResponseCodec(compress).encode(events(20)));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            for (int i = 0; i < 2000; i++) {
+                byte[] corrupt = frame.clone();
+                for (int j = 0; j < 3; j++) {
+                    corrupt[2 + random.nextInt(corrupt.length - 2)] = (byte) random.nextInt();
+                }
+                // a corrupt frame may still decode, but must never fail with anything other than an IOException
+                try {
+                    BinaryResponseCodec.decode(ByteBuffer.wrap(corrupt));
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        }
+    }
+    
+    private static JsonNode roundTrip(BinaryResponseCodec codec, JsonNode node) throws IOException {
+        return BinaryResponseCodec.decode(codec.encode(node));
+    }
+    
+    private static void assertMalformed(String message, byte[] frame) {
+        try {
+            JsonNode node = BinaryResponseCodec.decode(ByteBuffer.wrap(frame));
+            fail("Expected an IOException for a " + message + " but decoded " + node);
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    private static JsonNode events(int count) {
+        ObjectNode response = factory.objectNode();
+        response.put("HasResults", true);
+        ArrayNode events = response.putArray("Events");
+        for (int i = 0; i < count; i++) {
+            ObjectNode event = events.addObject();
+            event.putObject("Metadata").put("DataType", "csv").put("InternalId", "id" + i).put("Row", "20200101_" + (i % 10));
+            ArrayNode fields = event.putArray("Fields");
+            for (int j = 0; j < 5; j++) {
+                fields.addObject().put("name", "FIELD_" + j).put("columnVisibility", "PUBLIC").put("timestamp", 1577836800000L + i)
+                                .put("value", "value " + i + " of field " + j);
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,90 @@
+package datawave.webservice.websocket.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+import javax.websocket.EncodeException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import datawave.webservice.result.VoidResponse;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+
+public class QueryResponseMessageBinaryEncoderTest {
+    
+    private QueryResponseMessageJsonEncoder jsonEncoder;
+    private ObjectMapper mapper = new ObjectMapper();
+    
+    @Before
+    public void setup() {
+        jsonEncoder = new QueryResponseMessageJsonEncoder();
+        jsonEncoder.init(null);
+    }
+    
+    @Test
+    public void testEachResponseType() throws Exception {
+        for (ResponseType type : ResponseType.values()) {
+            assertSameAsJson(new QueryResponseMessage(type));
+            assertSameAsJson(new QueryResponseMessage(type, "a message for " + type));
+            assertSameAsJson(new QueryResponseMessage(type, response(3)));
+            assertSameAsJson(new QueryResponseMessage(type, "a message for " + type, response(3)));
+        }
+    }
+    
+    @Test
+    public void testUnicode() throws Exception {
+        VoidResponse response = response(0);
+        response.addMessage("\u65e5\u672c\u8a9e \u00e9\u00e8 \ud83d\ude00");
+        assertSameAsJson(new QueryResponseMessage(ResponseType.ERROR, "caf\u00e9 \ud83c\udf89", response));
+    }
+    
+    @Test
+    public void testCompression() throws Exception {
+        QueryResponseMessage message = new QueryResponseMessage(ResponseType.RESULTS, response(500));
+        
+        ByteBuffer uncompressed = new QueryResponseMessageBinaryEncoder(false).encode(message);
+        assertEquals(0, uncompressed.get(1) & BinaryResponseCodec.FLAG_DEFLATED);
+        
+        ByteBuffer compressed = new QueryResponseMessageBinaryEncoder(true).encode(message);
+        assertEquals(BinaryResponseCodec.FLAG_DEFLATED, compressed.get(1) & BinaryResponseCodec.FLAG_DEFLATED);
+        assertTrue(compressed.remaining() < uncompressed.remaining());
+        
+        JsonNode decoded = BinaryResponseCodec.decode(compressed);
+        assertEquals(BinaryResponseCodec.decode(uncompressed), decoded);
+        assertEquals(json(message), decoded);
+    }
+    
+    /**
+     * A binary client must see the same structure as a JSON client, with or without compression
+     */
+    private void assertSameAsJson(QueryResponseMessage message) throws IOException, EncodeException {
+        JsonNode expected = json(message);
+        for (boolean compress : new boolean[] {false, true}) {
+            ByteBuffer frame = new QueryResponseMessageBinaryEncoder(compress).encode(message);
+            assertEquals(message.getResponseType() + " compress=" + compress, expected, BinaryResponseCodec.decode(frame));
+        }
+    }
+    
+    private JsonNode json(QueryResponseMessage message) throws IOException, EncodeException {
+        StringWriter writer = new StringWriter();
+        jsonEncoder.encode(message, writer);
+        return mapper.readTree(writer.toString());
+    }
+    
+    private static VoidResponse response(int messages) {
+        VoidResponse response = new VoidResponse();
+        response.setOperationTimeMS(1234L);
+        for (int i = 0; i < messages; i++) {
+            response.addMessage("message number " + i);
+        }
+        return response;
+    }
+}
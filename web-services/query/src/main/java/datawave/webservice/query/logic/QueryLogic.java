@@ -141,6 +141,16 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     long getPageByteTrigger();
     
+    /**
+     * @return the number of pages of results to transform in the background while the caller is processing the current page, 0 turns off prefetching
+     */
+    int getPrefetchPages();
+    
+    /**
+     * @return the max number of bytes of prefetched results to hold in memory, 0 to only bound the prefetched results by the number of pages
+     */
+    long getPrefetchMaxBytes();
+    
     /**
      * Returns the base iterator priority.
      * 
@@ -185,6 +195,18 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     void setPageByteTrigger(long pageByteTrigger);
     
+    /**
+     * @param prefetchPages
+     *            the number of pages of results to transform in the background while the caller is processing the current page, 0 turns off prefetching
+     */
+    void setPrefetchPages(int prefetchPages);
+    
+    /**
+     * @param prefetchMaxBytes
+     *            the max number of bytes of prefetched results to hold in memory, 0 to only bound the prefetched results by the number of pages
+     */
+    void setPrefetchMaxBytes(long prefetchMaxBytes);
+    
     /**
      * Sets the base iterator priority
      * 
@@ -5,6 +5,8 @@ import java.util.Map;
 public class QueryLogicFactoryConfiguration {
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
+    private int prefetchPages = 0;
+    private long prefetchMaxBytes = 0;
     private Map<String,QueryLogic<?>> logicClasses = null;
     
     public int getMaxPageSize() {
@@ -23,4 +25,20 @@ public class QueryLogicFactoryConfiguration {
         this.pageByteTrigger = pageByteTrigger;
     }
     
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+    
+    public void setPrefetchPages(int prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+    
+    public long getPrefetchMaxBytes() {
+        return prefetchMaxBytes;
+    }
+    
+    public void setPrefetchMaxBytes(long prefetchMaxBytes) {
+        this.prefetchMaxBytes = prefetchMaxBytes;
+    }
+    
 }
@@ -48,6 +48,12 @@ public class QueryLogicFactoryImpl implements QueryLogicFactory {
         if (logic.getPageByteTrigger() == 0) {
             logic.setPageByteTrigger(queryLogicFactoryConfiguration.getPageByteTrigger());
         }
+        if (logic.getPrefetchPages() == 0) {
+            logic.setPrefetchPages(queryLogicFactoryConfiguration.getPrefetchPages());
+        }
+        if (logic.getPrefetchMaxBytes() == 0) {
+            logic.setPrefetchMaxBytes(queryLogicFactoryConfiguration.getPrefetchMaxBytes());
+        }
         return logic;
     }
     
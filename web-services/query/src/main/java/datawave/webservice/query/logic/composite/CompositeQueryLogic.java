@@ -10,8 +10,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Typed;
 
@@ -30,10 +31,16 @@ import org.apache.commons.collections4.functors.NOPTransformer;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel and results are retrieved as they come
  * back from the delegates. This class restricts the delegates such that they have to return the same type of response object and two query logics with the same
  * class name and tableName cannot be configured.
+ * <p>
+ * The delegates of all composite queries run on one shared, bounded executor. Each delegate fills its own buffer and only runs while there is room in it, so
+ * the delegates run no further ahead of the client than their buffers, and results are taken from the buffers in turn. Closing the logic, as is done when the
+ * query is closed or evicted by the QueryExpirationBean, stops the delegates between results without waiting for them.
  */
 public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
@@ -50,18 +57,12 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
     }
     
-    private class QueryLogicHolder extends Thread {
+    private static class QueryLogicHolder {
         private GenericQueryConfiguration config;
         private TransformIterator transformIterator;
         private Query settings;
-        private boolean started = false;
         private long maxResults;
         
-        public QueryLogicHolder(String logicName) {
-            this.setDaemon(true);
-            this.setName(Thread.currentThread().getName() + "-CompositeQueryLogic-" + logicName + "-" + UUID.randomUUID());
-        }
-        
         public GenericQueryConfiguration getConfig() {
             return config;
         }
@@ -70,6 +71,10 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             this.config = config;
         }
         
+        public TransformIterator getTransformIterator() {
+            return transformIterator;
+        }
+        
         public void setTransformIterator(TransformIterator transformIterator) {
             this.transformIterator = transformIterator;
         }
@@ -89,48 +94,22 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         public void setSettings(Query settings) {
             this.settings = settings;
         }
-        
-        public void run() {
-            long resultCount = 0L;
-            
-            log.trace("Starting thread: " + this.getName());
-            if (!started) {
-                startLatch.countDown();
-                started = true;
-            }
-            try {
-                Object last = new Object();
-                if (this.getMaxResults() < 0)
-                    this.setMaxResults(Long.MAX_VALUE);
-                while ((null != last) && !interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
-                    try {
-                        last = transformIterator.next();
-                        if (null != last) {
-                            log.debug(Thread.currentThread().getName() + ": Added object to results");
-                            results.add(last);
-                        }
-                    } catch (InterruptedException e) {
-                        log.warn("QueryLogic thread interrupted", e);
-                    }
-                    resultCount++;
-                }
-                
-            } finally {
-                completionLatch.countDown();
-                log.trace("Finished thread: " + this.getName());
-            }
-        }
-        
     }
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogic.class);
     
+    public static final int DEFAULT_DELEGATE_POOL_SIZE = 32;
+    
+    // The executor shared by the delegates of all composite queries
+    private static final ThreadPoolExecutor delegateExecutor = new ThreadPoolExecutor(DEFAULT_DELEGATE_POOL_SIZE, DEFAULT_DELEGATE_POOL_SIZE, 1,
+                    TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("CompositeQueryLogic-%d").build());
+    static {
+        delegateExecutor.allowCoreThreadTimeOut(true);
+    }
+    
     private List<BaseQueryLogic<?>> queryLogics = null;
     private QueryLogicTransformer transformer;
     private Priority p = Priority.NORMAL;
-    private volatile boolean interrupted = false;
-    private CountDownLatch startLatch = null;
-    private CountDownLatch completionLatch = null;
     private Map<BaseQueryLogic<?>,QueryLogicHolder> logicState = new TreeMap<>(new QueryLogicComparator());
     private CompositeQueryLogicResults results = null;
     
@@ -176,7 +155,7 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 logicQueryStringBuilder.append("(table=" + config.getTableName());
                 logicQueryStringBuilder.append(",query=" + config.getQueryString());
                 logicQueryStringBuilder.append(") ");
-                QueryLogicHolder holder = new QueryLogicHolder(logic.getClass().getSimpleName());
+                QueryLogicHolder holder = new QueryLogicHolder();
                 holder.setConfig(config);
                 holder.setSettings(settings);
                 holder.setMaxResults(logic.getMaxResults());
@@ -190,9 +169,9 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 }
             }
         }
-        startLatch = new CountDownLatch(logicState.values().size());
-        completionLatch = new CountDownLatch(logicState.values().size());
-        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), completionLatch);
+        // split the results buffered for the query between the delegates
+        int bufferSize = Math.min(settings.getPagesize() * 2, 1000);
+        this.results = new CompositeQueryLogicResults(Math.max(1, (bufferSize + logicState.size() - 1) / Math.max(1, logicState.size())));
         if (log.isDebugEnabled()) {
             log.debug("CompositeQuery initialized with the following queryLogics: ");
             for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : this.logicState.entrySet()) {
@@ -232,11 +211,11 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             entry.getValue().setTransformIterator(transformIterator);
         }
         for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            entry.getValue().start();
+            String name = entry.getKey().getClass().getSimpleName() + "(" + entry.getKey().getTableName() + ")";
+            results.addDelegate(name, entry.getValue().getTransformIterator(), entry.getValue().getMaxResults());
         }
-        // Wait until all threads have started
-        startLatch.await();
-        log.trace("All threads have started.");
+        results.start(delegateExecutor);
+        log.trace("All delegates have started.");
     }
     
     @Override
@@ -293,22 +272,58 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
     @Override
     public void close() {
-        this.interrupted = true;
+        // stop pulling results before the delegates close their scanners
+        if (null != results) {
+            results.clear();
+            if (log.isInfoEnabled() && !results.getDelegateBuffers().isEmpty()) {
+                log.info("CompositeQuery delegates: " + results.getDelegateBuffers());
+            }
+        }
         for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
             entry.getKey().close();
-            entry.getValue().interrupt();
         }
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            try {
-                entry.getValue().join();
-            } catch (InterruptedException e) {
-                log.error("Error joining query logic thread", e);
-                throw new RuntimeException("Error joining query logic thread", e);
+        logicState.clear();
+    }
+    
+    /**
+     * Get the buffers of the delegates of the running query. The delegate with the most starved time is the one the client has waited on the longest, and the
+     * delegates with full time have been waiting on the client.
+     * 
+     * @return the delegate buffers, or an empty list if the query has not been set up
+     */
+    public List<CompositeQueryLogicDelegateBuffer> getDelegateBuffers() {
+        return (null == results) ? new ArrayList<>() : results.getDelegateBuffers();
+    }
+    
+    /**
+     * Set the number of threads of the executor shared by the delegates of all composite queries. Query logics are cloned for every query, so the executor
+     * belongs to the class rather than to a logic: this is a global setting, and the last size set applies to every composite query in the JVM.
+     * 
+     * @param delegatePoolSize
+     *            the number of threads
+     * @throws IllegalArgumentException
+     *             if the size is not positive
+     */
+    public static void setDelegatePoolSize(int delegatePoolSize) {
+        if (delegatePoolSize <= 0) {
+            throw new IllegalArgumentException("The delegate pool size must be positive: " + delegatePoolSize);
+        }
+        synchronized (delegateExecutor) {
+            if (delegatePoolSize > delegateExecutor.getMaximumPoolSize()) {
+                delegateExecutor.setMaximumPoolSize(delegatePoolSize);
+                delegateExecutor.setCorePoolSize(delegatePoolSize);
+            } else {
+                delegateExecutor.setCorePoolSize(delegatePoolSize);
+                delegateExecutor.setMaximumPoolSize(delegatePoolSize);
             }
         }
-        logicState.clear();
-        if (null != results)
-            results.clear();
+    }
+    
+    /**
+     * @return the number of threads of the executor shared by the delegates of all composite queries
+     */
+    public static int getDelegatePoolSize() {
+        return delegateExecutor.getMaximumPoolSize();
     }
     
     public List<BaseQueryLogic<?>> getQueryLogics() {
@@ -0,0 +1,269 @@
+package datawave.webservice.query.logic.composite;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.apache.log4j.Logger;
+
+/**
+ * Holds the transformed results of one delegate of a {@link CompositeQueryLogic}. The fill task runs on the shared composite executor and gives its thread back
+ * whenever the buffer is full, so a delegate never runs further ahead of the client than the size of its buffer; it is resubmitted once a result has been
+ * taken. The fill task is also resubmitted after each buffer's worth of results so that a busy delegate cannot hold a thread of the executor indefinitely. All of
+ * the buffers of a query share the lock of their {@link CompositeQueryLogicResults} so that the consumer can wait on all of them at once.
+ * <p>
+ * The buffer also keeps the statistics used to find the delegate that is holding up the query: the time spent pulling results from the delegate, the time its
+ * buffer was full waiting on the client, and the time the client waited on an empty buffer while the delegate was still running.
+ */
+public class CompositeQueryLogicDelegateBuffer {
+    
+    private static final Logger log = Logger.getLogger(CompositeQueryLogicDelegateBuffer.class);
+    
+    private final String name;
+    private final Object lock;
+    private final TransformIterator iter;
+    private final int capacity;
+    private final long maxResults;
+    
+    private final ArrayDeque<Object> results = new ArrayDeque<>();
+    private ExecutorService executor = null;
+    private Future<?> future = null;
+    private boolean filling = false;
+    private boolean exhausted = false;
+    private boolean stopped = false;
+    
+    // statistics
+    private long numResults = 0;
+    private long busyNanos = 0;
+    private long fullNanos = 0;
+    private long fullSince = -1;
+    private long starvedNanos = 0;
+    
+    /**
+     * @param name
+     *            the name of the delegate
+     * @param lock
+     *            the lock shared by all of the buffers of the query
+     * @param iter
+     *            the transform iterator of the delegate
+     * @param capacity
+     *            the max number of results to buffer
+     * @param maxResults
+     *            the max number of results to pull from the delegate, a negative value for no limit
+     */
+    CompositeQueryLogicDelegateBuffer(String name, Object lock, TransformIterator iter, int capacity, long maxResults) {
+        this.name = name;
+        this.lock = lock;
+        this.iter = iter;
+        this.capacity = Math.max(1, capacity);
+        this.maxResults = maxResults < 0 ? Long.MAX_VALUE : maxResults;
+    }
+    
+    /**
+     * Start filling the buffer on the specified executor
+     */
+    void start(ExecutorService executor) {
+        synchronized (lock) {
+            this.executor = executor;
+            resume();
+        }
+    }
+    
+    /**
+     * Take the next result. Must be called while holding the lock.
+     *
+     * @return the next result, or null if none are buffered
+     */
+    Object poll() {
+        Object result = results.poll();
+        if (result != null) {
+            resume();
+        }
+        return result;
+    }
+    
+    /**
+     * @return true if no more results will be added to the buffer. Must be called while holding the lock.
+     */
+    boolean isDone() {
+        return exhausted || stopped;
+    }
+    
+    /**
+     * @return true if results are buffered. Must be called while holding the lock.
+     */
+    boolean hasResults() {
+        return !results.isEmpty();
+    }
+    
+    /**
+     * Record time the consumer spent waiting while this buffer was empty and its delegate was still running. Must be called while holding the lock.
+     */
+    void addStarvedNanos(long nanos) {
+        starvedNanos += nanos;
+    }
+    
+    int size() {
+        synchronized (lock) {
+            return results.size();
+        }
+    }
+    
+    boolean contains(Object o) {
+        synchronized (lock) {
+            return results.contains(o);
+        }
+    }
+    
+    /**
+     * Stop pulling results from the delegate and discard the buffered results. A fill task that is pulling a result is interrupted.
+     */
+    void stop() {
+        Future<?> future;
+        synchronized (lock) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            results.clear();
+            endFull();
+            future = this.future;
+            lock.notifyAll();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+    
+    /**
+     * Submit the fill task if it is not running and there is room in the buffer. Must be called while holding the lock.
+     */
+    private void resume() {
+        if (results.size() < capacity) {
+            endFull();
+        }
+        if (filling || stopped || exhausted || executor == null || results.size() >= capacity) {
+            return;
+        }
+        filling = true;
+        try {
+            future = executor.submit(this::fill);
+        } catch (RejectedExecutionException e) {
+            log.error("Unable to schedule composite query delegate " + name, e);
+            filling = false;
+            exhausted = true;
+            lock.notifyAll();
+        }
+    }
+    
+    private void endFull() {
+        if (fullSince >= 0) {
+            fullNanos += System.nanoTime() - fullSince;
+            fullSince = -1;
+        }
+    }
+    
+    private void fill() {
+        try {
+            int pulled = 0;
+            while (true) {
+                synchronized (lock) {
+                    if (stopped) {
+                        filling = false;
+                        return;
+                    }
+                    if (results.size() >= capacity) {
+                        fullSince = System.nanoTime();
+                        filling = false;
+                        return;
+                    }
+                    if (pulled >= capacity) {
+                        // go to the back of the executor queue so that the delegates of other queries get a turn
+                        filling = false;
+                        resume();
+                        return;
+                    }
+                }
+                pulled++;
+                
+                long start = System.nanoTime();
+                Object o = null;
+                if (numResults < maxResults && iter.hasNext()) {
+                    o = iter.next();
+                }
+                long elapsed = System.nanoTime() - start;
+                
+                synchronized (lock) {
+                    busyNanos += elapsed;
+                    if (o == null || stopped) {
+                        exhausted = true;
+                        filling = false;
+                        lock.notifyAll();
+                        return;
+                    }
+                    numResults++;
+                    results.add(o);
+                    log.debug(name + ": Added object to results");
+                    lock.notifyAll();
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (lock) {
+                if (!stopped) {
+                    log.error("Composite query delegate " + name + " failed", t);
+                }
+                exhausted = true;
+                filling = false;
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * @return the number of results pulled from the delegate
+     */
+    public long getNumResults() {
+        synchronized (lock) {
+            return numResults;
+        }
+    }
+    
+    /**
+     * @return the time in ms spent pulling results from the delegate
+     */
+    public long getBusyTime() {
+        synchronized (lock) {
+            return TimeUnit.NANOSECONDS.toMillis(busyNanos);
+        }
+    }
+    
+    /**
+     * @return the time in ms the buffer was full waiting on the client
+     */
+    public long getFullTime() {
+        synchronized (lock) {
+            return TimeUnit.NANOSECONDS.toMillis(fullNanos + (fullSince >= 0 ? System.nanoTime() - fullSince : 0));
+        }
+    }
+    
+    /**
+     * @return the time in ms the client waited on an empty buffer while the delegate was running
+     */
+    public long getStarvedTime() {
+        synchronized (lock) {
+            return TimeUnit.NANOSECONDS.toMillis(starvedNanos);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return name + " [results=" + getNumResults() + ", busy=" + getBusyTime() + "ms, full=" + getFullTime() + "ms, starved=" + getStarvedTime() + "ms]";
+    }
+}
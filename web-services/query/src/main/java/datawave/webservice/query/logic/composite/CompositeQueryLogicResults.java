@@ -1,38 +1,97 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.commons.collections4.iterators.TransformIterator;
+
+/**
+ * The results of the delegates of a {@link CompositeQueryLogic}. Each delegate has its own {@link CompositeQueryLogicDelegateBuffer}, and the iterator takes
+ * results from the buffers in turn so that a fast delegate cannot crowd out the results of a slow one.
+ */
 public class CompositeQueryLogicResults implements Iterable<Object> {
     
-    private ArrayBlockingQueue<Object> results = null;
-    private CountDownLatch completionLatch = null;
+    private final int bufferSize;
+    private final List<CompositeQueryLogicDelegateBuffer> buffers = new ArrayList<>();
+    
+    /**
+     * @param bufferSize
+     *            the max number of results to buffer for each delegate
+     */
+    public CompositeQueryLogicResults(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
     
-    public CompositeQueryLogicResults(int pagesize, CountDownLatch completionLatch) {
-        this.results = new ArrayBlockingQueue<>(pagesize);
-        this.completionLatch = completionLatch;
+    /**
+     * Add a buffer for a delegate
+     *
+     * @param name
+     *            the name of the delegate
+     * @param iter
+     *            the transform iterator of the delegate
+     * @param maxResults
+     *            the max number of results to pull from the delegate, a negative value for no limit
+     * @return the buffer
+     */
+    public CompositeQueryLogicDelegateBuffer addDelegate(String name, TransformIterator iter, long maxResults) {
+        CompositeQueryLogicDelegateBuffer buffer = new CompositeQueryLogicDelegateBuffer(name, this, iter, bufferSize, maxResults);
+        synchronized (this) {
+            buffers.add(buffer);
+        }
+        return buffer;
     }
     
-    public void add(Object object) throws InterruptedException {
-        this.results.put(object);
+    /**
+     * Start filling the buffers of all of the delegates
+     *
+     * @param executor
+     *            the executor used to run the fill tasks
+     */
+    public void start(ExecutorService executor) {
+        for (CompositeQueryLogicDelegateBuffer buffer : getDelegateBuffers()) {
+            buffer.start(executor);
+        }
     }
     
+    /**
+     * Stop pulling results from all of the delegates and discard the buffered results
+     */
     public void clear() {
-        this.results.clear();
+        for (CompositeQueryLogicDelegateBuffer buffer : getDelegateBuffers()) {
+            buffer.stop();
+        }
     }
     
     public int size() {
-        return results.size();
+        int size = 0;
+        for (CompositeQueryLogicDelegateBuffer buffer : getDelegateBuffers()) {
+            size += buffer.size();
+        }
+        return size;
     }
     
     public boolean contains(Object o) {
-        return results.contains(o);
+        for (CompositeQueryLogicDelegateBuffer buffer : getDelegateBuffers()) {
+            if (buffer.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return the buffers of the delegates, whose statistics show which delegate is holding up the query
+     */
+    public synchronized List<CompositeQueryLogicDelegateBuffer> getDelegateBuffers() {
+        return Collections.unmodifiableList(new ArrayList<>(buffers));
     }
     
     @Override
     public Iterator<Object> iterator() {
-        return new CompositeQueryLogicResultsIterator(this.results, this.completionLatch);
+        return new CompositeQueryLogicResultsIterator(this, getDelegateBuffers());
     }
     
 }
@@ -1,24 +1,26 @@
 package datawave.webservice.query.logic.composite;
 
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
+/**
+ * Takes results from the delegate buffers of a composite query in turn, waiting while all of the buffers are empty and at least one delegate is still running.
+ */
 public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogicResultsIterator.class);
     
-    private ArrayBlockingQueue<Object> results = null;
+    private final Object lock;
+    private final List<CompositeQueryLogicDelegateBuffer> buffers;
     private Object nextEntry = null;
-    private Object lock = new Object();
-    private CountDownLatch completionLatch = null;
+    private int cursor = 0;
     
-    public CompositeQueryLogicResultsIterator(ArrayBlockingQueue<Object> results, CountDownLatch completionLatch) {
-        this.results = results;
-        this.completionLatch = completionLatch;
+    public CompositeQueryLogicResultsIterator(Object lock, List<CompositeQueryLogicDelegateBuffer> buffers) {
+        this.lock = lock;
+        this.buffers = buffers;
     }
     
     @Override
@@ -27,11 +29,35 @@ public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
             if (nextEntry != null)
                 return true;
             try {
-                while (nextEntry == null && (!results.isEmpty() || completionLatch.getCount() > 0)) {
-                    nextEntry = results.poll(1, TimeUnit.SECONDS);
+                while (nextEntry == null) {
+                    boolean running = false;
+                    for (int i = 0; i < buffers.size() && nextEntry == null; i++) {
+                        int index = (cursor + i) % buffers.size();
+                        CompositeQueryLogicDelegateBuffer buffer = buffers.get(index);
+                        if (buffer.hasResults()) {
+                            nextEntry = buffer.poll();
+                            cursor = index + 1;
+                        } else if (!buffer.isDone()) {
+                            running = true;
+                        }
+                    }
+                    if (nextEntry == null) {
+                        if (!running) {
+                            return false;
+                        }
+                        long start = System.nanoTime();
+                        lock.wait(TimeUnit.SECONDS.toMillis(1));
+                        long waited = System.nanoTime() - start;
+                        for (CompositeQueryLogicDelegateBuffer buffer : buffers) {
+                            if (!buffer.hasResults() && !buffer.isDone()) {
+                                buffer.addStarvedNanos(waited);
+                            }
+                        }
+                    }
                 }
                 return true;
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
             }
         }
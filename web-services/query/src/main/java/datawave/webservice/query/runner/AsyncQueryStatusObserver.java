@@ -1,5 +1,7 @@
 package datawave.webservice.query.runner;
 
+import java.util.function.BooleanSupplier;
+
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.result.BaseQueryResponse;
 import datawave.webservice.result.GenericResponse;
@@ -10,6 +12,18 @@ import datawave.webservice.result.GenericResponse;
 public interface AsyncQueryStatusObserver {
     void queryCreated(GenericResponse<String> createQueryResponse);
     
+    /**
+     * Called before each page of results is requested. Observers that apply back pressure block here until the consumer is ready for another page, and must
+     * stop waiting once the query is no longer active, for example because it was cancelled or expired while idle.
+     *
+     * @param queryActive
+     *            whether the query is still active, which observers should poll while waiting
+     * @return false if the consumer no longer wants results or the query is no longer active, which ends the query
+     */
+    default boolean awaitResultsRequest(BooleanSupplier queryActive) {
+        return queryActive.getAsBoolean();
+    }
+    
     void queryResultsAvailable(BaseQueryResponse results);
     
     void queryCreateException(QueryException ex);
@@ -0,0 +1,225 @@
+package datawave.webservice.query.runner;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import datawave.webservice.query.data.ObjectSizeOf;
+
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.apache.log4j.Logger;
+
+/**
+ * Pulls transformed results from a running query in the background so that the next page is ready when the client asks for it.
+ * <p>
+ * The buffered results are bounded by a number of results and optionally by their estimated size in bytes. The fill task runs on the query executor and gives
+ * its thread back to the executor whenever the buffer is full; it is resubmitted once the request thread has drained a result. Once the buffer has been
+ * stopped no further results are pulled from the iterator.
+ */
+class PrefetchBuffer {
+    
+    private static final Logger log = Logger.getLogger(PrefetchBuffer.class);
+    
+    private final TransformIterator iter;
+    private final ExecutorService executor;
+    private final int maxResults;
+    private final long maxBytes;
+    private final long resultLimit;
+    
+    private final ArrayDeque<BufferedResult> results = new ArrayDeque<>();
+    private long bufferedBytes = 0;
+    private long numPulled = 0;
+    private int maxOccupancy = 0;
+    private boolean filling = false;
+    private boolean exhausted = false;
+    private boolean stopped = false;
+    private Throwable error = null;
+    private Future<?> future = null;
+    
+    /**
+     * @param iter
+     *            the iterator to pull results from
+     * @param executor
+     *            the executor used to run the fill task
+     * @param maxResults
+     *            the max number of results to buffer
+     * @param maxBytes
+     *            the max estimated size in bytes of the buffered results, 0 for no limit
+     * @param resultLimit
+     *            the max number of results to pull from the iterator over the life of the buffer, a negative value for no limit
+     */
+    PrefetchBuffer(TransformIterator iter, ExecutorService executor, int maxResults, long maxBytes, long resultLimit) {
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("The prefetch buffer must hold at least one result");
+        }
+        this.iter = iter;
+        this.executor = executor;
+        this.maxResults = maxResults;
+        this.maxBytes = maxBytes;
+        this.resultLimit = resultLimit;
+    }
+    
+    /**
+     * Start filling the buffer in the background
+     */
+    synchronized void start() {
+        resume();
+    }
+    
+    /**
+     * Take the next result from the buffer, waiting for the fill task if the buffer is empty.
+     *
+     * @param timeout
+     *            the max time to wait for a result
+     * @param unit
+     *            the unit of the timeout
+     * @return the next result, or null if no result was available within the timeout or the buffer has no more results
+     * @throws ExecutionException
+     *             if the fill task failed and all of the results buffered before the failure have been taken
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    synchronized Object poll(long timeout, TimeUnit unit) throws ExecutionException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (results.isEmpty() && error == null && !exhausted && !stopped) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        
+        BufferedResult result = results.poll();
+        if (result != null) {
+            bufferedBytes -= result.size;
+            resume();
+            return result.result;
+        }
+        if (error != null && !stopped) {
+            throw new ExecutionException(error);
+        }
+        return null;
+    }
+    
+    /**
+     * @return true if results are buffered or may still be pulled from the iterator
+     */
+    synchronized boolean hasMore() {
+        return !results.isEmpty() || (!exhausted && !stopped);
+    }
+    
+    /**
+     * Stop pulling results from the iterator and discard the buffered results. A fill task that is pulling a result is interrupted.
+     */
+    void stop() {
+        Future<?> future;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            results.clear();
+            bufferedBytes = 0;
+            future = this.future;
+            notifyAll();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+    
+    /**
+     * @return the number of results currently buffered
+     */
+    synchronized int size() {
+        return results.size();
+    }
+    
+    /**
+     * @return the max number of results buffered at any one time
+     */
+    synchronized int getMaxOccupancy() {
+        return maxOccupancy;
+    }
+    
+    private boolean isFull() {
+        return results.size() >= maxResults || (maxBytes > 0 && bufferedBytes >= maxBytes);
+    }
+    
+    /**
+     * Submit the fill task if it is not running and there is room in the buffer. Must be called while holding the lock.
+     */
+    private void resume() {
+        if (filling || stopped || exhausted || error != null || isFull()) {
+            return;
+        }
+        filling = true;
+        try {
+            future = executor.submit(this::fill);
+        } catch (RejectedExecutionException e) {
+            filling = false;
+            error = e;
+            notifyAll();
+        }
+    }
+    
+    private void fill() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (stopped || isFull()) {
+                        filling = false;
+                        return;
+                    }
+                }
+                
+                Object o = null;
+                if ((resultLimit < 0 || numPulled < resultLimit) && iter.hasNext()) {
+                    o = iter.next();
+                }
+                long size = (o != null && maxBytes > 0) ? ObjectSizeOf.Sizer.getObjectSize(o) : 0;
+                
+                synchronized (this) {
+                    if (o == null) {
+                        log.debug("Null result encountered, no more results to prefetch");
+                        exhausted = true;
+                        filling = false;
+                        notifyAll();
+                        return;
+                    }
+                    if (stopped) {
+                        filling = false;
+                        return;
+                    }
+                    numPulled++;
+                    results.add(new BufferedResult(o, size));
+                    bufferedBytes += size;
+                    maxOccupancy = Math.max(maxOccupancy, results.size());
+                    notifyAll();
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (this) {
+                if (!stopped) {
+                    log.error("Failed to prefetch results", t);
+                }
+                error = t;
+                filling = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    private static class BufferedResult {
+        private final Object result;
+        private final long size;
+        
+        BufferedResult(Object result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
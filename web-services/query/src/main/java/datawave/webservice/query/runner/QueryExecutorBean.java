@@ -162,6 +162,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import static datawave.webservice.query.annotation.EnrichQueryMetrics.MethodType;
 import static datawave.webservice.query.cache.QueryTraceCache.CacheListener;
@@ -3335,10 +3336,20 @@ public class QueryExecutorBean implements QueryExecutor {
             boolean done = false;
             Span span = null;
             List<PageMetric> pageMetrics = rq.getMetric().getPageTimes();
+            // the query is evicted from the cache when it expires, which may happen while the observer is waiting
+            BooleanSupplier queryActive = () -> !rq.isCanceled() && !sessionContext.wasCancelCalled() && queryCache.containsKey(queryId);
             
             // Loop over each page of query results, and notify the observer about each page.
             // If we get any exception, then break out of the loop and notify the observer about the problem.
             do {
+                // Wait for the observer to be ready for the next page. This is not part of the call, so the query is idle while we wait.
+                if (!observer.awaitResultsRequest(queryActive)) {
+                    if (!rq.isCanceled() && !sessionContext.wasCancelCalled() && !queryCache.containsKey(queryId)) {
+                        observer.queryException(new QueryException(DatawaveErrorCode.QUERY_TIMEOUT, MessageFormat.format("id = {0}", queryId)));
+                    }
+                    break;
+                }
+                
                 long callStart = System.nanoTime();
                 rq.setActiveCall(true);
                 try {
@@ -54,6 +54,8 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     private transient QueryLogic<?> logic = null;
     private Query settings = null;
     private long numResults = 0;
+    // when setup of the query began, used to measure the time to the first result
+    private long setupStartTime = 0;
     private long lastPageNumber = 0;
     private transient TransformIterator iter = null;
     private Set<Authorizations> calculatedAuths = null;
@@ -64,6 +66,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     private RunningQueryTiming timing = null;
     private ExecutorService executor = null;
     private volatile Future<Object> future = null;
+    private transient volatile PrefetchBuffer prefetchBuffer = null;
     private QueryPredictor predictor = null;
     
     public RunningQuery() {
@@ -156,6 +159,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             applyPrediction(null);
             this.connection = connection;
             long start = System.currentTimeMillis();
+            this.setupStartTime = start;
             GenericQueryConfiguration configuration = this.logic.initialize(this.connection, this.settings, this.calculatedAuths);
             this.lastPageNumber = 0;
             this.logic.setupQuery(configuration);
@@ -199,7 +203,15 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             // test for any exceptions prior to loop as hasNext() would likely be false;
             testForUncaughtException(resultList.size());
             
-            while (!this.finished && ((future != null) || this.iter.hasNext())) {
+            // start transforming results in the background if the logic prefetches pages
+            if (this.prefetchBuffer == null && this.executor != null && this.future == null && !this.finished && !this.canceled
+                            && this.logic.getPrefetchPages() > 0) {
+                this.prefetchBuffer = createPrefetchBuffer();
+                this.prefetchBuffer.start();
+            }
+            PrefetchBuffer prefetchBuffer = this.prefetchBuffer;
+            
+            while (!this.finished && (prefetchBuffer != null ? prefetchBuffer.hasMore() : ((future != null) || this.iter.hasNext()))) {
                 // if we are canceled, then break out
                 if (this.canceled) {
                     log.info("Query has been cancelled, aborting query.next call");
@@ -254,7 +266,16 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                 }
                 
                 Object o = null;
-                if (executor != null) {
+                boolean waiting = false;
+                if (prefetchBuffer != null) {
+                    try {
+                        o = prefetchBuffer.poll(1, TimeUnit.MINUTES);
+                        // a null result while the buffer may still produce results means we are still waiting on the next result
+                        waiting = (o == null && prefetchBuffer.hasMore());
+                    } catch (InterruptedException ie) {
+                        // in this case we were most likely cancelled, no longer waiting
+                    }
+                } else if (executor != null) {
                     if (future == null) {
                         future = executor.submit(() -> iter.next());
                     }
@@ -271,6 +292,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     } catch (TimeoutException te) {
                         // in this case we are still waiting on our future....simply continue
                     }
+                    waiting = (future != null);
                 } else {
                     o = iter.next();
                 }
@@ -281,12 +303,15 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                 }
                 
                 // if not still waiting on a future, then process the result (or lack thereof)
-                if (future == null) {
+                if (!waiting) {
                     if (null == o) {
                         log.debug("Null result encountered, no more results");
                         this.finished = true;
                         break;
                     }
+                    if (numResults == 0 && setupStartTime > 0) {
+                        this.getMetric().setTimeToFirstResult(System.currentTimeMillis() - setupStartTime);
+                    }
                     resultList.add(o);
                     if (this.logic.getPageByteTrigger() > 0) {
                         currentPageBytes += ObjectSizeOf.Sizer.getObjectSize(o);
@@ -305,6 +330,10 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             long now = System.currentTimeMillis();
             this.getMetric().addPageTime(currentPageCount, now - pageStartTime, pageStartTime, now);
             this.lastPageNumber++;
+            if (prefetchBuffer != null) {
+                this.getMetric().setPrefetchBufferOccupancy(prefetchBuffer.size());
+                this.getMetric().setPrefetchBufferMaxOccupancy(prefetchBuffer.getMaxOccupancy());
+            }
             if (!resultList.isEmpty()) {
                 this.getMetric().setLifecycle(QueryMetric.Lifecycle.RESULTS);
             }
@@ -332,8 +361,38 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    /**
+     * Creates the buffer for results transformed between calls to {@link #next()}. The buffer holds {@link QueryLogic#getPrefetchPages()} pages of the
+     * requested page size, bounded by {@link QueryLogic#getPrefetchMaxBytes()}, and never pulls more results than the query may return.
+     */
+    private PrefetchBuffer createPrefetchBuffer() {
+        int pageSize = this.settings.getPagesize();
+        if (this.logic.getMaxPageSize() > 0) {
+            pageSize = Math.min(pageSize, this.logic.getMaxPageSize());
+        }
+        long maxResults = (long) Math.max(1, pageSize) * this.logic.getPrefetchPages();
+        
+        long resultLimit;
+        if (this.settings.isMaxResultsOverridden()) {
+            resultLimit = this.settings.getMaxResultsOverride() >= 0 ? Math.max(0, this.settings.getMaxResultsOverride() - numResults) : -1;
+        } else {
+            resultLimit = this.logic.getMaxResults() >= 0 ? Math.max(0, this.logic.getMaxResults() - numResults) : -1;
+        }
+        
+        return new PrefetchBuffer(this.iter, this.executor, (int) Math.min(Integer.MAX_VALUE, maxResults), this.logic.getPrefetchMaxBytes(), resultLimit);
+    }
+    
+    private void stopPrefetching() {
+        PrefetchBuffer prefetchBuffer = this.prefetchBuffer;
+        if (prefetchBuffer != null) {
+            prefetchBuffer.stop();
+        }
+    }
+    
     public void cancel() {
         this.canceled = true;
+        // stop transforming results in the background
+        stopPrefetching();
         // save off the future as it could be removed at any time
         Future<Object> future = this.future;
         // cancel the future if we have one
@@ -407,6 +466,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     public void closeConnection(AccumuloConnectionFactory factory) throws Exception {
         this.getMetric().setLifecycle(BaseQueryMetric.Lifecycle.CLOSED);
         
+        // stop pulling results before the scanners are closed underneath the prefetch task
+        stopPrefetching();
+        
         if (iter != null && iter.getTransformer() instanceof WritesResultCardinalities) {
             ((WritesResultCardinalities) iter.getTransformer()).writeResultCardinalities();
         }
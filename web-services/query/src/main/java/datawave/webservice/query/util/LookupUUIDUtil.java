@@ -61,6 +61,11 @@ public class LookupUUIDUtil {
      */
     public static final String PARAM_CONTENT_LOOKUP = "content.lookup";
     
+    /**
+     * Parameter used to have the ContentQuery return the documents of a batch in the order in which they were requested
+     */
+    private static final String PARAM_CONTENT_REQUEST_ORDER = "content.request.order";
+    
     private static final String PARAM_LUCENE_QUERY_SYNTAX = ";query.syntax:LUCENE-UUID";
     protected static final String QUOTE = "\"";
     private static final String REGEX_GROUPING_CHARS = "[()]";
@@ -155,10 +160,10 @@ public class LookupUUIDUtil {
     
     /*
      * Create manageable batches of contentQuery strings based on the configured upper limit of UUIDS, if any. A content query term from one item in the list
-     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> <b>Note:</b> An attempt was made to concatenate multiple events into a
-     * single OR'd expression, but the ContentQueryTable only supports one term at a time.
+     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> The terms of a batch are space-delimited, and the ContentQueryTable
+     * retrieves all of the documents of a batch with a single batch scanner.
      * 
-     * @param eventResponse a specialized response for optimizing content lookup based on internal event IDs
+     * @param validatedCriteria a specialized criteria for optimizing content lookup based on internal event IDs
      * 
      * @return a list of batched content query strings
      */
@@ -189,6 +194,9 @@ public class LookupUUIDUtil {
                 }
                 
                 if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) && (null != uuid)) {
+                    // Increment the counter
+                    eventCounter++;
+                    
                     // Conditionally initialize a new query string and the event counter
                     if ((null == contentQuery) || (!multiTermExpressionsSupported)
                                     || ((this.maxAllowedBatchLookupUUIDs > 0) && (eventCounter > this.maxAllowedBatchLookupUUIDs))) {
@@ -213,16 +221,15 @@ public class LookupUUIDUtil {
     
     /*
      * Create contentQuery strings based on the specified events, if any. A contentQuery string from one event would look like the following example: <p>
-     * "DOCUMENT:shardId/datatype/uid" <p> <b>Note:</b> An attempt was made to concatenate multiple events into a single OR'd expression, but the
-     * ContentQueryTable only supports one term at a time.
+     * "DOCUMENT:shardId/datatype/uid" <p> The terms of a batch are space-delimited, and the ContentQueryTable retrieves all of the documents of a batch
+     * with a single batch scanner.
      * 
      * @param eventResponse the response from the UUID query
      * 
      * @return a list of batched content query strings
      */
     private List<StringBuilder> createContentQueryStrings(final EventQueryResponseBase eventResponse) {
-        // Initialize a flag that can be flipped to support multi-term ContentQueryTable expressions
-        // at some unknown point in the future
+        // Initialize a flag that can be flipped to run one ContentQueryTable expression per event
         boolean multiTermExpressionsSupported = true;
         
         // Declare the returned list of query strings
@@ -590,6 +597,7 @@ public class LookupUUIDUtil {
             }
             queryParameters.putSingle(QueryParameters.QUERY_PERSISTENCE, QueryPersistence.TRANSIENT.name());
             queryParameters.putSingle(QueryParameters.QUERY_TRACE, "false");
+            queryParameters.putSingle(PARAM_CONTENT_REQUEST_ORDER, Boolean.TRUE.toString());
             
             for (String key : validatedCriteria.getQueryParameters().keySet()) {
                 if (!queryParameters.containsKey(key)) {
@@ -703,6 +711,7 @@ public class LookupUUIDUtil {
         }
         queryParameters.putSingle(QueryParameters.QUERY_PERSISTENCE, QueryPersistence.TRANSIENT.name());
         queryParameters.putSingle(QueryParameters.QUERY_TRACE, "false");
+        queryParameters.putSingle(PARAM_CONTENT_REQUEST_ORDER, Boolean.TRUE.toString());
         
         for (String key : validatedCriteria.getQueryParameters().keySet()) {
             if (!queryParameters.containsKey(key)) {
@@ -0,0 +1,136 @@
+package datawave.webservice.query.logic.composite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.functors.NOPTransformer;
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompositeQueryLogicResultsTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+    
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+    
+    private static TransformIterator iterator(Iterator<?> source) {
+        return new TransformIterator(source, NOPTransformer.nopTransformer());
+    }
+    
+    private static List<Object> drain(CompositeQueryLogicResults results) {
+        List<Object> drained = new ArrayList<>();
+        Iterator<Object> iter = results.iterator();
+        while (iter.hasNext()) {
+            drained.add(iter.next());
+        }
+        return drained;
+    }
+    
+    @Test
+    public void testInterleaving() throws Exception {
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(10);
+        results.addDelegate("one", iterator(Arrays.asList("a1", "a2", "a3", "a4").iterator()), -1);
+        results.addDelegate("two", iterator(Arrays.asList("b1", "b2").iterator()), -1);
+        results.addDelegate("three", iterator(Arrays.asList("c1", "c2", "c3").iterator()), 1);
+        results.start(executor);
+        
+        // wait for the delegates to fill their buffers so that the order is deterministic
+        for (CompositeQueryLogicDelegateBuffer buffer : results.getDelegateBuffers()) {
+            while (!isDone(results, buffer)) {
+                Thread.sleep(10);
+            }
+        }
+        
+        Assert.assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "b2", "a3", "a4"), drain(results));
+        Assert.assertEquals(1, results.getDelegateBuffers().get(2).getNumResults());
+    }
+    
+    @Test
+    public void testBackpressure() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<Object> endless = new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Object next() {
+                return pulled.incrementAndGet();
+            }
+        };
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(5);
+        results.addDelegate("endless", iterator(endless), -1);
+        results.start(executor);
+        
+        Iterator<Object> iter = results.iterator();
+        for (int i = 1; i <= 3; i++) {
+            Assert.assertTrue(iter.hasNext());
+            Assert.assertEquals(i, iter.next());
+        }
+        
+        // the delegate only runs ahead of the client by the size of its buffer
+        Thread.sleep(100);
+        Assert.assertTrue(pulled.get() <= 3 + 5);
+        
+        results.clear();
+        Assert.assertFalse(iter.hasNext());
+        Assert.assertEquals(0, results.size());
+    }
+    
+    @Test
+    public void testStopBlockedDelegate() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Iterator<Object> blocking = new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Object next() {
+                blocked.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        };
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(5);
+        results.addDelegate("blocking", iterator(blocking), -1);
+        results.addDelegate("empty", iterator(new ArrayList<>().iterator()), -1);
+        results.start(executor);
+        
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        results.clear();
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(drain(results).isEmpty());
+    }
+    
+    private static boolean isDone(CompositeQueryLogicResults results, CompositeQueryLogicDelegateBuffer buffer) {
+        synchronized (results) {
+            return buffer.isDone();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package datawave.webservice.query.runner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.Transformer;
+import org.apache.commons.collections4.iterators.TransformIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrefetchBufferTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+    
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+    
+    private static List<Integer> range(int size) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+    
+    private static List<Object> drain(PrefetchBuffer buffer) throws Exception {
+        List<Object> results = new ArrayList<>();
+        while (buffer.hasMore()) {
+            Object o = buffer.poll(10, TimeUnit.SECONDS);
+            if (o != null) {
+                results.add(o);
+            }
+        }
+        return results;
+    }
+    
+    @Test
+    public void testReturnsAllResultsInOrder() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer(new TransformIterator(range(100).iterator(), (Transformer) input -> input), executor, 7, 0, -1);
+        buffer.start();
+        
+        Assert.assertEquals(new ArrayList<Object>(range(100)), drain(buffer));
+        Assert.assertFalse(buffer.hasMore());
+        Assert.assertNull(buffer.poll(1, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(buffer.getMaxOccupancy() <= 7);
+    }
+    
+    @Test
+    public void testBufferIsBounded() throws Exception {
+        final AtomicInteger pulled = new AtomicInteger();
+        Iterator<Integer> it = range(100).iterator();
+        TransformIterator iter = new TransformIterator(it, (Transformer) input -> {
+            pulled.incrementAndGet();
+            return input;
+        });
+        PrefetchBuffer buffer = new PrefetchBuffer(iter, executor, 5, 0, -1);
+        buffer.start();
+        
+        // wait for the buffer to fill, the fill task should then stop pulling results
+        long deadline = System.currentTimeMillis() + 10000;
+        while (buffer.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(5, buffer.size());
+        Assert.assertEquals(5, pulled.get());
+        Assert.assertEquals(5, buffer.getMaxOccupancy());
+        
+        // taking a result resumes the fill task
+        Assert.assertEquals(0, buffer.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(range(100).subList(1, 100), drain(buffer));
+        Assert.assertEquals(100, pulled.get());
+    }
+    
+    @Test
+    public void testResultLimit() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer(new TransformIterator(range(100).iterator(), (Transformer) input -> input), executor, 10, 0, 25);
+        buffer.start();
+        
+        Assert.assertEquals(new ArrayList<Object>(range(25)), drain(buffer));
+    }
+    
+    @Test
+    public void testByteLimit() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer(new TransformIterator(range(100).iterator(), (Transformer) input -> input), executor, 100, 1, -1);
+        buffer.start();
+        
+        Assert.assertEquals(new ArrayList<Object>(range(100)), drain(buffer));
+        Assert.assertEquals(1, buffer.getMaxOccupancy());
+    }
+    
+    @Test
+    public void testErrorAfterBufferedResults() throws Exception {
+        TransformIterator iter = new TransformIterator(range(10).iterator(), (Transformer) input -> {
+            if (((Integer) input) == 3) {
+                throw new IllegalStateException("INTENTIONALLY THROWN TEST EXCEPTION");
+            }
+            return input;
+        });
+        PrefetchBuffer buffer = new PrefetchBuffer(iter, executor, 10, 0, -1);
+        buffer.start();
+        
+        Assert.assertEquals(0, buffer.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, buffer.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, buffer.poll(10, TimeUnit.SECONDS));
+        try {
+            buffer.poll(10, TimeUnit.SECONDS);
+            Assert.fail("Expected the transform failure to be thrown");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void testStop() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        TransformIterator iter = new TransformIterator(range(10).iterator(), (Transformer) input -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return input;
+        });
+        PrefetchBuffer buffer = new PrefetchBuffer(iter, executor, 10, 0, -1);
+        buffer.start();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        
+        buffer.stop();
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(buffer.hasMore());
+        Assert.assertNull(buffer.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, buffer.size());
+    }
+}